@@ -29,6 +29,17 @@ public class WebSocket {
 	private OutputStream outputStream;
 	private Listener listener;
 	private ArrayList<Object> eventQueue = new ArrayList<Object>();
+
+	/**
+	 * Protocol suffix that makes both ends use draft-75 length frames
+	 * instead of UTF-8 text frames. Messages stay Strings with one char per
+	 * byte, so callers see no difference.
+	 */
+	public static final String BINARY_PROTOCOL_SUFFIX = ";binary";
+
+	private static final int LENGTH_FRAME = 0x80;
+
+	private final boolean binary;
 	public interface Listener {
 		void onClose(WebSocket socket, CloseEvent event);
 	    void onMessage(WebSocket socket, MessageEvent event);
@@ -36,6 +47,7 @@ public class WebSocket {
 	}
 
 	private WebSocket(String url, final String protocol) throws IOException {
+	  binary = protocol != null && protocol.endsWith(BINARY_PROTOCOL_SUFFIX);
 	  if (!url.startsWith("ws://")) {
 		  throw new RuntimeException("ws:// expected");
 	  }
@@ -71,7 +83,7 @@ public class WebSocket {
       new Thread(new Runnable(){
 		public void run() {
 			try{
-          println("GET /" + path + " HTTP/1.1");
+          println("GET " + (path.length() == 0 ? "/" : path) + " HTTP/1.1");
           println("Upgrade: WebSocket");
           println("Connection: Upgrade");
           println("Host: " + host);
@@ -142,6 +154,9 @@ public class WebSocket {
 		 if (i == -1) {
 			  throw new IOException("closed by remote");
 		  }
+	  if ((i & LENGTH_FRAME) != 0) {
+		  return readLengthFrame();
+	  }
 	  if(i != 0) {
 		  System.out.println("Illegal frame start: "+ i);
 	  }
@@ -162,6 +177,28 @@ public class WebSocket {
 	
 	
 	
+	private String readLengthFrame() throws IOException {
+	  int len = 0;
+	  int b;
+	  do {
+		  b = inputStream.read();
+		  if (b == -1) {
+			  throw new IOException("closed by remote (in frame)");
+		  }
+		  len = (len << 7) | (b & 0x7f);
+	  } while ((b & 0x80) != 0);
+
+	  char[] chars = new char[len];
+	  for (int i = 0; i < len; i++) {
+		  b = inputStream.read();
+		  if (b == -1) {
+			  throw new IOException("closed by remote (in frame)");
+		  }
+		  chars[i] = (char) b;
+	  }
+	  return new String(chars);
+	}
+
 	private void println(String string) throws IOException {
 	  outputStream.write(string.getBytes("UTF-8"));	
 	  outputStream.write('\r');
@@ -185,6 +222,23 @@ public class WebSocket {
 	}
 
 	public void send(String s) throws IOException {
+	  if (binary) {
+		int len = s.length();
+		byte[] frame = new byte[len + 6];
+		int pos = 0;
+		frame[pos++] = (byte) LENGTH_FRAME;
+		for (int shift = 28; shift > 0; shift -= 7) {
+		  if ((len >>> shift) != 0 || pos > 1) {
+			frame[pos++] = (byte) (0x80 | ((len >>> shift) & 0x7f));
+		  }
+		}
+		frame[pos++] = (byte) (len & 0x7f);
+		for (int i = 0; i < len; i++) {
+		  frame[pos++] = (byte) s.charAt(i);
+		}
+		outputStream.write(frame, 0, pos);
+		return;
+	  }
 	  outputStream.write(0);
 	  outputStream.write(s.getBytes("UTF-8"));
 	  outputStream.write(255);
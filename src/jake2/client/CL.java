@@ -759,7 +759,7 @@ public final class CL {
 
         s = MSG.ReadStringLine(Globals.net_message);
 
-        Cmd.TokenizeString(s.toCharArray(), false);
+        Cmd.TokenizeString(s, false);
 
         c = Cmd.Argv(0);
         
@@ -271,6 +271,7 @@ public class CL_parse {
             int r = Lib.rename(oldn, newn);
             if (r != 0)
                 Com.Printf("failed to rename.\n");
+            FS.FlushCache();
 
             Globals.cls.download = null;
             Globals.cls.downloadpercent = 0;
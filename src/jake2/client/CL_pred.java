@@ -87,8 +87,8 @@ public class CL_pred {
         entity_state_t ent;
         int num;
         cmodel_t cmodel;
-        float[] bmins = new float[3];
-        float[] bmaxs = new float[3];
+        float[] bmins = clip_mins;
+        float[] bmaxs = clip_maxs;
 
         for (i = 0; i < Globals.cl.frame.num_entities; i++) {
             num = (Globals.cl.frame.parse_entities + i)
@@ -124,8 +124,8 @@ public class CL_pred {
             if (tr.allsolid)
                 return;
 
-            trace = CM.TransformedBoxTrace(start, end, mins, maxs, headnode,
-                    Defines.MASK_PLAYERSOLID, ent.origin, angles);
+            trace = CM.TransformedBoxTrace(traceContext, start, end, mins,
+                    maxs, headnode, Defines.MASK_PLAYERSOLID, ent.origin, angles);
 
             if (trace.allsolid || trace.startsolid
                     || trace.fraction < tr.fraction) {
@@ -148,12 +148,20 @@ public class CL_pred {
 
     public static edict_t DUMMY_ENT = new edict_t(-1);
 
+    // PMTrace scratch, the result is overwritten by the next PMTrace
+    private static final TraceContext traceContext = new TraceContext();
+
+    private static final trace_t pmtrace = new trace_t();
+
+    private static final float[] clip_mins = { 0, 0, 0 }, clip_maxs = { 0, 0, 0 };
+
     static trace_t PMTrace(float[] start, float[] mins, float[] maxs,
             float[] end) {
-        trace_t t;
+        trace_t t = pmtrace;
 
         // check against world
-        t = CM.BoxTrace(start, end, mins, maxs, 0, Defines.MASK_PLAYERSOLID);
+        t.set(CM.BoxTrace(traceContext, start, end, mins, maxs, 0,
+                Defines.MASK_PLAYERSOLID));
 
         if (t.fraction < 1.0f) {
             t.ent = DUMMY_ENT;
@@ -191,12 +199,28 @@ public class CL_pred {
             if (cmodel == null)
                 continue;
 
-            contents |= CM.TransformedPointContents(point, cmodel.headnode,
+            contents |= CM.TransformedPointContents(traceContext, point, cmodel.headnode,
                     ent.origin, ent.angles);
         }
         return contents;
     }
 
+    // reused by PredictMovement
+    private static final pmove_t pm_move = new pmove_t();
+
+    private static final pmove_t.TraceAdapter pm_trace = new pmove_t.TraceAdapter() {
+        public trace_t trace(float[] start, float[] mins, float[] maxs,
+                float[] end) {
+            return PMTrace(start, mins, maxs, end);
+        }
+    };
+
+    private static final pmove_t.PointContentsAdapter pm_pointcontents = new pmove_t.PointContentsAdapter() {
+        public int pointcontents(float[] point) {
+            return PMpointcontents(point);
+        }
+    };
+
     /*
      * ================= CL_PredictMovement
      * 
@@ -233,19 +257,11 @@ public class CL_pred {
 
         // copy current state to pmove
         //memset (pm, 0, sizeof(pm));
-        pmove_t pm = new pmove_t();
+        pmove_t pm = pm_move;
+        pm.clear();
 
-        pm.trace = new pmove_t.TraceAdapter() {
-            public trace_t trace(float[] start, float[] mins, float[] maxs,
-                    float[] end) {
-                return PMTrace(start, mins, maxs, end);
-            }
-        };
-        pm.pointcontents = new pmove_t.PointContentsAdapter() {
-            public int pointcontents(float[] point) {
-                return PMpointcontents(point);
-            }
-        };
+        pm.trace = pm_trace;
+        pm.pointcontents = pm_pointcontents;
 
         try {
             PMove.pm_airaccelerate = Float
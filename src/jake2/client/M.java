@@ -29,6 +29,7 @@ import jake2.qcommon.Globals;
 import jake2.server.SV;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 /**
  * M
@@ -36,7 +37,6 @@ import jake2.util.Math3D;
 public final class M {
 
     public static void M_CheckGround(edict_t ent) {
-        float[] point = { 0, 0, 0 };
         trace_t trace;
 
         if ((ent.flags & (Defines.FL_SWIM | Defines.FL_FLY)) != 0)
@@ -49,12 +49,15 @@ public final class M {
 
         // if the hull point one-quarter unit down is solid the entity is on
         // ground
+        int mark = Vec3Pool.main.mark();
+        float[] point = Vec3Pool.main.get();
         point[0] = ent.s.origin[0];
         point[1] = ent.s.origin[1];
         point[2] = ent.s.origin[2] - 0.25f;
 
         trace = GameBase.gi.trace(ent.s.origin, ent.mins, ent.maxs, point, ent,
                 Defines.MASK_MONSTERSOLID);
+        Vec3Pool.main.release(mark);
 
         // check steepness
         if (trace.plane.normal[2] < 0.7 && !trace.startsolid) {
@@ -80,10 +83,11 @@ public final class M {
      */
 
     public static boolean M_CheckBottom(edict_t ent) {
-        float[] mins = { 0, 0, 0 };
-        float[] maxs = { 0, 0, 0 };
-        float[] start = { 0, 0, 0 };
-        float[] stop = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] mins = Vec3Pool.main.get();
+        float[] maxs = Vec3Pool.main.get();
+        float[] start = Vec3Pool.main.get();
+        float[] stop = Vec3Pool.main.get();
 
         trace_t trace;
         int x, y;
@@ -115,8 +119,10 @@ public final class M {
                             Globals.vec3_origin, stop, ent,
                             Defines.MASK_MONSTERSOLID);
 
-                    if (trace.fraction == 1.0)
+                    if (trace.fraction == 1.0) {
+                        Vec3Pool.main.release(mark);
                         return false;
+                    }
                     mid = bottom = trace.endpos[2];
 
                     //	   the corners must be within 16 of the midpoint
@@ -133,16 +139,20 @@ public final class M {
                                     && trace.endpos[2] > bottom)
                                 bottom = trace.endpos[2];
                             if (trace.fraction == 1.0
-                                    || mid - trace.endpos[2] > GameBase.STEPSIZE)
+                                    || mid - trace.endpos[2] > GameBase.STEPSIZE) {
+                                Vec3Pool.main.release(mark);
                                 return false;
+                            }
                         }
 
                     GameBase.c_yes++;
+                    Vec3Pool.main.release(mark);
                     return true;
                 }
             }
 
         GameBase.c_yes++;
+        Vec3Pool.main.release(mark);
         return true; // we got out easy
     }
 
@@ -207,23 +217,27 @@ public final class M {
      * M_walkmove.
      */
     public static boolean M_walkmove(edict_t ent, float yaw, float dist) {
-        float[] move = { 0, 0, 0 };
-
         if ((ent.groundentity == null)
                 && (ent.flags & (Defines.FL_FLY | Defines.FL_SWIM)) == 0)
             return false;
 
+        int mark = Vec3Pool.main.mark();
+        float[] move = Vec3Pool.main.get();
+
         yaw = (float) (yaw * Math.PI * 2 / 360);
 
         move[0] = (float) Math.cos(yaw) * dist;
         move[1] = (float) Math.sin(yaw) * dist;
         move[2] = 0;
 
-        return SV.SV_movestep(ent, move, true);
+        boolean moved = SV.SV_movestep(ent, move, true);
+        Vec3Pool.main.release(mark);
+        return moved;
     }
 
     public static void M_CatagorizePosition(edict_t ent) {
-        float[] point = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] point = Vec3Pool.main.get();
         int cont;
 
         //
@@ -237,6 +251,7 @@ public final class M {
         if (0 == (cont & Defines.MASK_WATER)) {
             ent.waterlevel = 0;
             ent.watertype = 0;
+            Vec3Pool.main.release(mark);
             return;
         }
 
@@ -244,14 +259,17 @@ public final class M {
         ent.waterlevel = 1;
         point[2] += 26;
         cont = GameBase.gi.pointcontents.pointcontents(point);
-        if (0 == (cont & Defines.MASK_WATER))
+        if (0 == (cont & Defines.MASK_WATER)) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         ent.waterlevel = 2;
         point[2] += 22;
         cont = GameBase.gi.pointcontents.pointcontents(point);
         if (0 != (cont & Defines.MASK_WATER))
             ent.waterlevel = 3;
+        Vec3Pool.main.release(mark);
     }
 
     public static void M_WorldEffects(edict_t ent) {
@@ -405,7 +423,7 @@ public final class M {
         int index;
 
         move = self.monsterinfo.currentmove;
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
         if ((self.monsterinfo.nextframe != 0)
                 && (self.monsterinfo.nextframe >= move.firstframe)
@@ -470,7 +488,7 @@ public final class M {
             self.s.effects |= Defines.EF_FLIES;
             self.s.sound = GameBase.gi.soundindex("infantry/inflies1.wav");
             self.think = M_FliesOff;
-            self.nextthink = GameBase.level.time + 60;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 60);
             return true;
         }
     };
@@ -487,8 +505,8 @@ public final class M {
                 return true;
 
             self.think = M_FliesOn;
-            self.nextthink = GameBase.level.time + 5 + 10
-                    * Globals.rnd.nextFloat();
+            ThinkWheel.setNextthink(self, GameBase.level.time + 5 + 10
+                    * Globals.rnd.nextFloat());
             return true;
         }
     };
@@ -36,8 +36,22 @@ import com.google.gwt.corp.websocket.WebSocket;
 
 public class WebSocketFactoryImpl implements QSocketFactory {
 
+	/** Protocol suffix asking the server for binary frames. */
+	static final String BINARY_PROTOCOL_SUFFIX = ";binary";
+
+	private final boolean binary;
+
+	/** Text frames, as browsers without binary frame support need. */
+	public WebSocketFactoryImpl() {
+		this(false);
+	}
+
+	public WebSocketFactoryImpl(boolean binary) {
+		this.binary = binary;
+	}
+
 	public QSocket bind(String ip, int port) {
-		return new GwtWebSocketImpl(ip, port);
+		return new GwtWebSocketImpl(ip, port, binary);
 	}
 }
 
@@ -50,10 +64,13 @@ class GwtWebSocketImpl implements QSocket {
 	private int localPort;
 	private int remotePort;
 	private byte[] remoteIp;
+	private String remoteRoute;
+	private final boolean binary;
 	
-	public GwtWebSocketImpl(String ip, int localPort)  {
+	public GwtWebSocketImpl(String ip, int localPort, boolean binary)  {
 		this.ip = ip;
 		this.localPort = localPort;
+		this.binary = binary;
 
 		System.out.println("Creating GwtWebSocketImpl(" + localPort + ")");
 	  
@@ -84,6 +101,7 @@ class GwtWebSocketImpl implements QSocket {
 		address.ip = new byte[4];
 		System.arraycopy(remoteIp, 0, address.ip, 0, 4);
 		address.port = remotePort;
+		address.route = remoteRoute;
 		
 		return len;
 	}
@@ -93,14 +111,17 @@ class GwtWebSocketImpl implements QSocket {
 
 		if (socket == null) {
 			remotePort = adr.port;
+			remoteRoute = adr.route;
 			remoteIp = new byte[4];
 			System.arraycopy(adr.ip, 0, remoteIp, 0, 4);
 			
+			// The route selects a match on a MatchHost ("/match/2").
 			String url = "ws://" + InetAddress.getByAddress(adr.ip).getHostAddress()
-			+ ":" + adr.port;
+			+ ":" + adr.port + (adr.route != null ? adr.route : "");
 			System.out.println("connect for send to: " + url);
 			
-			socket = WebSocket.create(url, "" + localPort);
+			socket = WebSocket.create(url, localPort
+					+ (binary ? WebSocketFactoryImpl.BINARY_PROTOCOL_SUFFIX : ""));
 			
 			System.out.println("socket: " + socket);
 
@@ -27,7 +27,7 @@ public class CompatibilityImpl implements Compatibility.Impl {
 	}
 
 	public float intBitsToFloat(int i) {
-		return intBitsToFloat(i);
+		return Float.intBitsToFloat(i);
 	}
 
 	public String createString(byte[] b, int ofs, int length) {
@@ -26,6 +26,7 @@ package jake2.desktop;
 import jake2.client.WebSocketFactoryImpl;
 import jake2.qcommon.Compatibility;
 import jake2.qcommon.Cvar;
+import jake2.qcommon.FS;
 import jake2.qcommon.Globals;
 import jake2.qcommon.Qcommon;
 import jake2.qcommon.ResourceLoader;
@@ -48,10 +49,12 @@ public final class DesktopQuake {
     // Initialize drivers.
     Globals.re = wireframe ? new DesktopWireframeRenderer() : new DesktopRenderer();
 
-    ResourceLoader.impl = new ResourceLoaderImpl();
+    ResourceLoaderImpl loader = new ResourceLoaderImpl();
+    ResourceLoader.impl = loader;
     Compatibility.impl = new CompatibilityImpl();
+    FS.mapper = new FileMapper();
     S.impl = new DummyDriver();
-    NET.socketFactory = new WebSocketFactoryImpl();
+    NET.socketFactory = new WebSocketFactoryImpl(true);
   
     // Parse flags.
     int argc = (args == null) ? 1 : args.length + 1;
@@ -61,6 +64,7 @@ public final class DesktopQuake {
       System.arraycopy(args, 0, c_args, 1, argc - 1);
     }
     Qcommon.Init(c_args);
+    loader.addStatsCommand();
 
 //    Cbuf.AddText("map demo1\n");
 //    Cbuf.Execute();
@@ -19,57 +19,186 @@ Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
 */
 package jake2.desktop;
 
+import jake2.game.Cmd;
 import jake2.qcommon.Com;
 import jake2.qcommon.Defines;
+import jake2.qcommon.FS;
 import jake2.qcommon.ResourceLoader;
+import jake2.qcommon.xcommand_t;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
+/**
+ * Loads resources from the loose files below Defines.BASEDIRNAME, falling
+ * back to the pak files there if FS.mapper is installed. Files in a pak are
+ * handed out as slices of the mapped pak, without copying.
+ *
+ * Files are read on a small pool of daemon threads. Finished loads are
+ * queued, and pump() runs their callbacks on the calling thread, as many as
+ * fit into PUMP_BUDGET_MSEC.
+ */
 public class ResourceLoaderImpl implements ResourceLoader.Impl {
 
   protected static final Object LOAD_LOCK = new Object();
 
-  class Pending {
+  /** Time pump() may spend running callbacks. */
+  static final int PUMP_BUDGET_MSEC = 10;
+
+  static final int MAX_IO_THREADS = 4;
+
+  class Pending implements Runnable {
 	  String path;
 	  ResourceLoader.Callback callback;
-	  byte[] bytes;
+	  ByteBuffer buffer;
+	  Throwable error;
+	  int epoch;
+	  long requested;
+
+	  public void run() {
+		  try {
+			  byte[] bytes = loadResource(path);
+			  buffer = bytes != null ? ByteBuffer.wrap(bytes) : loadPackedResource(path);
+		  } catch (Throwable t) {
+			  error = t;
+		  }
+		  completed.add(this);
+	  }
+  }
+
+  private final ExecutorService io;
+
+  // loads read by the pool, waiting for pump()
+  private final ConcurrentLinkedQueue<Pending> completed = new ConcurrentLinkedQueue<Pending>();
+
+  // incremented by reset(), loads requested before are dropped
+  private int epoch;
+
+  // calling thread only
+  private int outstanding;
+  private long loads;
+  private long failures;
+  private long bytes;
+  private long latencyNanos;
+  private long maxLatencyNanos;
+  private int maxOutstanding;
+
+  // mounted on the first request, see packs()
+  private FS.pack_t[] packs;
+
+  // lengths of the loose files, -1 for missing ones; cleared whenever FS
+  // flushes its own cache
+  private final HashMap<String, Integer> lengths = new HashMap<String, Integer>();
+  private int generation = FS.fs_generation;
+
+  public ResourceLoaderImpl() {
+    int threads = Math.min(MAX_IO_THREADS, Runtime.getRuntime().availableProcessors());
+    io = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int n;
+
+      public synchronized Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "resource-io-" + n++);
+        t.setDaemon(true);
+        return t;
+      }
+    });
   }
-  
-  ArrayList<Pending> pending = new ArrayList<Pending>();
 
   public void loadResourceAsync(String path, final ResourceLoader.Callback callback) {
-    final byte[] bytes = loadResource(path);
-    	Pending p = new Pending();
-    	p.bytes = bytes;
-    	p.callback = callback;
-    	p.path = path;
-    	pending.add(p);
+    // mount on this thread, it prints
+    packs();
+
+    Pending p = new Pending();
+    p.callback = callback;
+    p.path = path;
+    p.epoch = epoch;
+    p.requested = System.nanoTime();
+    outstanding++;
+    maxOutstanding = Math.max(maxOutstanding, outstanding);
+    io.execute(p);
+  }
+
+  /**
+   * Runs the callbacks of finished loads until the queue is empty or the
+   * time budget is used up.
+   *
+   * @return true if anything was done or is still being loaded
+   */
+  public boolean pump() {
+    if (outstanding == 0) {
+      return false;
     }
-  
-
-	public boolean pump() {
-		if (pending.size() == 0) return false;
-		
-		int i = (int) Math.random() * pending.size();
-		if (i < pending.size()) {
-			Pending p = pending.get(i);
-			pending.remove(i);
-			if(p.bytes != null) {
-				p.callback.onSuccess(ByteBuffer.wrap(p.bytes));
-			} else {
-				ResourceLoader.fail(new FileNotFoundException(p.path));
-			}
-		} 
-		return true;
-   }
-
-
-  public byte[] loadResource(String path) {
+
+    long deadline = System.nanoTime() + PUMP_BUDGET_MSEC * 1000000L;
+    Pending p;
+    while ((p = completed.poll()) != null) {
+      outstanding--;
+      if (p.epoch != epoch) {
+        continue;
+      }
+
+      long now = System.nanoTime();
+      loads++;
+      latencyNanos += now - p.requested;
+      maxLatencyNanos = Math.max(maxLatencyNanos, now - p.requested);
+
+      if (p.error != null) {
+        failures++;
+        Com.Error(Defines.ERR_FATAL, p.error.toString());
+      } else if (p.buffer != null) {
+        bytes += p.buffer.remaining();
+        p.callback.onSuccess(p.buffer);
+      } else {
+        failures++;
+        ResourceLoader.fail(new FileNotFoundException(p.path));
+      }
+
+      if (System.nanoTime() >= deadline) {
+        break;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns a one line summary of the loads since the last resetStats().
+   */
+  public String stats() {
+    return "resources: " + (loads - failures) + " loaded, " + failures + " failed, "
+        + (bytes >> 10) + " KB, latency avg "
+        + (latencyNanos / Math.max(1, loads) / 1000) + " us max "
+        + (maxLatencyNanos / 1000) + " us, queue " + outstanding
+        + " (max " + maxOutstanding + ")\n";
+  }
+
+  /** Adds the loadstats command, which prints the stats and resets them. */
+  public void addStatsCommand() {
+    Cmd.AddCommand("loadstats", new xcommand_t() {
+      public void execute() {
+        Com.Printf(stats());
+        resetStats();
+      }
+    });
+  }
+
+  public void resetStats() {
+    loads = failures = bytes = latencyNanos = maxLatencyNanos = 0;
+    maxOutstanding = outstanding;
+  }
+
+  /**
+   * Reads a loose file, or returns null if there is none. Runs on the I/O
+   * threads.
+   */
+  public byte[] loadResource(String path) throws IOException {
     RandomAccessFile file;
     byte[] buf = null;
     int len = 0;
@@ -87,48 +216,79 @@ public class ResourceLoaderImpl implements ResourceLoader.Impl {
 
     try {
       file = FOpenFile(path);
+    } catch (FileNotFoundException e) {
+      // removed since its length was cached
+      synchronized (lengths) {
+        lengths.remove(path);
+      }
+      return null;
+    }
+    try {
       // Read(buf = new byte[len], len, h);
       buf = new byte[len];
       file.readFully(buf);
+    } finally {
       file.close();
-    } catch (IOException e) {
-      Com.Error(Defines.ERR_FATAL, e.toString());
     }
     return buf;
   }
 
-  private static int FileLength(String filename) {
-    String netpath;
+  /**
+   * Returns a slice of the first pak below Defines.BASEDIRNAME that has the
+   * file, or null.
+   */
+  public ByteBuffer loadPackedResource(String path) {
+    FS.pack_t[] packs = packs();
+    for (int i = 0; i < packs.length; i++) {
+      ByteBuffer buffer = FS.LoadPackedFile(packs[i], path);
+      if (buffer != null) {
+        return buffer;
+      }
+    }
+    return null;
+  }
 
-    // check a file in the directory tree
-    netpath = Defines.BASEDIRNAME + '/' + filename;
+  private synchronized FS.pack_t[] packs() {
+    if (packs == null) {
+      packs = FS.LoadPackFiles(Defines.BASEDIRNAME);
+    }
+    return packs;
+  }
 
-    File file = new File(netpath);
-    if (!file.canRead())
-      return -1;
+  private int FileLength(String filename) {
+    boolean caching = FS.fs_cache == null || FS.fs_cache.value != 0;
+    if (caching) {
+      synchronized (lengths) {
+        if (generation != FS.fs_generation) {
+          lengths.clear();
+          generation = FS.fs_generation;
+        }
+        Integer cached = lengths.get(filename);
+        if (cached != null) {
+          return cached.intValue();
+        }
+      }
+    }
 
-    Com.DPrintf("FindFile: " + netpath + '\n');
+    // check a file in the directory tree
+    File file = new File(Defines.BASEDIRNAME + '/' + filename);
+    int len = file.canRead() ? (int) file.length() : -1;
 
-    return (int) file.length();
+    if (caching) {
+      synchronized (lengths) {
+        lengths.put(filename, Integer.valueOf(len));
+      }
+    }
+    return len;
   }
 
   private static RandomAccessFile FOpenFile(String filename) throws IOException {
-    String netpath;
-    File file = null;
-
-    netpath = Defines.BASEDIRNAME + '/' + filename;
-
-    file = new File(netpath);
-    if (!file.canRead())
-      return null;
-
-    return new RandomAccessFile(file, "r");
+    // FileLength has already checked that it is there
+    return new RandomAccessFile(Defines.BASEDIRNAME + '/' + filename, "r");
   }
 
-
   public void reset() {
-	// Only needed for deferred stuff
+    // drop whatever is still being loaded for the old level
+    epoch++;
   }
-
- 
 }
@@ -96,17 +96,15 @@ public final class Cmd {
             }
 
             // if the alias already exists, reuse it
-            for (a = Globals.cmd_alias; a != null; a = a.next) {
-                if (s.equalsIgnoreCase(a.name)) {
-                    a.value = null;
-                    break;
-                }
-            }
-
-            if (a == null) {
+            String key = s.toLowerCase();
+            a = aliases.get(key);
+            if (a != null) {
+                a.value = null;
+            } else {
                 a = new cmdalias_t();
                 a.next = Globals.cmd_alias;
                 Globals.cmd_alias = a;
+                aliases.put(key, a);
             }
             a.name = s;
 
@@ -132,6 +130,16 @@ public final class Cmd {
 
     public static cmd_function_t cmd_functions = null;
 
+    // cmd_functions and Globals.cmd_alias by lower case name
+    private static final HashMap<String, cmd_function_t> commands = new HashMap<String, cmd_function_t>();
+
+    private static final HashMap<String, cmdalias_t> aliases = new HashMap<String, cmdalias_t>();
+
+    // reused by TokenizeString(String, boolean)
+    private static char line[] = new char[Defines.MAX_STRING_CHARS];
+
+    private static final Com.ParseHelp parser = new Com.ParseHelp((char[]) null);
+
     public static int cmd_argc;
 
     public static String[] cmd_argv = new String[Defines.MAX_STRING_TOKENS];
@@ -251,23 +259,49 @@ public final class Cmd {
      * unless they are in a quoted token.
      */
     public static void TokenizeString(char text[], boolean macroExpand) {
+        TokenizeString(text, Lib.strlen(text), macroExpand);
+    }
+
+    /**
+     * Tokenizes text without copying it into a new array.
+     */
+    public static void TokenizeString(String text, boolean macroExpand) {
+        if (macroExpand && text.indexOf('$') != -1) {
+            // macro expansion parses up to the end of the array
+            TokenizeString(text.toCharArray(), true);
+            return;
+        }
+
+        int len = text.length();
+        if (line.length < len)
+            line = new char[len];
+        text.getChars(0, len, line, 0);
+
+        int nul = text.indexOf(0);
+        TokenizeString(line, nul == -1 ? len : nul, macroExpand);
+    }
+
+    /**
+     * Tokenizes text[0..len), text may be longer.
+     */
+    private static void TokenizeString(char text[], int len, boolean macroExpand) {
         String com_token;
 
         cmd_argc = 0;
         cmd_args = "";
 
-        int len = Lib.strlen(text);
-
         // macro expand the text
-        if (macroExpand)
+        if (macroExpand) {
             text = MacroExpandString(text, len);
 
-        if (text == null)
-            return;
+            if (text == null)
+                return;
 
-        len = Lib.strlen(text);
+            len = Lib.strlen(text);
+        }
 
-        Com.ParseHelp ph = new Com.ParseHelp(text);
+        Com.ParseHelp ph = parser;
+        ph.init(text, 0, len);
 
         while (true) {
 
@@ -311,13 +345,11 @@ public final class Cmd {
         }
 
         // fail if the command already exists
-        for (cmd = cmd_functions; cmd != null; cmd = cmd.next) {
-            if (cmd_name.equals(cmd.name)) {
-                Com
-                        .Printf("Cmd_AddCommand: " + cmd_name
-                                + " already defined\n");
-                return;
-            }
+        if (Exists(cmd_name)) {
+            Com
+                    .Printf("Cmd_AddCommand: " + cmd_name
+                            + " already defined\n");
+            return;
         }
 
         cmd = new cmd_function_t();
@@ -326,6 +358,7 @@ public final class Cmd {
         cmd.function = function;
         cmd.next = cmd_functions;
         cmd_functions = cmd;
+        commands.put(cmd_name.toLowerCase(), cmd);
     }
 
     /**
@@ -347,6 +380,18 @@ public final class Cmd {
                     cmd_functions = cmd.next;
                 else
                     back.next = cmd.next;
+
+                // a command differing only in case may take its place
+                String key = cmd_name.toLowerCase();
+                if (commands.get(key) == cmd) {
+                    commands.remove(key);
+                    for (cmd = cmd_functions; cmd != null; cmd = cmd.next) {
+                        if (cmd.name.equalsIgnoreCase(cmd_name)) {
+                            commands.put(key, cmd);
+                            break;
+                        }
+                    }
+                }
                 return;
             }
             back = cmd;
@@ -358,8 +403,14 @@ public final class Cmd {
      * Cmd_Exists 
      */
     public static boolean Exists(String cmd_name) {
-        cmd_function_t cmd;
+        cmd_function_t cmd = commands.get(cmd_name.toLowerCase());
+
+        if (cmd == null)
+            return false;
+        if (cmd.name.equals(cmd_name))
+            return true;
 
+        // shadowed by a newer command differing only in case
         for (cmd = cmd_functions; cmd != null; cmd = cmd.next) {
             if (cmd.name.equals(cmd_name))
                 return true;
@@ -379,50 +430,47 @@ public final class Cmd {
     }
 
     public static String Args() {
-        return new String(cmd_args);
+        return cmd_args;
     }
 
     /**
      * Cmd_ExecuteString
      * 
      * A complete command line has been parsed, so try to execute it 
-     * FIXME: lookupnoadd the token to speed search? 
      */
     public static void ExecuteString(String text) {
 
         cmd_function_t cmd;
         cmdalias_t a;
 
-        TokenizeString(text.toCharArray(), true);
+        TokenizeString(text, true);
 
         // execute the command line
         if (Argc() == 0)
             return; // no tokens
 
+        String key = cmd_argv[0].toLowerCase();
+
         // check functions
-        for (cmd = cmd_functions; cmd != null; cmd = cmd.next) {
-            if (cmd_argv[0].equalsIgnoreCase(cmd.name)) {
-                if (null == cmd.function) { // forward to server command
-                    Cmd.ExecuteString("cmd " + text);
-                } else {
-                    cmd.function.execute();
-                }
-                return;
+        cmd = commands.get(key);
+        if (cmd != null) {
+            if (null == cmd.function) { // forward to server command
+                Cmd.ExecuteString("cmd " + text);
+            } else {
+                cmd.function.execute();
             }
+            return;
         }
 
         // check alias
-        for (a = Globals.cmd_alias; a != null; a = a.next) {
-
-            if (cmd_argv[0].equalsIgnoreCase(a.name)) {
-
-                if (++Globals.alias_count == ALIAS_LOOP_COUNT) {
-                    Com.Printf("ALIAS_LOOP_COUNT\n");
-                    return;
-                }
-                Cbuf.InsertText(a.value);
+        a = aliases.get(key);
+        if (a != null) {
+            if (++Globals.alias_count == ALIAS_LOOP_COUNT) {
+                Com.Printf("ALIAS_LOOP_COUNT\n");
                 return;
             }
+            Cbuf.InsertText(a.value);
+            return;
         }
 
         // check cvars
@@ -514,7 +562,7 @@ public final class Cmd {
         if (give_all || Lib.Q_stricmp(name, "Power Shield") == 0) {
             it = GameItems.FindItem("Power Shield");
             it_ent = GameUtil.G_Spawn();
-            it_ent.classname = it.classname;
+            EntityIndex.setClassname(it_ent, it.classname);
             GameItems.SpawnItem(it_ent, it);
             GameItems.Touch_Item(it_ent, ent, GameBase.dummyplane, null);
             if (it_ent.inuse)
@@ -560,7 +608,7 @@ public final class Cmd {
                 ent.client.pers.inventory[index] += it.quantity;
         } else {
             it_ent = GameUtil.G_Spawn();
-            it_ent.classname = it.classname;
+            EntityIndex.setClassname(it_ent, it.classname);
             GameItems.SpawnItem(it_ent, it);
             GameItems.Touch_Item(it_ent, ent, GameBase.dummyplane, null);
             if (it_ent.inuse)
@@ -1191,6 +1239,30 @@ public final class Cmd {
         return cmds;
     }
 
+    // ClientCommand ids, the ones below CC_USE also work during intermission
+    private static final int CC_PLAYERS = 0, CC_SAY = 1, CC_SAY_TEAM = 2,
+            CC_SCORE = 3, CC_HELP = 4, CC_USE = 5, CC_DROP = 6, CC_GIVE = 7,
+            CC_GOD = 8, CC_NOTARGET = 9, CC_NOCLIP = 10, CC_INVEN = 11,
+            CC_INVNEXT = 12, CC_INVPREV = 13, CC_INVNEXTW = 14,
+            CC_INVPREVW = 15, CC_INVNEXTP = 16, CC_INVPREVP = 17,
+            CC_INVUSE = 18, CC_INVDROP = 19, CC_WEAPPREV = 20,
+            CC_WEAPNEXT = 21, CC_WEAPLAST = 22, CC_KILL = 23, CC_PUTAWAY = 24,
+            CC_WAVE = 25, CC_PLAYERLIST = 26, CC_SHOWPOSITION = 27;
+
+    private static final String clientCommandNames[] = { "players", "say",
+            "say_team", "score", "help", "use", "drop", "give", "god",
+            "notarget", "noclip", "inven", "invnext", "invprev", "invnextw",
+            "invprevw", "invnextp", "invprevp", "invuse", "invdrop",
+            "weapprev", "weapnext", "weaplast", "kill", "putaway", "wave",
+            "playerlist", "showposition" };
+
+    private static final HashMap<String, Integer> clientCommands = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < clientCommandNames.length; i++)
+            clientCommands.put(clientCommandNames[i], Integer.valueOf(i));
+    }
+
     /**
      * Processes the commands the player enters in the quake console.
      */
@@ -1201,80 +1273,109 @@ public final class Cmd {
             return; // not fully in game yet
     
         cmd = GameBase.gi.argv(0).toLowerCase();
-    
-        if (cmd.equals("players")) {
-            Players_f(ent);
-            return;
-        }
-        if (cmd.equals("say")) {
-            Say_f(ent, false, false);
-            return;
-        }
-        if (cmd.equals("say_team")) {
-            Say_f(ent, true, false);
-            return;
-        }
-        if (cmd.equals("score")) {
-            Score_f(ent);
-            return;
-        }
-        if (cmd.equals("help")) {
-            Help_f(ent);
+        Integer id = clientCommands.get(cmd);
+
+        if (id != null && id.intValue() < CC_USE) {
+            switch (id.intValue()) {
+            case CC_PLAYERS:
+                Players_f(ent);
+                break;
+            case CC_SAY:
+                Say_f(ent, false, false);
+                break;
+            case CC_SAY_TEAM:
+                Say_f(ent, true, false);
+                break;
+            case CC_SCORE:
+                Score_f(ent);
+                break;
+            case CC_HELP:
+                Help_f(ent);
+                break;
+            }
             return;
         }
     
         if (GameBase.level.intermissiontime != 0)
             return;
     
-        if (cmd.equals("use"))
+        if (id == null) {
+            // anything that doesn't match a command will be a chat
+            Say_f(ent, false, true);
+            return;
+        }
+
+        switch (id.intValue()) {
+        case CC_USE:
             Use_f(ent);
-        else if (cmd.equals("drop"))
+            break;
+        case CC_DROP:
             Drop_f(ent);
-        else if (cmd.equals("give"))
+            break;
+        case CC_GIVE:
             Give_f(ent);
-        else if (cmd.equals("god"))
+            break;
+        case CC_GOD:
             God_f(ent);
-        else if (cmd.equals("notarget"))
+            break;
+        case CC_NOTARGET:
             Notarget_f(ent);
-        else if (cmd.equals("noclip"))
+            break;
+        case CC_NOCLIP:
             Noclip_f(ent);
-        else if (cmd.equals("inven"))
+            break;
+        case CC_INVEN:
             Inven_f(ent);
-        else if (cmd.equals("invnext"))
+            break;
+        case CC_INVNEXT:
             GameItems.SelectNextItem(ent, -1);
-        else if (cmd.equals("invprev"))
+            break;
+        case CC_INVPREV:
             GameItems.SelectPrevItem(ent, -1);
-        else if (cmd.equals("invnextw"))
+            break;
+        case CC_INVNEXTW:
             GameItems.SelectNextItem(ent, Defines.IT_WEAPON);
-        else if (cmd.equals("invprevw"))
+            break;
+        case CC_INVPREVW:
             GameItems.SelectPrevItem(ent, Defines.IT_WEAPON);
-        else if (cmd.equals("invnextp"))
+            break;
+        case CC_INVNEXTP:
             GameItems.SelectNextItem(ent, Defines.IT_POWERUP);
-        else if (cmd.equals("invprevp"))
+            break;
+        case CC_INVPREVP:
             GameItems.SelectPrevItem(ent, Defines.IT_POWERUP);
-        else if (cmd.equals("invuse"))
+            break;
+        case CC_INVUSE:
             InvUse_f(ent);
-        else if (cmd.equals("invdrop"))
+            break;
+        case CC_INVDROP:
             InvDrop_f(ent);
-        else if (cmd.equals("weapprev"))
+            break;
+        case CC_WEAPPREV:
             WeapPrev_f(ent);
-        else if (cmd.equals("weapnext"))
+            break;
+        case CC_WEAPNEXT:
             WeapNext_f(ent);
-        else if (cmd.equals("weaplast"))
+            break;
+        case CC_WEAPLAST:
             WeapLast_f(ent);
-        else if (cmd.equals("kill"))
+            break;
+        case CC_KILL:
             Kill_f(ent);
-        else if (cmd.equals("putaway"))
+            break;
+        case CC_PUTAWAY:
             PutAway_f(ent);
-        else if (cmd.equals("wave"))
+            break;
+        case CC_WAVE:
             Wave_f(ent);
-        else if (cmd.equals("playerlist"))
+            break;
+        case CC_PLAYERLIST:
             PlayerList_f(ent);
-        else if (cmd.equals("showposition"))
+            break;
+        case CC_SHOWPOSITION:
             ShowPosition_f(ent);
-        else
-            // anything that doesn't match a command will be a chat
-            Say_f(ent, false, true);
+            break;
+        }
     }
 
     public static void ValidateSelectedItem(edict_t ent) {    	
@@ -33,4 +33,8 @@ public class EdictIterator
 	}
 	public edict_t o;
 	int i;
+	/** Candidates of a findradius() query, sorted by index; i walks this list. */
+	edict_t list[];
+	/** Number of candidates in list. */
+	int count;
 }
@@ -0,0 +1,227 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.game;
+
+import jake2.qcommon.Defines;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Lookup structures behind G_Find() and findradius().
+ *
+ * Entities are hashed by classname and targetname (case insensitive, like
+ * the findByClass and findByTarget filters). Each bucket is kept sorted by
+ * edict index so that an indexed G_Find visits the matches in the same
+ * order as the original linear scan. The index only sees writes that go
+ * through setClassname() and setTargetname(); never assign those fields
+ * directly on an entity that is in use.
+ *
+ * Radius queries reuse the server area node tree, which SV_LinkEdict keeps
+ * up to date, instead of maintaining a second spatial structure. Entities
+ * that are in use but not in the tree come from LiveEdicts.
+ */
+public final class EntityIndex {
+
+	private static final HashMap<String, ArrayList<edict_t>> byClassname =
+			new HashMap<String, ArrayList<edict_t>>();
+
+	private static final HashMap<String, ArrayList<edict_t>> byTargetname =
+			new HashMap<String, ArrayList<edict_t>>();
+
+	private static final edict_t[] solids = new edict_t[Defines.MAX_EDICTS];
+
+	private static final edict_t[] triggers = new edict_t[Defines.MAX_EDICTS];
+
+	private static final edict_t[] unlinked = new edict_t[Defines.MAX_EDICTS];
+
+	private static final float[] mins = { 0, 0, 0 };
+
+	private static final float[] maxs = { 0, 0, 0 };
+
+	/**
+	 * Candidate lists of finished queries. A query hands its list back when it
+	 * runs out; findradius() may nest (a radius damage that kills something
+	 * that explodes), so each running query needs its own.
+	 */
+	private static final ArrayList<edict_t[]> lists = new ArrayList<edict_t[]>();
+
+	private EntityIndex() {
+	}
+
+	public static void setClassname(edict_t ent, String classname) {
+		ent.classname = classname;
+		ent.classnameKey = move(byClassname, ent, ent.classnameKey, classname);
+	}
+
+	public static void setTargetname(edict_t ent, String targetname) {
+		ent.targetname = targetname;
+		ent.targetnameKey = move(byTargetname, ent, ent.targetnameKey, targetname);
+	}
+
+	/** Drops ent from all indexes, called when its slot is freed or reused. */
+	static void remove(edict_t ent) {
+		ent.classnameKey = move(byClassname, ent, ent.classnameKey, null);
+		ent.targetnameKey = move(byTargetname, ent, ent.targetnameKey, null);
+	}
+
+	/** Forgets everything, called whenever g_edicts is recreated. */
+	static void clear() {
+		byClassname.clear();
+		byTargetname.clear();
+	}
+
+	/** Reindexes all edicts in use, after they were read from a savegame. */
+	static void rebuild() {
+		clear();
+		for (int i = 0; i < GameBase.num_edicts; i++) {
+			edict_t ent = GameBase.g_edicts[i];
+			ent.classnameKey = null;
+			ent.targetnameKey = null;
+			if (ent.inuse) {
+				setClassname(ent, ent.classname);
+				setTargetname(ent, ent.targetname);
+			}
+		}
+	}
+
+	/**
+	 * Returns the sorted bucket that holds all candidates for G_Find(eff, s),
+	 * an empty list if there are none, or null if eff is not indexed.
+	 */
+	static ArrayList<edict_t> lookup(EdictFindFilter eff, String s) {
+		HashMap<String, ArrayList<edict_t>> map;
+		if (eff == GameBase.findByClass) {
+			map = byClassname;
+		} else if (eff == GameBase.findByTarget) {
+			map = byTargetname;
+		} else {
+			return null;
+		}
+		ArrayList<edict_t> bucket = s == null ? null : map.get(s.toLowerCase());
+		return bucket == null ? EMPTY : bucket;
+	}
+
+	private static final ArrayList<edict_t> EMPTY = new ArrayList<edict_t>(0);
+
+	/** Position of the first entry in bucket with an index >= index. */
+	static int search(ArrayList<edict_t> bucket, int index) {
+		int lo = 0;
+		int hi = bucket.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (bucket.get(mid).index < index) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static String move(HashMap<String, ArrayList<edict_t>> map,
+			edict_t ent, String oldKey, String value) {
+		String key = value == null ? null : value.toLowerCase();
+		if (key != null && key.equals(oldKey)) {
+			return oldKey;
+		}
+		if (oldKey != null) {
+			ArrayList<edict_t> bucket = map.get(oldKey);
+			if (bucket != null) {
+				bucket.remove(ent);
+				if (bucket.isEmpty()) {
+					map.remove(oldKey);
+				}
+			}
+		}
+		if (key != null) {
+			ArrayList<edict_t> bucket = map.get(key);
+			if (bucket == null) {
+				bucket = new ArrayList<edict_t>(4);
+				map.put(key, bucket);
+			}
+			bucket.add(search(bucket, ent.index), ent);
+		}
+		return key;
+	}
+
+	/**
+	 * Fills it.list with the linked entities whose bounds touch the cube
+	 * around org and the solid entities that are not linked, sorted by edict
+	 * index. SOLID_NOT entities are never in the area tree and findradius()
+	 * skips them anyway.
+	 */
+	static void radiusCandidates(EdictIterator it, float[] org, float rad) {
+		for (int i = 0; i < 3; i++) {
+			mins[i] = org[i] - rad;
+			maxs[i] = org[i] + rad;
+		}
+
+		int ns = GameBase.gi.BoxEdicts(mins, maxs, solids, solids.length,
+				Defines.AREA_SOLID);
+		int nt = GameBase.gi.BoxEdicts(mins, maxs, triggers, triggers.length,
+				Defines.AREA_TRIGGERS);
+		int nu = 0;
+		for (int i = LiveEdicts.nextUnlinked(0); i < GameBase.num_edicts;
+				i = LiveEdicts.nextUnlinked(i + 1)) {
+			edict_t e = GameBase.g_edicts[i];
+			if (e.solid != Defines.SOLID_NOT && nu < unlinked.length) {
+				unlinked[nu++] = e;
+			}
+		}
+
+		int size = Math.max(Defines.MAX_EDICTS, ns + nt + nu);
+		edict_t[] result = lists.isEmpty() ? null : lists.remove(lists.size() - 1);
+		if (result == null || result.length < size) {
+			result = new edict_t[size];
+		}
+		int count = insert(result, 0, solids, ns);
+		count = insert(result, count, triggers, nt);
+		it.list = result;
+		it.count = insert(result, count, unlinked, nu);
+	}
+
+	/** Takes back the candidate list of a finished findradius() query. */
+	static void release(EdictIterator it) {
+		if (it.list == null) {
+			return;
+		}
+		for (int i = 0; i < it.count; i++) {
+			it.list[i] = null;
+		}
+		lists.add(it.list);
+		it.list = null;
+		it.count = 0;
+	}
+
+	/** Insertion sorts from[0..n) into result[count..], the lists are short. */
+	private static int insert(edict_t[] result, int count, edict_t[] from, int n) {
+		for (int i = 0; i < n; i++) {
+			edict_t e = from[i];
+			from[i] = null;
+			int j = count++;
+			while (j > 0 && result[j - 1].index > e.index) {
+				result[j] = result[j - 1];
+				j--;
+			}
+			result[j] = e;
+		}
+		return count;
+	}
+}
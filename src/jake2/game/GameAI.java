@@ -28,6 +28,7 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 
 public class GameAI {
@@ -479,15 +480,16 @@ public class GameAI {
     public static AIAdapter ai_stand = new AIAdapter() {
         public String getID() { return "ai_stand";}
         public void ai(edict_t self, float dist) {
-            float[] v = { 0, 0, 0 };
-
             if (dist != 0)
                 M.M_walkmove(self, self.s.angles[Defines.YAW], dist);
 
             if ((self.monsterinfo.aiflags & Defines.AI_STAND_GROUND) != 0) {
                 if (self.enemy != null) {
+                    int mark = Vec3Pool.main.mark();
+                    float[] v = Vec3Pool.main.get();
                     Math3D.VectorSubtract(self.enemy.s.origin, self.s.origin, v);
                     self.ideal_yaw = Math3D.vectoyaw(v);
+                    Vec3Pool.main.release(mark);
                     if (self.s.angles[Defines.YAW] != self.ideal_yaw
                             && 0 != (self.monsterinfo.aiflags & Defines.AI_TEMP_STAND_GROUND)) {
                         self.monsterinfo.aiflags &= ~(Defines.AI_STAND_GROUND | Defines.AI_TEMP_STAND_GROUND);
@@ -545,7 +547,8 @@ public class GameAI {
     public static AIAdapter ai_run = new AIAdapter() {
         public String getID() { return "ai_run";}
         public void ai(edict_t self, float dist) {
-            float[] v = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] v = Vec3Pool.main.get();
 
             edict_t tempgoal;
             edict_t save;
@@ -553,13 +556,16 @@ public class GameAI {
             edict_t marker;
             float d1, d2;
             trace_t tr; // mem
-            float[] v_forward = { 0, 0, 0 }, v_right = { 0, 0, 0 };
+            float[] v_forward = Vec3Pool.main.get();
+            float[] v_right = Vec3Pool.main.get();
             float left, center, right;
-            float[] left_target = { 0, 0, 0 }, right_target = { 0, 0, 0 };
+            float[] left_target = Vec3Pool.main.get();
+            float[] right_target = Vec3Pool.main.get();
 
             // if we're going to a combat point, just proceed
             if ((self.monsterinfo.aiflags & Defines.AI_COMBAT_POINT) != 0) {
                 M.M_MoveToGoal(self, dist);
+                Vec3Pool.main.release(mark);
                 return;
             }
 
@@ -578,16 +584,21 @@ public class GameAI {
                     M.M_MoveToGoal(self, dist);
                 
                 // look for new targets
-                if (!GameUtil.FindTarget(self))
+                if (!GameUtil.FindTarget(self)) {
+                    Vec3Pool.main.release(mark);
                     return;
+                }
                                 
             }
 
-            if (ai_checkattack(self, dist))
+            if (ai_checkattack(self, dist)) {
+                Vec3Pool.main.release(mark);
                 return;
+            }
 
             if (self.monsterinfo.attack_state == Defines.AS_SLIDING) {
                 ai_run_slide(self, dist);
+                Vec3Pool.main.release(mark);
                 return;
             }
 
@@ -598,14 +609,17 @@ public class GameAI {
                 self.monsterinfo.aiflags &= ~Defines.AI_LOST_SIGHT;
                 Math3D.VectorCopy(self.enemy.s.origin, self.monsterinfo.last_sighting);
                 self.monsterinfo.trail_time = GameBase.level.time;
+                Vec3Pool.main.release(mark);
                 return;
             }
 
             // coop will change to another enemy if visible           
             if (GameBase.coop.value != 0) {
                 // FIXME: insane guys get mad with this, which causes crashes!
-                if (GameUtil.FindTarget(self))
+                if (GameUtil.FindTarget(self)) {
+                    Vec3Pool.main.release(mark);
                     return;
+                }
             }
             
 
@@ -614,6 +628,7 @@ public class GameAI {
                 M.M_MoveToGoal(self, dist);
                 self.monsterinfo.search_time = 0;
                 //dprint("search timeout\n");
+                Vec3Pool.main.release(mark);
                 return;
             }
 
@@ -750,6 +765,7 @@ public class GameAI {
 
             if (self != null)
                 self.goalentity = save;
+            Vec3Pool.main.release(mark);
         }
     };
 
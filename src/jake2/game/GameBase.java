@@ -26,6 +26,7 @@ Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
 
 package jake2.game;
 
+import java.util.ArrayList;
 import java.util.StringTokenizer;
 
 import jake2.*;
@@ -170,6 +171,26 @@ public class GameBase {
         else
             from.i++;
 
+        ArrayList<edict_t> bucket = EntityIndex.lookup(eff, s);
+        if (bucket != null) {
+            // only the indexed candidates, in edict order; the bucket may
+            // change while the caller iterates, so search it again each time
+            for (int p = EntityIndex.search(bucket, from.i); p < bucket.size(); p++) {
+                edict_t e = bucket.get(p);
+                if (e.index >= num_edicts)
+                    break;
+                if (!e.inuse || g_edicts[e.index] != e)
+                    continue;
+                if (eff.matches(e, s)) {
+                    from.i = e.index;
+                    from.o = e;
+                    return from;
+                }
+            }
+            from.i = num_edicts;
+            return null;
+        }
+
         for (; from.i < num_edicts; from.i++) {
             from.o = g_edicts[from.i];
             if (from.o.classname == null) {
@@ -198,34 +219,40 @@ public class GameBase {
 
     /**
      * Returns entities that have origins within a spherical area.
+     * 
+     * The candidates are the linked entities touching the bounding cube,
+     * looked up in the area tree on the first call, plus the live entities
+     * that are not linked. The list goes back to EntityIndex when the query
+     * runs out; a caller that stops early just leaves it to the collector.
      */
     public static EdictIterator findradius(EdictIterator from, float[] org,
             float rad) {
-        float[] eorg = { 0, 0, 0 };
-        int j;
+        float x, y, z;
 
-        if (from == null)
+        if (from == null) {
             from = new EdictIterator(0);
-        else
+            EntityIndex.radiusCandidates(from, org, rad);
+        } else
             from.i++;
 
-        for (; from.i < num_edicts; from.i++) {
-            from.o = g_edicts[from.i];
-            if (!from.o.inuse)
+        for (; from.i < from.count; from.i++) {
+            from.o = from.list[from.i];
+            if (!from.o.inuse || g_edicts[from.o.index] != from.o)
                 continue;
 
             if (from.o.solid == Defines.SOLID_NOT)
                 continue;
 
-            for (j = 0; j < 3; j++)
-                eorg[j] = org[j]
-                        - (from.o.s.origin[j] + (from.o.mins[j] + from.o.maxs[j]) * 0.5f);
+            x = org[0] - (from.o.s.origin[0] + (from.o.mins[0] + from.o.maxs[0]) * 0.5f);
+            y = org[1] - (from.o.s.origin[1] + (from.o.mins[1] + from.o.maxs[1]) * 0.5f);
+            z = org[2] - (from.o.s.origin[2] + (from.o.mins[2] + from.o.maxs[2]) * 0.5f);
 
-            if (Math3D.VectorLength(eorg) > rad)
+            if ((float) Math.sqrt(x * x + y * y + z * z) > rad)
                 continue;
             return from;
         }
 
+        EntityIndex.release(from);
         return null;
     }
 
@@ -429,7 +456,7 @@ public class GameBase {
         edict_t ent;
 
         ent = GameUtil.G_Spawn();
-        ent.classname = "target_changelevel";
+        EntityIndex.setClassname(ent, "target_changelevel");
         level.nextmap = map;
         ent.map = level.nextmap;
         return ent;
@@ -592,6 +619,9 @@ public class GameBase {
         level.framenum++;
         level.time = level.framenum * Defines.FRAMETIME;
 
+        // wake the sleeping entities whose think is due
+        ThinkWheel.advance(level.framenum);
+
         // choose a client for monsters to target this frame
         GameAI.AI_SetSightClient();
 
@@ -607,11 +637,13 @@ public class GameBase {
         // even the world gets a chance to think
         //
 
-        for (i = 0; i < num_edicts; i++) {
+        int last = -1;
+        for (i = LiveEdicts.nextAwake(0); i < num_edicts; i = LiveEdicts.nextAwake(i + 1)) {
             ent = g_edicts[i];
             if (!ent.inuse)
                 continue;
 
+            last = i;
             level.current_entity = ent;
 
             Math3D.VectorCopy(ent.s.origin, ent.s.old_origin);
@@ -632,8 +664,14 @@ public class GameBase {
             }
 
             G_RunEntity(ent);
+            ThinkWheel.sleepIfIdle(ent);
         }
 
+        // the sleeping entities count as treated, like in a full scan
+        i = LiveEdicts.previous(num_edicts - 1);
+        if (i > last)
+            level.current_entity = g_edicts[i];
+
         // see if it is time to end a deathmatch
         CheckDMRules();
 
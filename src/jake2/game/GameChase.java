@@ -31,18 +31,23 @@ import jake2.qcommon.*;
 import jake2.render.*;
 import jake2.server.*;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 
 public class GameChase {
 
     public static void UpdateChaseCam(edict_t ent) {
-        float[] o = { 0, 0, 0 }, ownerv = { 0, 0, 0 }, goal = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] o = Vec3Pool.main.get();
+        float[] ownerv = Vec3Pool.main.get();
+        float[] goal = Vec3Pool.main.get();
         edict_t targ;
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
         trace_t trace;
         int i;
-        float[] oldgoal = { 0, 0, 0 };
-        float[] angles = { 0, 0, 0 };
+        float[] oldgoal = Vec3Pool.main.get();
+        float[] angles = Vec3Pool.main.get();
     
         // is our chase target gone?
         if (!ent.client.chase_target.inuse
@@ -52,6 +57,7 @@ public class GameChase {
             if (ent.client.chase_target == old) {
                 ent.client.chase_target = null;
                 ent.client.ps.pmove.pm_flags &= ~pmove_t.PMF_NO_PREDICTION;
+                Vec3Pool.main.release(mark);
                 return;
             }
         }
@@ -126,6 +132,7 @@ public class GameChase {
         ent.viewheight = 0;
         ent.client.ps.pmove.pm_flags |= pmove_t.PMF_NO_PREDICTION;
         SV_WORLD.SV_LinkEdict(ent);
+        Vec3Pool.main.release(mark);
     }
 
     public static void ChaseNext(edict_t ent) {
@@ -27,6 +27,7 @@ import jake2.qcommon.Com;
 import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class GameCombat {
 
@@ -37,7 +38,8 @@ public class GameCombat {
      * explosions and melee attacks.
      */
     static boolean CanDamage(edict_t targ, edict_t inflictor) {
-        float[] dest = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] dest = Vec3Pool.main.get();
         trace_t trace;
     
         // bmodels need special checking because their origin is 0,0,0
@@ -46,6 +48,7 @@ public class GameCombat {
             Math3D.VectorScale(dest, 0.5f, dest);
             trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                     Globals.vec3_origin, dest, inflictor, Defines.MASK_SOLID);
+            Vec3Pool.main.release(mark);
             if (trace.fraction == 1.0f)
                 return true;
             if (trace.ent == targ)
@@ -56,41 +59,52 @@ public class GameCombat {
         trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                 Globals.vec3_origin, targ.s.origin, inflictor,
                 Defines.MASK_SOLID);
-        if (trace.fraction == 1.0)
+        if (trace.fraction == 1.0) {
+            Vec3Pool.main.release(mark);
             return true;
+        }
     
         Math3D.VectorCopy(targ.s.origin, dest);
         dest[0] += 15.0;
         dest[1] += 15.0;
         trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                 Globals.vec3_origin, dest, inflictor, Defines.MASK_SOLID);
-        if (trace.fraction == 1.0)
+        if (trace.fraction == 1.0) {
+            Vec3Pool.main.release(mark);
             return true;
+        }
     
         Math3D.VectorCopy(targ.s.origin, dest);
         dest[0] += 15.0;
         dest[1] -= 15.0;
         trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                 Globals.vec3_origin, dest, inflictor, Defines.MASK_SOLID);
-        if (trace.fraction == 1.0)
+        if (trace.fraction == 1.0) {
+            Vec3Pool.main.release(mark);
             return true;
+        }
     
         Math3D.VectorCopy(targ.s.origin, dest);
         dest[0] -= 15.0;
         dest[1] += 15.0;
         trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                 Globals.vec3_origin, dest, inflictor, Defines.MASK_SOLID);
-        if (trace.fraction == 1.0)
+        if (trace.fraction == 1.0) {
+            Vec3Pool.main.release(mark);
             return true;
+        }
     
         Math3D.VectorCopy(targ.s.origin, dest);
         dest[0] -= 15.0;
         dest[1] -= 15.0;
         trace = GameBase.gi.trace(inflictor.s.origin, Globals.vec3_origin,
                 Globals.vec3_origin, dest, inflictor, Defines.MASK_SOLID);
-        if (trace.fraction == 1.0)
+        if (trace.fraction == 1.0) {
+            Vec3Pool.main.release(mark);
             return true;
+        }
     
+        Vec3Pool.main.release(mark);
         return false;
     }
 
@@ -187,15 +201,17 @@ public class GameCombat {
             return 0;
     
         if (power_armor_type == Defines.POWER_ARMOR_SCREEN) {
-            float[] vec = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] vec = Vec3Pool.main.get();
             float dot;
-            float[] forward = { 0, 0, 0 };
+            float[] forward = Vec3Pool.main.get();
     
             // only works if damage point is in front
             Math3D.AngleVectors(ent.s.angles, forward, null, null);
             Math3D.VectorSubtract(point, ent.s.origin, vec);
             Math3D.VectorNormalize(vec);
             dot = Math3D.DotProduct(vec, forward);
+            Vec3Pool.main.release(mark);
             if (dot <= 0.3)
                 return 0;
     
@@ -358,8 +374,9 @@ public class GameCombat {
         float points;
         EdictIterator edictit = null;
     
-        float[] v = { 0, 0, 0 };
-        float[] dir = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] v = Vec3Pool.main.get();
+        float[] dir = Vec3Pool.main.get();
     
         while ((edictit = GameBase.findradius(edictit, inflictor.s.origin,
                 radius)) != null) {
@@ -384,6 +401,7 @@ public class GameCombat {
                 }
             }
         }
+        Vec3Pool.main.release(mark);
     }
 
     public static void T_Damage(edict_t targ, edict_t inflictor,
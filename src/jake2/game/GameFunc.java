@@ -44,14 +44,14 @@ public class GameFunc {
                     : ent)) {
                 Move_Begin.think(ent);
             } else {
-                ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
                 ent.think = Move_Begin;
             }
         } else {
             // accelerative
             ent.moveinfo.current_speed = 0;
             ent.think = Think_AccelMove;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
         }
     }
 
@@ -62,7 +62,7 @@ public class GameFunc {
                 : ent)) {
             AngleMove_Begin.think(ent);
         } else {
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             ent.think = AngleMove_Begin;
         }
     }
@@ -364,7 +364,7 @@ public class GameFunc {
         if (self.moveinfo.state == STATE_TOP) {
             // reset top wait time
             if (self.moveinfo.wait >= 0)
-                self.nextthink = GameBase.level.time + self.moveinfo.wait;
+                ThinkWheel.setNextthink(self, GameBase.level.time + self.moveinfo.wait);
             return;
         }
 
@@ -464,7 +464,7 @@ public class GameFunc {
         if (self.wait == -1)
             self.spawnflags |= DOOR_TOGGLE;
 
-        self.classname = "func_door";
+        EntityIndex.setClassname(self, "func_door");
 
         GameBase.gi.linkentity(self);
     }
@@ -516,7 +516,7 @@ public class GameFunc {
             // start trains on the second frame, to make sure their targets have
             // had
             // a chance to spawn
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             self.think = func_train_find;
         } else {
             GameBase.gi.dprintf("func_train without a target at "
@@ -538,8 +538,8 @@ public class GameFunc {
         }
 
         if ((self.spawnflags & 1) != 0) {
-            self.nextthink = GameBase.level.time + 1.0f + GameBase.st.pausetime
-                    + self.delay + self.wait + Lib.crandom() * self.random;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 1.0f + GameBase.st.pausetime
+                    + self.delay + self.wait + Lib.crandom() * self.random);
             self.activator = self;
         }
 
@@ -614,7 +614,7 @@ public class GameFunc {
                     ent.velocity);
 
             ent.think = Move_Done;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -636,7 +636,7 @@ public class GameFunc {
                             / Defines.FRAMETIME);
             ent.moveinfo.remaining_distance -= frames * ent.moveinfo.speed
                     * Defines.FRAMETIME;
-            ent.nextthink = GameBase.level.time + (frames * Defines.FRAMETIME);
+            ThinkWheel.setNextthink(ent, GameBase.level.time + (frames * Defines.FRAMETIME));
             ent.think = Move_Final;
             return true;
         }
@@ -675,7 +675,7 @@ public class GameFunc {
             Math3D.VectorScale(move, 1.0f / Defines.FRAMETIME, ent.avelocity);
 
             ent.think = AngleMove_Done;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -714,7 +714,7 @@ public class GameFunc {
             Math3D.VectorScale(destdelta, 1.0f / traveltime, ent.avelocity);
 
             // set nextthink to trigger a think when dest is reached
-            ent.nextthink = GameBase.level.time + frames * Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + frames * Defines.FRAMETIME);
             ent.think = AngleMove_Final;
             return true;
         }
@@ -738,7 +738,7 @@ public class GameFunc {
 
             Math3D.VectorScale(ent.moveinfo.dir,
                     ent.moveinfo.current_speed * 10, ent.velocity);
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             ent.think = Think_AccelMove;
             return true;
         }
@@ -757,7 +757,7 @@ public class GameFunc {
             ent.moveinfo.state = STATE_TOP;
 
             ent.think = plat_go_down;
-            ent.nextthink = GameBase.level.time + 3;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + 3);
             return true;
         }
     };
@@ -844,7 +844,7 @@ public class GameFunc {
             if (ent.moveinfo.state == STATE_BOTTOM)
                 plat_go_up(ent);
             else if (ent.moveinfo.state == STATE_TOP) {
-                ent.nextthink = GameBase.level.time + 1; // the player is still
+                ThinkWheel.setNextthink(ent, GameBase.level.time + 1); // the player is still
                                                          // on the plat, so
                                                          // delay going down
             }
@@ -1008,7 +1008,7 @@ public class GameFunc {
             GameUtil.G_UseTargets(self, self.activator);
             self.s.frame = 1;
             if (self.moveinfo.wait >= 0) {
-                self.nextthink = GameBase.level.time + self.moveinfo.wait;
+                ThinkWheel.setNextthink(self, GameBase.level.time + self.moveinfo.wait);
                 self.think = button_return;
             }
             return true;
@@ -1146,7 +1146,7 @@ public class GameFunc {
                 return true;
             if (self.moveinfo.wait >= 0) {
                 self.think = door_go_down;
-                self.nextthink = GameBase.level.time + self.moveinfo.wait;
+                ThinkWheel.setNextthink(self, GameBase.level.time + self.moveinfo.wait);
             }
             return true;
         }
@@ -1487,7 +1487,7 @@ public class GameFunc {
 
             GameBase.gi.linkentity(ent);
 
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             if (ent.health != 0 || ent.targetname != null)
                 ent.think = Think_CalcMoveSpeed;
             else
@@ -1622,7 +1622,7 @@ public class GameFunc {
 
             GameBase.gi.linkentity(ent);
 
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             if (ent.health != 0 || ent.targetname != null)
                 ent.think = Think_CalcMoveSpeed;
             else
@@ -1694,14 +1694,14 @@ public class GameFunc {
 
             if (self.moveinfo.wait != 0) {
                 if (self.moveinfo.wait > 0) {
-                    self.nextthink = GameBase.level.time + self.moveinfo.wait;
+                    ThinkWheel.setNextthink(self, GameBase.level.time + self.moveinfo.wait);
                     self.think = train_next;
                 } else if (0 != (self.spawnflags & TRAIN_TOGGLE)) // && wait < 0
                 {
                     train_next.think(self);
                     self.spawnflags &= ~TRAIN_START_ON;
                     Math3D.VectorClear(self.velocity);
-                    self.nextthink = 0;
+                    ThinkWheel.setNextthink(self, 0);
                 }
 
                 if (0 == (self.flags & Defines.FL_TEAMSLAVE)) {
@@ -1808,7 +1808,7 @@ public class GameFunc {
                 self.spawnflags |= TRAIN_START_ON;
 
             if ((self.spawnflags & TRAIN_START_ON) != 0) {
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
                 self.think = train_next;
                 self.activator = self;
             }
@@ -1826,7 +1826,7 @@ public class GameFunc {
                     return;
                 self.spawnflags &= ~TRAIN_START_ON;
                 Math3D.VectorClear(self.velocity);
-                self.nextthink = 0;
+                ThinkWheel.setNextthink(self, 0);
             } else {
                 if (self.target_ent != null)
                     train_resume(self);
@@ -1896,7 +1896,7 @@ public class GameFunc {
         public String getID() { return "sp_trigger_elevator";}
         public boolean think(edict_t self) {
             self.think = trigger_elevator_init;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -1921,8 +1921,8 @@ public class GameFunc {
         public String getID() { return "func_timer_think";}
         public boolean think(edict_t self) {
             GameUtil.G_UseTargets(self, self.activator);
-            self.nextthink = GameBase.level.time + self.wait + Lib.crandom()
-                    * self.random;
+            ThinkWheel.setNextthink(self, GameBase.level.time + self.wait + Lib.crandom()
+                    * self.random);
             return true;
         }
     };
@@ -1934,13 +1934,13 @@ public class GameFunc {
 
             // if on, turn it off
             if (self.nextthink != 0) {
-                self.nextthink = 0;
+                ThinkWheel.setNextthink(self, 0);
                 return;
             }
 
             // turn it on
             if (self.delay != 0)
-                self.nextthink = GameBase.level.time + self.delay;
+                ThinkWheel.setNextthink(self, GameBase.level.time + self.delay);
             else
                 func_timer_think.think(self);
         }
@@ -2023,7 +2023,7 @@ public class GameFunc {
     static EntThinkAdapter door_secret_move1 = new EntThinkAdapter() {
         public String getID() { return "door_secret_move1";}
         public boolean think(edict_t self) {
-            self.nextthink = GameBase.level.time + 1.0f;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 1.0f);
             self.think = door_secret_move2;
             return true;
         }
@@ -2042,7 +2042,7 @@ public class GameFunc {
         public boolean think(edict_t self) {
             if (self.wait == -1)
                 return true;
-            self.nextthink = GameBase.level.time + self.wait;
+            ThinkWheel.setNextthink(self, GameBase.level.time + self.wait);
             self.think = door_secret_move4;
             return true;
         }
@@ -2059,7 +2059,7 @@ public class GameFunc {
     static EntThinkAdapter door_secret_move5 = new EntThinkAdapter() {
         public String getID() { return "door_secret_move5";}
         public boolean think(edict_t self) {
-            self.nextthink = GameBase.level.time + 1.0f;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 1.0f);
             self.think = door_secret_move6;
             return true;
         }
@@ -2181,7 +2181,7 @@ public class GameFunc {
                 ent.touch = door_touch;
             }
 
-            ent.classname = "func_door";
+            EntityIndex.setClassname(ent, "func_door");
 
             GameBase.gi.linkentity(ent);
             return true;
@@ -29,6 +29,7 @@ import jake2.qcommon.Defines;
 import jake2.util.Lib;
 import jake2.util.Math3D;
 
+import java.util.HashMap;
 import java.util.StringTokenizer;
 
 
@@ -41,6 +42,11 @@ public class GameItems {
     public static gitem_armor_t bodyarmor_info = new gitem_armor_t(100, 200,
     .80f, .60f, Defines.ARMOR_BODY);
     static int quad_drop_timeout_hack = 0;
+    // items by lower case classname and pickup_name, see IndexItems
+    private static HashMap<String, gitem_t> itemsByClassname;
+
+    private static HashMap<String, gitem_t> itemsByPickupName;
+
     static int jacket_armor_index;
     static int combat_armor_index;
     static int body_armor_index;
@@ -169,7 +175,7 @@ public class GameItems {
     
             if (0 != (ent.style & Defines.HEALTH_TIMED)) {
                 ent.think = GameUtil.MegaHealth_think;
-                ent.nextthink = GameBase.level.time + 5f;
+                ThinkWheel.setNextthink(ent, GameBase.level.time + 5f);
                 ent.owner = other;
                 ent.flags |= Defines.FL_RESPAWN;
                 ent.svflags |= Defines.SVF_NOCLIENT;
@@ -275,7 +281,7 @@ public class GameItems {
         public boolean think(edict_t ent) {
             ent.touch = Touch_Item;
             if (GameBase.deathmatch.value != 0) {
-                ent.nextthink = GameBase.level.time + 29;
+                ThinkWheel.setNextthink(ent, GameBase.level.time + 29);
                 ent.think = GameUtil.G_FreeEdictA;
             }
             return false;
@@ -712,7 +718,7 @@ public class GameItems {
                 ent.svflags |= Defines.SVF_NOCLIENT;
                 ent.solid = Defines.SOLID_NOT;
                 if (ent == ent.teammaster) {
-                    ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                    ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
                     ent.think = DoRespawn;
                 }
             }
@@ -794,17 +800,11 @@ public class GameItems {
      * ===============
      */
     static gitem_t FindItemByClassname(String classname) {
-    
-        for (int i = 1; i < GameBase.game.num_items; i++) {
-            gitem_t it = GameItemList.itemlist[i];
-    
-            if (it.classname == null)
-                continue;
-            if (it.classname.equalsIgnoreCase(classname))
-                return it;
-        }
-    
-        return null;
+        if (itemsByClassname == null)
+            IndexItems();
+
+        return classname == null ? null
+                : itemsByClassname.get(classname.toLowerCase());
     }
 
     /*
@@ -812,23 +812,52 @@ public class GameItems {
      */
     //geht.
     static gitem_t FindItem(String pickup_name) {
-        for (int i = 1; i < GameBase.game.num_items; i++) {
+        if (itemsByPickupName == null)
+            IndexItems();
+
+        gitem_t it = pickup_name == null ? null
+                : itemsByPickupName.get(pickup_name.toLowerCase());
+        if (it == null)
+            Com.Println("Item not found:" + pickup_name);
+        return it;
+    }
+
+    /**
+     * Builds the lower case name lookups of FindItem and FindItemByClassname,
+     * the first item of a name wins like in a scan of the item list.
+     */
+    static void IndexItems() {
+        HashMap<String, gitem_t> byClassname = new HashMap<String, gitem_t>();
+        HashMap<String, gitem_t> byPickupName = new HashMap<String, gitem_t>();
+
+        int num_items = GameItemList.itemlist.length - 1;
+        for (int i = 1; i < num_items; i++) {
             gitem_t it = GameItemList.itemlist[i];
-    
-            if (it.pickup_name == null)
-                continue;
-            if (it.pickup_name.equalsIgnoreCase(pickup_name))
-                return it;
+
+            if (it == null)
+                GameBase.gi.error("IndexItems: null item in pos " + i);
+
+            if (it.classname != null) {
+                String key = it.classname.toLowerCase();
+                if (!byClassname.containsKey(key))
+                    byClassname.put(key, it);
+            }
+            if (it.pickup_name != null) {
+                String key = it.pickup_name.toLowerCase();
+                if (!byPickupName.containsKey(key))
+                    byPickupName.put(key, it);
+            }
         }
-        Com.Println("Item not found:" + pickup_name);
-        return null;
+
+        itemsByClassname = byClassname;
+        itemsByPickupName = byPickupName;
     }
 
     static void SetRespawn(edict_t ent, float delay) {
         ent.flags |= Defines.FL_RESPAWN;
         ent.svflags |= Defines.SVF_NOCLIENT;
         ent.solid = Defines.SOLID_NOT;
-        ent.nextthink = GameBase.level.time + delay;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + delay);
         ent.think = DoRespawn;
         GameBase.gi.linkentity(ent);
     }
@@ -845,7 +874,7 @@ public class GameItems {
     
         dropped = GameUtil.G_Spawn();
     
-        dropped.classname = item.classname;
+        EntityIndex.setClassname(dropped, item.classname);
         dropped.item = item;
         dropped.spawnflags = Defines.DROPPED_ITEM;
         dropped.s.effects = item.world_model_flags;
@@ -879,7 +908,7 @@ public class GameItems {
         dropped.velocity[2] = 300;
     
         dropped.think = drop_make_touchable;
-        dropped.nextthink = GameBase.level.time + 1;
+        ThinkWheel.setNextthink(dropped, GameBase.level.time + 1);
     
         GameBase.gi.linkentity(dropped);
     
@@ -988,6 +1017,7 @@ public class GameItems {
 
     public static void InitItems() {
         GameBase.game.num_items = GameItemList.itemlist.length - 1;
+        IndexItems();
     }
 
     /*
@@ -1203,7 +1233,7 @@ public class GameItems {
         }
     
         ent.item = item;
-        ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
         // items start after other solids
         ent.think = droptofloor;
         ent.s.effects = item.world_model_flags;
@@ -72,7 +72,7 @@ public class GameMisc {
         ent.s.modelindex = GameBase.gi
                 .modelindex("models/objects/banner/tris.md2");
         GameBase.gi.linkentity(ent);
-        ent.nextthink = GameBase.level.time + 0.5f;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 0.5f);
         ent.think = TH_viewthing;
         return;
     }
@@ -167,7 +167,7 @@ public class GameMisc {
             self.solid = Defines.SOLID_BSP;
             self.movetype = Defines.MOVETYPE_PUSH;
             self.think = func_object_release;
-            self.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 2 * Defines.FRAMETIME);
         } else {
             self.solid = Defines.SOLID_NOT;
             self.movetype = Defines.MOVETYPE_PUSH;
@@ -255,7 +255,7 @@ public class GameMisc {
         self.touch = barrel_touch;
 
         self.think = M.M_droptofloor;
-        self.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + 2 * Defines.FRAMETIME);
 
         GameBase.gi.linkentity(self);
     }
@@ -270,7 +270,7 @@ public class GameMisc {
         ent.s.renderfx = Defines.RF_TRANSLUCENT;
         ent.use = misc_blackhole_use;
         ent.think = misc_blackhole_think;
-        ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
         GameBase.gi.linkentity(ent);
     }
 
@@ -283,7 +283,7 @@ public class GameMisc {
                 .modelindex("models/monsters/tank/tris.md2");
         ent.s.frame = 254;
         ent.think = misc_eastertank_think;
-        ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
         GameBase.gi.linkentity(ent);
     }
 
@@ -296,7 +296,7 @@ public class GameMisc {
                 .modelindex("models/monsters/bitch/tris.md2");
         ent.s.frame = 208;
         ent.think = misc_easterchick_think;
-        ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
         GameBase.gi.linkentity(ent);
     }
 
@@ -309,7 +309,7 @@ public class GameMisc {
                 .modelindex("models/monsters/bitch/tris.md2");
         ent.s.frame = 248;
         ent.think = misc_easterchick2_think;
-        ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
         GameBase.gi.linkentity(ent);
     }
 
@@ -330,7 +330,7 @@ public class GameMisc {
         GameBase.gi.soundindex("tank/pain.wav");
 
         self.think = commander_body_drop;
-        self.nextthink = GameBase.level.time + 5 * Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + 5 * Defines.FRAMETIME);
     }
 
     public static void SP_misc_banner(edict_t ent) {
@@ -342,7 +342,7 @@ public class GameMisc {
         GameBase.gi.linkentity(ent);
 
         ent.think = misc_banner_think;
-        ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
     }
 
     public static void SP_misc_deadsoldier(edict_t ent) {
@@ -400,7 +400,7 @@ public class GameMisc {
         Math3D.VectorSet(ent.maxs, 16, 16, 32);
 
         ent.think = GameFunc.func_train_find;
-        ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
         ent.use = misc_viper_use;
         ent.svflags |= Defines.SVF_NOCLIENT;
         ent.moveinfo.accel = ent.moveinfo.decel = ent.moveinfo.speed = ent.speed;
@@ -459,7 +459,7 @@ public class GameMisc {
         Math3D.VectorSet(ent.maxs, 16, 16, 32);
 
         ent.think = GameFunc.func_train_find;
-        ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
         ent.use = misc_strogg_ship_use;
         ent.svflags |= Defines.SVF_NOCLIENT;
         ent.moveinfo.accel = ent.moveinfo.decel = ent.moveinfo.speed = ent.speed;
@@ -517,7 +517,7 @@ public class GameMisc {
         ent.avelocity[1] = Lib.random() * 200;
         ent.avelocity[2] = Lib.random() * 200;
         ent.think = GameUtil.G_FreeEdictA;
-        ent.nextthink = GameBase.level.time + 30;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 30);
         GameBase.gi.linkentity(ent);
     }
 
@@ -538,7 +538,7 @@ public class GameMisc {
         ent.avelocity[1] = Lib.random() * 200;
         ent.avelocity[2] = Lib.random() * 200;
         ent.think = GameUtil.G_FreeEdictA;
-        ent.nextthink = GameBase.level.time + 30;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 30);
         GameBase.gi.linkentity(ent);
     }
 
@@ -559,7 +559,7 @@ public class GameMisc {
         ent.avelocity[1] = Lib.random() * 200;
         ent.avelocity[2] = Lib.random() * 200;
         ent.think = GameUtil.G_FreeEdictA;
-        ent.nextthink = GameBase.level.time + 30;
+        ThinkWheel.setNextthink(ent, GameBase.level.time + 30);
         GameBase.gi.linkentity(ent);
     }
 
@@ -659,7 +659,7 @@ public class GameMisc {
         if ((self.spawnflags & 4) != 0)
             self.use = func_clock_use;
         else
-            self.nextthink = GameBase.level.time + 1;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 1);
     }
 
     /**
@@ -772,7 +772,7 @@ public class GameMisc {
         gib.avelocity[2] = Lib.random() * 600;
     
         gib.think = GameUtil.G_FreeEdictA;
-        gib.nextthink = GameBase.level.time + 10 + Lib.random() * 10;
+        ThinkWheel.setNextthink(gib, GameBase.level.time + 10 + Lib.random() * 10);
     
         GameBase.gi.linkentity(gib);
     }
@@ -815,7 +815,7 @@ public class GameMisc {
         self.avelocity[Defines.YAW] = Lib.crandom() * 600f;
     
         self.think = GameUtil.G_FreeEdictA;
-        self.nextthink = GameBase.level.time + 10 + Lib.random() * 10;
+        ThinkWheel.setNextthink(self, GameBase.level.time + 10 + Lib.random() * 10);
     
         GameBase.gi.linkentity(self);
     }
@@ -855,7 +855,7 @@ public class GameMisc {
             self.client.anim_end = self.s.frame;
         } else {
             self.think = null;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
         }
     
         GameBase.gi.linkentity(self);
@@ -879,10 +879,10 @@ public class GameMisc {
         chunk.avelocity[1] = Lib.random() * 600;
         chunk.avelocity[2] = Lib.random() * 600;
         chunk.think = GameUtil.G_FreeEdictA;
-        chunk.nextthink = GameBase.level.time + 5 + Lib.random() * 5;
+        ThinkWheel.setNextthink(chunk, GameBase.level.time + 5 + Lib.random() * 5);
         chunk.s.frame = 0;
         chunk.flags = 0;
-        chunk.classname = "debris";
+        EntityIndex.setClassname(chunk, "debris");
         chunk.takedamage = Defines.DAMAGE_YES;
         chunk.die = debris_die;
         GameBase.gi.linkentity(chunk);
@@ -1057,7 +1057,7 @@ public class GameMisc {
         public String getID() { return "th_viewthing";}
         public boolean think(edict_t ent) {
             ent.s.frame = (ent.s.frame + 1) % 7;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -1385,7 +1385,7 @@ public class GameMisc {
                 int damage, float[] point) {
 
             self.takedamage = Defines.DAMAGE_NO;
-            self.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 2 * Defines.FRAMETIME);
             self.think = barrel_explode;
             self.activator = attacker;
         }
@@ -1416,10 +1416,10 @@ public class GameMisc {
         public boolean think(edict_t self) {
 
             if (++self.s.frame < 19)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else {
                 self.s.frame = 0;
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             }
             return true;
         }
@@ -1433,10 +1433,10 @@ public class GameMisc {
         public String getID() { return "misc_eastertank_think";}
         public boolean think(edict_t self) {
             if (++self.s.frame < 293)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else {
                 self.s.frame = 254;
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             }
             return true;
         }
@@ -1450,10 +1450,10 @@ public class GameMisc {
         public String getID() { return "misc_easterchick_think";}
         public boolean think(edict_t self) {
             if (++self.s.frame < 247)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else {
                 self.s.frame = 208;
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             }
             return true;
         }
@@ -1466,10 +1466,10 @@ public class GameMisc {
         public String getID() { return "misc_easterchick2_think";}
         public boolean think(edict_t self) {
             if (++self.s.frame < 287)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else {
                 self.s.frame = 248;
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             }
             return true;
         }
@@ -1485,9 +1485,9 @@ public class GameMisc {
         public String getID() { return "commander_body_think";}
         public boolean think(edict_t self) {
             if (++self.s.frame < 24)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else
-                self.nextthink = 0;
+                ThinkWheel.setNextthink(self, 0);
 
             if (self.s.frame == 22)
                 GameBase.gi.sound(self, Defines.CHAN_BODY, GameBase.gi
@@ -1500,7 +1500,7 @@ public class GameMisc {
         public String getID() { return "commander_body_use";}
         public void use(edict_t self, edict_t other, edict_t activator) {
             self.think = commander_body_think;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             GameBase.gi.sound(self, Defines.CHAN_BODY, GameBase.gi
                     .soundindex("tank/pain.wav"), 1, Defines.ATTN_NORM, 0);
         }
@@ -1523,7 +1523,7 @@ public class GameMisc {
         public String getID() { return "misc_banner_think";}
         public boolean think(edict_t ent) {
             ent.s.frame = (ent.s.frame + 1) % 16;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -1665,7 +1665,7 @@ public class GameMisc {
         public boolean think(edict_t self) {
             self.s.frame++;
             if (self.s.frame < 38)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -1675,7 +1675,7 @@ public class GameMisc {
         public void use(edict_t self, edict_t other, edict_t activator) {
             self.s.frame = 0;
             self.think = misc_satellite_dish_think;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         }
     };
 
@@ -1764,6 +1764,7 @@ public class GameMisc {
             }
 
             self.enemy.message = self.message;
+            LiveEdicts.wake(self.enemy);
             self.enemy.use.use(self.enemy, self, self);
 
             if (((self.spawnflags & 1) != 0 && (self.health > self.wait))
@@ -1790,7 +1791,7 @@ public class GameMisc {
                     return true;
             }
 
-            self.nextthink = GameBase.level.time + 1;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 1);
             return true;
 
         }
@@ -1885,12 +1886,12 @@ public class GameMisc {
         public String getID() { return "gib_think";}
         public boolean think(edict_t self) {
             self.s.frame++;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
     
             if (self.s.frame == 10) {
                 self.think = GameUtil.G_FreeEdictA;
-                self.nextthink = GameBase.level.time + 8
-                        + Globals.rnd.nextFloat() * 10;
+                ThinkWheel.setNextthink(self, GameBase.level.time + 8
+                        + Globals.rnd.nextFloat() * 10);
             }
             return true;
         }
@@ -1918,7 +1919,7 @@ public class GameMisc {
                 if (self.s.modelindex == GameBase.sm_meat_index) {
                     self.s.frame++;
                     self.think = gib_think;
-                    self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                    ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
                 }
             }
         }
@@ -36,6 +36,9 @@ public class GameSave {
         for (int i = 0; i < GameBase.game.maxentities; i++)
             GameBase.g_edicts[i] = new edict_t(i);
         GameBase.g_edicts = GameBase.g_edicts;
+        EntityIndex.clear();
+        LiveEdicts.clear();
+        ThinkWheel.clear(GameBase.level.framenum);
     }
 
     public static void CreateClients() {
@@ -250,7 +253,7 @@ public class GameSave {
             for (int i = 0; i < GameBase.game.maxclients; i++)
                 GameBase.game.clients[i].write(f);
 
-            Lib.fclose(f);
+            f.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -284,20 +287,29 @@ public class GameSave {
      * WriteLevel
      */
     public static void WriteLevel(String filename) {
+        try {
+            QuakeFile f = new QuakeFile(filename, "rw");
+            WriteLevel(f);
+            f.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the level to f, a file or an in-memory snapshot.
+     */
+    public static void WriteLevel(QuakeFile f) {
         try {
             int i;
             edict_t ent;
-            QuakeFile f;
-
-            f = new QuakeFile(filename, "rw");
-            if (f == null)
-                GameBase.gi.error("Couldn't open for writing: " + filename);
 
             // write out level_locals_t
             GameBase.level.write(f);
 
             // write out all the entities
-            for (i = 0; i < GameBase.num_edicts; i++) {
+            for (i = LiveEdicts.next(0); i < GameBase.num_edicts;
+                    i = LiveEdicts.next(i + 1)) {
                 ent = GameBase.g_edicts[i];
                 if (!ent.inuse)
                     continue;
@@ -307,8 +319,6 @@ public class GameSave {
 
             i = -1;
             f.writeInt(-1);
-
-            f.close();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -329,12 +339,20 @@ public class GameSave {
      */
     public static void ReadLevel(String filename) {
         try {
-            edict_t ent;
-
             QuakeFile f = new QuakeFile(filename, "r");
+            ReadLevel(f);
+            f.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            if (f == null)
-                GameBase.gi.error("Couldn't read level file " + filename);
+    /**
+     * Reads the level from f, a file or an in-memory snapshot.
+     */
+    public static void ReadLevel(QuakeFile f) {
+        try {
+            edict_t ent;
 
             // wipe all the entities
             CreateEdicts();
@@ -359,7 +377,9 @@ public class GameSave {
                 GameBase.gi.linkentity(ent);
             }
 
-            Lib.fclose(f);
+            EntityIndex.rebuild();
+            LiveEdicts.rebuild();
+            ThinkWheel.clear(GameBase.level.framenum);
 
             // mark all clients as unconnected
             for (int i = 0; i < GameBase.maxclients.value; i++) {
@@ -378,7 +398,7 @@ public class GameSave {
                 // fire any cross-level triggers
                 if (ent.classname != null)
                     if (Lib.strcmp(ent.classname, "target_crosslevel_target") == 0)
-                        ent.nextthink = GameBase.level.time + ent.delay;
+                        ThinkWheel.setNextthink(ent, GameBase.level.time + ent.delay);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -29,6 +29,8 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 
+import java.util.HashMap;
+
 public class GameSpawn {
 
     static EntThinkAdapter SP_item_health = new EntThinkAdapter() {
@@ -143,7 +145,7 @@ public class GameSpawn {
         public boolean think(edict_t ent) {
             ent.movetype = Defines.MOVETYPE_PUSH;
             ent.solid = Defines.SOLID_BSP;
-            ent.inuse = true;
+            LiveEdicts.setInuse(ent, true);
             // since the world doesn't use G_Spawn()
             ent.s.modelindex = 1;
             // world model is always index 1
@@ -346,6 +348,51 @@ public class GameSpawn {
 
     }
 
+    // the keys of spawn_temp_t and edict_t, hashed by their lower case chars
+    private static final int FIELD_KEYS = 256;
+
+    private static final String fieldKeys[] = new String[FIELD_KEYS];
+
+    static {
+        addFieldKeys(spawn_temp_t.fieldNames);
+        addFieldKeys(edict_t.fieldNames);
+    }
+
+    private static void addFieldKeys(String keys[]) {
+        for (int n = 0; n < keys.length; n++) {
+            char key[] = keys[n].toCharArray();
+            int i = fieldKeyHash(key, key.length);
+            while (fieldKeys[i] != null && !fieldKeys[i].equals(keys[n]))
+                i = (i + 1) & (FIELD_KEYS - 1);
+            fieldKeys[i] = keys[n];
+        }
+    }
+
+    private static int fieldKeyHash(char key[], int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++)
+            h = 31 * h + Character.toLowerCase(key[i]);
+        return (h ^ (h >>> 8)) & (FIELD_KEYS - 1);
+    }
+
+    /**
+     * Returns the lower case key of key[0..len), the shared String for known
+     * field names.
+     */
+    static String ED_FieldKey(char key[], int len) {
+        int i = fieldKeyHash(key, len);
+        for (String k; (k = fieldKeys[i]) != null; i = (i + 1) & (FIELD_KEYS - 1)) {
+            if (k.length() != len)
+                continue;
+            int j = 0;
+            while (j < len && k.charAt(j) == Character.toLowerCase(key[j]))
+                j++;
+            if (j == len)
+                return k;
+        }
+        return new String(key, 0, len).toLowerCase();
+    }
+
     /**
      * ED_ParseEdict
      * 
@@ -360,18 +407,21 @@ public class GameSpawn {
         String com_token;
         init = false;
 
-        GameBase.st = new spawn_temp_t();
+        GameBase.st.clear();
         while (true) {
 
             // parse key
-            com_token = Com.Parse(ph);
-            if (com_token.equals("}"))
+            int len = Com.ParseChars(ph);
+            if (len == 1 && Com.com_token[0] == '}')
                 break;
 
             if (ph.isEof())
                 GameBase.gi.error("ED_ParseEntity: EOF without closing brace");
 
-            keyname = com_token;
+            // keynames with a leading underscore are used for utility comments,
+            // and are immediately discarded by quake
+            keyname = len > 0 && Com.com_token[0] == '_' ? null
+                    : ED_FieldKey(Com.com_token, len);
 
             // parse value
             com_token = Com.Parse(ph);
@@ -383,12 +433,10 @@ public class GameSpawn {
                 GameBase.gi.error("ED_ParseEntity: closing brace without data");
 
             init = true;
-            // keynames with a leading underscore are used for utility comments,
-            // and are immediately discarded by quake
-            if (keyname.charAt(0) == '_')
+            if (keyname == null)
                 continue;
 
-            ED_ParseField(keyname.toLowerCase(), com_token, ent);
+            ED_ParseField(keyname, com_token, ent);
 
         }
 
@@ -480,6 +528,9 @@ public class GameSpawn {
         for (int n = 0; n < GameBase.game.maxentities; n++) {
             GameBase.g_edicts[n] = new edict_t(n);
         }
+        EntityIndex.clear();
+        LiveEdicts.clear();
+        ThinkWheel.clear(GameBase.level.framenum);
         
         GameBase.level.mapname = mapname;
         GameBase.game.spawnpoint = spawnpoint;
@@ -495,11 +546,12 @@ public class GameSpawn {
 
         while (true) { // parse the opening brace
 
-            com_token = Com.Parse(ph);
+            int len = Com.ParseChars(ph);
             if (ph.isEof())
                 break;
-            if (!com_token.startsWith("{"))
-                GameBase.gi.error("ED_LoadFromFile: found " + com_token
+            if (len == 0 || Com.com_token[0] != '{')
+                GameBase.gi.error("ED_LoadFromFile: found "
+                        + new String(Com.com_token, 0, len)
                         + " when expecting {");
 
             if (ent == null)
@@ -1162,6 +1214,18 @@ public class GameSpawn {
                 }
             }), new spawn_t(null, null) };
 
+    /** The spawns by lower case name. */
+    static final HashMap<String, spawn_t> spawnsByName = new HashMap<String, spawn_t>();
+
+    static {
+        spawn_t s;
+        for (int i = 0; (s = spawns[i]) != null && s.name != null; i++) {
+            String key = s.name.toLowerCase();
+            if (!spawnsByName.containsKey(key))
+                spawnsByName.put(key, s);
+        }
+    }
+
     /**
      * ED_CallSpawn
      * 
@@ -1171,34 +1235,23 @@ public class GameSpawn {
 
         spawn_t s;
         gitem_t item;
-        int i;
         if (null == ent.classname) {
             GameBase.gi.dprintf("ED_CallSpawn: null classname\n");
             return;
         } // check item spawn functions
-        for (i = 1; i < GameBase.game.num_items; i++) {
-
-            item = GameItemList.itemlist[i];
-
-            if (item == null)
-                GameBase.gi.error("ED_CallSpawn: null item in pos " + i);
-
-            if (item.classname == null)
-                continue;
-            if (item.classname.equalsIgnoreCase(ent.classname)) { // found it
-                GameItems.SpawnItem(ent, item);
-                return;
-            }
+        item = GameItems.FindItemByClassname(ent.classname);
+        if (item != null) { // found it
+            GameItems.SpawnItem(ent, item);
+            return;
         } // check normal spawn functions
 
-        for (i = 0; (s = spawns[i]) != null && s.name != null; i++) {
-            if (s.name.equalsIgnoreCase(ent.classname)) { // found it
+        s = spawnsByName.get(ent.classname.toLowerCase());
+        if (s != null) { // found it
 
-                if (s.spawn == null)
-                    GameBase.gi.error("ED_CallSpawn: null-spawn on index=" + i);
-                s.spawn.think(ent);
-                return;
-            }
+            if (s.spawn == null)
+                GameBase.gi.error("ED_CallSpawn: null-spawn for " + s.name);
+            s.spawn.think(ent);
+            return;
         }
         GameBase.gi.dprintf(ent.classname + " doesn't have a spawn function\n");
     }
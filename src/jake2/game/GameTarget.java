@@ -187,7 +187,7 @@ public class GameTarget {
         self.svflags = Defines.SVF_NOCLIENT;
 
         self.think = target_crosslevel_target_think;
-        self.nextthink = GameBase.level.time + self.delay;
+        ThinkWheel.setNextthink(self, GameBase.level.time + self.delay);
     }
 
     public static void target_laser_on(edict_t self) {
@@ -201,13 +201,13 @@ public class GameTarget {
     public static void target_laser_off(edict_t self) {
         self.spawnflags &= ~1;
         self.svflags |= Defines.SVF_NOCLIENT;
-        self.nextthink = 0;
+        ThinkWheel.setNextthink(self, 0);
     }
 
     public static void SP_target_laser(edict_t self) {
         // let everything else get spawned before we start firing
         self.think = target_laser_start;
-        self.nextthink = GameBase.level.time + 1;
+        ThinkWheel.setNextthink(self, GameBase.level.time + 1);
     }
 
     public static void SP_target_lightramp(edict_t self) {
@@ -404,7 +404,7 @@ public class GameTarget {
             }
 
             self.think = target_explosion_explode;
-            self.nextthink = GameBase.level.time + self.delay;
+            ThinkWheel.setNextthink(self, GameBase.level.time + self.delay);
         }
     };
 
@@ -494,7 +494,7 @@ public class GameTarget {
             edict_t ent;
 
             ent = GameUtil.G_Spawn();
-            ent.classname = self.target;
+            EntityIndex.setClassname(ent, self.target);
             Math3D.VectorCopy(self.s.origin, ent.s.origin);
             Math3D.VectorCopy(self.s.angles, ent.s.angles);
             GameSpawn.ED_CallSpawn(ent);
@@ -644,7 +644,7 @@ public class GameTarget {
 
             Math3D.VectorCopy(tr.endpos, self.s.old_origin);
 
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
     };
@@ -736,7 +736,7 @@ public class GameTarget {
                     new String(tmp));
 
             if ((GameBase.level.time - self.timestamp) < self.speed) {
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             } else if ((self.spawnflags & 1) != 0) {
                 char temp;
 
@@ -832,7 +832,7 @@ public class GameTarget {
             }
 
             if (GameBase.level.time < self.timestamp)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
             return true;
         }
@@ -842,7 +842,7 @@ public class GameTarget {
     	public String getID() { return "target_earthquake_use"; }
         public void use(edict_t self, edict_t other, edict_t activator) {
             self.timestamp = GameBase.level.time + self.count;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             self.activator = activator;
             self.last_move_time = 0;
         }
@@ -54,12 +54,12 @@ public class GameTrigger {
 
         if (ent.wait > 0) {
             ent.think = multi_wait;
-            ent.nextthink = GameBase.level.time + ent.wait;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + ent.wait);
         } else { // we can't just remove (self) here, because this is a touch
                  // function
             // called while looping through area links...
             ent.touch = null;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             ent.think = GameUtil.G_FreeEdictA;
         }
     }
@@ -244,7 +244,7 @@ public class GameTrigger {
     	public String getID(){ return "multi_wait"; }
         public boolean think(edict_t ent) {
 
-            ent.nextthink = 0;
+            ThinkWheel.setNextthink(ent, 0);
             return true;
         }
     };
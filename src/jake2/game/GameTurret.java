@@ -115,7 +115,7 @@ public class GameTurret {
         self.blocked = turret_blocked;
 
         self.think = turret_breach_finish_init;
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         GameBase.gi.linkentity(self);
     }
 
@@ -174,7 +174,7 @@ public class GameTurret {
         }
 
         self.think = turret_driver_link;
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
         GameBase.gi.linkentity(self);
     }
@@ -261,7 +261,7 @@ public class GameTurret {
 
             Math3D.VectorScale(delta, 1.0f / Defines.FRAMETIME, self.avelocity);
 
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
             for (ent = self.teammaster; ent != null; ent = ent.teamchain)
                 ent.avelocity[1] = self.avelocity[1];
@@ -367,7 +367,7 @@ public class GameTurret {
             float[] dir = { 0, 0, 0 };
             float reaction_time;
 
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
             if (self.enemy != null
                     && (!self.enemy.inuse || self.enemy.health <= 0))
@@ -420,7 +420,7 @@ public class GameTurret {
             edict_t ent;
 
             self.think = turret_driver_think;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
 
             self.target_ent = GameBase.G_PickTarget(self.target);
             self.target_ent.owner = self;
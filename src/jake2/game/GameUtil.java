@@ -29,6 +29,7 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class GameUtil {
 
@@ -63,8 +64,8 @@ public class GameUtil {
         if (ent.delay != 0) {
             // create a temp object to fire at a later time
             t = G_Spawn();
-            t.classname = "DelayedUse";
-            t.nextthink = GameBase.level.time + ent.delay;
+            EntityIndex.setClassname(t, "DelayedUse");
+            ThinkWheel.setNextthink(t, GameBase.level.time + ent.delay);
             t.think = Think_Delay;
             t.activator = activator;
             if (activator == null)
@@ -119,6 +120,7 @@ public class GameUtil {
                 if (t == ent) {
                     GameBase.gi.dprintf("WARNING: Entity used itself.\n");
                 } else {
+                    LiveEdicts.wake(t);
                     if (t.use != null)
                         t.use.use(t, ent, activator);
                 }
@@ -132,8 +134,8 @@ public class GameUtil {
     }
 
     public static void G_InitEdict(edict_t e, int i) {
-        e.inuse = true;
-        e.classname = "noclass";
+        LiveEdicts.setInuse(e, true);
+        EntityIndex.setClassname(e, "noclass");
         e.gravity = 1.0f;
         //e.s.number= e - g_edicts;
         e.s = new entity_state_t(e);
@@ -151,17 +153,20 @@ public class GameUtil {
         int i;
         edict_t e = null;
 
-        for (i = (int) GameBase.maxclients.value + 1; i < GameBase.num_edicts; i++) {
+        for (i = LiveEdicts.nextFree((int) GameBase.maxclients.value + 1);
+                i < GameBase.num_edicts; i = LiveEdicts.nextFree(i + 1)) {
             e = GameBase.g_edicts[i];
             // the first couple seconds of server time can involve a lot of
             // freeing and allocating, so relax the replacement policy
             if (!e.inuse
                     && (e.freetime < 2 || GameBase.level.time - e.freetime > 0.5)) {
+                EntityIndex.remove(e);
                 e = GameBase.g_edicts[i] = new edict_t(i);
                 G_InitEdict(e, i);
                 return e;
             }
         }
+        i = GameBase.num_edicts;
 
         if (i == GameBase.game.maxentities)
             GameBase.gi.error("ED_Alloc: no free edicts");
@@ -184,7 +189,9 @@ public class GameUtil {
             return;
         }
 
+        EntityIndex.remove(ed);
         GameBase.g_edicts[ed.index] = new edict_t(ed.index);
+        LiveEdicts.free(ed.index);
         ed.classname = "freed";
         ed.freetime = GameBase.level.time;
         ed.inuse = false;
@@ -197,7 +204,9 @@ public class GameUtil {
 
     public static void G_ClearEdict(edict_t ent) {
         int i = ent.index;
+        EntityIndex.remove(ent);
         GameBase.g_edicts[i] = new edict_t(i);
+        LiveEdicts.free(i);
     }
 
 
@@ -322,8 +331,9 @@ public class GameUtil {
      * Returns 1 if the entity is visible to self, even if not infront().
      */
     public static boolean visible(edict_t self, edict_t other) {
-        float[] spot1 = { 0, 0, 0 };
-        float[] spot2 = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] spot1 = Vec3Pool.main.get();
+        float[] spot2 = Vec3Pool.main.get();
         trace_t trace;
 
         Math3D.VectorCopy(self.s.origin, spot1);
@@ -332,6 +342,7 @@ public class GameUtil {
         spot2[2] += other.viewheight;
         trace = GameBase.gi.trace(spot1, Globals.vec3_origin,
                 Globals.vec3_origin, spot2, self, Defines.MASK_OPAQUE);
+        Vec3Pool.main.release(mark);
 
         if (trace.fraction == 1.0)
             return true;
@@ -460,8 +471,6 @@ public class GameUtil {
             }
         } else {
             // heard it
-            float[] temp = { 0, 0, 0 };
-
             if ((self.spawnflags & 1) != 0) {
                 if (!visible(self, client))
                     return false;
@@ -470,19 +479,26 @@ public class GameUtil {
                     return false;
             }
 
+            int mark = Vec3Pool.main.mark();
+            float[] temp = Vec3Pool.main.get();
             Math3D.VectorSubtract(client.s.origin, self.s.origin, temp);
 
-            if (Math3D.VectorLength(temp) > 1000) // too far to hear
+            if (Math3D.VectorLength(temp) > 1000) { // too far to hear
+                Vec3Pool.main.release(mark);
                 return false;
+            }
 
 
             // check area portals - if they are different and not connected then
             // we can't hear it
             if (client.areanum != self.areanum)
-                if (!GameBase.gi.AreasConnected(self.areanum, client.areanum))
+                if (!GameBase.gi.AreasConnected(self.areanum, client.areanum)) {
+                    Vec3Pool.main.release(mark);
                     return false;
+                }
 
             self.ideal_yaw = Math3D.vectoyaw(temp);
+            Vec3Pool.main.release(mark);
             M.M_ChangeYaw(self);
 
             // hunt the sound for a bit; hopefully find the real player
@@ -539,7 +555,7 @@ public class GameUtil {
         self.monsterinfo.aiflags |= Defines.AI_COMBAT_POINT;
 
         // clear the targetname, that point is ours!
-        self.movetarget.targetname = null;
+        EntityIndex.setTargetname(self.movetarget, null);
         self.monsterinfo.pausetime = 0;
 
         // run for it
@@ -567,7 +583,7 @@ public class GameUtil {
     	public String getID() { return "MegaHealth_think"; }
         public boolean think(edict_t self) {
             if (self.owner.health > self.owner.max_health) {
-                self.nextthink = GameBase.level.time + 1;
+                ThinkWheel.setNextthink(self, GameBase.level.time + 1);
                 self.owner.health -= 1;
                 return false;
             }
@@ -587,14 +603,14 @@ public class GameUtil {
     	public String getID() { return "M_CheckAttack"; }
 
         public boolean think(edict_t self) {
-            float[] spot1 = { 0, 0, 0 };
-
-            float[] spot2 = { 0, 0, 0 };
             float chance;
             trace_t tr;
 
             if (self.enemy.health > 0) {
                 // see if any entities are in the way of the shot
+                int mark = Vec3Pool.main.mark();
+                float[] spot1 = Vec3Pool.main.get();
+                float[] spot2 = Vec3Pool.main.get();
                 Math3D.VectorCopy(self.s.origin, spot1);
                 spot1[2] += self.viewheight;
                 Math3D.VectorCopy(self.enemy.s.origin, spot2);
@@ -605,6 +621,7 @@ public class GameUtil {
                                 | Defines.CONTENTS_SLIME
                                 | Defines.CONTENTS_LAVA
                                 | Defines.CONTENTS_WINDOW);
+                Vec3Pool.main.release(mark);
 
                 // do we have a clear shot?
                 if (tr.ent != self.enemy)
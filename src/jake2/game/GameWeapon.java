@@ -32,6 +32,7 @@ import jake2.render.*;
 import jake2.server.*;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 
 public class GameWeapon {
@@ -90,7 +91,8 @@ public class GameWeapon {
     static EntThinkAdapter Grenade_Explode = new EntThinkAdapter() {
     	public String getID() { return "Grenade_Explode"; }
         public boolean think(edict_t ent) {
-            float[] origin = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] origin = Vec3Pool.main.get();
             int mod;
     
             if (ent.owner.client != null)
@@ -101,8 +103,8 @@ public class GameWeapon {
             // are a point?
             if (ent.enemy != null) {
                 float points = 0;
-                float[] v = { 0, 0, 0 };
-                float[] dir = { 0, 0, 0 };
+                float[] v = Vec3Pool.main.get();
+                float[] dir = Vec3Pool.main.get();
     
                 Math3D.VectorAdd(ent.enemy.mins, ent.enemy.maxs, v);
                 Math3D.VectorMA(ent.enemy.s.origin, 0.5f, v, v);
@@ -144,6 +146,7 @@ public class GameWeapon {
             GameBase.gi.multicast(ent.s.origin, Defines.MULTICAST_PHS);
     
             GameUtil.G_FreeEdict(ent);
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -191,14 +194,18 @@ public class GameWeapon {
     	public String  getID() { return "rocket_touch"; }
         public void touch(edict_t ent, edict_t other, cplane_t plane,
                 csurface_t surf) {
-            float[] origin = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] origin = Vec3Pool.main.get();
             int n;
     
-            if (other == ent.owner)
+            if (other == ent.owner) {
+                Vec3Pool.main.release(mark);
                 return;
+            }
     
             if (surf != null && (surf.flags & Defines.SURF_SKY) != 0) {
                 GameUtil.G_FreeEdict(ent);
+                Vec3Pool.main.release(mark);
                 return;
             }
     
@@ -241,6 +248,7 @@ public class GameWeapon {
             GameBase.gi.multicast(ent.s.origin, Defines.MULTICAST_PHS);
     
             GameUtil.G_FreeEdict(ent);
+            Vec3Pool.main.release(mark);
         }
     };
     /*
@@ -292,7 +300,7 @@ public class GameWeapon {
                 }
             }
     
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             self.s.frame++;
             if (self.s.frame == 5)
                 self.think = GameUtil.G_FreeEdictA;
@@ -338,7 +346,7 @@ public class GameWeapon {
             self.s.sound = 0;
             self.s.effects &= ~Defines.EF_ANIM_ALLFAST;
             self.think = bfg_explode;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             self.enemy = other;
     
             GameBase.gi.WriteByte(Defines.svc_temp_entity);
@@ -353,10 +361,11 @@ public class GameWeapon {
         public boolean think(edict_t self) {
             edict_t ent;
             edict_t ignore;
-            float[] point = { 0, 0, 0 };
-            float[] dir = { 0, 0, 0 };
-            float[] start = { 0, 0, 0 };
-            float[] end = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] point = Vec3Pool.main.get();
+            float[] dir = Vec3Pool.main.get();
+            float[] start = Vec3Pool.main.get();
+            float[] end = Vec3Pool.main.get();
             int dmg;
             trace_t tr;
     
@@ -432,7 +441,8 @@ public class GameWeapon {
                 GameBase.gi.multicast(self.s.origin, Defines.MULTICAST_PHS);
             }
     
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -447,15 +457,18 @@ public class GameWeapon {
      * =================
      */
     static void check_dodge(edict_t self, float[] start, float[] dir, int speed) {
-        float[] end = { 0, 0, 0 };
-        float[] v = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] end = Vec3Pool.main.get();
+        float[] v = Vec3Pool.main.get();
         trace_t tr;
         float eta;
     
         // easy mode only ducks one quarter the time
         if (GameBase.skill.value == 0) {
-            if (Lib.random() > 0.25)
+            if (Lib.random() > 0.25) {
+                Vec3Pool.main.release(mark);
                 return;
+            }
         }
         Math3D.VectorMA(start, 8192, dir, end);
         tr = GameBase.gi.trace(start, null, null, end, self, Defines.MASK_SHOT);
@@ -466,6 +479,7 @@ public class GameWeapon {
             eta = (Math3D.VectorLength(v) - tr.ent.maxs[0]) / speed;
             tr.ent.monsterinfo.dodge.dodge(tr.ent, self, eta);
         }
+        Vec3Pool.main.release(mark);
     }
 
     /*
@@ -478,17 +492,22 @@ public class GameWeapon {
     public static boolean fire_hit(edict_t self, float[] aim, int damage,
             int kick) {
         trace_t tr;
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
-        float[] v = { 0, 0, 0 };
-        float[] point = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
+        float[] v = Vec3Pool.main.get();
+        float[] point = Vec3Pool.main.get();
         float range;
-        float[] dir = { 0, 0, 0 };
+        float[] dir = Vec3Pool.main.get();
     
         //see if enemy is in range
         Math3D.VectorSubtract(self.enemy.s.origin, self.s.origin, dir);
         range = Math3D.VectorLength(dir);
-        if (range > aim[0])
+        if (range > aim[0]) {
+            Vec3Pool.main.release(mark);
             return false;
+        }
     
         if (aim[1] > self.mins[0] && aim[1] < self.maxs[0]) {
             // the hit is straight on so back the range up to the edge of their
@@ -508,8 +527,10 @@ public class GameWeapon {
         tr = GameBase.gi.trace(self.s.origin, null, null, point, self,
                 Defines.MASK_SHOT);
         if (tr.fraction < 1) {
-            if (0 == tr.ent.takedamage)
+            if (0 == tr.ent.takedamage) {
+                Vec3Pool.main.release(mark);
                 return false;
+            }
             // if it will hit any client/monster then hit the one we wanted to
             // hit
             if ((tr.ent.svflags & Defines.SVF_MONSTER) != 0
@@ -528,8 +549,10 @@ public class GameWeapon {
                 damage, kick / 2, Defines.DAMAGE_NO_KNOCKBACK, Defines.MOD_HIT);
     
         if (0 == (tr.ent.svflags & Defines.SVF_MONSTER)
-                && (null == tr.ent.client))
+                && (null == tr.ent.client)) {
+            Vec3Pool.main.release(mark);
             return false;
+        }
     
         // do our special form of knockback here
         Math3D.VectorMA(self.enemy.absmin, 0.5f, self.enemy.size, v);
@@ -538,6 +561,7 @@ public class GameWeapon {
         Math3D.VectorMA(self.enemy.velocity, kick, v, self.enemy.velocity);
         if (self.enemy.velocity[2] > 0)
             self.enemy.groundentity = null;
+        Vec3Pool.main.release(mark);
         return true;
     }
 
@@ -552,12 +576,15 @@ public class GameWeapon {
             int damage, int kick, int te_impact, int hspread, int vspread,
             int mod) {
         trace_t tr;
-        float[] dir = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
-        float[] end = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] dir = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
+        float[] end = Vec3Pool.main.get();
         float r;
         float u;
-        float[] water_start = { 0, 0, 0 };
+        float[] water_start = Vec3Pool.main.get();
         boolean water = false;
         int content_mask = Defines.MASK_SHOT | Defines.MASK_WATER;
     
@@ -654,7 +681,7 @@ public class GameWeapon {
         // if went through water, determine where the end and make a bubble
         // trail
         if (water) {
-            float[] pos = { 0, 0, 0 };
+            float[] pos = Vec3Pool.main.get();
     
             Math3D.VectorSubtract(tr.endpos, water_start, dir);
             Math3D.VectorNormalize(dir);
@@ -674,6 +701,7 @@ public class GameWeapon {
             GameBase.gi.WritePosition(tr.endpos);
             GameBase.gi.multicast(pos, Defines.MULTICAST_PVS);
         }
+        Vec3Pool.main.release(mark);
     }
 
     /*
@@ -743,10 +771,10 @@ public class GameWeapon {
         bolt.s.sound = GameBase.gi.soundindex("misc/lasfly.wav");
         bolt.owner = self;
         bolt.touch = blaster_touch;
-        bolt.nextthink = GameBase.level.time + 2;
+        ThinkWheel.setNextthink(bolt, GameBase.level.time + 2);
         bolt.think = GameUtil.G_FreeEdictA;
         bolt.dmg = damage;
-        bolt.classname = "bolt";
+        EntityIndex.setClassname(bolt, "bolt");
         if (hyper)
             bolt.spawnflags = 1;
         GameBase.gi.linkentity(bolt);
@@ -766,8 +794,11 @@ public class GameWeapon {
             float[] aimdir, int damage, int speed, float timer,
             float damage_radius) {
         edict_t grenade;
-        float[] dir = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] dir = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
     
         Math3D.vectoangles(aimdir, dir);
         Math3D.AngleVectors(dir, forward, right, up);
@@ -790,21 +821,25 @@ public class GameWeapon {
                 .modelindex("models/objects/grenade/tris.md2");
         grenade.owner = self;
         grenade.touch = Grenade_Touch;
-        grenade.nextthink = GameBase.level.time + timer;
+        ThinkWheel.setNextthink(grenade, GameBase.level.time + timer);
         grenade.think = Grenade_Explode;
         grenade.dmg = damage;
         grenade.dmg_radius = damage_radius;
-        grenade.classname = "grenade";
+        EntityIndex.setClassname(grenade, "grenade");
     
         GameBase.gi.linkentity(grenade);
+        Vec3Pool.main.release(mark);
     }
 
     public static void fire_grenade2(edict_t self, float[] start,
             float[] aimdir, int damage, int speed, float timer,
             float damage_radius, boolean held) {
         edict_t grenade;
-        float[] dir = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] dir = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
     
         Math3D.vectoangles(aimdir, dir);
         Math3D.AngleVectors(dir, forward, right, up);
@@ -827,11 +862,11 @@ public class GameWeapon {
                 .modelindex("models/objects/grenade2/tris.md2");
         grenade.owner = self;
         grenade.touch = Grenade_Touch;
-        grenade.nextthink = GameBase.level.time + timer;
+        ThinkWheel.setNextthink(grenade, GameBase.level.time + timer);
         grenade.think = Grenade_Explode;
         grenade.dmg = damage;
         grenade.dmg_radius = damage_radius;
-        grenade.classname = "hgrenade";
+        EntityIndex.setClassname(grenade, "hgrenade");
         if (held)
             grenade.spawnflags = 3;
         else
@@ -846,6 +881,7 @@ public class GameWeapon {
                     0);
             GameBase.gi.linkentity(grenade);
         }
+        Vec3Pool.main.release(mark);
     }
 
     public static void fire_rocket(edict_t self, float[] start, float[] dir,
@@ -867,13 +903,13 @@ public class GameWeapon {
                 .modelindex("models/objects/rocket/tris.md2");
         rocket.owner = self;
         rocket.touch = rocket_touch;
-        rocket.nextthink = GameBase.level.time + 8000 / speed;
+        ThinkWheel.setNextthink(rocket, GameBase.level.time + 8000 / speed);
         rocket.think = GameUtil.G_FreeEdictA;
         rocket.dmg = damage;
         rocket.radius_dmg = radius_damage;
         rocket.dmg_radius = damage_radius;
         rocket.s.sound = GameBase.gi.soundindex("weapons/rockfly.wav");
-        rocket.classname = "rocket";
+        EntityIndex.setClassname(rocket, "rocket");
     
         if (self.client != null)
             check_dodge(self, rocket.s.origin, dir, speed);
@@ -888,8 +924,9 @@ public class GameWeapon {
      */
     public static void fire_rail(edict_t self, float[] start, float[] aimdir,
             int damage, int kick) {
-        float[] from = { 0, 0, 0 };
-        float[] end = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] from = Vec3Pool.main.get();
+        float[] end = Vec3Pool.main.get();
         trace_t tr = null;
         edict_t ignore;
         int mask;
@@ -943,6 +980,7 @@ public class GameWeapon {
     
         if (self.client != null)
             PlayerWeapon.PlayerNoise(self, tr.endpos, Defines.PNOISE_IMPACT);
+        Vec3Pool.main.release(mark);
     }
 
     public static void fire_bfg(edict_t self, float[] start, float[] dir,
@@ -963,15 +1001,15 @@ public class GameWeapon {
         bfg.s.modelindex = GameBase.gi.modelindex("sprites/s_bfg1.sp2");
         bfg.owner = self;
         bfg.touch = bfg_touch;
-        bfg.nextthink = GameBase.level.time + 8000 / speed;
+        ThinkWheel.setNextthink(bfg, GameBase.level.time + 8000 / speed);
         bfg.think = GameUtil.G_FreeEdictA;
         bfg.radius_dmg = damage;
         bfg.dmg_radius = damage_radius;
-        bfg.classname = "bfg blast";
+        EntityIndex.setClassname(bfg, "bfg blast");
         bfg.s.sound = GameBase.gi.soundindex("weapons/bfg__l1a.wav");
     
         bfg.think = bfg_think;
-        bfg.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(bfg, GameBase.level.time + Defines.FRAMETIME);
         bfg.teammaster = bfg;
         bfg.teamchain = null;
     
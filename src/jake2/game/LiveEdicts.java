@@ -0,0 +1,222 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.game;
+
+import jake2.qcommon.Defines;
+
+/**
+ * The in-use flags of g_edicts as a bitset, so that the frame loops visit
+ * the live entities without touching the edicts in between, and G_Spawn
+ * finds the free slots the same way.
+ *
+ * A bit is set when the edict in its slot is in use. Slots change state
+ * through setInuse(), or through free() when the game puts a new edict_t
+ * into the slot; never assign edict_t.inuse directly.
+ *
+ * Live edicts may also be asleep, see ThinkWheel: G_RunFrame passes over
+ * them until something wakes them up.
+ *
+ * A third set mirrors which edicts SV_LinkEdict put into the area node
+ * tree, so findradius() can find the live ones that are not in it.
+ */
+public final class LiveEdicts {
+
+	private static int[] bits = new int[Defines.MAX_EDICTS >> 5];
+
+	private static int[] asleep = new int[Defines.MAX_EDICTS >> 5];
+
+	private static int[] linked = new int[Defines.MAX_EDICTS >> 5];
+
+	private LiveEdicts() {
+	}
+
+	/** Marks ent as used or free, and sets its inuse flag. */
+	public static void setInuse(edict_t ent, boolean inuse) {
+		ent.inuse = inuse;
+		if (inuse) {
+			int word = ent.index >> 5;
+			if (word >= bits.length) {
+				int[] b = new int[Math.max(bits.length * 2, word + 1)];
+				System.arraycopy(bits, 0, b, 0, bits.length);
+				bits = b;
+				b = new int[b.length];
+				System.arraycopy(asleep, 0, b, 0, asleep.length);
+				asleep = b;
+				b = new int[b.length];
+				System.arraycopy(linked, 0, b, 0, linked.length);
+				linked = b;
+			}
+			bits[word] |= 1 << (ent.index & 31);
+			asleep[word] &= ~(1 << (ent.index & 31));
+		} else {
+			free(ent.index);
+		}
+	}
+
+	/** Marks slot index as free, after a new edict_t was put into it. */
+	static void free(int index) {
+		int word = index >> 5;
+		if (word < bits.length) {
+			bits[word] &= ~(1 << (index & 31));
+			asleep[word] &= ~(1 << (index & 31));
+			linked[word] &= ~(1 << (index & 31));
+		}
+	}
+
+	/** Marks all slots free, called whenever g_edicts is recreated. */
+	static void clear() {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = 0;
+			asleep[i] = 0;
+			linked[i] = 0;
+		}
+	}
+
+	/** Lets G_RunFrame pass over the live edict in slot index. */
+	static void sleep(int index) {
+		asleep[index >> 5] |= 1 << (index & 31);
+	}
+
+	/** Returns whether G_RunFrame skips the edict at index. */
+	static boolean isAsleep(int index) {
+		int word = index >> 5;
+		return word < asleep.length && (asleep[word] & (1 << (index & 31))) != 0;
+	}
+
+	/** Makes G_RunFrame visit ent again, does nothing if it is awake. */
+	public static void wake(edict_t ent) {
+		int word = ent.index >> 5;
+		if (word >= 0 && word < asleep.length) {
+			asleep[word] &= ~(1 << (ent.index & 31));
+		}
+	}
+
+	/** Records whether SV_LinkEdict put ent into the area node tree. */
+	public static void setLinked(edict_t ent, boolean isLinked) {
+		int word = ent.index >> 5;
+		if (word < 0 || word >= linked.length) {
+			return;
+		}
+		if (isLinked) {
+			linked[word] |= 1 << (ent.index & 31);
+		} else {
+			linked[word] &= ~(1 << (ent.index & 31));
+		}
+	}
+
+	/**
+	 * Marks the edicts in use and linked, after they were read from a
+	 * savegame and relinked.
+	 */
+	static void rebuild() {
+		clear();
+		for (int i = 0; i < GameBase.num_edicts; i++) {
+			edict_t ent = GameBase.g_edicts[i];
+			if (ent.inuse) {
+				setInuse(ent, true);
+				setLinked(ent, ent.area.prev != null);
+			}
+		}
+	}
+
+	/**
+	 * Returns the first edict index >= from that is in use, or a number >=
+	 * num_edicts if there is none:
+	 *
+	 * for (i = next(0); i < num_edicts; i = next(i + 1))
+	 */
+	public static int next(int from) {
+		int word = from >> 5;
+		if (word >= bits.length) {
+			return Integer.MAX_VALUE;
+		}
+		int b = bits[word] & (-1 << (from & 31));
+		while (b == 0) {
+			if (++word >= bits.length) {
+				return Integer.MAX_VALUE;
+			}
+			b = bits[word];
+		}
+		return (word << 5) + Integer.numberOfTrailingZeros(b);
+	}
+
+	/** Like next(), but skips the edicts that are asleep. */
+	static int nextAwake(int from) {
+		int word = from >> 5;
+		if (word >= bits.length) {
+			return Integer.MAX_VALUE;
+		}
+		int b = bits[word] & ~asleep[word] & (-1 << (from & 31));
+		while (b == 0) {
+			if (++word >= bits.length) {
+				return Integer.MAX_VALUE;
+			}
+			b = bits[word] & ~asleep[word];
+		}
+		return (word << 5) + Integer.numberOfTrailingZeros(b);
+	}
+
+	/** Like next(), but only the edicts that are not in the area node tree. */
+	static int nextUnlinked(int from) {
+		int word = from >> 5;
+		if (word >= bits.length) {
+			return Integer.MAX_VALUE;
+		}
+		int b = bits[word] & ~linked[word] & (-1 << (from & 31));
+		while (b == 0) {
+			if (++word >= bits.length) {
+				return Integer.MAX_VALUE;
+			}
+			b = bits[word] & ~linked[word];
+		}
+		return (word << 5) + Integer.numberOfTrailingZeros(b);
+	}
+
+	/** Returns the last edict index <= from that is in use, or -1. */
+	static int previous(int from) {
+		int word = Math.min(from >> 5, bits.length - 1);
+		if (word < 0) {
+			return -1;
+		}
+		int b = word == from >> 5 ? bits[word] & (-1 >>> (31 - (from & 31))) : bits[word];
+		while (b == 0) {
+			if (--word < 0) {
+				return -1;
+			}
+			b = bits[word];
+		}
+		return (word << 5) + 31 - Integer.numberOfLeadingZeros(b);
+	}
+
+	/** Returns the first edict index >= from that is free. */
+	public static int nextFree(int from) {
+		int word = from >> 5;
+		if (word >= bits.length) {
+			return from;
+		}
+		int b = ~bits[word] & (-1 << (from & 31));
+		while (b == 0) {
+			if (++word >= bits.length) {
+				return word << 5;
+			}
+			b = ~bits[word];
+		}
+		return (word << 5) + Integer.numberOfTrailingZeros(b);
+	}
+}
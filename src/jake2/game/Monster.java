@@ -162,7 +162,7 @@ public class Monster {
         if (0 == (self.monsterinfo.aiflags & Defines.AI_GOOD_GUY))
             GameBase.level.total_monsters++;
 
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         self.svflags |= Defines.SVF_MONSTER;
         self.s.renderfx |= Defines.RF_FRAMELERP;
         self.takedamage = Defines.DAMAGE_AIM;
@@ -291,7 +291,7 @@ public class Monster {
         }
 
         self.think = Monster.monster_think;
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
     }
 
     public static EntThinkAdapter monster_think = new EntThinkAdapter() {
@@ -341,7 +341,7 @@ public class Monster {
         public String getID() { return "monster_trigger_spawn_use";}
         public void use(edict_t self, edict_t other, edict_t activator) {
             self.think = monster_triggered_spawn;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             if (activator.client != null)
                 self.enemy = activator;
             self.use = GameUtil.monster_use;
@@ -356,7 +356,7 @@ public class Monster {
             self.solid = Defines.SOLID_NOT;
             self.movetype = Defines.MOVETYPE_NONE;
             self.svflags |= Defines.SVF_NOCLIENT;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             self.use = monster_triggered_spawn_use;
             return true;
         }
@@ -26,6 +26,7 @@ package jake2.game;
 import jake2.game.monsters.M_Player;
 import jake2.game.pmove_t.TraceAdapter;
 import jake2.qcommon.Defines;
+import jake2.server.moveclip_t;
 import jake2.util.Lib;
 import jake2.util.Math3D;
 
@@ -163,7 +164,7 @@ public class PlayerClient {
                         // from %s to %s\n", self.classname,
                         // vtos(self.s.origin), self.targetname,
                         // spot.targetname);
-                        self.targetname = spot.targetname;
+                        EntityIndex.setTargetname(self, spot.targetname);
                     }
                     return true;
                 }
@@ -178,27 +179,27 @@ public class PlayerClient {
     
             if (Lib.Q_stricmp(GameBase.level.mapname, "security") == 0) {
                 spot = GameUtil.G_Spawn();
-                spot.classname = "info_player_coop";
+                EntityIndex.setClassname(spot, "info_player_coop");
                 spot.s.origin[0] = 188 - 64;
                 spot.s.origin[1] = -164;
                 spot.s.origin[2] = 80;
-                spot.targetname = "jail3";
+                EntityIndex.setTargetname(spot, "jail3");
                 spot.s.angles[1] = 90;
     
                 spot = GameUtil.G_Spawn();
-                spot.classname = "info_player_coop";
+                EntityIndex.setClassname(spot, "info_player_coop");
                 spot.s.origin[0] = 188 + 64;
                 spot.s.origin[1] = -164;
                 spot.s.origin[2] = 80;
-                spot.targetname = "jail3";
+                EntityIndex.setTargetname(spot, "jail3");
                 spot.s.angles[1] = 90;
     
                 spot = GameUtil.G_Spawn();
-                spot.classname = "info_player_coop";
+                EntityIndex.setClassname(spot, "info_player_coop");
                 spot.s.origin[0] = 188 + 128;
                 spot.s.origin[1] = -164;
                 spot.s.origin[2] = 80;
-                spot.targetname = "jail3";
+                EntityIndex.setTargetname(spot, "jail3");
                 spot.s.angles[1] = 90;
             }
             return true;
@@ -230,21 +231,28 @@ public class PlayerClient {
         }
     };
     static edict_t pm_passent;
+
+    // the result of PM_trace, pmove is done with it by the next trace
+    private static final moveclip_t pm_clip = new moveclip_t();
+
     // pmove doesn't need to know about passent and contentmask
     public static pmove_t.TraceAdapter PM_trace = new pmove_t.TraceAdapter() {
     
         public trace_t trace(float[] start, float[] mins, float[] maxs,
                 float[] end) {
             if (pm_passent.health > 0)
-                return GameBase.gi.trace(start, mins, maxs, end, pm_passent,
-                        Defines.MASK_PLAYERSOLID);
+                return GameBase.gi.trace(pm_clip, start, mins, maxs, end,
+                        pm_passent, Defines.MASK_PLAYERSOLID);
             else
-                return GameBase.gi.trace(start, mins, maxs, end, pm_passent,
-                        Defines.MASK_DEADSOLID);
+                return GameBase.gi.trace(pm_clip, start, mins, maxs, end,
+                        pm_passent, Defines.MASK_DEADSOLID);
         }
     
     };
 
+    // reused by ClientThink
+    private static final pmove_t pm_move = new pmove_t();
+
     /**
      * QUAKED info_player_start (1 0 0) (-16 -16 -24) (16 16 32) The normal
      * starting point for a level.
@@ -255,7 +263,7 @@ public class PlayerClient {
         if (Lib.Q_stricmp(GameBase.level.mapname, "security") == 0) {
             // invoke one of our gross, ugly, disgusting hacks
             self.think = PlayerClient.SP_CreateCoopSpots;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         }
     }
 
@@ -298,7 +306,7 @@ public class PlayerClient {
                 || (Lib.Q_stricmp(GameBase.level.mapname, "strike") == 0)) {
             // invoke one of our gross, ugly, disgusting hacks
             self.think = PlayerClient.SP_FixCoopSpots;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         }
     }
 
@@ -814,7 +822,7 @@ public class PlayerClient {
         GameBase.level.body_que = 0;
         for (i = 0; i < Defines.BODY_QUEUE_SIZE; i++) {
             ent = GameUtil.G_Spawn();
-            ent.classname = "bodyque";
+            EntityIndex.setClassname(ent, "bodyque");
         }
     }
 
@@ -1034,8 +1042,8 @@ public class PlayerClient {
         ent.takedamage = Defines.DAMAGE_AIM;
         ent.movetype = Defines.MOVETYPE_WALK;
         ent.viewheight = 22;
-        ent.inuse = true;
-        ent.classname = "player";
+        LiveEdicts.setInuse(ent, true);
+        EntityIndex.setClassname(ent, "player");
         ent.mass = 200;
         ent.solid = Defines.SOLID_BBOX;
         ent.deadflag = Defines.DEAD_NO;
@@ -1185,7 +1193,7 @@ public class PlayerClient {
             // except for the persistant data that was initialized at
             // ClientConnect() time
             GameUtil.G_InitEdict(ent, ent.index);
-            ent.classname = "player";
+            EntityIndex.setClassname(ent, "player");
             InitClientResp(ent.client);
             PutClientInServer(ent);
         }
@@ -1365,8 +1373,8 @@ public class PlayerClient {
         GameBase.gi.unlinkentity(ent);
         ent.s.modelindex = 0;
         ent.solid = Defines.SOLID_NOT;
-        ent.inuse = false;
-        ent.classname = "disconnected";
+        LiveEdicts.setInuse(ent, false);
+        EntityIndex.setClassname(ent, "disconnected");
         ent.client.pers.connected = false;
 
         playernum = ent.index - 1;
@@ -1426,7 +1434,8 @@ public class PlayerClient {
         } else {
 
             // set up for pmove
-            pm = new pmove_t();
+            pm = pm_move;
+            pm.clear();
 
             if (ent.movetype == Defines.MOVETYPE_NOCLIP)
                 client.ps.pmove.pm_type = Defines.PM_SPECTATOR;
@@ -1728,9 +1737,9 @@ public class PlayerClient {
             drop.spawnflags |= Defines.DROPPED_PLAYER_ITEM;
     
             drop.touch = GameItems.Touch_Item;
-            drop.nextthink = GameBase.level.time
+            ThinkWheel.setNextthink(drop, GameBase.level.time
                     + (self.client.quad_framenum - GameBase.level.framenum)
-                    * Defines.FRAMETIME;
+                    * Defines.FRAMETIME);
             drop.think = GameUtil.G_FreeEdictA;
         }
     }
@@ -69,7 +69,7 @@ public class PlayerTrail {
 
         for (int n = 0; n < PlayerTrail.TRAIL_LENGTH; n++) {
             PlayerTrail.trail[n] = GameUtil.G_Spawn();
-            PlayerTrail.trail[n].classname = "player_trail";
+            EntityIndex.setClassname(PlayerTrail.trail[n], "player_trail");
         }
 
         trail_head = 0;
@@ -28,6 +28,7 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class PlayerView {
 
@@ -220,11 +221,12 @@ public class PlayerView {
      * damage = deltavelocity*deltavelocity * 0.0001
      */
     public static void SV_CalcViewOffset(edict_t ent) {
-        float angles[] = { 0, 0, 0 };
+        float angles[];
         float bob;
         float ratio;
         float delta;
-        float[] v = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] v = Vec3Pool.main.get();
 
         // base angles
         angles = ent.client.ps.kick_angles;
@@ -321,6 +323,7 @@ public class PlayerView {
             v[2] = 30;
 
         Math3D.VectorCopy(v, ent.client.ps.viewoffset);
+        Vec3Pool.main.release(mark);
     }
 
     /**
@@ -391,7 +394,8 @@ public class PlayerView {
      */
     public static void SV_CalcBlend(edict_t ent) {
         int contents;
-        float[] vieworg = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] vieworg = Vec3Pool.main.get();
         int remaining;
 
         ent.client.ps.blend[0] = ent.client.ps.blend[1] = ent.client.ps.blend[2] = ent.client.ps.blend[3] = 0;
@@ -464,6 +468,7 @@ public class PlayerView {
         ent.client.bonus_alpha -= 0.1;
         if (ent.client.bonus_alpha < 0)
             ent.client.bonus_alpha = 0;
+        Vec3Pool.main.release(mark);
     }
 
     /**
@@ -29,6 +29,7 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class PlayerWeapon {
 
@@ -148,9 +149,11 @@ public class PlayerWeapon {
     	public String getID() { return "weapon_grenadelauncher_fire"; }
 
         public boolean think(edict_t ent) {
-            float[] offset = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] start = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] offset = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] start = Vec3Pool.main.get();
             int damage = 120;
             float radius;
 
@@ -180,6 +183,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index]--;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -211,8 +215,11 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
 
-            float[] offset = { 0, 0, 0 }, start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] offset = Vec3Pool.main.get();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
             int damage;
             float damage_radius;
             int radius_damage;
@@ -250,6 +257,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index]--;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -305,7 +313,8 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
             float rotation;
-            float[] offset = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] offset = Vec3Pool.main.get();
             int effect;
             int damage;
 
@@ -366,6 +375,7 @@ public class PlayerWeapon {
                 ent.client.weapon_sound = 0;
             }
 
+            Vec3Pool.main.release(mark);
             return true;
 
         }
@@ -424,14 +434,17 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
 
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] offset = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] offset = Vec3Pool.main.get();
             int damage = 4;
             int kick = 8;
 
             if (ent.client.ps.gunframe == 9) {
                 ent.client.ps.gunframe++;
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -470,6 +483,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index]--;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -491,10 +505,12 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
 
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] offset = { 0, 0, 0 };
-            float[] v = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] offset = Vec3Pool.main.get();
+            float[] v = Vec3Pool.main.get();
             int damage = 6;
             int kick = 12;
 
@@ -540,6 +556,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index] -= 2;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -569,9 +586,11 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
 
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] offset = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] offset = Vec3Pool.main.get();
             int damage;
             int kick;
 
@@ -612,6 +631,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index]--;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -642,8 +662,11 @@ public class PlayerWeapon {
 
         public boolean think(edict_t ent) {
 
-            float[] offset = { 0, 0, 0 }, start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] offset = Vec3Pool.main.get();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
             int damage;
             float damage_radius = 1000;
 
@@ -663,6 +686,7 @@ public class PlayerWeapon {
                 ent.client.ps.gunframe++;
 
                 PlayerWeapon.PlayerNoise(ent, start, Defines.PNOISE_WEAPON);
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -670,6 +694,7 @@ public class PlayerWeapon {
             // check again and abort firing if we don't have enough now
             if (ent.client.pers.inventory[ent.client.ammo_index] < 50) {
                 ent.client.ps.gunframe++;
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -697,6 +722,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index] -= 50;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -802,16 +828,19 @@ public class PlayerWeapon {
         public boolean think(edict_t ent) {
 
             int i;
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] angles = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] angles = Vec3Pool.main.get();
             int damage = 8;
             int kick = 2;
-            float[] offset = { 0, 0, 0 };
+            float[] offset = Vec3Pool.main.get();
 
             if (0 == (ent.client.buttons & Defines.BUTTON_ATTACK)) {
                 ent.client.machinegun_shots = 0;
                 ent.client.ps.gunframe++;
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -829,6 +858,7 @@ public class PlayerWeapon {
                     ent.pain_debounce_time = GameBase.level.time + 1;
                 }
                 NoAmmoWeaponChange(ent);
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -884,6 +914,7 @@ public class PlayerWeapon {
                         - (int) (Lib.random() + 0.25);
                 ent.client.anim_end = M_Player.FRAME_attack8;
             }
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -895,10 +926,13 @@ public class PlayerWeapon {
 
             int i;
             int shots;
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] up = Vec3Pool.main.get();
             float r, u;
-            float[] offset = { 0, 0, 0 };
+            float[] offset = Vec3Pool.main.get();
             int damage;
             int kick = 2;
 
@@ -916,6 +950,7 @@ public class PlayerWeapon {
                     && 0 == (ent.client.buttons & Defines.BUTTON_ATTACK)) {
                 ent.client.ps.gunframe = 32;
                 ent.client.weapon_sound = 0;
+                Vec3Pool.main.release(mark);
                 return true;
             } else if ((ent.client.ps.gunframe == 21)
                     && (ent.client.buttons & Defines.BUTTON_ATTACK) != 0
@@ -967,6 +1002,7 @@ public class PlayerWeapon {
                     ent.pain_debounce_time = GameBase.level.time + 1;
                 }
                 NoAmmoWeaponChange(ent);
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
@@ -1007,6 +1043,7 @@ public class PlayerWeapon {
             if (0 == ((int) GameBase.dmflags.value & Defines.DF_INFINITE_AMMO))
                 ent.client.pers.inventory[ent.client.ammo_index] -= shots;
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -1359,9 +1396,11 @@ public class PlayerWeapon {
      */
 
     public static void weapon_grenade_fire(edict_t ent, boolean held) {
-        float[] offset = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-        float[] start = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] offset = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] start = Vec3Pool.main.get();
         int damage = 125;
         float timer;
         int speed;
@@ -1389,11 +1428,14 @@ public class PlayerWeapon {
         if (ent.deadflag != 0 || ent.s.modelindex != 255) // VWep animations
         // screw up corpses
         {
+            Vec3Pool.main.release(mark);
             return;
         }
 
-        if (ent.health <= 0)
+        if (ent.health <= 0) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         if ((ent.client.ps.pmove.pm_flags & pmove_t.PMF_DUCKED) != 0) {
             ent.client.anim_priority = Defines.ANIM_ATTACK;
@@ -1404,6 +1446,7 @@ public class PlayerWeapon {
             ent.s.frame = M_Player.FRAME_wave08;
             ent.client.anim_end = M_Player.FRAME_wave01;
         }
+        Vec3Pool.main.release(mark);
     }
 
     /*
@@ -1416,9 +1459,11 @@ public class PlayerWeapon {
 
     public static void Blaster_Fire(edict_t ent, float[] g_offset, int damage,
             boolean hyper, int effect) {
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-        float[] start = { 0, 0, 0 };
-        float[] offset = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] start = Vec3Pool.main.get();
+        float[] offset = Vec3Pool.main.get();
 
         if (is_quad)
             damage *= 4;
@@ -1442,6 +1487,7 @@ public class PlayerWeapon {
         GameBase.gi.multicast(ent.s.origin, Defines.MULTICAST_PVS);
 
         PlayerWeapon.PlayerNoise(ent, start, Defines.PNOISE_WEAPON);
+        Vec3Pool.main.release(mark);
     }
 
     /*
@@ -1474,7 +1520,7 @@ public class PlayerWeapon {
     
         if (who.mynoise == null) {
             noise = GameUtil.G_Spawn();
-            noise.classname = "player_noise";
+            EntityIndex.setClassname(noise, "player_noise");
             Math3D.VectorSet(noise.mins, -8, -8, -8);
             Math3D.VectorSet(noise.maxs, 8, 8, 8);
             noise.owner = who;
@@ -1482,7 +1528,7 @@ public class PlayerWeapon {
             who.mynoise = noise;
     
             noise = GameUtil.G_Spawn();
-            noise.classname = "player_noise";
+            EntityIndex.setClassname(noise, "player_noise");
             Math3D.VectorSet(noise.mins, -8, -8, -8);
             Math3D.VectorSet(noise.maxs, 8, 8, 8);
             noise.owner = who;
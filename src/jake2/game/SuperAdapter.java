@@ -29,22 +29,29 @@ import java.util.HashMap;
 
 public abstract class SuperAdapter {
 
+	/** Registration number, unique while the program runs. */
+	private final int index;
+
 	/** Constructor, does the adapter registration. */
 	public SuperAdapter() {
-		register(this, getID());
+		index = register(this, getID());
 	}
 
-	/** Adapter registration. */
-	private static void register(SuperAdapter sa, String id) {
+	/** Adapter registration, returns the registration number. */
+	private static synchronized int register(SuperAdapter sa, String id) {
 		adapters.put(id, sa);
+		return count++;
 	}
 
 	/** Adapter repository. */
-	private static HashMap adapters= new HashMap();
+	private static HashMap<String, SuperAdapter> adapters= new HashMap<String, SuperAdapter>();
+
+	/** Number of adapters registered. */
+	private static int count;
 
 	/** Returns the adapter from the repository given by its ID. */
 	public static SuperAdapter getFromID(String key) {
-		SuperAdapter sa= (SuperAdapter) adapters.get(key);
+		SuperAdapter sa= adapters.get(key);
 
 		// try to create the adapter
 		if (sa == null) {
@@ -56,4 +63,17 @@ public abstract class SuperAdapter {
 
 	/** Returns the Adapter-ID. */
 	public abstract String getID();
+
+	/**
+	 * Returns the registration number, an index for tables of adapters that
+	 * are not saved, like the adapter ids of a QuakeFile.
+	 */
+	public final int getIndex() {
+		return index;
+	}
+
+	/** Returns the number of adapters registered, the bound of getIndex(). */
+	public static synchronized int count() {
+		return count;
+	}
 }
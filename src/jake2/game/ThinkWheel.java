@@ -0,0 +1,214 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.game;
+
+import jake2.qcommon.Defines;
+
+import java.util.ArrayList;
+
+/**
+ * Puts idle entities to sleep until their next think is due, so that
+ * G_RunFrame does not visit every trigger, target and path_corner of a map
+ * in every frame just to find out that it has nothing to do.
+ *
+ * An entity is idle after its frame if its whole per-frame work is the
+ * think check: MOVETYPE_NONE, no prethink, no ground entity, not a client
+ * and not sent to clients, so that the old_origin copy in G_RunFrame can
+ * not be observed. Sleeping entities are kept in a timer wheel by the frame
+ * of their nextthink, two levels of 64 slots, one frame and 64 frames wide,
+ * plus a list for thinks more than 4096 frames ahead. When the frame comes,
+ * G_RunFrame finds them awake and runs them in edict order like all others.
+ *
+ * Anything else that could give a sleeping entity work wakes it up:
+ * setNextthink(), setInuse(), linking or unlinking it and using it. Never
+ * assign edict_t.nextthink directly. Waking an entity that has nothing to
+ * do is harmless, it just goes back to sleep.
+ *
+ * Entries are not removed when an entity wakes up or is freed. Each entry
+ * carries the stamp the entity got when it fell asleep, and an entry only
+ * counts while the entity is still asleep with that stamp; stale entries
+ * are dropped when their slot comes up.
+ */
+public final class ThinkWheel {
+
+	private static final int SLOTS = 64;
+
+	/** The sleeping entities of one slot with their stamps. */
+	private static final class Slot {
+		final ArrayList<edict_t> ents = new ArrayList<edict_t>();
+		int[] stamps = new int[16];
+
+		void add(edict_t ent) {
+			int n = ents.size();
+			if (n == stamps.length) {
+				int[] s = new int[n * 2];
+				System.arraycopy(stamps, 0, s, 0, n);
+				stamps = s;
+			}
+			stamps[n] = ent.thinkstamp;
+			ents.add(ent);
+		}
+
+		/** Returns the entity of entry i if the entry is not stale. */
+		edict_t get(int i) {
+			edict_t ent = ents.get(i);
+			if (GameBase.g_edicts[ent.index] != ent
+					|| ent.thinkstamp != stamps[i]
+					|| !LiveEdicts.isAsleep(ent.index))
+				return null;
+			return ent;
+		}
+	}
+
+	private static final Slot[] frames = newSlots();
+
+	private static final Slot[] blocks = newSlots();
+
+	private static final Slot later = new Slot();
+
+	/** The last frame advance() has been called for. */
+	private static int now;
+
+	/** Last stamp handed out by sleepIfIdle(). */
+	private static int stamp;
+
+	private ThinkWheel() {
+	}
+
+	private static Slot[] newSlots() {
+		Slot[] slots = new Slot[SLOTS];
+		for (int i = 0; i < SLOTS; i++) {
+			slots[i] = new Slot();
+		}
+		return slots;
+	}
+
+	/** Sets the time of the next think of ent, and wakes it up. */
+	public static void setNextthink(edict_t ent, float nextthink) {
+		ent.nextthink = nextthink;
+		LiveEdicts.wake(ent);
+	}
+
+	/**
+	 * Returns the first frame in which SV_RunThink runs a think scheduled
+	 * for the given time, with the same float arithmetic.
+	 */
+	static int dueFrame(float nextthink) {
+		int framenum = (int) (nextthink / Defines.FRAMETIME) - 2;
+		while (nextthink > framenum * Defines.FRAMETIME + 0.001)
+			framenum++;
+		return framenum;
+	}
+
+	/**
+	 * Puts ent to sleep if it is idle, called by G_RunFrame after the
+	 * entity ran. A pending think is scheduled in the wheel.
+	 */
+	static void sleepIfIdle(edict_t ent) {
+		int i = ent.index;
+		if (!ent.inuse || GameBase.g_edicts[i] != ent
+				|| ent.movetype != Defines.MOVETYPE_NONE
+				|| ent.prethink != null || ent.groundentity != null
+				|| i <= GameBase.maxclients.value)
+			return;
+
+		if ((ent.svflags & Defines.SVF_NOCLIENT) == 0
+				&& (ent.s.modelindex != 0 || ent.s.effects != 0 || ent.s.sound != 0))
+			return;
+
+		// a new stamp even without a think, so older entries are stale
+		ent.thinkstamp = ++stamp;
+		LiveEdicts.sleep(i);
+		if (ent.nextthink > 0) {
+			int framenum = dueFrame(ent.nextthink);
+			if (framenum <= now) {
+				// due in the next frame
+				framenum = now + 1;
+			}
+			ent.thinkframe = framenum;
+			insert(ent);
+		}
+	}
+
+	private static void insert(edict_t ent) {
+		int framenum = ent.thinkframe;
+		if (framenum <= now) {
+			LiveEdicts.wake(ent);
+		} else if (framenum - now < SLOTS) {
+			frames[framenum & (SLOTS - 1)].add(ent);
+		} else if ((framenum >> 6) - (now >> 6) < SLOTS) {
+			blocks[(framenum >> 6) & (SLOTS - 1)].add(ent);
+		} else {
+			later.add(ent);
+		}
+	}
+
+	/** Moves the live entries of slot to the slots for their frames. */
+	private static void cascade(Slot slot) {
+		int n = slot.ents.size();
+		if (n == 0)
+			return;
+
+		// insert may add to a slot that is still being moved, copy first
+		edict_t[] ents = new edict_t[n];
+		for (int i = 0; i < n; i++) {
+			ents[i] = slot.get(i);
+		}
+		slot.ents.clear();
+		for (int i = 0; i < n; i++) {
+			if (ents[i] != null)
+				insert(ents[i]);
+		}
+	}
+
+	/**
+	 * Advances the wheel to framenum, waking the entities whose think is
+	 * due. Called by G_RunFrame at the start of each frame.
+	 */
+	static void advance(int framenum) {
+		while (now < framenum) {
+			now++;
+			if ((now & (SLOTS * SLOTS - 1)) == 0)
+				cascade(later);
+			if ((now & (SLOTS - 1)) == 0)
+				cascade(blocks[(now >> 6) & (SLOTS - 1)]);
+
+			Slot slot = frames[now & (SLOTS - 1)];
+			for (int i = 0; i < slot.ents.size(); i++) {
+				edict_t ent = slot.get(i);
+				if (ent != null)
+					LiveEdicts.wake(ent);
+			}
+			slot.ents.clear();
+		}
+	}
+
+	/**
+	 * Forgets all scheduled thinks, called whenever g_edicts is recreated
+	 * or read, with all edicts awake.
+	 */
+	static void clear(int framenum) {
+		for (int i = 0; i < SLOTS; i++) {
+			frames[i].ents.clear();
+			blocks[i].ents.clear();
+		}
+		later.ents.clear();
+		now = framenum;
+	}
+}
@@ -25,6 +25,7 @@ package jake2.game;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.HashMap;
 
 import jake2.*;
 import jake2.qcommon.Com;
@@ -116,6 +117,11 @@ public class edict_t {
 
     public String killtarget = null;
 
+    /** Keys under which EntityIndex holds this edict, null if not indexed. */
+    String classnameKey;
+
+    String targetnameKey;
+
     public String team = null;
 
     public String pathtarget = null;
@@ -157,6 +163,12 @@ public class edict_t {
 
     public float nextthink;
 
+    /** Frame of the think ThinkWheel scheduled when this edict fell asleep. */
+    int thinkframe;
+
+    /** Tells ThinkWheel's entry for the current sleep from stale ones. */
+    int thinkstamp;
+
     public EntThinkAdapter prethink = null;
 
     public EntThinkAdapter think = null;
@@ -283,171 +295,137 @@ public class edict_t {
 
     /////////////////////////////////////////////////
 
+    // setField keys, the ids are the indexes into fieldNames
+    private static final int F_CLASSNAME = 0, F_MODEL = 1, F_SPAWNFLAGS = 2,
+        F_SPEED = 3, F_ACCEL = 4, F_DECEL = 5, F_TARGET = 6,
+        F_TARGETNAME = 7, F_PATHTARGET = 8, F_DEATHTARGET = 9,
+        F_KILLTARGET = 10, F_COMBATTARGET = 11, F_MESSAGE = 12, F_TEAM = 13,
+        F_WAIT = 14, F_DELAY = 15, F_RANDOM = 16, F_MOVE_ORIGIN = 17,
+        F_MOVE_ANGLES = 18, F_STYLE = 19, F_COUNT = 20, F_HEALTH = 21,
+        F_SOUNDS = 22, F_LIGHT = 23, F_DMG = 24, F_MASS = 25, F_VOLUME = 26,
+        F_ATTENUATION = 27, F_MAP = 28, F_ORIGIN = 29, F_ANGLES = 30,
+        F_ANGLE = 31, F_ITEM = 32;
+
+    static final String fieldNames[] = { "classname", "model", "spawnflags",
+        "speed", "accel", "decel", "target", "targetname", "pathtarget",
+        "deathtarget", "killtarget", "combattarget", "message", "team",
+        "wait", "delay", "random", "move_origin", "move_angles", "style",
+        "count", "health", "sounds", "light", "dmg", "mass", "volume",
+        "attenuation", "map", "origin", "angles", "angle", "item" };
+
+    private static final HashMap<String, Integer> fields = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < fieldNames.length; i++)
+            fields.put(fieldNames[i], Integer.valueOf(i));
+    }
+
     public boolean setField(String key, String value) {
+        Integer field = fields.get(key);
+        if (field == null)
+            return false;
 
-        if (key.equals("classname")) {
-            classname = GameSpawn.ED_NewString(value);
+        switch (field.intValue()) {
+        case F_CLASSNAME: // F_LSTRING
+            EntityIndex.setClassname(this, GameSpawn.ED_NewString(value));
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("model")) {
+        case F_MODEL: // F_LSTRING
             model = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("spawnflags")) {
+        case F_SPAWNFLAGS: // F_INT
             spawnflags = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("speed")) {
+        case F_SPEED: // F_FLOAT
             speed = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("accel")) {
+        case F_ACCEL: // F_FLOAT
             accel = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("decel")) {
+        case F_DECEL: // F_FLOAT
             decel = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("target")) {
+        case F_TARGET: // F_LSTRING
             target = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("targetname")) {
-            targetname = GameSpawn.ED_NewString(value);
+        case F_TARGETNAME: // F_LSTRING
+            EntityIndex.setTargetname(this, GameSpawn.ED_NewString(value));
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("pathtarget")) {
+        case F_PATHTARGET: // F_LSTRING
             pathtarget = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("deathtarget")) {
+        case F_DEATHTARGET: // F_LSTRING
             deathtarget = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-        if (key.equals("killtarget")) {
+        case F_KILLTARGET: // F_LSTRING
             killtarget = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("combattarget")) {
+        case F_COMBATTARGET: // F_LSTRING
             combattarget = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("message")) {
+        case F_MESSAGE: // F_LSTRING
             message = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("team")) {
+        case F_TEAM: // F_LSTRING
             team = GameSpawn.ED_NewString(value);
             Com.dprintln("Monster Team:" + team);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("wait")) {
+        case F_WAIT: // F_FLOAT
             wait = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("delay")) {
+        case F_DELAY: // F_FLOAT
             delay = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("random")) {
+        case F_RANDOM: // F_FLOAT
             random = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("move_origin")) {
+        case F_MOVE_ORIGIN: // F_VECTOR
             move_origin = Lib.atov(value);
             return true;
-        } // F_VECTOR),
-
-        if (key.equals("move_angles")) {
+        case F_MOVE_ANGLES: // F_VECTOR
             move_angles = Lib.atov(value);
             return true;
-        } // F_VECTOR),
-
-        if (key.equals("style")) {
+        case F_STYLE: // F_INT
             style = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("count")) {
+        case F_COUNT: // F_INT
             count = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("health")) {
+        case F_HEALTH: // F_INT
             health = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("sounds")) {
+        case F_SOUNDS: // F_INT
             sounds = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("light")) {
+        case F_LIGHT: // F_IGNORE
             return true;
-        } // F_IGNORE),
-
-        if (key.equals("dmg")) {
+        case F_DMG: // F_INT
             dmg = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("mass")) {
+        case F_MASS: // F_INT
             mass = Lib.atoi(value);
             return true;
-        } // F_INT),
-
-        if (key.equals("volume")) {
+        case F_VOLUME: // F_FLOAT
             volume = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("attenuation")) {
+        case F_ATTENUATION: // F_FLOAT
             attenuation = Lib.atof(value);
             return true;
-        } // F_FLOAT),
-
-        if (key.equals("map")) {
+        case F_MAP: // F_LSTRING
             map = GameSpawn.ED_NewString(value);
             return true;
-        } // F_LSTRING),
-
-        if (key.equals("origin")) {
+        case F_ORIGIN: // F_VECTOR
             s.origin = Lib.atov(value);
             return true;
-        } // F_VECTOR),
-
-        if (key.equals("angles")) {
+        case F_ANGLES: // F_VECTOR
             s.angles = Lib.atov(value);
             return true;
-        } // F_VECTOR),
-
-        if (key.equals("angle")) {
+        case F_ANGLE: // F_ANGLEHACK
             s.angles = new float[] { 0, Lib.atof(value), 0 };
             return true;
-        } // F_ANGLEHACK),
-
-        if (key.equals("item")) {
+        case F_ITEM: // F_ITEM
             GameBase.gi.error("ent.set(\"item\") called.");
             return true;
-        } // F_ITEM)
+        }
 
         return false;
     }
@@ -688,6 +666,7 @@ public class edict_t {
         yaw_speed = f.readFloat();
         ideal_yaw = f.readFloat();
 
+        // the reader clears ThinkWheel afterwards, all edicts are awake
         nextthink = f.readFloat();
 
         prethink = (EntThinkAdapter) f.readAdapter();
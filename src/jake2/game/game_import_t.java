@@ -99,6 +99,13 @@ public class game_import_t {
         return SV_WORLD.SV_Trace(start, mins, maxs, end, passent, contentmask);
     }
 
+    /** Like trace, but the result is clip.trace and reused by the next call. */
+    public trace_t trace(moveclip_t clip, float[] start, float[] mins,
+            float[] maxs, float[] end, edict_t passent, int contentmask) {
+        return SV_WORLD.SV_Trace(clip, start, mins, maxs, end, passent,
+                contentmask);
+    }
+
     public pmove_t.PointContentsAdapter pointcontents = new pmove_t.PointContentsAdapter() {
         public int pointcontents(float[] o) {
             return 0;
@@ -30,6 +30,7 @@ import jake2.game.GameAI;
 import jake2.game.GameBase;
 import jake2.game.GameUtil;
 import jake2.game.Monster;
+import jake2.game.ThinkWheel;
 import jake2.game.edict_t;
 import jake2.game.mframe_t;
 import jake2.game.mmove_t;
@@ -521,7 +522,7 @@ public class M_Boss2 {
             Math3D.VectorSet(self.maxs, 56, 56, 80);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -27,6 +27,7 @@ import jake2.game.EntThinkAdapter;
 import jake2.game.EntUseAdapter;
 import jake2.game.GameBase;
 import jake2.game.GameUtil;
+import jake2.game.ThinkWheel;
 import jake2.game.edict_t;
 import jake2.qcommon.Defines;
 import jake2.util.Math3D;
@@ -51,7 +52,7 @@ public class M_Boss3 {
                 ent.s.frame = M_Boss32.FRAME_stand201;
             else
                 ent.s.frame++;
-            ent.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + Defines.FRAMETIME);
             return true;
         }
 
@@ -81,7 +82,7 @@ public class M_Boss3 {
 
         self.use = Use_Boss3;
         self.think = Think_Boss3Stand;
-        self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+        ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
         GameBase.gi.linkentity(self);
     }
 }
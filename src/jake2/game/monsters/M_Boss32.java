@@ -1244,7 +1244,7 @@ public class M_Boss32 {
             Math3D.VectorSet(self.maxs, 60, 60, 72);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -1663,10 +1663,10 @@ public class M_Boss32 {
     	public String getID() { return "makron_torso_think"; }
         public boolean think(edict_t self) {
             if (++self.s.frame < 365)
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             else {
                 self.s.frame = 346;
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             }
             return true;
         }
@@ -1683,7 +1683,7 @@ public class M_Boss32 {
             ent.s.modelindex = GameBase.gi
                     .modelindex("models/monsters/boss3/rider/tris.md2");
             ent.think = makron_torso_think;
-            ent.nextthink = GameBase.level.time + 2 * Defines.FRAMETIME;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + 2 * Defines.FRAMETIME);
             ent.s.sound = GameBase.gi.soundindex("makron/spine.wav");
             GameBase.gi.linkentity(ent);
             return true;
@@ -1926,7 +1926,7 @@ public class M_Boss32 {
             edict_t ent;
 
             ent = GameUtil.G_Spawn();
-            ent.nextthink = GameBase.level.time + 0.8f;
+            ThinkWheel.setNextthink(ent, GameBase.level.time + 0.8f);
             ent.think = MakronSpawn;
             ent.target = self.target;
             Math3D.VectorCopy(self.s.origin, ent.s.origin);
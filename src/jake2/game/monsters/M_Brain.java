@@ -749,7 +749,7 @@ public class M_Brain {
             Math3D.VectorSet(self.maxs, 16, 16, -8);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
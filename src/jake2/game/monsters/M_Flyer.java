@@ -959,7 +959,7 @@ public class M_Flyer {
         // fix a map bug in jail5.bsp
         if (GameBase.level.mapname.equalsIgnoreCase("jail5")
                 && (self.s.origin[2] == -104)) {
-            self.targetname = self.target;
+            EntityIndex.setTargetname(self, self.target);
             self.target = null;
         }
 
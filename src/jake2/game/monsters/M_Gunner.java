@@ -27,6 +27,7 @@ import jake2.game.*;
 import jake2.qcommon.Defines;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class M_Gunner {
     //	This file generated by ModelGen - Do NOT Modify
@@ -753,7 +754,7 @@ public class M_Gunner {
             Math3D.VectorSet(self.maxs, 16, 16, -8);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -891,10 +892,12 @@ public class M_Gunner {
     static EntThinkAdapter GunnerFire = new EntThinkAdapter() {
     	public String getID() { return "GunnerFire"; }
         public boolean think(edict_t self) {
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] target = { 0, 0, 0 };
-            float[] aim = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] target = Vec3Pool.main.get();
+            float[] aim = Vec3Pool.main.get();
             int flash_number;
 
             flash_number = Defines.MZ2_GUNNER_MACHINEGUN_1
@@ -916,6 +919,7 @@ public class M_Gunner {
                     Defines.DEFAULT_BULLET_HSPREAD,
                     Defines.DEFAULT_BULLET_VSPREAD, flash_number);
 
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -923,9 +927,11 @@ public class M_Gunner {
     static EntThinkAdapter GunnerGrenade = new EntThinkAdapter() {
     	public String getID() { return "GunnerGrenade"; }
         public boolean think(edict_t self) {
-            float[] start = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] aim = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] aim = Vec3Pool.main.get();
             int flash_number;
 
             if (self.s.frame == FRAME_attak105)
@@ -948,6 +954,7 @@ public class M_Gunner {
 
             Monster.monster_fire_grenade(self, start, aim, 50, 600,
                     flash_number);
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
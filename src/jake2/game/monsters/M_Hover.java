@@ -581,7 +581,7 @@ public class M_Hover {
         public boolean think(edict_t self) {
             if (null == self.groundentity
                     && GameBase.level.time < self.timestamp) {
-                self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+                ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
                 return true;
             }
             GameMisc.BecomeExplosion1(self);
@@ -596,7 +596,7 @@ public class M_Hover {
             Math3D.VectorSet(self.maxs, 16, 16, -8);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.think = hover_deadthink;
-            self.nextthink = GameBase.level.time + Defines.FRAMETIME;
+            ThinkWheel.setNextthink(self, GameBase.level.time + Defines.FRAMETIME);
             self.timestamp = GameBase.level.time + 15;
             GameBase.gi.linkentity(self);
             return true;
@@ -28,6 +28,7 @@ import jake2.game.*;
 import jake2.qcommon.Defines;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class M_Infantry {
 
@@ -690,9 +691,12 @@ public class M_Infantry {
     static EntThinkAdapter InfantryMachineGun = new EntThinkAdapter() {
     	public String getID() { return "InfantryMachineGun"; }
         public boolean think(edict_t self) {
-            float[] start = { 0, 0, 0 }, target = { 0, 0, 0 };
-            float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 };
-            float[] vec = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] start = Vec3Pool.main.get();
+            float[] target = Vec3Pool.main.get();
+            float[] forward = Vec3Pool.main.get();
+            float[] right = Vec3Pool.main.get();
+            float[] vec = Vec3Pool.main.get();
             int flash_number;
 
             if (self.s.frame == FRAME_attak111) {
@@ -728,6 +732,7 @@ public class M_Infantry {
             Monster.monster_fire_bullet(self, start, forward, 3, 4,
                     Defines.DEFAULT_BULLET_HSPREAD,
                     Defines.DEFAULT_BULLET_VSPREAD, flash_number);
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
@@ -996,12 +1001,14 @@ public class M_Infantry {
     static EntThinkAdapter infantry_smack = new EntThinkAdapter() {
     	public String getID() { return "infantry_smack"; }
         public boolean think(edict_t self) {
-            float[] aim = { 0, 0, 0 };
+            int mark = Vec3Pool.main.mark();
+            float[] aim = Vec3Pool.main.get();
 
             Math3D.VectorSet(aim, Defines.MELEE_DISTANCE, 0, 0);
             if (GameWeapon.fire_hit(self, aim, (5 + (Lib.rand() % 5)), 50))
                 GameBase.gi.sound(self, Defines.CHAN_WEAPON, sound_punch_hit,
                         1, Defines.ATTN_NORM, 0);
+            Vec3Pool.main.release(mark);
             return true;
         }
     };
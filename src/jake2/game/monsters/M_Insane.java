@@ -797,7 +797,7 @@ public class M_Insane {
                 self.movetype = Defines.MOVETYPE_TOSS;
             }
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
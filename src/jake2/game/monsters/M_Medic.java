@@ -876,7 +876,7 @@ public class M_Medic {
             Math3D.VectorSet(self.maxs, 16, 16, -8);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -1143,14 +1143,14 @@ public class M_Medic {
                 self.enemy.spawnflags = 0;
                 self.enemy.monsterinfo.aiflags = 0;
                 self.enemy.target = null;
-                self.enemy.targetname = null;
+                EntityIndex.setTargetname(self.enemy, null);
                 self.enemy.combattarget = null;
                 self.enemy.deathtarget = null;
                 self.enemy.owner = self;
                 GameSpawn.ED_CallSpawn(self.enemy);
                 self.enemy.owner = null;
                 if (self.enemy.think != null) {
-                    self.enemy.nextthink = GameBase.level.time;
+                    ThinkWheel.setNextthink(self.enemy, GameBase.level.time);
                     self.enemy.think.think(self.enemy);
                 }
                 self.enemy.monsterinfo.aiflags |= Defines.AI_RESURRECTING;
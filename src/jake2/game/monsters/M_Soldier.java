@@ -28,6 +28,7 @@ import jake2.qcommon.Com;
 import jake2.qcommon.Defines;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 public class M_Soldier {
 
@@ -1013,7 +1014,7 @@ public class M_Soldier {
             Math3D.VectorSet(self.maxs, 16, 16, -8);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -1538,11 +1539,14 @@ public class M_Soldier {
     };
 
     static void soldier_fire(edict_t self, int flash_number) {
-        float[] start = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
-        float[] aim = { 0, 0, 0 };
-        float[] dir = { 0, 0, 0 };
-        float[] end = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] start = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
+        float[] aim = Vec3Pool.main.get();
+        float[] dir = Vec3Pool.main.get();
+        float[] end = Vec3Pool.main.get();
         float r, u;
         int flash_index;
 
@@ -1599,6 +1603,7 @@ public class M_Soldier {
             else
                 self.monsterinfo.aiflags |= Defines.AI_HOLD_FRAME;
         }
+        Vec3Pool.main.release(mark);
     }
 
     static EntThinkAdapter soldier_cock = new EntThinkAdapter() {
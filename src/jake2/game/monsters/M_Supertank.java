@@ -742,7 +742,7 @@ public class M_Supertank {
             Math3D.VectorSet(self.maxs, 60, 60, 72);
             self.movetype = Defines.MOVETYPE_TOSS;
             self.svflags |= Defines.SVF_DEADMONSTER;
-            self.nextthink = 0;
+            ThinkWheel.setNextthink(self, 0);
             GameBase.gi.linkentity(self);
             return true;
         }
@@ -1268,7 +1268,7 @@ public class M_Supertank {
             GameBase.gi.WritePosition(org);
             GameBase.gi.multicast(self.s.origin, Defines.MULTICAST_PVS);
     
-            self.nextthink = GameBase.level.time + 0.1f;
+            ThinkWheel.setNextthink(self, GameBase.level.time + 0.1f);
             return true;
         }
     };
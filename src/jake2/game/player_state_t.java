@@ -24,7 +24,6 @@ Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
 package jake2.game;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 
 import jake2.*;
@@ -33,6 +32,7 @@ import jake2.qcommon.Com;
 import jake2.qcommon.Defines;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.QuakeFile;
 
 /** 
  	Player_state_t is the information needed in addition to pmove_state_t
@@ -104,7 +104,7 @@ public class player_state_t {
 	}
 
 	/** Reads a player_state from a file.*/
-	public void load(RandomAccessFile f) throws IOException {
+	public void load(QuakeFile f) throws IOException {
 		pmove.load(f);
 
 		viewangles[0]= f.readFloat();
@@ -144,7 +144,7 @@ public class player_state_t {
 	}
 
 	/** Writes a player_state to a file.*/
-	public void write(RandomAccessFile f) throws IOException {
+	public void write(QuakeFile f) throws IOException {
 		pmove.write(f);
 
 		f.writeFloat(viewangles[0]);
@@ -25,9 +25,9 @@ package jake2.game;
 
 import jake2.qcommon.Com;
 import jake2.util.Math3D;
+import jake2.util.QuakeFile;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 
 public class pmove_state_t {
@@ -87,7 +87,7 @@ public class pmove_state_t {
 	}
 
 	/** Reads the playermove from the file.*/
-	public void load(RandomAccessFile f) throws IOException {
+	public void load(QuakeFile f) throws IOException {
 
 		pm_type = f.readInt();
 
@@ -112,7 +112,7 @@ public class pmove_state_t {
 	}
 	
 	/** Writes the playermove to the file. */
-	public void write (RandomAccessFile f) throws IOException {
+	public void write (QuakeFile f) throws IOException {
 
 		f.writeInt(pm_type);
 
@@ -25,6 +25,8 @@ package jake2.game;
 
 import jake2.util.*;
 
+import java.util.HashMap;
+
 public class spawn_temp_t {
 	// world vars
 	public String sky="";
@@ -48,81 +50,94 @@ public class spawn_temp_t {
 	public float minpitch;
 	public float maxpitch;
 
+	// set keys, the ids are the indexes into fieldNames
+	private static final int F_LIP = 0, F_DISTANCE = 1, F_HEIGHT = 2,
+		F_NOISE = 3, F_PAUSETIME = 4, F_ITEM = 5, F_GRAVITY = 6, F_SKY = 7,
+		F_SKYROTATE = 8, F_SKYAXIS = 9, F_MINYAW = 10, F_MAXYAW = 11,
+		F_MINPITCH = 12, F_MAXPITCH = 13, F_NEXTMAP = 14;
+
+	static final String fieldNames[] = { "lip", "distance", "height", "noise",
+		"pausetime", "item", "gravity", "sky", "skyrotate", "skyaxis", "minyaw",
+		"maxyaw", "minpitch", "maxpitch", "nextmap" };
+
+	private static final HashMap<String, Integer> fields = new HashMap<String, Integer>();
+
+	static {
+		for (int i = 0; i < fieldNames.length; i++)
+			fields.put(fieldNames[i], Integer.valueOf(i));
+	}
+
+	/** Resets the fields for the next entity. */
+	public void clear() {
+		sky = "";
+		skyrotate = 0;
+		Math3D.VectorClear(skyaxis);
+		nextmap = "";
+		lip = 0;
+		distance = 0;
+		height = 0;
+		noise = "";
+		pausetime = 0;
+		item = "";
+		gravity = "";
+		minyaw = 0;
+		maxyaw = 0;
+		minpitch = 0;
+		maxpitch = 0;
+	}
+
 	public boolean set(String key, String value) {
-		if (key.equals("lip")) {
+		Integer field = fields.get(key);
+		if (field == null)
+			return false;
+
+		switch (field.intValue()) {
+		case F_LIP: // F_INT, FFL_SPAWNTEMP
 			lip=Lib.atoi(value);
 			return true;
-		} // F_INT, FFL_SPAWNTEMP),
-		
-		if (key.equals("distance")) {
+		case F_DISTANCE: // F_INT, FFL_SPAWNTEMP
 			distance=Lib.atoi(value);
 			return true;
-		} // F_INT, FFL_SPAWNTEMP),
-		
-		if (key.equals("height")) {
+		case F_HEIGHT: // F_INT, FFL_SPAWNTEMP
 			height=Lib.atoi(value);
 			return true;
-		} // F_INT, FFL_SPAWNTEMP),
-		
-		if (key.equals("noise")) {
+		case F_NOISE: // F_LSTRING, FFL_SPAWNTEMP
 			noise = GameSpawn.ED_NewString(value);
 			return true;
-		} // F_LSTRING, FFL_SPAWNTEMP),
-		
-		if (key.equals("pausetime")) {
+		case F_PAUSETIME: // F_FLOAT, FFL_SPAWNTEMP
 			pausetime = Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("item")) {
+		case F_ITEM: // F_LSTRING, FFL_SPAWNTEMP
 			item = GameSpawn.ED_NewString(value);
 			return true;
-		} // F_LSTRING, FFL_SPAWNTEMP),
-		
-		if (key.equals("gravity")) {
-			 gravity = GameSpawn.ED_NewString(value);
+		case F_GRAVITY: // F_LSTRING, FFL_SPAWNTEMP
+			gravity = GameSpawn.ED_NewString(value);
 			return true;
-		} // F_LSTRING, FFL_SPAWNTEMP),
-		
-		if (key.equals("sky")) {
+		case F_SKY: // F_LSTRING, FFL_SPAWNTEMP
 			sky = GameSpawn.ED_NewString(value);
 			return true;
-		} // F_LSTRING, FFL_SPAWNTEMP),
-		
-		if (key.equals("skyrotate")) {
+		case F_SKYROTATE: // F_FLOAT, FFL_SPAWNTEMP
 			skyrotate=Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("skyaxis")) {
+		case F_SKYAXIS: // F_VECTOR, FFL_SPAWNTEMP
 			skyaxis=Lib.atov(value);
 			return true;
-		} // F_VECTOR, FFL_SPAWNTEMP),
-		
-		if (key.equals("minyaw")) {
+		case F_MINYAW: // F_FLOAT, FFL_SPAWNTEMP
 			minyaw=Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("maxyaw")) {
+		case F_MAXYAW: // F_FLOAT, FFL_SPAWNTEMP
 			maxyaw=Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("minpitch")) {
+		case F_MINPITCH: // F_FLOAT, FFL_SPAWNTEMP
 			minpitch = Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("maxpitch")) {
+		case F_MAXPITCH: // F_FLOAT, FFL_SPAWNTEMP
 			maxpitch = Lib.atof(value);
 			return true;
-		} // F_FLOAT, FFL_SPAWNTEMP),
-		
-		if (key.equals("nextmap")) {
+		case F_NEXTMAP: // F_LSTRING, FFL_SPAWNTEMP
 			nextmap  = GameSpawn.ED_NewString(value);
 			return true;
-		} // F_LSTRING, FFL_SPAWNTEMP),
+		}
 
 		return false;
 	}
@@ -41,7 +41,7 @@ public class trace_t {
 	
 	public void set(trace_t from) {
 		allsolid = from.allsolid;
-		startsolid = from.allsolid;
+		startsolid = from.startsolid;
 		fraction = from.fraction;
 		Math3D.VectorCopy(from.endpos, endpos);
 		plane.set(from.plane);
@@ -26,6 +26,7 @@ import jake2.util.StringToByteBuffer;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import com.google.gwt.core.client.Duration;
 import com.google.gwt.user.client.Timer;
@@ -35,11 +36,18 @@ import com.google.gwt.xhr.client.XMLHttpRequest;
 public class GwtResourceLoaderImpl implements ResourceLoader.Impl {
 
   private static final int RECEIVED_WAIT_TIME = 1;
+
+  /** Little-endian 'QBND', see jake2.gwt.server.BundleServlet. */
+  private static final int IDBUNDLEHEADER = (('D' << 24) + ('N' << 16) + ('B' << 8) + 'Q');
+
+  /** Extensions worth taking from a map bundle; images and sounds load by URL. */
+  private static final String BUNDLE_EXTENSIONS = "bsp,md2,sp2";
   
   private int freeSequenceNumber;
   private int ignoreSequenceNumbersBelow;
   private int currentSequenceNumber;
   private ArrayList<ResponseHandler> readyList = new ArrayList<ResponseHandler>();
+  private HashMap<String, String> bundled = new HashMap<String, String>();
   
   static class ResponseHandler {
     int sequenceNumber;
@@ -62,15 +70,37 @@ public class GwtResourceLoaderImpl implements ResourceLoader.Impl {
   public void reset() {
     ignoreSequenceNumbersBelow = freeSequenceNumber;
     currentSequenceNumber = freeSequenceNumber;
+    bundled.clear();
   }
   
   public void loadResourceAsync(final String path, final ResourceLoader.Callback callback) {
+    final int mySequenceNumber = freeSequenceNumber++;
+
+    // Models that came with the map's bundle need no request of their own.
+    String data = bundled.remove(path);
+    if (data != null) {
+      readyList.add(0, new ResponseHandler(mySequenceNumber, callback, data));
+      if (mySequenceNumber == currentSequenceNumber) {
+        processReadyList();
+      }
+      return;
+    }
+
+    if (path.endsWith(".bsp")) {
+      request(path, "/bundle/" + path + "?ext=" + BUNDLE_EXTENSIONS, mySequenceNumber, callback);
+    } else {
+      request(path, "/baseq2/" + path, mySequenceNumber, callback);
+    }
+  }
+
+  private void request(final String path, final String url, final int mySequenceNumber,
+      final ResourceLoader.Callback callback) {
     XMLHttpRequest req = XMLHttpRequest.create();
     
     final String eol = path.endsWith(".bsp") ? "\n" : "\r";
+    final boolean isBundle = url.startsWith("/bundle/");
     
     final Exception e = new Exception();
-    final int mySequenceNumber = freeSequenceNumber++;
     
     req.setOnReadyStateChange(new ReadyStateChangeHandler() {
       boolean receivingMsg;
@@ -83,13 +113,20 @@ public class GwtResourceLoaderImpl implements ResourceLoader.Impl {
             Com.Printf("Ignoring outdated response #" + mySequenceNumber + ": " + path + "\n");
     	  } else {
     	    String response;
-    	    if (xhr.getStatus() != 200) {
+    	    if (isBundle && xhr.getStatus() != 200) {
+    	      // No bundle endpoint on this server; fetch the map by itself.
+    	      request(path, "/baseq2/" + path, mySequenceNumber, callback);
+    	      return;
+    	    } else if (xhr.getStatus() != 200) {
               Com.Printf("Failed to load file #" + currentSequenceNumber + "\n");
               Compatibility.printStackTrace(e);
               ResourceLoader.fail(new IOException("status = " + xhr.getStatus()));
               response = null;
             } else {
               response = xhr.getResponseText();
+              if (isBundle) {
+                response = unbundle(response);
+              }
               Com.Printf("Received response #" + mySequenceNumber + ": " + path + "\r");
             }
             readyList.add(0, new ResponseHandler(mySequenceNumber, callback, response));
@@ -104,10 +141,44 @@ public class GwtResourceLoaderImpl implements ResourceLoader.Impl {
     Com.Printf("Requesting: " + path + eol);
 
     overrideMimeType(req, "text/plain; charset=x-user-defined");
-    req.open("GET", "/baseq2/" + path);
+    req.open("GET", url);
     req.send();
   }
 
+  /**
+   * Keeps all but the first entry of a map bundle for later requests, and
+   * returns the first, the map itself.
+   */
+  private String unbundle(String bundle) {
+    if (bundle.length() < 8 || readInt(bundle, 0) != IDBUNDLEHEADER) {
+      return bundle;
+    }
+    bundled.clear();
+    int count = readInt(bundle, 4);
+    int ofs = 8;
+    String first = null;
+    for (int i = 0; i < count; i++) {
+      int nameLength = (bundle.charAt(ofs) & 0xff) | ((bundle.charAt(ofs + 1) & 0xff) << 8);
+      String name = bundle.substring(ofs + 2, ofs + 2 + nameLength);
+      ofs += 2 + nameLength;
+      int length = readInt(bundle, ofs);
+      String data = bundle.substring(ofs + 4, ofs + 4 + length);
+      ofs += 4 + length;
+      if (first == null) {
+        first = data;
+      } else {
+        bundled.put(name, data);
+      }
+    }
+    Com.Printf("Bundle: " + (count - 1) + " files with the map\n");
+    return first;
+  }
+
+  private static int readInt(String s, int ofs) {
+    return (s.charAt(ofs) & 0xff) | ((s.charAt(ofs + 1) & 0xff) << 8)
+        | ((s.charAt(ofs + 2) & 0xff) << 16) | ((s.charAt(ofs + 3) & 0xff) << 24);
+  }
+
   private native void overrideMimeType(XMLHttpRequest req, String mimeType) /*-{
     req.overrideMimeType(mimeType);
   }-*/;
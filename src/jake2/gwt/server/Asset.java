@@ -0,0 +1,344 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * One servable asset: the identity content plus any gzip/brotli encodings of
+ * it, each with a strong ETag derived from the SHA-1 of the identity content.
+ * send() does the conditional GET, encoding negotiation and single-range
+ * handling shared by AssetServlet and BundleServlet.
+ */
+final class Asset {
+
+  static final String GZIP = "gzip";
+  static final String BROTLI = "br";
+
+  /** A year; asset URLs only change content on reinstall. */
+  static final int MAX_AGE = 365 * 24 * 60 * 60;
+
+  /** One encoding of the asset, backed by a file or by memory. */
+  static final class Variant {
+    final String encoding;
+    final File file;
+    final byte[] data;
+    final long length;
+    final String etag;
+
+    Variant(String encoding, File file, byte[] data, String hash) {
+      this.encoding = encoding;
+      this.file = file;
+      this.data = data;
+      this.length = data != null ? data.length : file.length();
+      this.etag = '"' + hash + (encoding == null ? "" : "-" + encoding) + '"';
+    }
+
+    void write(OutputStream out, long offset, long count) throws IOException {
+      if (data != null) {
+        out.write(data, (int) offset, (int) count);
+        return;
+      }
+      InputStream in = new FileInputStream(file);
+      try {
+        while (offset > 0) {
+          long n = in.skip(offset);
+          if (n <= 0) {
+            throw new IOException(file + ": short file");
+          }
+          offset -= n;
+        }
+        byte[] buf = new byte[(int) Math.min(count, 64 * 1024)];
+        while (count > 0) {
+          int n = in.read(buf, 0, (int) Math.min(count, buf.length));
+          if (n < 0) {
+            throw new IOException(file + ": short file");
+          }
+          out.write(buf, 0, n);
+          count -= n;
+        }
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  final String contentType;
+  final long lastModified;
+  final String hash;
+  final Variant identity;
+  final Variant gzip;
+  final Variant brotli;
+
+  private Asset(String contentType, long lastModified, String hash,
+      Variant identity, Variant gzip, Variant brotli) {
+    this.contentType = contentType;
+    this.lastModified = lastModified;
+    this.hash = hash;
+    this.identity = identity;
+    this.gzip = gzip;
+    this.brotli = brotli;
+  }
+
+  /**
+   * Describes file and the precompressed file.gz / file.br siblings the
+   * installer left next to it, ignoring any older than file itself.
+   */
+  static Asset forFile(File file, String contentType) throws IOException {
+    return forFile(file, contentType, hash(file));
+  }
+
+  /** As above, for a file whose content hash is already known. */
+  static Asset forFile(File file, String contentType, String hash) {
+    long modified = file.lastModified();
+    return new Asset(contentType, modified, hash,
+        new Variant(null, file, null, hash),
+        sibling(file, ".gz", GZIP, hash),
+        sibling(file, ".br", BROTLI, hash));
+  }
+
+  /** Describes generated content, compressing it in memory. */
+  static Asset forBytes(byte[] data, String contentType, long lastModified) {
+    String hash = hash(data);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+    try {
+      GZIPOutputStream out = new GZIPOutputStream(bytes);
+      out.write(data);
+      out.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    byte[] gz = bytes.toByteArray();
+    return new Asset(contentType, lastModified, hash,
+        new Variant(null, null, data, hash),
+        gz.length < data.length ? new Variant(GZIP, null, gz, hash) : null,
+        null);
+  }
+
+  private static Variant sibling(File file, String suffix, String encoding,
+      String hash) {
+    File f = new File(file.getPath() + suffix);
+    if (!f.isFile() || f.lastModified() < file.lastModified()) {
+      return null;
+    }
+    return new Variant(encoding, f, null, hash);
+  }
+
+  void send(HttpServletRequest req, HttpServletResponse rsp, boolean head)
+      throws IOException {
+    long[] range = null;
+    String rangeHeader = req.getHeader("Range");
+    if (rangeHeader != null && ifRange(req.getHeader("If-Range"))) {
+      range = parseRange(rangeHeader, identity.length);
+    }
+
+    // Ranges are always taken from the identity encoding, so a resumed
+    // download never mixes encodings.
+    Variant variant = identity;
+    if (range == null) {
+      String accept = req.getHeader("Accept-Encoding");
+      if (brotli != null && accepts(accept, BROTLI)) {
+        variant = brotli;
+      } else if (gzip != null && accepts(accept, GZIP)) {
+        variant = gzip;
+      }
+    }
+
+    if (gzip != null || brotli != null) {
+      rsp.setHeader("Vary", "Accept-Encoding");
+    }
+    rsp.setHeader("ETag", variant.etag);
+    rsp.setHeader("Cache-Control", "public, max-age=" + MAX_AGE + ", immutable");
+    rsp.setDateHeader("Last-Modified", lastModified);
+    rsp.setHeader("Accept-Ranges", "bytes");
+
+    if (notModified(req)) {
+      rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    long offset = 0;
+    long count = variant.length;
+    if (range == EMPTY) {
+      rsp.setHeader("Content-Range", "bytes */" + identity.length);
+      rsp.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+      return;
+    } else if (range != null) {
+      offset = range[0];
+      count = range[1] - range[0] + 1;
+      rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+      rsp.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1]
+          + "/" + identity.length);
+    } else {
+      rsp.setStatus(HttpServletResponse.SC_OK);
+    }
+
+    rsp.setContentType(contentType);
+    if (variant.encoding != null) {
+      rsp.setHeader("Content-Encoding", variant.encoding);
+    }
+    rsp.setContentLength((int) count);
+    if (!head) {
+      variant.write(rsp.getOutputStream(), offset, count);
+    }
+  }
+
+  /** If-None-Match uses the weak comparison; If-Modified-Since only without it. */
+  private boolean notModified(HttpServletRequest req) {
+    String match = req.getHeader("If-None-Match");
+    if (match != null) {
+      for (String tag : match.split(",")) {
+        tag = tag.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        if (tag.equals("*") || tag.equals(identity.etag)
+            || (gzip != null && tag.equals(gzip.etag))
+            || (brotli != null && tag.equals(brotli.etag))) {
+          return true;
+        }
+      }
+      return false;
+    }
+    long since = req.getDateHeader("If-Modified-Since");
+    return since != -1 && lastModified / 1000 <= since / 1000;
+  }
+
+  /** A Range is honoured only if If-Range, when present, names this content. */
+  private boolean ifRange(String ifRange) {
+    return ifRange == null || ifRange.trim().equals(identity.etag);
+  }
+
+  private static final long[] EMPTY = new long[0];
+
+  /**
+   * Parses a single "bytes=" range against length. Returns null to serve the
+   * whole entity (malformed or multiple ranges) and EMPTY if unsatisfiable.
+   */
+  static long[] parseRange(String header, long length) {
+    header = header.trim();
+    if (!header.startsWith("bytes=") || header.indexOf(',') != -1) {
+      return null;
+    }
+    String spec = header.substring(6).trim();
+    int dash = spec.indexOf('-');
+    if (dash == -1) {
+      return null;
+    }
+    long first, last;
+    try {
+      if (dash == 0) {
+        long suffix = Long.parseLong(spec.substring(1));
+        if (suffix <= 0) {
+          return EMPTY;
+        }
+        first = Math.max(0, length - suffix);
+        last = length - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dash));
+        last = dash == spec.length() - 1 ? length - 1
+            : Math.min(length - 1, Long.parseLong(spec.substring(dash + 1)));
+        if (last < first) {
+          return first < length ? null : EMPTY;
+        }
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (first >= length) {
+      return EMPTY;
+    }
+    return new long[] { first, last };
+  }
+
+  /** True if an Accept-Encoding header allows coding with a non-zero q. */
+  static boolean accepts(String header, String coding) {
+    if (header == null) {
+      return false;
+    }
+    for (String part : header.split(",")) {
+      String[] params = part.split(";");
+      String name = params[0].trim();
+      if (!name.equalsIgnoreCase(coding) && !name.equals("*")) {
+        continue;
+      }
+      for (int i = 1; i < params.length; i++) {
+        String p = params[i].trim();
+        if (p.startsWith("q=")) {
+          try {
+            return Float.parseFloat(p.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static MessageDigest sha1() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  static String hash(byte[] data) {
+    MessageDigest md = sha1();
+    md.update(data);
+    return hex(md.digest());
+  }
+
+  static String hash(File file) throws IOException {
+    MessageDigest md = sha1();
+    InputStream in = new FileInputStream(file);
+    try {
+      byte[] buf = new byte[64 * 1024];
+      int n;
+      while ((n = in.read(buf)) > 0) {
+        md.update(buf, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    return hex(md.digest());
+  }
+
+  private static String hex(byte[] digest) {
+    StringBuilder sb = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,131 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the installed game data under /baseq2/*, preferring the .br/.gz
+ * variants the installer precompressed, with content-hash ETags, immutable
+ * caching and single byte ranges. Hashes are computed on first request and
+ * kept until the file's size or mtime changes; a precompressed sibling that
+ * appears or changes later is picked up on the next request. Dot files, such
+ * as the installer's manifests, are not served.
+ */
+public class AssetServlet extends HttpServlet {
+
+  private final File root;
+  private final ConcurrentHashMap<String, Entry> assets =
+      new ConcurrentHashMap<String, Entry>();
+
+  private static class Entry {
+    final long modified, length, gzModified, brModified;
+    final Asset asset;
+
+    Entry(long modified, long length, long gzModified, long brModified,
+        Asset asset) {
+      this.modified = modified;
+      this.length = length;
+      this.gzModified = gzModified;
+      this.brModified = brModified;
+      this.asset = asset;
+    }
+  }
+
+  public AssetServlet(File root) {
+    this.root = root;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse rsp)
+      throws ServletException, IOException {
+    serve(req, rsp, false);
+  }
+
+  @Override
+  protected void doHead(HttpServletRequest req, HttpServletResponse rsp)
+      throws ServletException, IOException {
+    serve(req, rsp, true);
+  }
+
+  private void serve(HttpServletRequest req, HttpServletResponse rsp,
+      boolean head) throws IOException {
+    String path = checkPath(req.getPathInfo());
+    Asset asset = path == null ? null : lookup(path);
+    if (asset == null) {
+      rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    asset.send(req, rsp, head);
+  }
+
+  private Asset lookup(String path) throws IOException {
+    File file = new File(root, path);
+    if (!file.isFile()) {
+      assets.remove(path);
+      return null;
+    }
+    long modified = file.lastModified();
+    long length = file.length();
+    long gzModified = new File(file.getPath() + ".gz").lastModified();
+    long brModified = new File(file.getPath() + ".br").lastModified();
+    Entry e = assets.get(path);
+    if (e == null || e.modified != modified || e.length != length) {
+      e = new Entry(modified, length, gzModified, brModified,
+          Asset.forFile(file, mimeType(path)));
+      assets.put(path, e);
+    } else if (e.gzModified != gzModified || e.brModified != brModified) {
+      // Only the precompressed variants changed; the content hash holds.
+      e = new Entry(modified, length, gzModified, brModified,
+          Asset.forFile(file, mimeType(path), e.asset.hash));
+      assets.put(path, e);
+    }
+    return e.asset;
+  }
+
+  String mimeType(String path) {
+    String type = getServletContext().getMimeType(path);
+    return type != null ? type : "application/octet-stream";
+  }
+
+  /**
+   * Returns the path relative to the asset root, or null if it is missing or
+   * would step outside it.
+   */
+  static String checkPath(String pathInfo) {
+    if (pathInfo == null || pathInfo.length() < 2 || pathInfo.indexOf('\\') != -1
+        || pathInfo.indexOf('\0') != -1) {
+      return null;
+    }
+    String path = pathInfo.substring(1);
+    for (String segment : path.split("/")) {
+      if (segment.length() == 0 || segment.startsWith(".")) {
+        return null;
+      }
+    }
+    return path;
+  }
+}
@@ -0,0 +1,360 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.qcommon.Defines;
+import jake2.qcommon.lump_t;
+import jake2.qcommon.qfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves /bundle/maps/[name].bsp: the map plus the installed textures, sky,
+ * models (with their skins) and sounds its texinfo and entity lumps name, in
+ * one cacheable response. "?ext=bsp,md2" limits the bundle to those
+ * extensions, for clients that fetch the rest by URL anyway. The list is
+ * reduced to the extensions a bundle can hold, so at most 64 distinct
+ * bundles per map are cached.
+ *
+ * The body is little-endian: int 'QBND', int count, then count entries of
+ * short name length, name (ISO-8859-1, relative to baseq2), int length and
+ * the data. The map itself is always the first entry.
+ */
+public class BundleServlet extends HttpServlet {
+
+  static final int IDBUNDLEHEADER = (('D' << 24) + ('N' << 16) + ('B' << 8) + 'Q');
+
+  /** Extensions of the files the installer leaves for a map to reference. */
+  private static final String[] BUNDLE_EXTENSIONS = { "bsp", "md2", "mp3", "png", "sp2", "wav" };
+
+  private static final String[] SKY_SUFFIXES = { "rt", "bk", "lf", "ft", "up", "dn" };
+  private static final int TEXINFO_SIZE = 76;
+  private static final int TEXINFO_NAME = 40;
+
+  private final File root;
+  private final ConcurrentHashMap<String, Bundle> bundles =
+      new ConcurrentHashMap<String, Bundle>();
+
+  private static class Bundle {
+    final File[] files;
+    final long[] modified;
+    final Asset asset;
+
+    Bundle(File[] files, long[] modified, Asset asset) {
+      this.files = files;
+      this.modified = modified;
+      this.asset = asset;
+    }
+
+    boolean isCurrent() {
+      for (int i = 0; i < files.length; i++) {
+        if (files[i].lastModified() != modified[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  public BundleServlet(File root) {
+    this.root = root;
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse rsp)
+      throws ServletException, IOException {
+    serve(req, rsp, false);
+  }
+
+  @Override
+  protected void doHead(HttpServletRequest req, HttpServletResponse rsp)
+      throws ServletException, IOException {
+    serve(req, rsp, true);
+  }
+
+  private void serve(HttpServletRequest req, HttpServletResponse rsp,
+      boolean head) throws IOException {
+    String map = AssetServlet.checkPath(req.getPathInfo());
+    if (map == null || !map.toLowerCase().endsWith(".bsp")
+        || !new File(root, map).isFile()) {
+      rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    String ext = normalizeExtensions(req.getParameter("ext"));
+    String key = ext == null ? map : map + "?" + ext;
+
+    Bundle bundle = bundles.get(key);
+    if (bundle == null || !bundle.isCurrent()) {
+      bundle = build(map, ext);
+      if (bundle == null) {
+        rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        return;
+      }
+      bundles.put(key, bundle);
+    }
+    bundle.asset.send(req, rsp, head);
+  }
+
+  private Bundle build(String map, String ext) throws IOException {
+    byte[] bsp = read(new File(root, map));
+    Set<String> refs = new LinkedHashSet<String>();
+    if (!mapReferences(ByteBuffer.wrap(bsp), refs)) {
+      return null;
+    }
+
+    Set<String> names = new LinkedHashSet<String>();
+    names.add(map);
+    // Models name their skins and frames; those are only found once the
+    // model itself has been read.
+    for (String ref : refs) {
+      String name = served(ref);
+      if (name != null && names.add(name)
+          && (name.endsWith(".md2") || name.endsWith(".sp2"))) {
+        Set<String> skins = new LinkedHashSet<String>();
+        modelReferences(ByteBuffer.wrap(read(new File(root, name))), skins);
+        for (String skin : skins) {
+          String s = served(skin);
+          if (s != null) {
+            names.add(s);
+          }
+        }
+      }
+    }
+
+    ArrayList<File> files = new ArrayList<File>();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(bsp.length * 2);
+    DataOutputStream out = new DataOutputStream(bytes);
+    ArrayList<String> included = new ArrayList<String>();
+    for (String name : names) {
+      if (files.isEmpty() || included(name, ext)) {
+        files.add(new File(root, name));
+        included.add(name);
+      }
+    }
+    out.writeInt(Integer.reverseBytes(IDBUNDLEHEADER));
+    out.writeInt(Integer.reverseBytes(included.size()));
+    long newest = 0;
+    long[] modified = new long[files.size()];
+    for (int i = 0; i < files.size(); i++) {
+      File f = files.get(i);
+      byte[] name = included.get(i).getBytes("ISO-8859-1");
+      byte[] data = i == 0 ? bsp : read(f);
+      out.writeShort(Short.reverseBytes((short) name.length));
+      out.write(name);
+      out.writeInt(Integer.reverseBytes(data.length));
+      out.write(data);
+      modified[i] = f.lastModified();
+      newest = Math.max(newest, modified[i]);
+    }
+    out.close();
+
+    return new Bundle(files.toArray(new File[files.size()]), modified,
+        Asset.forBytes(bytes.toByteArray(), "application/octet-stream", newest));
+  }
+
+  /**
+   * Returns the known extensions named in ext, sorted and comma-separated,
+   * or null for all of them.
+   */
+  static String normalizeExtensions(String ext) {
+    if (ext == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder();
+    int count = 0;
+    for (String known : BUNDLE_EXTENSIONS) {
+      for (String e : ext.split(",")) {
+        if (e.trim().equalsIgnoreCase(known)) {
+          sb.append(count++ == 0 ? "" : ",").append(known);
+          break;
+        }
+      }
+    }
+    return count == BUNDLE_EXTENSIONS.length ? null : sb.toString();
+  }
+
+  private static boolean included(String name, String ext) {
+    if (ext == null) {
+      return true;
+    }
+    String suffix = name.substring(name.lastIndexOf('.') + 1);
+    for (String e : ext.split(",")) {
+      if (e.equals(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Maps a game path to the file the installer produced for it (images are
+   * converted to PNG, sounds may have an MP3 next to them), or null if there
+   * is none.
+   */
+  private String served(String path) {
+    path = path.toLowerCase();
+    int dot = path.lastIndexOf('.');
+    if (dot == -1) {
+      return null;
+    }
+    String ext = path.substring(dot + 1);
+    if (ext.equals("wal") || ext.equals("pcx") || ext.equals("tga")) {
+      path = path.substring(0, dot) + ".png";
+    } else if (ext.equals("wav") && new File(root, path + ".mp3").isFile()) {
+      path = path + ".mp3";
+    }
+    return AssetServlet.checkPath("/" + path) != null
+        && new File(root, path).isFile() ? path : null;
+  }
+
+  /**
+   * Adds the textures of the texinfo lump and the models, sounds and sky of
+   * the entity lump to refs. Returns false if bsp is not a map.
+   */
+  static boolean mapReferences(ByteBuffer bsp, Set<String> refs) {
+    bsp.order(ByteOrder.LITTLE_ENDIAN);
+    if (bsp.limit() < 8 + Defines.HEADER_LUMPS * 8
+        || bsp.getInt(0) != qfiles.IDBSPHEADER) {
+      return false;
+    }
+    qfiles.dheader_t header = new qfiles.dheader_t(bsp);
+
+    lump_t l = header.lumps[Defines.LUMP_TEXINFO];
+    if (inside(bsp, l)) {
+      for (int i = 0; i < l.filelen / TEXINFO_SIZE; i++) {
+        String name = cstring(bsp, l.fileofs + i * TEXINFO_SIZE + TEXINFO_NAME, 32);
+        if (name.length() > 0) {
+          refs.add("textures/" + name + ".wal");
+        }
+      }
+    }
+
+    l = header.lumps[Defines.LUMP_ENTITIES];
+    if (inside(bsp, l)) {
+      String entities = cstring(bsp, l.fileofs, l.filelen);
+      String key = null;
+      int i = 0;
+      while ((i = entities.indexOf('"', i)) != -1) {
+        int end = entities.indexOf('"', i + 1);
+        if (end == -1) {
+          break;
+        }
+        String token = entities.substring(i + 1, end);
+        i = end + 1;
+        if (key == null) {
+          key = token;
+          continue;
+        }
+        entityReference(key, token, refs);
+        key = null;
+      }
+    }
+    return true;
+  }
+
+  private static void entityReference(String key, String value, Set<String> refs) {
+    String lower = value.toLowerCase();
+    if (key.equals("sky")) {
+      for (String suffix : SKY_SUFFIXES) {
+        refs.add("env/" + value + suffix + ".pcx");
+      }
+    } else if (key.equals("noise")) {
+      if (!lower.endsWith(".wav")) {
+        value += ".wav";
+      }
+      refs.add(lower.startsWith("sound/") ? value : "sound/" + value);
+    } else if (lower.endsWith(".md2") || lower.endsWith(".sp2")
+        || lower.endsWith(".pcx")) {
+      refs.add(value);
+    } else if (lower.endsWith(".wav")) {
+      refs.add(lower.startsWith("sound/") ? value : "sound/" + value);
+    }
+  }
+
+  /** Adds the skins of an .md2 or the frames of an .sp2 to refs. */
+  static void modelReferences(ByteBuffer model, Set<String> refs) {
+    model.order(ByteOrder.LITTLE_ENDIAN);
+    if (model.limit() < 12) {
+      return;
+    }
+    int ident = model.getInt(0);
+    if (ident == qfiles.IDALIASHEADER && model.limit() >= 68) {
+      int numSkins = model.getInt(20);
+      int ofsSkins = model.getInt(44);
+      for (int i = 0; i < numSkins; i++) {
+        int ofs = ofsSkins + i * qfiles.MAX_SKINNAME;
+        if (ofs < 0 || ofs + qfiles.MAX_SKINNAME > model.limit()) {
+          break;
+        }
+        refs.add(cstring(model, ofs, qfiles.MAX_SKINNAME));
+      }
+    } else if (ident == qfiles.IDSPRITEHEADER) {
+      int numFrames = model.getInt(8);
+      for (int i = 0; i < numFrames; i++) {
+        int ofs = 12 + i * (16 + qfiles.MAX_SKINNAME) + 16;
+        if (ofs + qfiles.MAX_SKINNAME > model.limit()) {
+          break;
+        }
+        refs.add(cstring(model, ofs, qfiles.MAX_SKINNAME));
+      }
+    }
+  }
+
+  private static boolean inside(ByteBuffer b, lump_t l) {
+    return l.fileofs >= 0 && l.filelen >= 0 && l.fileofs + l.filelen <= b.limit();
+  }
+
+  private static String cstring(ByteBuffer b, int ofs, int max) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < max; i++) {
+      int c = b.get(ofs + i) & 0xff;
+      if (c == 0) {
+        break;
+      }
+      sb.append((char) c);
+    }
+    return sb.toString().trim();
+  }
+
+  private static byte[] read(File f) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(f, "r");
+    try {
+      byte[] data = new byte[(int) raf.length()];
+      raf.readFully(data);
+      return data;
+    } finally {
+      raf.close();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.desktop.ResourceLoaderImpl;
+import jake2.game.Cmd;
+import jake2.qcommon.Com;
+import jake2.qcommon.Compatibility;
+import jake2.qcommon.Cvar;
+import jake2.qcommon.ResourceLoader;
+import jake2.qcommon.xcommand_t;
+import jake2.server.DemoRecorder;
+import jake2.server.FrameProfiler;
+import jake2.server.QuakeServer;
+import jake2.server.SV_SEND;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the dedicated server from a monotonic nanosecond clock.
+ *
+ * Host frames are only run once at least a millisecond has passed; the
+ * remainder is carried over, so the server clock does not drift. Inside a
+ * frame SV_Frame waits in NET.Sleep, which returns as soon as a packet is
+ * queued or the next 100ms game frame is due. While no map is loaded the
+ * loop just naps. The sv_framestats command reports tick jitter, wall time
+ * and CPU time per game frame. With sv_sendthreads > 1 the client frames
+ * are built on that many threads (see SV_SEND.workers). The per subsystem
+ * breakdown (sv_stats) uses the same clock.
+ */
+public class FrameScheduler {
+
+  /** Game frame length, sv.time advances by this much per sv.framenum. */
+  private static final long TICK_NANOS = 100 * 1000000L;
+
+  private static final int IDLE_MSEC = 100;
+
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final boolean cpuTime;
+  private final MatchTiming timing;
+
+  // statistics since the last sv_framestats
+  private int ticks;
+  private long lastTickNanos;
+  private long jitterSum;
+  private long jitterMax;
+  private long wallSum;
+  private long wallMax;
+  private long cpuSum;
+  private long cpuMax;
+  private long hostFrames;
+
+  public FrameScheduler() {
+    this(null);
+  }
+
+  /** @param timing receives every game frame, may be null */
+  public FrameScheduler(MatchTiming timing) {
+    this.timing = timing;
+    cpuTime = threads.isCurrentThreadCpuTimeSupported();
+    if (cpuTime && !threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+  }
+
+  public void run() {
+    Cmd.AddCommand("sv_framestats", new xcommand_t() {
+      public void execute() {
+        Com.Printf(stats());
+        reset();
+      }
+    });
+
+    if (ResourceLoader.impl instanceof ResourceLoaderImpl) {
+      ((ResourceLoaderImpl) ResourceLoader.impl).addStatsCommand();
+    }
+
+    FrameProfiler.clock = new FrameProfiler.Clock() {
+      public long nanoTime() {
+        return System.nanoTime();
+      }
+    };
+
+    // sv_sendthreads can only be set on the command line
+    int sendThreads = (int) Cvar.VariableValue("sv_sendthreads");
+    if (sendThreads > 1) {
+      SV_SEND.workers = new WorkerPool(sendThreads - 1, "send");
+    }
+    DemoRecorder.writer = new WriterThread("demo-writer");
+
+    long last = System.nanoTime();
+    long pending = 0;
+    while (true) {
+      long now = System.nanoTime();
+      pending += now - last;
+      last = now;
+
+      int msec = (int) (pending / 1000000L);
+      if (msec == 0) {
+        // less than a millisecond since the last frame, wait for the rest
+        LockSupport.parkNanos(1000000L - pending);
+        continue;
+      }
+      pending -= msec * 1000000L;
+
+      long cpuStart = cpuTime ? threads.getCurrentThreadCpuTime() : 0;
+      boolean tick = QuakeServer.frame(msec);
+      long end = System.nanoTime();
+      hostFrames++;
+
+      if (tick) {
+        record(now, end, cpuTime ? threads.getCurrentThreadCpuTime() - cpuStart : 0);
+      }
+      if (!QuakeServer.isRunning()) {
+        lastTickNanos = 0;
+        Compatibility.sleep(IDLE_MSEC);
+      }
+    }
+  }
+
+  private void record(long start, long end, long cpu) {
+    long jitter = 0;
+    if (lastTickNanos != 0) {
+      jitter = Math.abs(end - lastTickNanos - TICK_NANOS);
+      jitterSum += jitter;
+      jitterMax = Math.max(jitterMax, jitter);
+    }
+    lastTickNanos = end;
+
+    long wall = end - start;
+    wallSum += wall;
+    wallMax = Math.max(wallMax, wall);
+    cpuSum += cpu;
+    cpuMax = Math.max(cpuMax, cpu);
+    ticks++;
+    if (timing != null) {
+      timing.record(wall, cpu, jitter);
+    }
+  }
+
+  String stats() {
+    if (ticks == 0) {
+      return "no game frames run\n";
+    }
+    StringBuffer sb = new StringBuffer();
+    sb.append(ticks).append(" game frames, ").append(hostFrames).append(" host frames\n");
+    sb.append("jitter ").append(micros(jitterSum / Math.max(1, ticks - 1)));
+    sb.append(" avg, ").append(micros(jitterMax)).append(" max\n");
+    sb.append("wall   ").append(micros(wallSum / ticks));
+    sb.append(" avg, ").append(micros(wallMax)).append(" max\n");
+    if (cpuTime) {
+      sb.append("cpu    ").append(micros(cpuSum / ticks));
+      sb.append(" avg, ").append(micros(cpuMax)).append(" max\n");
+    }
+    return sb.toString();
+  }
+
+  private void reset() {
+    ticks = 0;
+    hostFrames = 0;
+    jitterSum = jitterMax = 0;
+    wallSum = wallMax = 0;
+    cpuSum = cpuMax = 0;
+  }
+
+  private static String micros(long nanos) {
+    return (nanos / 1000) + "us";
+  }
+}
@@ -19,12 +19,16 @@ Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
 package jake2.gwt.server;
 
 import jake2.desktop.CompatibilityImpl;
+import jake2.desktop.FileMapper;
 import jake2.desktop.ResourceLoaderImpl;
 import jake2.qcommon.Compatibility;
+import jake2.qcommon.FS;
 import jake2.qcommon.ResourceLoader;
 import jake2.server.QuakeServer;
 import jake2.sys.NET;
 
+import java.io.File;
+
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.servlet.Context;
 import org.mortbay.jetty.servlet.DefaultServlet;
@@ -62,19 +66,25 @@ public class GwtQuakeServer {
 
     Compatibility.impl = new CompatibilityImpl();
     ResourceLoader.impl = new ResourceLoaderImpl();
+    FS.mapper = new FileMapper();
     NET.socketFactory = new ServerWebSocketFactoryImpl();
 
     createServer(port);
-    QuakeServer.run(qargs);
+    QuakeServer.init(qargs);
+    new FrameScheduler().run();
   }
 
-  private static void createServer(int port) throws Exception {
+  static void createServer(int port) throws Exception {
     Server server = new Server(port);
 
     Context root = new Context(server, "/");
     root.setResourceBase("war");
 
     root.addServlet(new ServletHolder(new GwtQuakeServlet()), "/GwtQuake.html");
+    root.addServlet(new ServletHolder(new StatsServlet()), "/stats");
+    File assets = new File("war", "baseq2");
+    root.addServlet(new ServletHolder(new AssetServlet(assets)), "/baseq2/*");
+    root.addServlet(new ServletHolder(new BundleServlet(assets)), "/bundle/*");
     root.addServlet(new ServletHolder(new DefaultServlet()), "/*");
     server.start();
   }
@@ -42,10 +42,26 @@ public class GwtQuakeServlet extends HttpServlet {
     in.readFully(bytes);
     in.close();
 
+    // "?match=2" points the client at that match of a MatchHost.
+    String address = InetAddress.getLocalHost().getHostAddress();
+    String match = req.getParameter("match");
+    if (match != null) {
+      try {
+        int n = Integer.parseInt(match);
+        if (n < 0) {
+          throw new NumberFormatException(match);
+        }
+        address += MatchHost.routeOf(n);
+      } catch (NumberFormatException e) {
+        rsp.sendError(HttpServletResponse.SC_BAD_REQUEST);
+        return;
+      }
+    }
+
     String html = new String(bytes, "UTF-8");
     html = html.replace(
         "<!--SERVER_ADDRESS_PLACEHOLDER-->",
-        "<script>var __serverAddress = '" + InetAddress.getLocalHost().getHostAddress() + "';</script>");
+        "<script>var __serverAddress = '" + address + "';</script>");
     rsp.getWriter().print(html);
     rsp.flushBuffer();
     rsp.setStatus(200);
@@ -0,0 +1,191 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.qcommon.Defines;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * Runs several independent matches in one process.
+ *
+ * The engine keeps all of its state in static fields, so each match gets
+ * its own class loader that loads the jake2 classes again; the JDK, Jetty
+ * and the few host classes listed in SHARED are loaded once. Matches run on
+ * their own threads and are reachable through one WebSocket server under
+ * /match/&lt;n&gt;, which clients take from the address they connect to
+ * ("host:port/match/2", see netadr_t.route). BSP files are read once and
+ * shared via SharedMaps.
+ */
+public class MatchHost {
+
+  /** Host classes the matches must see as the same class objects. */
+  private static final Set<String> SHARED = new HashSet<String>(Arrays.asList(
+      MatchHost.class.getName(),
+      MatchRouter.class.getName(),
+      MatchTiming.class.getName(),
+      SharedMaps.class.getName()));
+
+  private static void printUsageAndDie() {
+    System.err.println("usage: MatchHost [port] [matches] [-maps m1,m2,...] [quake args]");
+    System.err.println("The web client is served on [port], all matches share the");
+    System.err.println("WebSocket port " + Defines.PORT_SERVER + " under /match/<n>.");
+    System.err.println("Join match n at /GwtQuake.html?match=n or with");
+    System.err.println("'connect host/match/n'; /stats?match=n reports on it");
+    System.exit(-1);
+  }
+
+  /** Timings of the running matches, or null when no MatchHost runs. */
+  private static volatile MatchTiming[] timings;
+
+  static MatchTiming[] timings() {
+    return timings;
+  }
+
+  static String routeOf(int match) {
+    return "/match/" + match;
+  }
+
+  public static void main(String[] args) throws Exception {
+    int port = 8080;
+    int matches = 2;
+    String[] maps = null;
+    List<String> qargs = new ArrayList<String>();
+    try {
+      int i = 0;
+      if (args.length > i) {
+        port = Integer.parseInt(args[i++]);
+      }
+      if (args.length > i) {
+        matches = Integer.parseInt(args[i++]);
+      }
+      if (args.length > i + 1 && args[i].equals("-maps")) {
+        StringTokenizer st = new StringTokenizer(args[i + 1], ",");
+        maps = new String[st.countTokens()];
+        for (int m = 0; m < maps.length; m++) {
+          maps[m] = st.nextToken();
+        }
+        i += 2;
+      }
+      for (; i < args.length; i++) {
+        qargs.add(args[i]);
+      }
+    } catch (NumberFormatException e) {
+      printUsageAndDie();
+    }
+
+    GwtQuakeServer.createServer(port);
+    MatchRouter.start(Defines.PORT_SERVER);
+
+    URL[] classpath = classpath();
+    MatchTiming[] timings = new MatchTiming[matches];
+    for (int i = 0; i < matches; i++) {
+      List<String> matchArgs = new ArrayList<String>(qargs);
+      if (maps != null) {
+        matchArgs.add("+map");
+        matchArgs.add(maps[i % maps.length]);
+      }
+      timings[i] = new MatchTiming("match " + i);
+      start(i, classpath, timings[i], matchArgs.toArray(new String[matchArgs.size()]));
+    }
+
+    MatchHost.timings = timings;
+    while (true) {
+      Thread.sleep(60000);
+      for (MatchTiming timing : timings) {
+        System.out.println(timing.report());
+      }
+    }
+  }
+
+  private static void start(int index, URL[] classpath, final MatchTiming timing,
+      final String[] args) throws Exception {
+    ClassLoader loader = new MatchClassLoader(classpath, MatchHost.class.getClassLoader());
+    final Method run = loader.loadClass(MatchRunner.class.getName()).getMethod(
+        "run", String.class, MatchTiming.class, String[].class);
+    final String route = routeOf(index);
+
+    Thread thread = new Thread("match-" + index) {
+      @Override
+      public void run() {
+        try {
+          run.invoke(null, route, timing, args);
+        } catch (Exception e) {
+          System.err.println(getName() + " died");
+          e.printStackTrace();
+        }
+      }
+    };
+    thread.setContextClassLoader(loader);
+    thread.start();
+  }
+
+  private static URL[] classpath() throws Exception {
+    StringTokenizer st = new StringTokenizer(
+        System.getProperty("java.class.path"), File.pathSeparator);
+    URL[] urls = new URL[st.countTokens()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = new File(st.nextToken()).toURI().toURL();
+    }
+    return urls;
+  }
+
+  /**
+   * Child-first loader for the engine classes of one match.
+   */
+  static class MatchClassLoader extends URLClassLoader {
+
+    MatchClassLoader(URL[] urls, ClassLoader parent) {
+      super(urls, parent);
+    }
+
+    private static boolean isolated(String name) {
+      if (!name.startsWith("jake2.") && !name.startsWith("com.google.gwt.corp.")) {
+        return false;
+      }
+      int inner = name.indexOf('$');
+      return !SHARED.contains(inner == -1 ? name : name.substring(0, inner));
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(String name, boolean resolve)
+        throws ClassNotFoundException {
+      if (!isolated(name)) {
+        return super.loadClass(name, resolve);
+      }
+      Class<?> c = findLoadedClass(name);
+      if (c == null) {
+        c = findClass(name);
+      }
+      if (resolve) {
+        resolveClass(c);
+      }
+      return c;
+    }
+  }
+}
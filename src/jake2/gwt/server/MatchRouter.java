@@ -0,0 +1,80 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.websocket.WebSocket;
+import org.eclipse.jetty.websocket.WebSocketHandler;
+
+/**
+ * One WebSocket server shared by all matches of a MatchHost. Connections
+ * are dispatched by request path ("/match/3"); "/" goes to match 0 so
+ * clients that do not know about matches keep working.
+ *
+ * Loaded by the host class loader: it must only use JDK and Jetty types in
+ * its API, since every match sees its own copy of the jake2 classes.
+ */
+public class MatchRouter {
+
+  /** Implemented by the server socket of a match. */
+  public interface Endpoint {
+    WebSocket connect(HttpServletRequest req, String protocol);
+  }
+
+  private static final Map<String, Endpoint> endpoints =
+      new ConcurrentHashMap<String, Endpoint>();
+
+  private static Server server;
+
+  public static void register(String path, Endpoint endpoint) {
+    endpoints.put(path, endpoint);
+  }
+
+  public static void unregister(String path) {
+    endpoints.remove(path);
+  }
+
+  static synchronized void start(int port) throws Exception {
+    server = new Server(port);
+    WebSocketHandler handler = new WebSocketHandler() {
+      @Override
+      protected WebSocket doWebSocketConnect(HttpServletRequest req,
+          String protocol) {
+        String path = req.getRequestURI();
+        if (path == null || path.length() == 0 || path.equals("/")) {
+          path = MatchHost.routeOf(0);
+        }
+        Endpoint endpoint = endpoints.get(path);
+        if (endpoint == null) {
+          System.err.println("No match at " + path);
+          return null;
+        }
+        return endpoint.connect(req, protocol);
+      }
+    };
+    handler.setBufferSize(65536);
+    server.setHandler(handler);
+    server.start();
+  }
+}
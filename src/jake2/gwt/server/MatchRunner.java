@@ -0,0 +1,99 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.desktop.CompatibilityImpl;
+import jake2.desktop.FileMapper;
+import jake2.desktop.ResourceLoaderImpl;
+import jake2.qcommon.Compatibility;
+import jake2.qcommon.FS;
+import jake2.qcommon.ResourceLoader;
+import jake2.server.QuakeServer;
+import jake2.sys.NET;
+
+import java.io.IOException;
+
+/**
+ * Entry point of one match inside a MatchHost. Each match loads this class
+ * through its own class loader, so all static engine state (SV_INIT.sv,
+ * GameBase.g_edicts, CM, Cvar, Cbuf, ...) below it is private to the match.
+ */
+public class MatchRunner {
+
+  /** Called reflectively by MatchHost on the match thread; never returns. */
+  public static void run(String route, MatchTiming timing, String[] args) {
+    timing.setStats(new MatchTiming.Stats() {
+      public String report(boolean reset) {
+        return StatsServlet.engineReport(reset);
+      }
+    });
+    Compatibility.impl = new CompatibilityImpl();
+    SharedMapResourceLoader loader = new SharedMapResourceLoader();
+    ResourceLoader.impl = loader;
+    FS.mapper = new FileMapper();
+    ServerWebSocketFactoryImpl.route = route;
+    NET.socketFactory = new ServerWebSocketFactoryImpl();
+
+    try {
+      QuakeServer.init(args);
+      new FrameScheduler(timing).run();
+    } finally {
+      loader.releaseMap();
+    }
+  }
+
+  /**
+   * Serves .bsp files from SharedMaps, everything else from disk. Maps that
+   * only exist in a pak are mapped instead, which shares them just as well.
+   * Holds on to the last map it loaded, the one CM is running on, and
+   * releases the previous one.
+   */
+  static class SharedMapResourceLoader extends ResourceLoaderImpl {
+    // loads run on the I/O pool
+    private String map;
+
+    @Override
+    public byte[] loadResource(String path) throws IOException {
+      if (!path.endsWith(".bsp")) {
+        return super.loadResource(path);
+      }
+      byte[] bytes = SharedMaps.acquire(path);
+      if (bytes == null) {
+        bytes = super.loadResource(path);
+        if (bytes == null) {
+          return null;
+        }
+        bytes = SharedMaps.put(path, bytes);
+      }
+      holdMap(path);
+      return bytes;
+    }
+
+    private synchronized void holdMap(String path) {
+      if (map != null) {
+        SharedMaps.release(map);
+      }
+      map = path;
+    }
+
+    synchronized void releaseMap() {
+      holdMap(null);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+/**
+ * Game frame timing of one hosted match, written by the match thread and
+ * read by the host. Loaded by the host class loader and shared with the
+ * match, so it only uses JDK types.
+ */
+public class MatchTiming {
+
+  /**
+   * Installed by the match to report its own engine statistics (its copy of
+   * FrameProfiler and of the resource loader) to the host's /stats.
+   */
+  public interface Stats {
+    String report(boolean reset);
+  }
+
+  private final String name;
+  private volatile Stats stats;
+
+  private volatile long ticks;
+  private volatile long lastWallNanos;
+  private volatile long lastCpuNanos;
+  private volatile long lastJitterNanos;
+
+  // window since the last report(), guarded by this
+  private long windowTicks;
+  private long windowWall;
+  private long windowWallMax;
+  private long windowJitterMax;
+
+  public MatchTiming(String name) {
+    this.name = name;
+  }
+
+  public synchronized void record(long wallNanos, long cpuNanos, long jitterNanos) {
+    ticks++;
+    lastWallNanos = wallNanos;
+    lastCpuNanos = cpuNanos;
+    lastJitterNanos = jitterNanos;
+    windowTicks++;
+    windowWall += wallNanos;
+    windowWallMax = Math.max(windowWallMax, wallNanos);
+    windowJitterMax = Math.max(windowJitterMax, jitterNanos);
+  }
+
+  public void setStats(Stats stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Returns the tick counters and the match's engine statistics for /stats.
+   * Unlike report() this does not touch the logging window.
+   */
+  public String stats(boolean reset) {
+    String s = name + ": " + ticks + " frames, last wall "
+        + lastWallNanos / 1000 + "us cpu " + lastCpuNanos / 1000
+        + "us jitter " + lastJitterNanos / 1000 + "us\n";
+    Stats st = stats;
+    return st == null ? s : s + st.report(reset);
+  }
+
+  public long ticks() {
+    return ticks;
+  }
+
+  public long lastWallNanos() {
+    return lastWallNanos;
+  }
+
+  public long lastCpuNanos() {
+    return lastCpuNanos;
+  }
+
+  public long lastJitterNanos() {
+    return lastJitterNanos;
+  }
+
+  /** Returns a one line summary of the frames since the last report. */
+  public synchronized String report() {
+    String s = name + ": " + windowTicks + " frames, wall "
+        + (windowTicks == 0 ? 0 : windowWall / windowTicks / 1000) + "us avg "
+        + windowWallMax / 1000 + "us max, jitter " + windowJitterMax / 1000
+        + "us max";
+    windowTicks = windowWall = windowWallMax = windowJitterMax = 0;
+    return s;
+  }
+}
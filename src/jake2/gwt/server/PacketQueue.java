@@ -0,0 +1,372 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.qcommon.Defines;
+import jake2.qcommon.netadr_t;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer / single-consumer queue of inbound datagrams.
+ *
+ * The Jetty I/O threads are the producers, the game thread polling
+ * NET.GetPacket is the only consumer. All slots and their packet buffers are
+ * allocated up front, so steady state enqueue/dequeue allocates nothing.
+ * Each slot carries a sequence number (see Vyukov's bounded queue): a
+ * producer claims a slot by CAS on the tail, fills it and publishes it by
+ * advancing the slot sequence; the consumer never writes the tail.
+ *
+ * With the BLOCK policy a producer that finds no room parks until the
+ * consumer frees a slot or its deadline passes.
+ */
+public final class PacketQueue {
+
+	/** What a producer does when its connection is over quota or the queue is full. */
+	public enum OverflowPolicy {
+		/** Drop the incoming packet; the netchan recovers as with UDP loss. */
+		DROP,
+		/** Stall the I/O thread for up to blockMillis, throttling the TCP reader. */
+		BLOCK,
+		/** Drop the packet and ask the connection to disconnect. */
+		DISCONNECT
+	}
+
+	/** Per connection accounting of the slots it occupies. */
+	public static final class Quota {
+		final AtomicLong queued = new AtomicLong();
+		final AtomicLong drops = new AtomicLong();
+
+		public long queued() {
+			return queued.get();
+		}
+
+		public long drops() {
+			return drops.get();
+		}
+	}
+
+	private static final class Slot {
+		final byte[] data = new byte[Defines.MAX_MSGLEN];
+		final byte[] fromIp = new byte[4];
+		int fromPort;
+		int length;
+		long enqueueNanos;
+		Quota quota;
+	}
+
+	private final Slot[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+
+	/** Consumer cursor, only touched by the game thread. */
+	private long head;
+	/** End of the batch fixed by beginBatch(); -1 while no batch is open. */
+	private long batchEnd = -1;
+
+	/** Consumer parked in awaitPacket(), unparked by the next offer. */
+	private volatile Thread waiter;
+
+	/** Producers parked in offer(), unparked by the next poll. */
+	private final ConcurrentLinkedQueue<Thread> blocked = new ConcurrentLinkedQueue<Thread>();
+	private final AtomicInteger blockedCount = new AtomicInteger();
+
+	private final int perConnectionLimit;
+	private final OverflowPolicy policy;
+	private final int blockMillis;
+
+	// statistics
+	private final AtomicLong enqueued = new AtomicLong();
+	private final AtomicLong drops = new AtomicLong();
+	private final AtomicLong oversize = new AtomicLong();
+	private final AtomicLong enqueueNanos = new AtomicLong();
+	private long dequeued;
+	private long waitNanos;
+	private long maxWaitNanos;
+	private int maxDepth;
+
+	/**
+	 * @param capacity number of slots, rounded up to a power of two
+	 * @param perConnectionLimit max slots a single connection may occupy
+	 */
+	public PacketQueue(int capacity, int perConnectionLimit,
+			OverflowPolicy policy, int blockMillis) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new Slot[size];
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			slots[i] = new Slot();
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+		this.perConnectionLimit = Math.max(1, Math.min(perConnectionLimit, size));
+		this.policy = policy;
+		this.blockMillis = blockMillis;
+	}
+
+	/**
+	 * Copies a datagram into a free slot. Called from any I/O thread.
+	 *
+	 * @return false if the packet was dropped; with the DISCONNECT policy the
+	 *         caller should then close the connection.
+	 */
+	public boolean offer(byte[] fromIp, int fromPort, Quota quota,
+			byte[] data, int offset, int length) {
+		long start = System.nanoTime();
+		if (length > Defines.MAX_MSGLEN) {
+			oversize.incrementAndGet();
+			return drop(quota);
+		}
+
+		long deadline = start + blockMillis * 1000000L;
+		boolean parked = false;
+		while (true) {
+			long pos = reserve(quota);
+			if (pos >= 0) {
+				if (parked) {
+					unblock();
+				}
+				Slot slot = slots[(int) pos & mask];
+				System.arraycopy(data, offset, slot.data, 0, length);
+				System.arraycopy(fromIp, 0, slot.fromIp, 0, 4);
+				slot.fromPort = fromPort;
+				slot.length = length;
+				slot.quota = quota;
+				long now = System.nanoTime();
+				slot.enqueueNanos = now;
+				sequences.set((int) pos & mask, pos + 1);
+				enqueued.incrementAndGet();
+				enqueueNanos.addAndGet(now - start);
+				Thread w = waiter;
+				if (w != null) {
+					LockSupport.unpark(w);
+				}
+				return true;
+			}
+			long left = deadline - System.nanoTime();
+			if (policy != OverflowPolicy.BLOCK || left <= 0) {
+				if (parked) {
+					unblock();
+				}
+				return drop(quota);
+			}
+			if (!parked) {
+				// register, then try again before parking, so that a slot
+				// freed in between is not missed
+				blocked.add(Thread.currentThread());
+				blockedCount.incrementAndGet();
+				parked = true;
+			} else {
+				LockSupport.parkNanos(this, left);
+			}
+		}
+	}
+
+	private void unblock() {
+		blocked.remove(Thread.currentThread());
+		blockedCount.decrementAndGet();
+	}
+
+	/**
+	 * Takes a slot of quota and claims a tail position for it.
+	 *
+	 * @return the position, or -1 if the connection is over its quota or the
+	 *         queue is full
+	 */
+	private long reserve(Quota quota) {
+		while (true) {
+			long queued = quota.queued.get();
+			if (queued >= perConnectionLimit) {
+				return -1;
+			}
+			if (quota.queued.compareAndSet(queued, queued + 1)) {
+				break;
+			}
+		}
+		long pos = claim();
+		if (pos < 0) {
+			quota.queued.decrementAndGet();
+		}
+		return pos;
+	}
+
+	/**
+	 * Text frame variant of offer(): converts one char per byte without
+	 * allocating a byte[] per packet.
+	 */
+	public boolean offer(byte[] fromIp, int fromPort, Quota quota, String data) {
+		int length = data.length();
+		if (length > Defines.MAX_MSGLEN) {
+			oversize.incrementAndGet();
+			return drop(quota);
+		}
+		// Converting into a per-thread scratch buffer keeps the slot
+		// protocol in one place.
+		byte[] bytes = TEXT_BUFFER.get();
+		for (int i = 0; i < length; i++) {
+			bytes[i] = (byte) data.charAt(i);
+		}
+		return offer(fromIp, fromPort, quota, bytes, 0, length);
+	}
+
+	private static final ThreadLocal<byte[]> TEXT_BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[Defines.MAX_MSGLEN];
+		}
+	};
+
+	private boolean drop(Quota quota) {
+		drops.incrementAndGet();
+		quota.drops.incrementAndGet();
+		return false;
+	}
+
+	/** Claims the next tail position, or returns -1 if the queue is full. */
+	private long claim() {
+		while (true) {
+			long pos = tail.get();
+			long seq = sequences.get((int) pos & mask);
+			long dif = seq - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					return pos;
+				}
+			} else if (dif < 0) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Fixes the set of packets the following poll() calls return. Packets
+	 * that arrive while the batch is drained wait for the next one, which
+	 * bounds the work of a single server frame.
+	 *
+	 * @return the number of packets in the batch
+	 */
+	public int beginBatch() {
+		batchEnd = tail.get();
+		int depth = (int) (batchEnd - head);
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		return depth;
+	}
+
+	/**
+	 * Moves the next packet into buf. Game thread only.
+	 *
+	 * @return the packet length or -1 if the queue (or current batch) is empty
+	 */
+	public int poll(netadr_t from, byte[] buf) {
+		if (batchEnd >= 0 && head >= batchEnd) {
+			batchEnd = -1;
+			return -1;
+		}
+		int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			batchEnd = -1;
+			return -1;
+		}
+		Slot slot = slots[index];
+		int len = slot.length;
+		System.arraycopy(slot.data, 0, buf, 0, Math.min(len, buf.length));
+		if (from.ip == null || from.ip.length != 4) {
+			from.ip = new byte[4];
+		}
+		System.arraycopy(slot.fromIp, 0, from.ip, 0, 4);
+		from.port = slot.fromPort;
+
+		long wait = System.nanoTime() - slot.enqueueNanos;
+		waitNanos += wait;
+		if (wait > maxWaitNanos) {
+			maxWaitNanos = wait;
+		}
+		dequeued++;
+
+		slot.quota.queued.decrementAndGet();
+		slot.quota = null;
+		sequences.lazySet(index, head + slots.length);
+		head++;
+		if (blockedCount.get() > 0) {
+			for (Thread t : blocked) {
+				LockSupport.unpark(t);
+			}
+		}
+		return len;
+	}
+
+	/**
+	 * Blocks the game thread until a packet is queued or the timeout
+	 * expires; this is the select() on the server socket of the original
+	 * NET_Sleep.
+	 */
+	public void awaitPacket(long nanos) {
+		long deadline = System.nanoTime() + nanos;
+		waiter = Thread.currentThread();
+		try {
+			while (sequences.get((int) head & mask) != head + 1) {
+				long left = deadline - System.nanoTime();
+				if (left <= 0) {
+					break;
+				}
+				LockSupport.parkNanos(this, left);
+			}
+		} finally {
+			waiter = null;
+		}
+	}
+
+	public int capacity() {
+		return slots.length;
+	}
+
+	public int depth() {
+		return (int) (tail.get() - head);
+	}
+
+	public OverflowPolicy policy() {
+		return policy;
+	}
+
+	public String stats() {
+		long in = enqueued.get();
+		StringBuffer sb = new StringBuffer();
+		sb.append("depth ").append(depth()).append('/').append(capacity());
+		sb.append(" (max ").append(maxDepth).append(")\n");
+		sb.append("enqueued ").append(in).append(", dequeued ").append(dequeued);
+		sb.append(", dropped ").append(drops.get());
+		sb.append(" (").append(oversize.get()).append(" oversize)\n");
+		sb.append("enqueue latency ");
+		sb.append(in == 0 ? 0 : enqueueNanos.get() / in / 1000).append("us avg\n");
+		sb.append("queue wait ");
+		sb.append(dequeued == 0 ? 0 : waitNanos / dequeued / 1000).append("us avg, ");
+		sb.append(maxWaitNanos / 1000).append("us max\n");
+		return sb.toString();
+	}
+}
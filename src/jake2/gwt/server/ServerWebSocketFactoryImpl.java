@@ -21,13 +21,21 @@ package jake2.gwt.server;
 import java.io.IOException;
 import java.net.InetAddress;
 
+import jake2.game.Cmd;
+import jake2.game.cvar_t;
+import jake2.qcommon.Com;
 import jake2.qcommon.Compatibility;
+import jake2.qcommon.Cvar;
 import jake2.qcommon.netadr_t;
+import jake2.qcommon.xcommand_t;
+import jake2.sys.QBatchSocket;
 import jake2.sys.QSocket;
 import jake2.sys.QSocketFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -39,43 +47,105 @@ import org.eclipse.jetty.websocket.WebSocketHandler;
 
 public class ServerWebSocketFactoryImpl implements QSocketFactory {
 
+	/**
+	 * When set, the server socket does not start its own Jetty instance but
+	 * registers with the MatchRouter of the hosting process under this
+	 * WebSocket path.
+	 */
+	static String route;
+
+	private final List<ServerWebSocketImpl> bound = new ArrayList<ServerWebSocketImpl>();
+
 	public QSocket bind(String ip, int port) {
-		return new ServerWebSocketImpl(port);
+		if (bound.isEmpty()) {
+			Cmd.AddCommand("net_queue", new xcommand_t() {
+				public void execute() {
+					for (ServerWebSocketImpl socket : bound) {
+						Com.Printf("port " + socket.getPort() + ": "
+								+ socket.getQueue().stats());
+					}
+				}
+			});
+		}
+		ServerWebSocketImpl socket = new ServerWebSocketImpl(port);
+		bound.add(socket);
+		return socket;
 	}
 	
 }
 
-class ServerWebSocketImpl implements QSocket {
+class ServerWebSocketImpl implements QBatchSocket {
 
 	private Map<String, MyWebSocket> sockets = new HashMap<String, MyWebSocket>();
 	private Server server;
 	private final int port;
 
-	private static LinkedList<Msg> msgQueue = new LinkedList<Msg>();
+	private final PacketQueue msgQueue;
 
-	private static class Msg {
-		public byte[] fromIp;
-		public int fromPort;
-		public String data;
+	/**
+	 * Protocol suffix a client appends to its qport ("27901;binary") to
+	 * request binary frames. Clients that only send the qport (the browser
+	 * client) keep using text frames with one char per byte.
+	 */
+	static final String BINARY_PROTOCOL_SUFFIX = ";binary";
 
-		public Msg(byte[]fromIp, int fromPort, String data) {
-			this.fromIp = fromIp;
-			this.fromPort = fromPort;
-			this.data = data;
-		}
-	}
-	
 	public ServerWebSocketImpl(int port) {
 		
 		System.out.println("ServerWebSocketImpl(" + port + ")");
 		
 		this.port = port;
+
+		cvar_t queueSize = Cvar.Get("net_queuesize", "1024", 0);
+		cvar_t clientQueue = Cvar.Get("net_clientqueue", "64", 0);
+		cvar_t overflow = Cvar.Get("net_overflow", "drop", 0);
+		cvar_t blockTime = Cvar.Get("net_blocktime", "20", 0);
+		PacketQueue.OverflowPolicy policy;
+		try {
+			policy = PacketQueue.OverflowPolicy.valueOf(overflow.string.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			Com.Printf("unknown net_overflow " + overflow.string + ", using drop\n");
+			policy = PacketQueue.OverflowPolicy.DROP;
+		}
+		msgQueue = new PacketQueue((int) queueSize.value, (int) clientQueue.value,
+				policy, (int) blockTime.value);
+
+		if (ServerWebSocketFactoryImpl.route != null) {
+			// Hosted match: only the server port is reachable, through the
+			// shared WebSocket server of the process.
+			if (port == (int) Cvar.VariableValue("port")) {
+				MatchRouter.register(ServerWebSocketFactoryImpl.route, new MatchRouter.Endpoint() {
+					public WebSocket connect(HttpServletRequest req, String service) {
+						return ServerWebSocketImpl.this.connect(req, service);
+					}
+				});
+			}
+			return;
+		}
+
 		server = new Server(port);
 
 	    WebSocketHandler handler = new WebSocketHandler() {
 	      @Override
 	      protected WebSocket doWebSocketConnect(HttpServletRequest req,
 	          String service) {
+	        return connect(req, service);
+	      }
+	    };
+	    handler.setBufferSize(65536);
+	    server.setHandler(handler);
+
+	    System.out.println("Starting Server");
+
+	    try {
+	      server.start();
+	    } catch (Exception e) {
+	      throw new RuntimeException(e);
+	    }
+	    
+	    System.out.println("Server started");
+	}
+
+	WebSocket connect(HttpServletRequest req, String service) {
 	        // Kind of a hack: Use the service to pass the client-side qport.
 	        // This allows us to maintain a stable logical connection over
 	        // multiple "real" connections.
@@ -89,6 +159,11 @@ class ServerWebSocketImpl implements QSocket {
 	    	if (addr.equals("0:0:0:0:0:0:0:1%0")) {
 	    		addr = "0.0.0.0";
 	    	}
+	    	boolean binary = false;
+	    	if (service != null && service.endsWith(BINARY_PROTOCOL_SUFFIX)) {
+	    		service = service.substring(0, service.length() - BINARY_PROTOCOL_SUFFIX.length());
+	    		binary = true;
+	    	}
 	        String from = addr + ":" + service;
 	        System.err.println("Connect from " + from);
 	        MyWebSocket socket = sockets.get(from);
@@ -101,49 +176,46 @@ class ServerWebSocketImpl implements QSocket {
 			}
 	          sockets.put(from, socket);
 	        }
+	        // A reconnecting client may switch modes, so this is decided per
+	        // connection and not per logical address.
+	        socket.binary = binary;
 	        return socket;
-	      }
-	    };
-	    handler.setBufferSize(65536);
-	    server.setHandler(handler);
-
-	    System.out.println("Starting Server");
-
-	    try {
-	      server.start();
-	    } catch (Exception e) {
-	      throw new RuntimeException(e);
-	    }
-	    
-	    System.out.println("Server started");
 	}
 	
 
 	public void close() {
-		server.destroy();
+		if (server != null) {
+			server.destroy();
+		} else if (ServerWebSocketFactoryImpl.route != null) {
+			MatchRouter.unregister(ServerWebSocketFactoryImpl.route);
+		}
 		server = null;
 		sockets = null;
 	}
 
+	int getPort() {
+		return port;
+	}
+
+	PacketQueue getQueue() {
+		return msgQueue;
+	}
+
+	public int beginBatch() {
+		return msgQueue.beginBatch();
+	}
+
+	public void await(int msec) {
+		msgQueue.awaitPacket(msec * 1000000L);
+	}
+
 	public int receive(netadr_t fromAdr, byte[] buf) throws IOException {
-		synchronized (msgQueue) {
-			if (msgQueue.isEmpty()) {
-				return -1;
-			}
-		  
-			Msg msg = msgQueue.removeFirst();  
-			String data = msg.data;
-			
-			fromAdr.ip = new byte[4];
-			System.arraycopy(msg.fromIp, 0, fromAdr.ip, 0, 4);
-			fromAdr.port = msg.fromPort;
-			
-		    int len = Compatibility.stringToBytes(data, buf);
-		    
-//			System.out.println("receiving " + Lib.hexDump(buf, len, true));
-
-			return len;
-		}
+		// NET.GetPacket rejects oversize packets by the returned length.
+		int len = msgQueue.poll(fromAdr, buf);
+
+//		System.out.println("receiving " + Lib.hexDump(buf, len, true));
+
+		return len;
 	}
 	
 
@@ -166,16 +238,28 @@ class ServerWebSocketImpl implements QSocket {
 		
 //		System.out.println("sending to " + targetAddress + ": " + Lib.hexDump(data, len, true));
 		
-		target.sendMessage(Compatibility.bytesToString(data, len));
+		target.sendMessage(data, len);
 	}
 	
 	
 	
+	/**
+	 * Returns a private copy of an outgoing datagram for the out queue; the
+	 * caller reuses its buffer.
+	 */
+	static byte[] copyOf(byte[] data, int offset, int length) {
+		byte[] bytes = new byte[length];
+		System.arraycopy(data, offset, bytes, 0, length);
+		return bytes;
+	}
+
 	class MyWebSocket implements WebSocket {
-	    private LinkedList<String> outQueue = new LinkedList<String>();
+	    private LinkedList<byte[]> outQueue = new LinkedList<byte[]>();
 	    private Outbound outbound;
 	    byte[]fromIp;
 	    int fromPort;
+	    volatile boolean binary;
+	    final PacketQueue.Quota quota = new PacketQueue.Quota();
 
 	    public MyWebSocket(byte[] fromIp, int fromPort) {
 	      this.fromIp = fromIp;
@@ -186,10 +270,11 @@ class ServerWebSocketImpl implements QSocket {
 	      this.outbound = outbound;
 
 	      if (!outQueue.isEmpty()) {
-	        for (String msg : outQueue) {
-	          sendMessage(msg);
+	        LinkedList<byte[]> pending = outQueue;
+	        outQueue = new LinkedList<byte[]>();
+	        for (byte[] msg : pending) {
+	          sendMessage(msg, msg.length);
 	        }
-	        outQueue.clear();
 	      }
 
 	      System.out.println("onConnect");
@@ -200,26 +285,40 @@ class ServerWebSocketImpl implements QSocket {
 	    }
 
 	    public void onMessage(byte frame, String data) {
-	      synchronized (msgQueue) {
-	        msgQueue.add(new Msg(fromIp, fromPort, data));
+	      if (!msgQueue.offer(fromIp, fromPort, quota, data)) {
+	        overflow();
 	      }
 	    }
 
 	    public void onMessage(byte frame, byte[] data, int offset, int length) {
-	      assert false : "Why is this method separate from the other onMessage()?";
+	      if (!msgQueue.offer(fromIp, fromPort, quota, data, offset, length)) {
+	        overflow();
+	      }
+	    }
+
+	    private void overflow() {
+	      Outbound out = outbound;
+	      if (msgQueue.policy() == PacketQueue.OverflowPolicy.DISCONNECT && out != null) {
+	        System.out.println("inbound queue overflow, disconnecting " + fromPort);
+	        out.disconnect();
+	      }
 	    }
 
-	    public void sendMessage(String msg) {
+	    public void sendMessage(byte[] data, int len) {
 	      if (outbound == null) {
-	        outQueue.add(msg);
+	        outQueue.add(copyOf(data, 0, len));
 	        return;
 	      }
 
 	      try {
-	        outbound.sendMessage((byte) 0, msg);
+	        if (binary) {
+	          outbound.sendMessage(LENGTH_FRAME, data, 0, len);
+	        } else {
+	          outbound.sendMessage(SENTINEL_FRAME, Compatibility.bytesToString(data, len));
+	        }
 	      } catch (IOException e) {
 	        System.out.println("sendMessage failed (" + fromIp + ":" + fromPort + "): " + e.getMessage());
-	        outQueue.add(msg);
+	        outQueue.add(copyOf(data, 0, len));
 	        outbound = null;
 	      }
 	    }
@@ -227,6 +326,9 @@ class ServerWebSocketImpl implements QSocket {
 
 
 	  public void Shutdown() {
+	    if (server == null) {
+	      return;
+	    }
 	    try {
 	      server.stop();
 	    } catch (Exception e) {
@@ -0,0 +1,79 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import java.util.HashMap;
+
+/**
+ * BSP files shared between the matches of a MatchHost. The first match
+ * that loads a map reads it from disk, the others get the same bytes.
+ * CM only reads the buffer it is given, so the array is never modified.
+ * Loaded by the host class loader.
+ *
+ * Only the file is shared: CM's parsed structures are instances of classes
+ * each match loads itself, so every match still parses its own copy.
+ *
+ * A map is kept while a match uses it. Each match holds at most one map
+ * and releases it when it loads the next one or stops.
+ */
+public class SharedMaps {
+
+  private static class Entry {
+    final byte[] bytes;
+    int users;
+
+    Entry(byte[] bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  private static final HashMap<String, Entry> maps = new HashMap<String, Entry>();
+
+  /** Returns the shared bytes and counts the caller as a user, or null. */
+  public static synchronized byte[] acquire(String path) {
+    Entry entry = maps.get(path);
+    if (entry == null) {
+      return null;
+    }
+    entry.users++;
+    return entry.bytes;
+  }
+
+  /**
+   * Stores bytes unless another match was faster and counts the caller as a
+   * user; returns the shared copy.
+   */
+  public static synchronized byte[] put(String path, byte[] bytes) {
+    Entry entry = maps.get(path);
+    if (entry == null) {
+      entry = new Entry(bytes);
+      maps.put(path, entry);
+    }
+    entry.users++;
+    return entry.bytes;
+  }
+
+  /** Drops a use of path; the map is forgotten when its last user leaves. */
+  public static synchronized void release(String path) {
+    Entry entry = maps.get(path);
+    if (entry != null && --entry.users <= 0) {
+      maps.remove(path);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.desktop.ResourceLoaderImpl;
+import jake2.qcommon.ResourceLoader;
+import jake2.server.FrameProfiler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the frame profile of sv_stats and the resource load stats as plain
+ * text, to requests from this host only. "?reset" clears it after the report.
+ * Under a MatchHost every match reports its own; "?match=n" selects one.
+ */
+public class StatsServlet extends HttpServlet {
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse rsp)
+      throws ServletException, IOException {
+    if (!InetAddress.getByName(req.getRemoteAddr()).isLoopbackAddress()) {
+      rsp.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+
+    boolean reset = req.getParameter("reset") != null;
+    MatchTiming[] timings = MatchHost.timings();
+    String report;
+    if (timings == null) {
+      report = engineReport(reset);
+    } else {
+      String match = req.getParameter("match");
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < timings.length; i++) {
+        if (match == null || match.equals(String.valueOf(i))) {
+          sb.append(timings[i].stats(reset)).append('\n');
+        }
+      }
+      if (sb.length() == 0) {
+        rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+        return;
+      }
+      report = sb.toString();
+    }
+    rsp.setContentType("text/plain");
+    rsp.setHeader("Cache-Control", "no-cache");
+    rsp.getWriter().print(report);
+    rsp.flushBuffer();
+  }
+
+  /**
+   * Reports the engine statistics of the class loader this class was loaded
+   * by: the server's, or one match's when called from MatchRunner.
+   */
+  static String engineReport(boolean reset) {
+    String report = FrameProfiler.report();
+    if (ResourceLoader.impl instanceof ResourceLoaderImpl) {
+      report += ((ResourceLoaderImpl) ResourceLoader.impl).stats();
+    }
+    if (reset) {
+      FrameProfiler.reset();
+    }
+    return report;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.qcommon.Compatibility;
+import jake2.qcommon.Defines;
+import jake2.qcommon.netadr_t;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares the text and binary WebSocket transport modes of
+ * ServerWebSocketImpl: one frame encode and one pass through the inbound
+ * PacketQueue per packet, reporting bytes/sec on the wire and bytes
+ * allocated per packet.
+ *
+ * usage: TransportBenchmark [packets] [packetSize]
+ */
+public class TransportBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int packets = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int size = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+
+    byte[] packet = new byte[size];
+    new Random(42).nextBytes(packet);
+    byte[] netMessage = new byte[Defines.MAX_MSGLEN];
+
+    // warm up both paths before measuring
+    run(false, packet, netMessage, packets / 10);
+    run(true, packet, netMessage, packets / 10);
+
+    report("text", packets, run(false, packet, netMessage, packets));
+    report("binary", packets, run(true, packet, netMessage, packets));
+  }
+
+  /**
+   * Returns {elapsed nanos, wire bytes, allocated bytes}.
+   */
+  private static long[] run(boolean binary, byte[] packet, byte[] netMessage,
+      int packets) throws UnsupportedEncodingException {
+    PacketQueue queue = new PacketQueue(16, 16, PacketQueue.OverflowPolicy.DROP, 0);
+    PacketQueue.Quota quota = new PacketQueue.Quota();
+    byte[] ip = {127, 0, 0, 1};
+    netadr_t from = new netadr_t();
+    long wire = 0;
+    long alloc = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < packets; i++) {
+      if (binary) {
+        wire += binaryFrameLength(packet.length);
+        queue.offer(ip, 27901, quota, packet, 0, packet.length);
+      } else {
+        // Jetty encodes text frames as UTF-8, so every byte >= 0x80 doubles.
+        String data = Compatibility.bytesToString(packet, packet.length);
+        wire += data.getBytes("UTF-8").length + 2;
+        queue.offer(ip, 27901, quota, data);
+      }
+      queue.poll(from, netMessage);
+    }
+    long elapsed = System.nanoTime() - start;
+    return new long[] {elapsed, wire, allocatedBytes() - alloc};
+  }
+
+  /** Draft-75 length frame: type byte, 7-bit length groups, payload. */
+  private static int binaryFrameLength(int len) {
+    int header = 1;
+    int rest = len;
+    do {
+      header++;
+      rest >>>= 7;
+    } while (rest != 0);
+    return header + len;
+  }
+
+  private static long allocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  private static void report(String mode, int packets, long[] result) {
+    double seconds = result[0] / 1e9;
+    System.out.println(mode + ": " + (long) (packets / seconds) + " packets/s, "
+        + (long) (result[1] / seconds) + " wire bytes/s, "
+        + (result[1] / packets) + " wire bytes/packet, "
+        + (result[2] / packets) + " allocated bytes/packet");
+  }
+}
@@ -0,0 +1,117 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.gwt.server;
+
+import jake2.server.TaskPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TaskPool on a fixed set of daemon threads. The calling thread takes part
+ * in every batch, so a pool of n threads runs a batch n + 1 wide. Tasks are
+ * handed out one at a time from a shared counter, which balances clients
+ * with very different numbers of visible entities.
+ */
+public class WorkerPool implements TaskPool {
+
+  private final ExecutorService executor;
+  private final int helpers;
+
+  // the current batch, only one runs at a time
+  private Runnable[] tasks;
+  private int count;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+  private CountDownLatch done;
+
+  private final Runnable helper = new Runnable() {
+    public void run() {
+      try {
+        work();
+      } finally {
+        done.countDown();
+      }
+    }
+  };
+
+  public WorkerPool(int threads, final String name) {
+    helpers = threads;
+    executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int n;
+
+      public synchronized Thread newThread(Runnable r) {
+        Thread t = new Thread(r, name + "-" + n++);
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  public void runAll(Runnable[] tasks, int count) {
+    if (count == 0) {
+      return;
+    }
+    this.tasks = tasks;
+    this.count = count;
+    next.set(0);
+    int n = Math.min(helpers, count - 1);
+    done = new CountDownLatch(n);
+    for (int i = 0; i < n; i++) {
+      executor.execute(helper);
+    }
+    work();
+    try {
+      done.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      this.tasks = null;
+    }
+
+    Throwable t = failure.getAndSet(null);
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+  }
+
+  private void work() {
+    int i;
+    while ((i = next.getAndIncrement()) < count) {
+      try {
+        tasks[i].run();
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      }
+    }
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -31,13 +31,12 @@ import jake2.game.mapsurface_t;
 import jake2.game.trace_t;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.QuakeFile;
 import jake2.util.Vargs;
-import jake2.util.Vec3Cache;
 
-import java.io.RandomAccessFile;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.IntBuffer;
 import java.util.Arrays;
 
 public class CM {
@@ -73,8 +72,6 @@ public class CM {
         int numsides;
 
         int firstbrushside;
-
-        int checkcount; // to avoid repeated testings
     }
 
     public static class carea_t {
@@ -87,8 +84,6 @@ public class CM {
         int floodvalid;
     }
 
-    static int checkcount;
-
     static String map_name = "";
 
     static int numbrushsides;
@@ -1040,35 +1035,30 @@ public class CM {
     }
 
 
-    private static int leaf_count, leaf_maxcount;
-
-    private static int leaf_list[];
-
-    private static float leaf_mins[], leaf_maxs[];
-
-    private static int leaf_topnode;
+    /** Context of the non-trace callers of CM_BoxLeafnums and BoxTrace. */
+    private static final TraceContext defaultContext = new TraceContext();
 
     /** Recursively fills in a list of all the leafs touched. */    
-    private static void CM_BoxLeafnums_r(int nodenum) {
+    private static void CM_BoxLeafnums_r(TraceContext tc, int nodenum) {
         cplane_t plane;
         cnode_t node;
         int s;
 
         while (true) {
             if (nodenum < 0) {
-                if (leaf_count >= leaf_maxcount) {
+                if (tc.leaf_count >= tc.leaf_maxcount) {
 // TODO(jgw): Had to turn this off, because it gets called incessantly.
 //                  Com.DPrintf("CM_BoxLeafnums_r: overflow\n");
                   return;
                 }
-                leaf_list[leaf_count++] = -1 - nodenum;
+                tc.leaf_list[tc.leaf_count++] = -1 - nodenum;
                 return;
             }
 
             node = map_nodes[nodenum];
             plane = node.plane;
 
-            s = Math3D.BoxOnPlaneSide(leaf_mins, leaf_maxs, plane);
+            s = Math3D.BoxOnPlaneSide(tc.leaf_mins, tc.leaf_maxs, plane);
 
             if (s == 1)
                 nodenum = node.children[0];
@@ -1076,37 +1066,45 @@ public class CM {
                 nodenum = node.children[1];
             else {
                 // go down both
-                if (leaf_topnode == -1)
-                    leaf_topnode = nodenum;
-                CM_BoxLeafnums_r(node.children[0]);
+                if (tc.leaf_topnode == -1)
+                    tc.leaf_topnode = nodenum;
+                CM_BoxLeafnums_r(tc, node.children[0]);
                 nodenum = node.children[1];
             }
         }
     }
 
     /** Fills in a list of all the leafs touched and starts with the head node. */
-    private static int CM_BoxLeafnums_headnode(float[] mins, float[] maxs,
-            int list[], int listsize, int headnode, int topnode[]) {
-        leaf_list = list;
-        leaf_count = 0;
-        leaf_maxcount = listsize;
-        leaf_mins = mins;
-        leaf_maxs = maxs;
+    private static int CM_BoxLeafnums_headnode(TraceContext tc, float[] mins,
+            float[] maxs, int list[], int listsize, int headnode, int topnode[]) {
+        tc.leaf_list = list;
+        tc.leaf_count = 0;
+        tc.leaf_maxcount = listsize;
+        tc.leaf_mins = mins;
+        tc.leaf_maxs = maxs;
 
-        leaf_topnode = -1;
+        tc.leaf_topnode = -1;
 
-        CM_BoxLeafnums_r(headnode);
+        CM_BoxLeafnums_r(tc, headnode);
 
         if (topnode != null)
-            topnode[0] = leaf_topnode;
+            topnode[0] = tc.leaf_topnode;
 
-        return leaf_count;
+        tc.leaf_list = null;
+        return tc.leaf_count;
     }
 
     /** Fills in a list of all the leafs touched. */
     public static int CM_BoxLeafnums(float[] mins, float[] maxs, int list[],
             int listsize, int topnode[]) {
-        return CM_BoxLeafnums_headnode(mins, maxs, list, listsize,
+        return CM_BoxLeafnums(defaultContext, mins, maxs, list, listsize,
+                topnode);
+    }
+
+    /** CM_BoxLeafnums on a caller owned context, safe on any thread. */
+    public static int CM_BoxLeafnums(TraceContext tc, float[] mins,
+            float[] maxs, int list[], int listsize, int topnode[]) {
+        return CM_BoxLeafnums_headnode(tc, mins, maxs, list, listsize,
                 map_cmodels[0].headnode, topnode);
     }
 
@@ -1130,9 +1128,19 @@ public class CM {
      */
     public static int TransformedPointContents(float[] p, int headnode,
             float[] origin, float[] angles) {
-        float[] p_l = { 0, 0, 0 };
-        float[] temp = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
+        return TransformedPointContents(defaultContext, p, headnode, origin,
+                angles);
+    }
+
+    /**
+     * Allocation free variant of TransformedPointContents, the scratch
+     * vectors are the context's.
+     */
+    public static int TransformedPointContents(TraceContext tc, float[] p,
+            int headnode, float[] origin, float[] angles) {
+        float[] p_l = tc.start_l;
+        float[] temp = tc.temp;
+        float[] forward = tc.forward, right = tc.right, up = tc.up;
         int l;
 
         // subtract origin offset
@@ -1165,28 +1173,16 @@ public class CM {
     // 1/32 epsilon to keep floating point happy
     private static final float DIST_EPSILON = 0.03125f;
 
-    private static float[] trace_start = { 0, 0, 0 }, trace_end = { 0, 0, 0 };
-
-    private static float[] trace_mins = { 0, 0, 0 }, trace_maxs = { 0, 0, 0 };
-
-    private static float[] trace_extents = { 0, 0, 0 };
-
-    private static trace_t trace_trace = new trace_t();
-
-    private static int trace_contents;
-
-    private static boolean trace_ispoint; // optimized case
-
     /*
      * ================ CM_ClipBoxToBrush ================
      */
-    public static void CM_ClipBoxToBrush(float[] mins, float[] maxs,
+    static void CM_ClipBoxToBrush(TraceContext tc, float[] mins, float[] maxs,
             float[] p1, float[] p2, trace_t trace, cbrush_t brush) {
         int i, j;
         cplane_t plane, clipplane;
         float dist;
         float enterfrac, leavefrac;
-        float[] ofs = { 0, 0, 0 };
+        float[] ofs = tc.ofs;
         float d1, d2;
         boolean getout, startout;
         float f;
@@ -1211,7 +1207,7 @@ public class CM {
 
             // FIXME: special case for axial
 
-            if (!trace_ispoint) { // general box case
+            if (!tc.ispoint) { // general box case
 
                 // push the plane out apropriately for mins/maxs
 
@@ -1280,12 +1276,12 @@ public class CM {
     /*
      * ================ CM_TestBoxInBrush ================
      */
-    public static void CM_TestBoxInBrush(float[] mins, float[] maxs,
+    static void CM_TestBoxInBrush(TraceContext tc, float[] mins, float[] maxs,
             float[] p1, trace_t trace, cbrush_t brush) {
         int i, j;
         cplane_t plane;
         float dist;
-        float[] ofs = { 0, 0, 0 };
+        float[] ofs = tc.ofs;
         float d1;
         cbrushside_t side;
 
@@ -1327,14 +1323,14 @@ public class CM {
     /*
      * ================ CM_TraceToLeaf ================
      */
-    public static void CM_TraceToLeaf(int leafnum) {
+    static void CM_TraceToLeaf(TraceContext tc, int leafnum) {
         int k;
         int brushnum;
         cleaf_t leaf;
         cbrush_t b;
 
         leaf = map_leafs[leafnum];
-        if (0 == (leaf.contents & trace_contents))
+        if (0 == (leaf.contents & tc.contents))
             return;
 
         // trace line against all brushes in the leaf
@@ -1342,15 +1338,15 @@ public class CM {
 
             brushnum = map_leafbrushes[leaf.firstleafbrush + k];
             b = map_brushes[brushnum];
-            if (b.checkcount == checkcount)
+            if (tc.brushcheck[brushnum] == tc.checkcount)
                 continue; // already checked this brush in another leaf
-            b.checkcount = checkcount;
+            tc.brushcheck[brushnum] = tc.checkcount;
 
-            if (0 == (b.contents & trace_contents))
+            if (0 == (b.contents & tc.contents))
                 continue;
-            CM_ClipBoxToBrush(trace_mins, trace_maxs, trace_start, trace_end,
-                    trace_trace, b);
-            if (0 == trace_trace.fraction)
+            CM_ClipBoxToBrush(tc, tc.mins, tc.maxs, tc.start, tc.end,
+                    tc.trace, b);
+            if (0 == tc.trace.fraction)
                 return;
         }
 
@@ -1359,28 +1355,27 @@ public class CM {
     /*
      * ================ CM_TestInLeaf ================
      */
-    public static void CM_TestInLeaf(int leafnum) {
+    static void CM_TestInLeaf(TraceContext tc, int leafnum) {
         int k;
         int brushnum;
         cleaf_t leaf;
         cbrush_t b;
 
         leaf = map_leafs[leafnum];
-        if (0 == (leaf.contents & trace_contents))
+        if (0 == (leaf.contents & tc.contents))
             return;
         // trace line against all brushes in the leaf
         for (k = 0; k < leaf.numleafbrushes; k++) {
             brushnum = map_leafbrushes[leaf.firstleafbrush + k];
             b = map_brushes[brushnum];
-            if (b.checkcount == checkcount)
+            if (tc.brushcheck[brushnum] == tc.checkcount)
                 continue; // already checked this brush in another leaf
-            b.checkcount = checkcount;
+            tc.brushcheck[brushnum] = tc.checkcount;
 
-            if (0 == (b.contents & trace_contents))
+            if (0 == (b.contents & tc.contents))
                 continue;
-            CM_TestBoxInBrush(trace_mins, trace_maxs, trace_start, trace_trace,
-                    b);
-            if (0 == trace_trace.fraction)
+            CM_TestBoxInBrush(tc, tc.mins, tc.maxs, tc.start, tc.trace, b);
+            if (0 == tc.trace.fraction)
                 return;
         }
 
@@ -1389,8 +1384,8 @@ public class CM {
     /*
      * ================== CM_RecursiveHullCheck ==================
      */
-    public static void CM_RecursiveHullCheck(int num, float p1f, float p2f,
-            float[] p1, float[] p2) {
+    static void CM_RecursiveHullCheck(TraceContext tc, int num, float p1f,
+            float p2f, float[] p1, float[] p2) {
         cnode_t node;
         cplane_t plane;
         float t1, t2, offset;
@@ -1400,12 +1395,12 @@ public class CM {
         int side;
         float midf;
 
-        if (trace_trace.fraction <= p1f)
+        if (tc.trace.fraction <= p1f)
             return; // already hit something nearer
 
         // if < 0, we are in a leaf node
         if (num < 0) {
-            CM_TraceToLeaf(-1 - num);
+            CM_TraceToLeaf(tc, -1 - num);
             return;
         }
 
@@ -1419,25 +1414,25 @@ public class CM {
         if (plane.type < 3) {
             t1 = p1[plane.type] - plane.dist;
             t2 = p2[plane.type] - plane.dist;
-            offset = trace_extents[plane.type];
+            offset = tc.extents[plane.type];
         } else {
             t1 = Math3D.DotProduct(plane.normal, p1) - plane.dist;
             t2 = Math3D.DotProduct(plane.normal, p2) - plane.dist;
-            if (trace_ispoint)
+            if (tc.ispoint)
                 offset = 0;
             else
-                offset = Math.abs(trace_extents[0] * plane.normal[0])
-                        + Math.abs(trace_extents[1] * plane.normal[1])
-                        + Math.abs(trace_extents[2] * plane.normal[2]);
+                offset = Math.abs(tc.extents[0] * plane.normal[0])
+                        + Math.abs(tc.extents[1] * plane.normal[1])
+                        + Math.abs(tc.extents[2] * plane.normal[2]);
         }
 
         // see which sides we need to consider
         if (t1 >= offset && t2 >= offset) {
-            CM_RecursiveHullCheck(node.children[0], p1f, p2f, p1, p2);
+            CM_RecursiveHullCheck(tc, node.children[0], p1f, p2f, p1, p2);
             return;
         }
         if (t1 < -offset && t2 < -offset) {
-            CM_RecursiveHullCheck(node.children[1], p1f, p2f, p1, p2);
+            CM_RecursiveHullCheck(tc, node.children[1], p1f, p2f, p1, p2);
             return;
         }
 
@@ -1465,12 +1460,12 @@ public class CM {
             frac = 1;
 
         midf = p1f + (p2f - p1f) * frac;
-        float[] mid = Vec3Cache.get();
+        float[] mid = tc.pushMid();
 
         for (i = 0; i < 3; i++)
             mid[i] = p1[i] + frac * (p2[i] - p1[i]);
 
-        CM_RecursiveHullCheck(node.children[side], p1f, midf, p1, mid);
+        CM_RecursiveHullCheck(tc, node.children[side], p1f, midf, p1, mid);
 
         // go past the node
         if (frac2 < 0)
@@ -1482,8 +1477,8 @@ public class CM {
         for (i = 0; i < 3; i++)
             mid[i] = p1[i] + frac2 * (p2[i] - p1[i]);
 
-        CM_RecursiveHullCheck(node.children[side ^ 1], midf, p2f, mid, p2);
-        Vec3Cache.release();
+        CM_RecursiveHullCheck(tc, node.children[side ^ 1], midf, p2f, mid, p2);
+        tc.popMid();
     }
 
     //======================================================================
@@ -1493,40 +1488,57 @@ public class CM {
      */
     public static trace_t BoxTrace(float[] start, float[] end, float[] mins,
             float[] maxs, int headnode, int brushmask) {
+        trace_t trace = new trace_t();
+        trace.set(BoxTrace(defaultContext, start, end, mins, maxs, headnode,
+                brushmask));
+        return trace;
+    }
+
+    /**
+     * Allocation free variant of BoxTrace. The result is owned by the
+     * context and overwritten by its next trace.
+     */
+    public static trace_t BoxTrace(TraceContext tc, float[] start,
+            float[] end, float[] mins, float[] maxs, int headnode,
+            int brushmask) {
 
         // for multi-check avoidance
-        checkcount++;
+        tc.checkcount++;
+
+        // a Com.Error in an earlier trace may have left midpoints pushed
+        tc.middepth = 0;
 
         // for statistics, may be zeroed
         Globals.c_traces++;
+        Globals.c_traces_total++;
 
         // fill in a default trace
         //was: memset(& trace_trace, 0, sizeof(trace_trace));
-        trace_trace = new trace_t();
+        trace_t trace = tc.trace;
+        trace.clear();
 
-        trace_trace.fraction = 1;
-        trace_trace.surface = nullsurface.c;
+        trace.fraction = 1;
+        trace.surface = nullsurface.c;
 
         if (numnodes == 0) {
             // map not loaded
-            return trace_trace;
+            return trace;
         }
 
-        trace_contents = brushmask;
-        Math3D.VectorCopy(start, trace_start);
-        Math3D.VectorCopy(end, trace_end);
-        Math3D.VectorCopy(mins, trace_mins);
-        Math3D.VectorCopy(maxs, trace_maxs);
+        tc.contents = brushmask;
+        Math3D.VectorCopy(start, tc.start);
+        Math3D.VectorCopy(end, tc.end);
+        Math3D.VectorCopy(mins, tc.mins);
+        Math3D.VectorCopy(maxs, tc.maxs);
 
         //
         // check for position test special case
         //
         if (start[0] == end[0] && start[1] == end[1] && start[2] == end[2]) {
 
-            int leafs[] = new int[1024];
+            int leafs[] = tc.leafs;
             int i, numleafs;
-            float[] c1 = { 0, 0, 0 }, c2 = { 0, 0, 0 };
-            int topnode = 0;
+            float[] c1 = tc.c1, c2 = tc.c2;
 
             Math3D.VectorAdd(start, mins, c1);
             Math3D.VectorAdd(start, maxs, c2);
@@ -1536,18 +1548,15 @@ public class CM {
                 c2[i] += 1;
             }
 
-            int tn[] = { topnode };
-
-            numleafs = CM_BoxLeafnums_headnode(c1, c2, leafs, 1024, headnode,
-                    tn);
-            topnode = tn[0];
+            numleafs = CM_BoxLeafnums_headnode(tc, c1, c2, leafs, leafs.length,
+                    headnode, null);
             for (i = 0; i < numleafs; i++) {
-                CM_TestInLeaf(leafs[i]);
-                if (trace_trace.allsolid)
+                CM_TestInLeaf(tc, leafs[i]);
+                if (trace.allsolid)
                     break;
             }
-            Math3D.VectorCopy(start, trace_trace.endpos);
-            return trace_trace;
+            Math3D.VectorCopy(start, trace.endpos);
+            return trace;
         }
 
         //
@@ -1555,28 +1564,28 @@ public class CM {
         //
         if (mins[0] == 0 && mins[1] == 0 && mins[2] == 0 && maxs[0] == 0
                 && maxs[1] == 0 && maxs[2] == 0) {
-            trace_ispoint = true;
-            Math3D.VectorClear(trace_extents);
+            tc.ispoint = true;
+            Math3D.VectorClear(tc.extents);
         } else {
-            trace_ispoint = false;
-            trace_extents[0] = -mins[0] > maxs[0] ? -mins[0] : maxs[0];
-            trace_extents[1] = -mins[1] > maxs[1] ? -mins[1] : maxs[1];
-            trace_extents[2] = -mins[2] > maxs[2] ? -mins[2] : maxs[2];
+            tc.ispoint = false;
+            tc.extents[0] = -mins[0] > maxs[0] ? -mins[0] : maxs[0];
+            tc.extents[1] = -mins[1] > maxs[1] ? -mins[1] : maxs[1];
+            tc.extents[2] = -mins[2] > maxs[2] ? -mins[2] : maxs[2];
         }
 
         //
         // general sweeping through world
         //
-        CM_RecursiveHullCheck(headnode, 0, 1, start, end);
+        CM_RecursiveHullCheck(tc, headnode, 0, 1, start, end);
 
-        if (trace_trace.fraction == 1) {
-            Math3D.VectorCopy(end, trace_trace.endpos);
+        if (trace.fraction == 1) {
+            Math3D.VectorCopy(end, trace.endpos);
         } else {
             for (int i = 0; i < 3; i++)
-                trace_trace.endpos[i] = start[i] + trace_trace.fraction
+                trace.endpos[i] = start[i] + trace.fraction
                         * (end[i] - start[i]);
         }
-        return trace_trace;
+        return trace;
     }
 
     /*
@@ -1588,11 +1597,24 @@ public class CM {
     public static trace_t TransformedBoxTrace(float[] start, float[] end,
             float[] mins, float[] maxs, int headnode, int brushmask,
             float[] origin, float[] angles) {
+        trace_t trace = new trace_t();
+        trace.set(TransformedBoxTrace(defaultContext, start, end, mins, maxs,
+                headnode, brushmask, origin, angles));
+        return trace;
+    }
+
+    /**
+     * Allocation free variant of TransformedBoxTrace, see
+     * BoxTrace(TraceContext, ...).
+     */
+    public static trace_t TransformedBoxTrace(TraceContext tc, float[] start,
+            float[] end, float[] mins, float[] maxs, int headnode,
+            int brushmask, float[] origin, float[] angles) {
         trace_t trace;
-        float[] start_l = { 0, 0, 0 }, end_l = { 0, 0, 0 };
-        float[] a = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
-        float[] temp = { 0, 0, 0 };
+        float[] start_l = tc.start_l, end_l = tc.end_l;
+        float[] a = tc.a;
+        float[] forward = tc.forward, right = tc.right, up = tc.up;
+        float[] temp = tc.temp;
         boolean rotated;
 
         // subtract origin offset
@@ -1621,7 +1643,7 @@ public class CM {
         }
 
         // sweep the box through the model
-        trace = BoxTrace(start_l, end_l, mins, maxs, headnode, brushmask);
+        trace = BoxTrace(tc, start_l, end_l, mins, maxs, headnode, brushmask);
 
         if (rotated && trace.fraction != 1.0) {
             // FIXME: figure out how to do this with existing angles
@@ -1692,21 +1714,31 @@ public class CM {
     public static byte phsrow[] = new byte[Defines.MAX_MAP_LEAFS / 8];
 
     public static byte[] CM_ClusterPVS(int cluster) {
+        return CM_ClusterPVS(cluster, pvsrow);
+    }
+
+    public static byte[] CM_ClusterPHS(int cluster) {
+        return CM_ClusterPHS(cluster, phsrow);
+    }
+
+    /** Decompresses the PVS of cluster into row instead of the shared pvsrow. */
+    public static byte[] CM_ClusterPVS(int cluster, byte row[]) {
         if (cluster == -1)
-            Arrays.fill(pvsrow, 0, (numclusters + 7) >> 3, (byte) 0);
+            Arrays.fill(row, 0, (numclusters + 7) >> 3, (byte) 0);
         else
             CM_DecompressVis(map_visibility,
-                    map_vis.bitofs[cluster][Defines.DVIS_PVS], pvsrow);
-        return pvsrow;
+                    map_vis.bitofs[cluster][Defines.DVIS_PVS], row);
+        return row;
     }
 
-    public static byte[] CM_ClusterPHS(int cluster) {
+    /** Decompresses the PHS of cluster into row instead of the shared phsrow. */
+    public static byte[] CM_ClusterPHS(int cluster, byte row[]) {
         if (cluster == -1)
-            Arrays.fill(phsrow, 0, (numclusters + 7) >> 3, (byte) 0);
+            Arrays.fill(row, 0, (numclusters + 7) >> 3, (byte) 0);
         else
             CM_DecompressVis(map_visibility,
-                    map_vis.bitofs[cluster][Defines.DVIS_PHS], phsrow);
-        return phsrow;
+                    map_vis.bitofs[cluster][Defines.DVIS_PHS], row);
+        return row;
     }
 
     /*
@@ -1825,7 +1857,7 @@ public class CM {
      * Writes the portal state to a savegame file ===================
      */
 
-    public static void CM_WritePortalState(RandomAccessFile os) {
+    public static void CM_WritePortalState(QuakeFile os) {
 
         //was: fwrite(portalopen, sizeof(portalopen), 1, f);
         try {
@@ -1847,20 +1879,11 @@ public class CM {
      * Reads the portal state from a savegame file and recalculates the area
      * connections ===================
      */
-    public static void CM_ReadPortalState(RandomAccessFile f) {
+    public static void CM_ReadPortalState(QuakeFile f) throws IOException {
 
         //was: FS_Read(portalopen, sizeof(portalopen), f);
-        int len = portalopen.length * 4;
-
-        byte buf[] = new byte[len];
-
-        FS.Read(buf, len, f);
-
-        ByteBuffer bb = ByteBuffer.wrap(buf);
-        IntBuffer ib = bb.asIntBuffer();
-
         for (int n = 0; n < portalopen.length; n++)
-            portalopen[n] = ib.get() != 0;
+            portalopen[n] = f.readInt() != 0;
 
         FloodAreaConnections();
     }
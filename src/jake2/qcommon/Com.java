@@ -113,6 +113,14 @@ public final class Com
 			else length = 0;
 		}
 
+		/** Reuses this helper for in[offset..length). */
+		public void init(char in[], int offset, int length)
+		{
+			data= in;
+			index= offset;
+			this.length= length;
+		}
+
 		public char getchar()
 		{
 		    if (index < length) {
@@ -178,11 +186,20 @@ public final class Com
 
   // See GameSpanw.ED_ParseEdict() to see how to use it now.
   public static String Parse(ParseHelp hlp) {
+    int len = ParseChars(hlp);
+    return len == 0 ? "" : new String(com_token, 0, len);
+  }
+
+  /**
+   * Parses like Parse, but leaves the token in com_token and returns its
+   * length instead of creating a String.
+   */
+  public static int ParseChars(ParseHelp hlp) {
     int c;
     int len = 0;
 
     if (hlp.data == null) {
-      return "";
+      return 0;
     }
 
 		while (true) {
@@ -190,7 +207,7 @@ public final class Com
 			hlp.skipwhites();
 			if (hlp.isEof()) {
 			    hlp.data = null;
-			    return "";
+			    return 0;
 			}
 
 			//	   skip // comments
@@ -214,7 +231,7 @@ public final class Com
 				c = hlp.getchar();
 				hlp.nextchar();
 				if (c == '\"' || c == 0) {
-					return new String(com_token, 0, len);
+					return len;
 				}
 				if (len < Defines.MAX_TOKEN_CHARS) {
 					com_token[len] = (char) c;
@@ -238,7 +255,7 @@ public final class Com
 			len = 0;
 		}
 
-    return new String(com_token, 0, len);
+    return len;
   }
 
 	public static xcommand_t Error_f= new xcommand_t()
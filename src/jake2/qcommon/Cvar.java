@@ -30,6 +30,7 @@ import jake2.util.Lib;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.HashMap;
 import java.util.Vector;
 
 /**
@@ -37,6 +38,9 @@ import java.util.Vector;
  */
 public class Cvar extends Globals {
 
+    /** Globals.cvar_vars by name. */
+    private static final HashMap<String, cvar_t> vars = new HashMap<String, cvar_t>();
+
     /**
      * @param var_name
      * @param var_value
@@ -81,6 +85,7 @@ public class Cvar extends Globals {
         // link the variable in
         var.next = Globals.cvar_vars;
         Globals.cvar_vars = var;
+        vars.put(var.name, var);
 
         var.flags = flags;
 
@@ -99,14 +104,7 @@ public class Cvar extends Globals {
     }
 
     static cvar_t FindVar(String var_name) {
-        cvar_t var;
-
-        for (var = Globals.cvar_vars; var != null; var = var.next) {
-            if (var_name.equals(var.name))
-                return var;
-        }
-
-        return null;
+        return vars.get(var_name);
     }
 
     /**
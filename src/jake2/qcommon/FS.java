@@ -26,11 +26,11 @@ package jake2.qcommon;
 import jake2.game.Cmd;
 import jake2.game.cvar_t;
 import jake2.sys.Sys;
+import jake2.sys.Timer;
 
 import java.io.*;
 import java.nio.ByteBuffer;
-//import java.nio.ByteOrder;
-//import java.nio.channels.FileChannel;
+import java.nio.ByteOrder;
 import java.util.*;
 
 /**
@@ -65,15 +65,24 @@ public final class FS extends Globals {
     public static class pack_t {
         String filename;
 
-        RandomAccessFile handle;
-        
-        ByteBuffer backbuffer;
+        ByteBuffer backbuffer; // the whole file, mapped read only
 
         int numfiles;
 
-//        Hashtable files; // with packfile_t entries
+        HashMap<String, packfile_t> files; // by lower case name
     }
 
+    /**
+     * Maps a whole file read only into memory. Hosts that can map files
+     * install one before Qcommon.Init; without it (as in the browser) pak
+     * files are not searched.
+     */
+    public interface Mapper {
+        ByteBuffer map(String filename) throws IOException;
+    }
+
+    public static Mapper mapper;
+
     public static String fs_gamedir;
 
     private static String fs_userdir;
@@ -134,6 +143,9 @@ public final class FS extends Globals {
      * Creates any directories needed to store the given filename.
      */
     public static void CreatePath(String path) {
+        // a file is about to be written
+        FlushCache();
+
         int index = path.lastIndexOf('/');
         // -1 if not found and 0 means write to root
         if (index > 0) {
@@ -158,68 +170,198 @@ public final class FS extends Globals {
         stream.close();
     }
 
-    public static int FileLength(String filename) {
+    /*
+     * Resolution cache
+     * 
+     * Remembers where a file name was found in the search path, and that it
+     * wasn't found at all, so that repeated lookups don't touch the disk.
+     * The cache is flushed when the search path or the links change and
+     * when a path is created for writing. With fs_watch set, the files and
+     * directories seen are polled every fs_watch seconds and the cache is
+     * flushed when any of them changed.
+     */
+    static class resolved_t {
+        pack_t pack; // the pak file holding it, or null
+
+        String netpath; // the file in the directory tree, or null
+
+        int length = -1; // -1 if it wasn't found
+    }
+
+    static HashMap<String, resolved_t> fs_resolved = new HashMap<String, resolved_t>();
+
+    // paths seen with fs_watch set, with their modification times
+    static HashMap<String, Long> fs_watched = new HashMap<String, Long>();
+
+    static int fs_lastpoll;
+
+    /** Incremented on every flush, for caches built on top of FS. */
+    public static int fs_generation;
+
+    // lookups answered from the cache and files probed on disk, for Path_f
+    static int fs_hits;
+
+    static int fs_probes;
+
+    public static cvar_t fs_cache;
+
+    public static cvar_t fs_watch;
+
+    /*
+     * FlushCache
+     * 
+     * Forgets all resolved file names.
+     */
+    public static void FlushCache() {
+        fs_resolved.clear();
+        fs_watched.clear();
+        fs_generation++;
+    }
+
+    /*
+     * Resolve
+     * 
+     * Finds the file in the search path, from the cache if possible.
+     */
+    static resolved_t Resolve(String filename) {
+        resolved_t resolved;
         searchpath_t search;
         String netpath;
-        pack_t pak;
-        int i;
         filelink_t link;
+        File file;
+
+        boolean caching = fs_cache == null || fs_cache.value != 0;
+        boolean watching = fs_watch != null && fs_watch.value > 0;
+        if (caching) {
+            if (watching)
+                PollWatched();
+
+            resolved = fs_resolved.get(filename);
+            if (resolved != null) {
+                fs_hits++;
+                return resolved;
+            }
+        }
 
-        file_from_pak = 0;
+        resolved = new resolved_t();
 
         // check for links first
         for (Iterator it = fs_links.iterator(); it.hasNext();) {
             link = (filelink_t) it.next();
 
+            //			if (!strncmp (filename, link->from, link->fromlength))
             if (filename.regionMatches(0, link.from, 0, link.fromlength)) {
                 netpath = link.to + filename.substring(link.fromlength);
-                File file = new File(netpath);
+                file = Probe(netpath, watching);
                 if (file.canRead()) {
-                    Com.DPrintf("link file: " + netpath + '\n');
-                    return (int) file.length();
+                    resolved.netpath = netpath;
+                    resolved.length = (int) file.length();
                 }
-                return -1;
+                if (caching)
+                    fs_resolved.put(filename, resolved);
+                return resolved;
             }
         }
 
+        //
         // search through the path, one element at a time
-
+        //
         for (search = fs_searchpaths; search != null; search = search.next) {
-//            // is the element a pak file?
-//            if (search.pack != null) {
-//                // look through all the pak file elements
-//                pak = search.pack;
-//                filename = filename.toLowerCase();
-//                packfile_t entry = (packfile_t) pak.files.get(filename);
-//
-//                if (entry != null) {
-//                    // found it!
-//                    file_from_pak = 1;
-//                    Com.DPrintf("PackFile: " + pak.filename + " : " + filename
-//                            + '\n');
-//                    // open a new file on the pakfile
-//                    File file = new File(pak.filename);
-//                    if (!file.canRead()) {
-//                        Com.Error(Defines.ERR_FATAL, "Couldn't reopen "
-//                                + pak.filename);
-//                    }
-//                    return entry.filelen;
-//                }
-//            } else {
+            // is the element a pak file?
+            if (search.pack != null) {
+                // look through all the pak file elements
+                packfile_t entry = search.pack.files.get(filename.toLowerCase());
+
+                if (entry != null) {
+                    // found it!
+                    resolved.pack = search.pack;
+                    resolved.length = entry.filelen;
+                    break;
+                }
+            } else {
                 // check a file in the directory tree
                 netpath = search.filename + '/' + filename;
 
-                File file = new File(netpath);
+                file = Probe(netpath, watching);
                 if (!file.canRead())
                     continue;
 
-                Com.DPrintf("FindFile: " + netpath + '\n');
+                resolved.netpath = netpath;
+                resolved.length = (int) file.length();
+                break;
+            }
+        }
+
+        if (caching)
+            fs_resolved.put(filename, resolved);
+        return resolved;
+    }
 
-                return (int) file.length();
-//            }
+    /*
+     * Probe
+     * 
+     * Returns the file for a path that is about to be checked. When watching,
+     * remembers the modification times of the file and of its directory, so
+     * that PollWatched notices when the file is added, removed or changed.
+     */
+    private static File Probe(String netpath, boolean watching) {
+        File file = new File(netpath);
+        fs_probes++;
+
+        if (watching) {
+            if (!fs_watched.containsKey(netpath))
+                fs_watched.put(netpath, Long.valueOf(file.lastModified()));
+
+            int index = netpath.lastIndexOf('/');
+            if (index > 0) {
+                String dir = netpath.substring(0, index);
+                if (!fs_watched.containsKey(dir))
+                    fs_watched.put(dir, Long.valueOf(new File(dir).lastModified()));
+            }
+        }
+        return file;
+    }
+
+    /*
+     * PollWatched
+     * 
+     * Flushes the cache if anything seen by Resolve changed on disk. Runs at
+     * most every fs_watch seconds.
+     */
+    private static void PollWatched() {
+        int now = Timer.Milliseconds();
+        if (now - fs_lastpoll < fs_watch.value * 1000)
+            return;
+        fs_lastpoll = now;
+
+        for (Iterator<Map.Entry<String, Long>> it = fs_watched.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Long> watched = it.next();
+            File file = new File(watched.getKey());
+            if (file.lastModified() != watched.getValue().longValue()) {
+                Com.DPrintf("FS: " + watched.getKey() + " changed\n");
+                FlushCache();
+                return;
+            }
+        }
+    }
+
+    public static int FileLength(String filename) {
+        resolved_t resolved = Resolve(filename);
+
+        file_from_pak = resolved.pack != null ? 1 : 0;
+
+        if (resolved.length < 0) {
+            Com.DPrintf("FindFile: can't find " + filename + '\n');
+            return -1;
         }
-        Com.DPrintf("FindFile: can't find " + filename + '\n');
-        return -1;
+
+        if (resolved.pack != null)
+            Com.DPrintf("PackFile: " + resolved.pack.filename + " : " + filename
+                    + '\n');
+        else
+            Com.DPrintf("FindFile: " + resolved.netpath + '\n');
+
+        return resolved.length;
     }
 
     public static int file_from_pak = 0;
@@ -232,77 +374,23 @@ public final class FS extends Globals {
      */
     public static RandomAccessFile FOpenFile(String filename)
             throws IOException {
-        searchpath_t search;
-        String netpath;
-        pack_t pak;
-        int i;
-        filelink_t link;
-        File file = null;
-
-        file_from_pak = 0;
+        resolved_t resolved = Resolve(filename);
 
-        // check for links first
-        for (Iterator it = fs_links.iterator(); it.hasNext();) {
-            link = (filelink_t) it.next();
-
-            //			if (!strncmp (filename, link->from, link->fromlength))
-            if (filename.regionMatches(0, link.from, 0, link.fromlength)) {
-                netpath = link.to + filename.substring(link.fromlength);
-                file = new File(netpath);
-                if (file.canRead()) {
-                    //Com.DPrintf ("link file: " + netpath +'\n');
-                    return new RandomAccessFile(file, "r");
-                }
-                return null;
-            }
-        }
+        file_from_pak = resolved.pack != null ? 1 : 0;
 
-        //
-        // search through the path, one element at a time
-        //
-        for (search = fs_searchpaths; search != null; search = search.next) {
-//            // is the element a pak file?
-//            if (search.pack != null) {
-//                // look through all the pak file elements
-//                pak = search.pack;
-//                filename = filename.toLowerCase();
-//                packfile_t entry = (packfile_t) pak.files.get(filename);
-//
-//                if (entry != null) {
-//                    // found it!
-//                    file_from_pak = 1;
-//                    //Com.DPrintf ("PackFile: " + pak.filename + " : " +
-//                    // filename + '\n');
-//                    file = new File(pak.filename);
-//                    if (!file.canRead())
-//                        Com.Error(Defines.ERR_FATAL, "Couldn't reopen "
-//                                + pak.filename);
-//                    if (pak.handle == null || !pak.handle.getFD().valid()) {
-//                        // hold the pakfile handle open
-//                        pak.handle = new RandomAccessFile(pak.filename, "r");
-//                    }
-//                    // open a new file on the pakfile
-//
-//                    RandomAccessFile raf = new RandomAccessFile(file, "r");
-//                    raf.seek(entry.filepos);
-//
-//                    return raf;
-//                }
-//            } else {
-                // check a file in the directory tree
-                netpath = search.filename + '/' + filename;
-
-                file = new File(netpath);
-                if (!file.canRead())
-                    continue;
+        if (resolved.length < 0)
+            return null;
 
-                //Com.DPrintf("FindFile: " + netpath +'\n');
+        if (resolved.pack != null) {
+            // open a new file on the pakfile
+            packfile_t entry = resolved.pack.files.get(filename.toLowerCase());
+            RandomAccessFile raf = new RandomAccessFile(resolved.pack.filename, "r");
+            raf.seek(entry.filepos);
 
-                return new RandomAccessFile(file, "r");
-//            }
+            return raf;
         }
-        //Com.DPrintf ("FindFile: can't find " + filename + '\n');
-        return null;
+
+        return new RandomAccessFile(resolved.netpath, "r");
     }
 
     // read in blocks of 64k
@@ -351,142 +439,78 @@ public final class FS extends Globals {
      * return the file content as byte[]
      */
     public static byte[] LoadFile(String path) {
-        RandomAccessFile file;
+        ByteBuffer data = LoadMappedFile(path);
 
-        byte[] buf = null;
-        int len = 0;
+        if (data == null || data.remaining() < 1)
+            return null;
 
+        if (data.hasArray() && data.arrayOffset() == 0
+                && data.array().length == data.remaining())
+            return data.array();
+
+        // copy it out of the pak file
+        byte[] buf = new byte[data.remaining()];
+        data.get(buf);
+        return buf;
+    }
+
+    /*
+     * LoadMappedFile
+     * 
+     * Filename are reletive to the quake search path. Returns a slice of the
+     * mapped pak file if the file is in a pak, else the file content, or null
+     * if it can't be found.
+     */
+    public static ByteBuffer LoadMappedFile(String filename) {
         // TODO hack for bad strings (fuck \0)
-        int index = path.indexOf('\0');
+        int index = filename.indexOf('\0');
         if (index != -1)
-            path = path.substring(0, index);
+            filename = filename.substring(0, index);
+
+        resolved_t resolved = Resolve(filename);
+
+        file_from_pak = resolved.pack != null ? 1 : 0;
+
+        if (resolved.length < 0)
+            return null;
+
+        if (resolved.pack != null)
+            return LoadPackedFile(resolved.pack, filename);
 
-        // look for it in the filesystem or pack files
-        len = FileLength(path);
+        return ReadFile(new File(resolved.netpath));
+    }
+
+    /*
+     * LoadPackedFile
+     * 
+     * Returns a slice of the mapped pak file, or null if the pak doesn't
+     * contain the file.
+     */
+    public static ByteBuffer LoadPackedFile(pack_t pak, String filename) {
+        packfile_t entry = pak.files.get(filename.toLowerCase());
 
-        if (len < 1)
+        if (entry == null)
             return null;
 
+        ByteBuffer data = pak.backbuffer.duplicate();
+        data.limit(entry.filepos + entry.filelen);
+        data.position(entry.filepos);
+        return data.slice();
+    }
+
+    private static ByteBuffer ReadFile(File file) {
+        byte[] buf = null;
+
         try {
-            file = FOpenFile(path);
-            //Read(buf = new byte[len], len, h);
-            buf = new byte[len];
-            file.readFully(buf);
-            file.close();
+            RandomAccessFile f = new RandomAccessFile(file, "r");
+            buf = new byte[(int) f.length()];
+            f.readFully(buf);
+            f.close();
         } catch (IOException e) {
             Com.Error(Defines.ERR_FATAL, e.toString());
         }
-        return buf;
+        return ByteBuffer.wrap(buf);
     }
-//
-//    /*
-//     * LoadMappedFile
-//     * 
-//     * Filename are reletive to the quake search path a null buffer will just
-//     * return the file content as ByteBuffer (memory mapped)
-//     */
-//    public static ByteBuffer LoadMappedFile(String filename) {
-//        searchpath_t search;
-//        String netpath;
-//        pack_t pak;
-//        int i;
-//        filelink_t link;
-//        File file = null;
-//
-//        int fileLength = 0;
-//        FileChannel channel = null;
-//        FileInputStream input = null;
-//        ByteBuffer buffer = null;
-//
-//        file_from_pak = 0;
-//
-//        try {
-//            // check for links first
-//            for (Iterator it = fs_links.iterator(); it.hasNext();) {
-//                link = (filelink_t) it.next();
-//
-//                if (filename.regionMatches(0, link.from, 0, link.fromlength)) {
-//                    netpath = link.to + filename.substring(link.fromlength);
-//                    file = new File(netpath);
-//                    if (file.canRead()) {
-//                        input = new FileInputStream(file);
-//                        channel = input.getChannel();
-//                        fileLength = (int) channel.size();
-//                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
-//                                fileLength);
-//                        input.close();
-//                        return buffer;
-//                    }
-//                    return null;
-//                }
-//            }
-//
-//            //
-//            // search through the path, one element at a time
-//            //
-//            for (search = fs_searchpaths; search != null; search = search.next) {
-//                // is the element a pak file?
-//                if (search.pack != null) {
-//                    // look through all the pak file elements
-//                    pak = search.pack;
-//                    filename = filename.toLowerCase();
-//                    packfile_t entry = (packfile_t) pak.files.get(filename);
-//
-//                    if (entry != null) {
-//                        // found it!
-//                        file_from_pak = 1;
-//                        //Com.DPrintf ("PackFile: " + pak.filename + " : " +
-//                        // filename + '\n');
-//                        file = new File(pak.filename);
-//                        if (!file.canRead())
-//                            Com.Error(Defines.ERR_FATAL, "Couldn't reopen "
-//                                    + pak.filename);
-//                        if (pak.handle == null || !pak.handle.getFD().valid()) {
-//                            // hold the pakfile handle open
-//                            pak.handle = new RandomAccessFile(pak.filename, "r");
-//                        }
-//                        // open a new file on the pakfile
-//                        if (pak.backbuffer == null) {
-//                            channel = pak.handle.getChannel();
-//                            pak.backbuffer = channel.map(
-//                                    FileChannel.MapMode.READ_ONLY, 0,
-//                                    pak.handle.length());
-//                            channel.close();
-//                        }
-//                        pak.backbuffer.position(entry.filepos);
-//                        buffer = pak.backbuffer.slice();
-//                        buffer.limit(entry.filelen);
-//                        return buffer;
-//                    }
-//                } else {
-//                    // check a file in the directory tree
-//                    netpath = search.filename + '/' + filename;
-//
-//                    file = new File(netpath);
-//                    if (!file.canRead())
-//                        continue;
-//
-//                    //Com.DPrintf("FindFile: " + netpath +'\n');
-//                    input = new FileInputStream(file);
-//                    channel = input.getChannel();
-//                    fileLength = (int) channel.size();
-//                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
-//                            fileLength);
-//                    input.close();
-//                    return buffer;
-//                }
-//            }
-//        } catch (Exception e) {
-//        }
-//        try {
-//            if (input != null)
-//                input.close();
-//            else if (channel != null && channel.isOpen())
-//                channel.close();
-//        } catch (IOException ioe) {
-//        }
-//        return null;
-//    }
 
     /*
      * FreeFile
@@ -505,87 +529,106 @@ public final class FS extends Globals {
         int dirlen;
     }
 
-    static final int MAX_FILES_IN_PACK = 4096;
-
     // buffer for C-Strings char[56]
     static byte[] tmpText = new byte[packfile_t.NAME_SIZE];
 
-//    /*
-//     * LoadPackFile
-//     * 
-//     * Takes an explicit (not game tree related) path to a pak file.
-//     * 
-//     * Loads the header and directory, adding the files at the beginning of the
-//     * list so they override previous pack files.
-//     */
-//    static pack_t LoadPackFile(String packfile) {
-//
-//        dpackheader_t header;
-//        Hashtable newfiles;
-//        RandomAccessFile file;
-//        int numpackfiles = 0;
-//        pack_t pack = null;
-//        //		unsigned checksum;
-//        //
-//        try {
-//        	file = new RandomAccessFile(packfile, "r");
-//        	FileChannel fc = file.getChannel();
-//            ByteBuffer packhandle = fc.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
-//            packhandle.order(ByteOrder.LITTLE_ENDIAN);
-// 
-//            fc.close();
-//            
-//            if (packhandle == null || packhandle.limit() < 1)
-//                return null;
-//            //
-//            header = new dpackheader_t();
-//            header.ident = packhandle.getInt();
-//            header.dirofs = packhandle.getInt();
-//            header.dirlen = packhandle.getInt();
-//
-//            if (header.ident != IDPAKHEADER)
-//                Com.Error(Defines.ERR_FATAL, packfile + " is not a packfile");
-//
-//            numpackfiles = header.dirlen / packfile_t.SIZE;
-//
-//            if (numpackfiles > MAX_FILES_IN_PACK)
-//                Com.Error(Defines.ERR_FATAL, packfile + " has " + numpackfiles
-//                        + " files");
-//
-//            newfiles = new Hashtable(numpackfiles);
-//
-//            packhandle.position(header.dirofs);
-//
-//            // parse the directory
-//            packfile_t entry = null;
-//
-//            for (int i = 0; i < numpackfiles; i++) {
-//                packhandle.get(tmpText);
-//
-//                entry = new packfile_t();
-//                entry.name = new String(tmpText).trim();
-//                entry.filepos = packhandle.getInt();
-//                entry.filelen = packhandle.getInt();
-//
-//                newfiles.put(entry.name.toLowerCase(), entry);
-//            }
-//
-//        } catch (IOException e) {
-//            Com.DPrintf(e.getMessage() + '\n');
-//            return null;
-//        }
-//
-//        pack = new pack_t();
-//        pack.filename = new String(packfile);
-//        pack.handle = file;
-//        pack.numfiles = numpackfiles;
-//        pack.files = newfiles;
-//
-//        Com.Printf("Added packfile " + packfile + " (" + numpackfiles
-//                + " files)\n");
-//
-//        return pack;
-//    }
+    /*
+     * LoadPackFile
+     * 
+     * Takes an explicit (not game tree related) path to a pak file.
+     * 
+     * Maps the file and indexes its directory by name. Files are served as
+     * slices of the mapping, so the contents are never copied.
+     */
+    static pack_t LoadPackFile(String packfile) {
+        dpackheader_t header;
+        HashMap<String, packfile_t> newfiles;
+        ByteBuffer packhandle;
+        int numpackfiles;
+        pack_t pack;
+
+        try {
+            packhandle = mapper.map(packfile);
+        } catch (IOException e) {
+            Com.DPrintf(e.getMessage() + '\n');
+            return null;
+        }
+        packhandle.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (packhandle.limit() < 12)
+            return null;
+
+        header = new dpackheader_t();
+        header.ident = packhandle.getInt(0);
+        header.dirofs = packhandle.getInt(4);
+        header.dirlen = packhandle.getInt(8);
+
+        if (header.ident != IDPAKHEADER)
+            Com.Error(Defines.ERR_FATAL, packfile + " is not a packfile");
+
+        numpackfiles = header.dirlen / packfile_t.SIZE;
+
+        if (header.dirofs < 0 || numpackfiles < 0
+                || numpackfiles * packfile_t.SIZE > packhandle.limit() - header.dirofs)
+            Com.Error(Defines.ERR_FATAL, packfile + " has a bad directory");
+
+        newfiles = new HashMap<String, packfile_t>(numpackfiles * 2);
+
+        // parse the directory
+        for (int i = 0; i < numpackfiles; i++) {
+            int pos = header.dirofs + i * packfile_t.SIZE;
+            int len = 0;
+            while (len < packfile_t.NAME_SIZE && packhandle.get(pos + len) != 0) {
+                tmpText[len] = packhandle.get(pos + len);
+                len++;
+            }
+
+            packfile_t entry = new packfile_t();
+            entry.name = Compatibility.newString(tmpText, 0, len);
+            entry.filepos = packhandle.getInt(pos + packfile_t.NAME_SIZE);
+            entry.filelen = packhandle.getInt(pos + packfile_t.NAME_SIZE + 4);
+
+            if (entry.filepos < 0 || entry.filelen < 0
+                    || entry.filelen > packhandle.limit() - entry.filepos)
+                Com.Error(Defines.ERR_FATAL, packfile + " has a bad entry " + entry);
+
+            newfiles.put(entry.name.toLowerCase(), entry);
+        }
+
+        pack = new pack_t();
+        pack.filename = packfile;
+        pack.backbuffer = packhandle;
+        pack.numfiles = numpackfiles;
+        pack.files = newfiles;
+
+        Com.Printf("Added packfile " + packfile + " (" + numpackfiles
+                + " files)\n");
+
+        return pack;
+    }
+
+    /*
+     * LoadPackFiles
+     * 
+     * Loads the pak files in the format pak0.pak pak1.pak, ... from an
+     * explicit directory, last one first. Empty if the host can't map files.
+     */
+    public static pack_t[] LoadPackFiles(String dir) {
+        ArrayList<pack_t> packs = new ArrayList<pack_t>();
+
+        if (mapper != null) {
+            for (int i = 9; i >= 0; i--) {
+                String pakfile = dir + "/pak" + i + ".pak";
+                if (!(new File(pakfile).canRead()))
+                    continue;
+
+                pack_t pak = LoadPackFile(pakfile);
+                if (pak != null)
+                    packs.add(pak);
+            }
+        }
+        return packs.toArray(new pack_t[packs.size()]);
+    }
 
     /*
      * AddGameDirectory
@@ -594,12 +637,11 @@ public final class FS extends Globals {
      * and adds pak1.pak pak2.pak ...
      */
     static void AddGameDirectory(String dir) {
-        int i;
         searchpath_t search;
-        pack_t pak;
-        String pakfile;
+        pack_t[] packs;
 
         fs_gamedir = new String(dir);
+        FlushCache();
 
         //
         // add the directory to the search path
@@ -613,24 +655,18 @@ public final class FS extends Globals {
             fs_searchpaths = search;
         }
 
-//        //
-//        // add any pak files in the format pak0.pak pak1.pak, ...
-//        //
-//        for (i = 0; i < 10; i++) {
-//            pakfile = dir + "/pak" + i + ".pak";
-//            if (!(new File(pakfile).canRead()))
-//                continue;
-//
-//            pak = LoadPackFile(pakfile);
-//            if (pak == null)
-//                continue;
-//
-//            search = new searchpath_t();
-//            search.pack = pak;
-//            search.filename = "";
-//            search.next = fs_searchpaths;
-//            fs_searchpaths = search;
-//        }
+        //
+        // add any pak files in the format pak0.pak pak1.pak, ...
+        // behind fs_userdir, in front of the directory and earlier paks
+        //
+        packs = LoadPackFiles(dir);
+        for (int i = packs.length - 1; i >= 0; i--) {
+            search = new searchpath_t();
+            search.pack = packs[i];
+            search.filename = "";
+            search.next = fs_searchpaths.next;
+            fs_searchpaths.next = search;
+        }
     }
 
     /*
@@ -693,14 +729,8 @@ public final class FS extends Globals {
         //
         while (fs_searchpaths != fs_base_searchpaths) {
             if (fs_searchpaths.pack != null) {
-                try {
-                    fs_searchpaths.pack.handle.close();
-                } catch (IOException e) {
-                    Com.DPrintf(e.getMessage() + '\n');
-                }
-//                // clear the hashtable
-//                fs_searchpaths.pack.files.clear();
-//                fs_searchpaths.pack.files = null;
+                // the mapping goes away with the last slice
+                fs_searchpaths.pack.files = null;
                 fs_searchpaths.pack = null;
             }
             next = fs_searchpaths.next;
@@ -711,6 +741,7 @@ public final class FS extends Globals {
         //
         // flush all data, so it will be forced to reload
         //
+        FlushCache();
         if ((Globals.dedicated != null) && (Globals.dedicated.value == 0.0f))
             Cbuf.AddText("vid_restart\nsnd_restart\n");
 
@@ -741,6 +772,8 @@ public final class FS extends Globals {
             return;
         }
 
+        FlushCache();
+
         // see if the link already exists
         for (Iterator it = fs_links.iterator(); it.hasNext();) {
             entry = (filelink_t) it.next();
@@ -850,6 +883,9 @@ public final class FS extends Globals {
             link = (filelink_t) it.next();
             Com.Printf(link.from + " : " + link.to + '\n');
         }
+
+        Com.Printf("\n" + fs_resolved.size() + " names cached, " + fs_hits
+                + " lookups from the cache, " + fs_probes + " files probed\n");
     }
 
     /*
@@ -898,6 +934,13 @@ public final class FS extends Globals {
             }
         });
 
+        //
+        // fs_cache 0 looks up every file on disk again
+        // fs_watch <seconds> polls the files seen for changes
+        //
+        fs_cache = Cvar.Get("fs_cache", "1", 0);
+        fs_watch = Cvar.Get("fs_watch", "0", 0);
+
         fs_userdir = System.getProperty("user.home") + "/.jake2";
         FS.CreatePath(fs_userdir + "/");
         FS.AddGameDirectory(fs_userdir);
@@ -55,6 +55,8 @@ public class Globals extends Defines {
 
 	public static int alias_count;
 	public static int c_traces;
+	// like c_traces but never zeroed by showtrace, for the frame profiler
+	public static int c_traces_total;
 	public static int c_brush_traces;
 	public static int c_pointcontents;
 	public static int server_state;
@@ -52,9 +52,8 @@ public class PMove {
         public boolean ladder;
     }
 
-    public static pmove_t pm;
-
-    public static pml_t pml = new pml_t();
+    /** Context of Pmove(pmove_t). */
+    private static final PmoveContext context = new PmoveContext();
 
     // movement parameters
     public static float pm_stopspeed = 100;
@@ -100,18 +99,19 @@ public class PMove {
         }
     }
 
-    static float[] planes[] = new float[SV.MAX_CLIP_PLANES][3];
-    
-    public static void PM_StepSlideMove_() {
+    public static void PM_StepSlideMove_(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         int bumpcount, numbumps;
-        float[] dir = { 0, 0, 0 };
+        float[] dir = c.dir;
         float d;
         int numplanes;
+        float[] planes[] = c.planes;
         
-        float[] primal_velocity = { 0, 0, 0 };
+        float[] primal_velocity = c.primal_velocity;
         int i, j;
         trace_t trace;
-        float[] end = { 0, 0, 0 };
+        float[] end = c.slide_end;
         float time_left;
 
         numbumps = 4;
@@ -208,18 +208,20 @@ public class PMove {
      * Returns a new origin, velocity, and contact entity.
      * Does not modify any world state?
      */
-    public static void PM_StepSlideMove() {
-        float[] start_o = { 0, 0, 0 }, start_v = { 0, 0, 0 };
-        float[] down_o = { 0, 0, 0 }, down_v = { 0, 0, 0 };
+    public static void PM_StepSlideMove(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        float[] start_o = c.start_o, start_v = c.start_v;
+        float[] down_o = c.down_o, down_v = c.down_v;
         trace_t trace;
         float down_dist, up_dist;
         //	float [] delta;
-        float[] up = { 0, 0, 0 }, down = { 0, 0, 0 };
+        float[] up = c.up, down = c.down;
 
         Math3D.VectorCopy(pml.origin, start_o);
         Math3D.VectorCopy(pml.velocity, start_v);
 
-        PM_StepSlideMove_();
+        PM_StepSlideMove_(c);
 
         Math3D.VectorCopy(pml.origin, down_o);
         Math3D.VectorCopy(pml.velocity, down_v);
@@ -235,7 +237,7 @@ public class PMove {
         Math3D.VectorCopy(up, pml.origin);
         Math3D.VectorCopy(start_v, pml.velocity);
 
-        PM_StepSlideMove_();
+        PM_StepSlideMove_(c);
 
         // push down the final amount
         Math3D.VectorCopy(pml.origin, down);
@@ -267,7 +269,9 @@ public class PMove {
     /**
      * Handles both ground friction and water friction.
      */
-    public static void PM_Friction() {
+    public static void PM_Friction(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         float vel[];
         float speed, newspeed, control;
         float friction;
@@ -313,8 +317,9 @@ public class PMove {
     /**
      * Handles user intended acceleration.
      */
-    public static void PM_Accelerate(float[] wishdir, float wishspeed,
+    public static void PM_Accelerate(PmoveContext c, float[] wishdir, float wishspeed,
             float accel) {
+        pml_t pml = c.pml;
         int i;
         float addspeed, accelspeed, currentspeed;
 
@@ -334,8 +339,9 @@ public class PMove {
      * PM_AirAccelerate.
      */
 
-    public static void PM_AirAccelerate(float[] wishdir, float wishspeed,
+    public static void PM_AirAccelerate(PmoveContext c, float[] wishdir, float wishspeed,
             float accel) {
+        pml_t pml = c.pml;
         int i;
         float addspeed, accelspeed, currentspeed, wishspd = wishspeed;
 
@@ -356,8 +362,10 @@ public class PMove {
     /**
      * PM_AddCurrents.
      */
-    public static void PM_AddCurrents(float[] wishvel) {
-        float[] v = { 0, 0, 0 };
+    public static void PM_AddCurrents(PmoveContext c, float[] wishvel) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        float[] v = c.currents;
         float s;
 
         // account for ladders
@@ -435,11 +443,13 @@ public class PMove {
     /**
      * PM_WaterMove.
      */
-    public static void PM_WaterMove() {
+    public static void PM_WaterMove(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         int i;
-        float[] wishvel = { 0, 0, 0 };
+        float[] wishvel = c.wishvel;
         float wishspeed;
-        float[] wishdir = { 0, 0, 0 };
+        float[] wishdir = c.wishdir;
 
       
         // user intentions
@@ -453,7 +463,7 @@ public class PMove {
         else
             wishvel[2] += pm.cmd.upmove;
 
-        PM_AddCurrents(wishvel);
+        PM_AddCurrents(c, wishvel);
 
         Math3D.VectorCopy(wishvel, wishdir);
         wishspeed = Math3D.VectorNormalize(wishdir);
@@ -464,18 +474,20 @@ public class PMove {
         }
         wishspeed *= 0.5;
 
-        PM_Accelerate(wishdir, wishspeed, pm_wateraccelerate);
+        PM_Accelerate(c, wishdir, wishspeed, pm_wateraccelerate);
 
-        PM_StepSlideMove();
+        PM_StepSlideMove(c);
     }
 
     /**
      * PM_AirMove.
      */
-    public static void PM_AirMove() {
-        float[] wishvel = { 0, 0, 0 };
+    public static void PM_AirMove(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        float[] wishvel = c.wishvel;
         float fmove, smove;
-        float[] wishdir = { 0, 0, 0 };
+        float[] wishdir = c.wishdir;
         float wishspeed;
         float maxspeed;
 
@@ -487,7 +499,7 @@ public class PMove {
         
         wishvel[2] = 0;
 
-        PM_AddCurrents(wishvel);
+        PM_AddCurrents(c, wishvel);
 
         Math3D.VectorCopy(wishvel, wishdir);
         wishspeed = Math3D.VectorNormalize(wishdir);
@@ -503,7 +515,7 @@ public class PMove {
         }
 
         if (pml.ladder) {
-            PM_Accelerate(wishdir, wishspeed, pm_accelerate);
+            PM_Accelerate(c, wishdir, wishspeed, pm_accelerate);
             if (0 == wishvel[2]) {
                 if (pml.velocity[2] > 0) {
                     pml.velocity[2] -= pm.s.gravity * pml.frametime;
@@ -515,10 +527,10 @@ public class PMove {
                         pml.velocity[2] = 0;
                 }
             }
-            PM_StepSlideMove();
+            PM_StepSlideMove(c);
         } else if (pm.groundentity != null) { // walking on ground
             pml.velocity[2] = 0; //!!! this is before the accel
-            PM_Accelerate(wishdir, wishspeed, pm_accelerate);
+            PM_Accelerate(c, wishdir, wishspeed, pm_accelerate);
 
             // PGM -- fix for negative trigger_gravity fields
             //		pml.velocity[2] = 0;
@@ -529,23 +541,25 @@ public class PMove {
             // PGM
             if (0 == pml.velocity[0] && 0 == pml.velocity[1])
                 return;
-            PM_StepSlideMove();
+            PM_StepSlideMove(c);
         } else { // not on ground, so little effect on velocity
             if (pm_airaccelerate != 0)
-                PM_AirAccelerate(wishdir, wishspeed, pm_accelerate);
+                PM_AirAccelerate(c, wishdir, wishspeed, pm_accelerate);
             else
-                PM_Accelerate(wishdir, wishspeed, 1);
+                PM_Accelerate(c, wishdir, wishspeed, 1);
             // add gravity
             pml.velocity[2] -= pm.s.gravity * pml.frametime;
-            PM_StepSlideMove();
+            PM_StepSlideMove(c);
         }
     }
 
     /** 
      * PM_CatagorizePosition.
      */
-    public static void PM_CatagorizePosition() {
-        float[] point = { 0, 0, 0 };
+    public static void PM_CatagorizePosition(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        float[] point = c.point;
         int cont;
         trace_t trace;
         int sample1;
@@ -635,7 +649,9 @@ public class PMove {
     /**
      * PM_CheckJump.
      */
-    public static void PM_CheckJump() {
+    public static void PM_CheckJump(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         if ((pm.s.pm_flags & pmove_t.PMF_TIME_LAND) != 0) {
             // hasn't been long enough since landing to jump again
             return;
@@ -682,10 +698,12 @@ public class PMove {
     /**
      * PM_CheckSpecialMovement.
      */
-    public static void PM_CheckSpecialMovement() {
-        float[] spot = { 0, 0, 0 };
+    public static void PM_CheckSpecialMovement(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        float[] spot = c.spot;
         int cont;
-        float[] flatforward = { 0, 0, 0 };
+        float[] flatforward = c.flatforward;
         trace_t trace;
 
         if (pm.s.pm_time != 0)
@@ -731,15 +749,17 @@ public class PMove {
     /**
      * PM_FlyMove.
      */
-    public static void PM_FlyMove(boolean doclip) {
+    public static void PM_FlyMove(PmoveContext c, boolean doclip) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         float speed, drop, friction, control, newspeed;
         float currentspeed, addspeed, accelspeed;
         int i;
-        float[] wishvel = { 0, 0, 0 };
+        float[] wishvel = c.wishvel;
         float fmove, smove;
-        float[] wishdir = { 0, 0, 0 };
+        float[] wishdir = c.wishdir;
         float wishspeed;
-        float[] end = { 0, 0, 0 };
+        float[] end = c.fly_end;
         trace_t trace;
 
         pm.viewheight = 22;
@@ -813,7 +833,9 @@ public class PMove {
     /**
      * Sets mins, maxs, and pm.viewheight.
      */
-    public static void PM_CheckDuck() {
+    public static void PM_CheckDuck(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         trace_t trace;
 
         pm.mins[0] = -16;
@@ -857,7 +879,9 @@ public class PMove {
     /**
      * Dead bodies have extra friction.
      */
-    public static void PM_DeadMove() {
+    public static void PM_DeadMove(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         float forward;
 
         if (null == pm.groundentity)
@@ -874,9 +898,10 @@ public class PMove {
         }
     }
 
-    public static boolean PM_GoodPosition() {
+    public static boolean PM_GoodPosition(PmoveContext c) {
+        pmove_t pm = c.pm;
         trace_t trace;
-        float[] origin = { 0, 0, 0 }, end = { 0, 0, 0 };
+        float[] origin = c.good_origin, end = c.good_end;
         int i;
 
         if (pm.s.pm_type == Defines.PM_SPECTATOR)
@@ -894,10 +919,12 @@ public class PMove {
      * precision of the network channel and in a valid position.
      */
 
-    public static void PM_SnapPosition() {
-        int sign[] = { 0, 0, 0 };
+    public static void PM_SnapPosition(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
+        int sign[] = c.sign;
         int i, j, bits;
-        short base[] = { 0, 0, 0 };
+        short base[] = c.base;
 
         // snap velocity to eigths
         for (i = 0; i < 3; i++)
@@ -922,7 +949,7 @@ public class PMove {
                 if ((bits & (1 << i)) != 0)
                     pm.s.origin[i] += sign[i];
 
-            if (PM_GoodPosition())
+            if (PM_GoodPosition(c))
                 return;
         }
 
@@ -934,9 +961,11 @@ public class PMove {
     /** 
      * Snaps the origin of the player move to 0.125 grid.
      */
-    public static void PM_InitialSnapPosition() {
+    public static void PM_InitialSnapPosition(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         int x, y, z;
-        short base[] = { 0, 0, 0 };
+        short base[] = c.base;
 
         Math3D.VectorCopy(pm.s.origin, base);
 
@@ -946,7 +975,7 @@ public class PMove {
                 pm.s.origin[1] = (short) (base[1] + offset[y]);
                 for (x = 0; x < 3; x++) {
                     pm.s.origin[0] = (short) (base[0] + offset[x]);
-                    if (PM_GoodPosition()) {
+                    if (PM_GoodPosition(c)) {
                         pml.origin[0] = pm.s.origin[0] * 0.125f;
                         pml.origin[1] = pm.s.origin[1] * 0.125f;
                         pml.origin[2] = pm.s.origin[2] * 0.125f;
@@ -964,7 +993,9 @@ public class PMove {
     /**
      * PM_ClampAngles.
      */
-    public static void PM_ClampAngles() {
+    public static void PM_ClampAngles(PmoveContext c) {
+        pmove_t pm = c.pm;
+        pml_t pml = c.pml;
         short temp;
         int i;
 
@@ -991,10 +1022,20 @@ public class PMove {
     }
 
     /**
-     * Can be called by either the server or the client.
+     * Can be called by either the server or the client. Shares one context,
+     * so only one thread may use it.
      */
     public static void Pmove(pmove_t pmove) {
-        pm = pmove;
+        Pmove(context, pmove);
+    }
+
+    /**
+     * Runs the move on the given context, allocation free.
+     */
+    public static void Pmove(PmoveContext c, pmove_t pmove) {
+        pmove_t pm = pmove;
+        pml_t pml = c.pml;
+        c.pm = pmove;
 
         // clear results
         pm.numtouch = 0;
@@ -1021,11 +1062,11 @@ public class PMove {
 
         pml.frametime = (pm.cmd.msec & 0xFF) * 0.001f;
 
-        PM_ClampAngles();
+        PM_ClampAngles(c);
 
         if (pm.s.pm_type == Defines.PM_SPECTATOR) {
-            PM_FlyMove(false);
-            PM_SnapPosition();
+            PM_FlyMove(c, false);
+            PM_SnapPosition(c);
             return;
         }
 
@@ -1039,18 +1080,18 @@ public class PMove {
             return; // no movement at all
 
         // set mins, maxs, and viewheight
-        PM_CheckDuck();
+        PM_CheckDuck(c);
 
         if (pm.snapinitial)
-            PM_InitialSnapPosition();
+            PM_InitialSnapPosition(c);
 
         // set groundentity, watertype, and waterlevel
-        PM_CatagorizePosition();
+        PM_CatagorizePosition(c);
 
         if (pm.s.pm_type == Defines.PM_DEAD)
-            PM_DeadMove();
+            PM_DeadMove(c);
 
-        PM_CheckSpecialMovement();
+        PM_CheckSpecialMovement(c);
 
         // drop timing counter
         if (pm.s.pm_time != 0) {
@@ -1080,16 +1121,16 @@ public class PMove {
                 pm.s.pm_time = 0;
             }
 
-            PM_StepSlideMove();
+            PM_StepSlideMove(c);
         } else {
-            PM_CheckJump();
+            PM_CheckJump(c);
 
-            PM_Friction();
+            PM_Friction(c);
 
             if (pm.waterlevel >= 2)
-                PM_WaterMove();
+                PM_WaterMove(c);
             else {
-                float[] angles = { 0, 0, 0 };
+                float[] angles = c.angles;
 
                 Math3D.VectorCopy(pm.viewangles, angles);
                 
@@ -1100,12 +1141,12 @@ public class PMove {
 
                 Math3D.AngleVectors(angles, pml.forward, pml.right, pml.up);
 
-                PM_AirMove();
+                PM_AirMove(c);
             }
         }
 
         // set groundentity, watertype, and waterlevel for final spot
-        PM_CatagorizePosition();
-        PM_SnapPosition();
+        PM_CatagorizePosition(c);
+        PM_SnapPosition(c);
     }
 }
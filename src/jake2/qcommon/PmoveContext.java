@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 1997-2001 Id Software, Inc.
+ * 
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * 
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+ * Place - Suite 330, Boston, MA 02111-1307, USA.
+ *  
+ */
+/* Modifications
+   Copyright 2003-2004 Bytonic Software
+   Copyright 2010 Google Inc.
+*/
+package jake2.qcommon;
+
+import jake2.game.pmove_t;
+import jake2.server.SV;
+
+/**
+ * Working state of PMove.Pmove: the pmove locals and the scratch vectors of
+ * the PM_ functions, so a move allocates nothing. Moves on different
+ * contexts can run at the same time, as far as their trace and
+ * pointcontents callbacks allow.
+ *
+ * PMove only reads a trace result before its next trace, so the callbacks
+ * may return the same reused trace_t every time.
+ */
+public class PmoveContext {
+
+    /** The move being run. */
+    pmove_t pm;
+
+    final PMove.pml_t pml = new PMove.pml_t();
+
+    // PM_StepSlideMove_
+    final float[][] planes = new float[SV.MAX_CLIP_PLANES][3];
+
+    final float[] dir = { 0, 0, 0 }, primal_velocity = { 0, 0, 0 };
+
+    final float[] slide_end = { 0, 0, 0 };
+
+    // PM_StepSlideMove
+    final float[] start_o = { 0, 0, 0 }, start_v = { 0, 0, 0 };
+
+    final float[] down_o = { 0, 0, 0 }, down_v = { 0, 0, 0 };
+
+    final float[] up = { 0, 0, 0 }, down = { 0, 0, 0 };
+
+    // PM_AddCurrents
+    final float[] currents = { 0, 0, 0 };
+
+    // PM_WaterMove, PM_AirMove and PM_FlyMove
+    final float[] wishvel = { 0, 0, 0 }, wishdir = { 0, 0, 0 };
+
+    final float[] fly_end = { 0, 0, 0 };
+
+    // PM_CatagorizePosition
+    final float[] point = { 0, 0, 0 };
+
+    // PM_CheckSpecialMovement
+    final float[] spot = { 0, 0, 0 }, flatforward = { 0, 0, 0 };
+
+    // PM_GoodPosition
+    final float[] good_origin = { 0, 0, 0 }, good_end = { 0, 0, 0 };
+
+    // PM_SnapPosition and PM_InitialSnapPosition
+    final int[] sign = { 0, 0, 0 };
+
+    final short[] base = { 0, 0, 0 };
+
+    // Pmove
+    final float[] angles = { 0, 0, 0 };
+}
@@ -28,6 +28,7 @@ import jake2.game.Cmd;
 import jake2.server.SV_MAIN;
 import jake2.sys.*;
 import jake2.util.Vargs;
+import jake2.util.Vec3Pool;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -250,8 +251,11 @@ public final class Qcommon extends Globals {
 					new Vargs(5).add(all).add(sv).add(gm).add(cl).add(rf));
 			}
 
+			Vec3Pool.main.endFrame();
+
 		} catch (longjmpException e) {
 			Com.DPrintf("lonjmp exception:" + e);
+			Vec3Pool.main.reset();
 		}
 	}
 
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 1997-2001 Id Software, Inc.
+ * 
+ * This program is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation; either version 2 of the License, or (at your option) any later
+ * version.
+ * 
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE.
+ * 
+ * See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with
+ * this program; if not, write to the Free Software Foundation, Inc., 59 Temple
+ * Place - Suite 330, Boston, MA 02111-1307, USA.
+ *  
+ */
+/* Modifications
+   Copyright 2003-2004 Bytonic Software
+   Copyright 2010 Google Inc.
+*/
+package jake2.qcommon;
+
+import jake2.game.trace_t;
+
+/**
+ * Scratch state of CM.BoxTrace. Everything a trace writes lives here, so a
+ * trace allocates nothing and different contexts can trace against the
+ * same loaded map at the same time. The result is reused: copy it with
+ * trace_t.set() if it has to survive the next trace on this context.
+ * 
+ * Box hulls (CM.HeadnodeForBox) are still shared, so tracing against
+ * entity bounding boxes must stay on one thread.
+ */
+public class TraceContext {
+
+    final float[] start = { 0, 0, 0 }, end = { 0, 0, 0 };
+
+    final float[] mins = { 0, 0, 0 }, maxs = { 0, 0, 0 };
+
+    final float[] extents = { 0, 0, 0 };
+
+    final trace_t trace = new trace_t();
+
+    int contents;
+
+    boolean ispoint; // optimized case
+
+    /** Per brush copy of cbrush_t.checkcount. */
+    int checkcount;
+
+    int[] brushcheck = new int[Defines.MAX_MAP_BRUSHES];
+
+    /** Recursion stack of CM_RecursiveHullCheck midpoints. */
+    float[][] mids = new float[32][3];
+
+    int middepth;
+
+    // position test and CM_BoxLeafnums state
+    final int[] leafs = new int[1024];
+
+    final float[] c1 = { 0, 0, 0 }, c2 = { 0, 0, 0 };
+
+    final float[] ofs = { 0, 0, 0 };
+
+    int[] leaf_list;
+
+    int leaf_count, leaf_maxcount, leaf_topnode;
+
+    float[] leaf_mins, leaf_maxs;
+
+    // TransformedBoxTrace
+    final float[] start_l = { 0, 0, 0 }, end_l = { 0, 0, 0 };
+
+    final float[] a = { 0, 0, 0 }, temp = { 0, 0, 0 };
+
+    final float[] forward = { 0, 0, 0 }, right = { 0, 0, 0 }, up = { 0, 0, 0 };
+
+    /** Returns the result of the last trace on this context. */
+    public trace_t result() {
+        return trace;
+    }
+
+    float[] pushMid() {
+        if (middepth == mids.length) {
+            float[][] grown = new float[mids.length * 2][];
+            System.arraycopy(mids, 0, grown, 0, mids.length);
+            for (int i = mids.length; i < grown.length; i++)
+                grown[i] = new float[3];
+            mids = grown;
+        }
+        return mids[middepth++];
+    }
+
+    void popMid() {
+        middepth--;
+    }
+}
@@ -36,6 +36,14 @@ public class netadr_t {
 
     public byte ip[];
 
+    /**
+     * Path of the WebSocket endpoint on the server, such as "/match/2" for a
+     * match of a MatchHost, or null for the default one. Parsed from
+     * "host:port/path" by NET.StringToAdr; received packets carry the route
+     * of the connection they came in on.
+     */
+    public String route;
+
     public netadr_t() {
         this.type = Defines.NA_LOOPBACK;
         this.port = 0; // any
@@ -67,6 +75,7 @@ public class netadr_t {
         ip[1] = from.ip[1];
         ip[2] = from.ip[2];
         ip[3] = from.ip[3];
+        route = from.route;
     }
 
     public String toString() {
@@ -34,7 +34,7 @@ import jake2.render.mnode_t;
 import jake2.render.msurface_t;
 import jake2.render.mtexinfo_t;
 import jake2.util.Math3D;
-import jake2.util.Vec3Cache;
+import jake2.util.Vec3Pool;
 
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
@@ -239,7 +239,8 @@ public abstract class Light extends Warp {
 			return RecursiveLightPoint (node.children[sideIndex], start, end);
 	
 		float frac = front / (front-back);
-		float[] mid = Vec3Cache.get();
+		int mark = Vec3Pool.main.mark();
+		float[] mid = Vec3Pool.main.get();
 		mid[0] = start[0] + (end[0] - start[0])*frac;
 		mid[1] = start[1] + (end[1] - start[1])*frac;
 		mid[2] = start[2] + (end[2] - start[2])*frac;
@@ -247,12 +248,12 @@ public abstract class Light extends Warp {
 		// go down front side	
 		int r = RecursiveLightPoint (node.children[sideIndex], start, mid);
 		if (r >= 0) {
-			Vec3Cache.release(); // mid
+			Vec3Pool.main.release(mark); // mid
 			return r;		// hit something
 		}
 		
 		if ( (back < 0) == side ) {
-			Vec3Cache.release(); // mid
+			Vec3Pool.main.release(mark); // mid
 			return -1; // didn't hit anuthing
 		}
 		
@@ -287,8 +288,10 @@ public abstract class Light extends Warp {
 			if ( ds > surf.extents[0] || dt > surf.extents[1] )
 				continue;
 
-			if (surf.samples == null)
+			if (surf.samples == null) {
+				Vec3Pool.main.release(mark); // mid
 				return 0;
+			}
 
 			ds >>= 4;
 			dt >>= 4;
@@ -316,13 +319,13 @@ public abstract class Light extends Warp {
 					lightmapIndex += 3 * ((surf.extents[0] >> 4) + 1) * ((surf.extents[1] >> 4) + 1);
 				}
 			}
-			Vec3Cache.release(); // mid
+			Vec3Pool.main.release(mark); // mid
 			return 1;
 		}
 
 		// go down back side
 		r = RecursiveLightPoint (node.children[1 - sideIndex], mid, end);
-		Vec3Cache.release(); // mid
+		Vec3Pool.main.release(mark); // mid
 		return r;
 	}
 
@@ -32,7 +32,7 @@ import jake2.render.glpoly_t;
 import jake2.render.image_t;
 import jake2.render.msurface_t;
 import jake2.util.Math3D;
-import jake2.util.Vec3Cache;
+import jake2.util.Vec3Pool;
 
 import java.nio.FloatBuffer;
 
@@ -131,8 +131,9 @@ public abstract class Warp extends Model {
 		if (numverts > 60)
 			Com.Error(Defines.ERR_DROP, "numverts = " + numverts);
 
-		float[] mins = Vec3Cache.get();
-		float[] maxs = Vec3Cache.get();
+		int mark = Vec3Pool.main.mark();
+		float[] mins = Vec3Pool.main.get();
+		float[] maxs = Vec3Pool.main.get();
 
 		BoundPoly(numverts, verts, mins, maxs);
 		float[] v;
@@ -187,11 +188,11 @@ public abstract class Warp extends Model {
 			SubdividePolygon(f, front);
 			SubdividePolygon(b, back);
 			
-			Vec3Cache.release(2); // mins, maxs
+			Vec3Pool.main.release(mark); // mins, maxs
 			return;
 		}
 		
-		Vec3Cache.release(2); // mins, maxs
+		Vec3Pool.main.release(mark); // mins, maxs
 		
 		// add a point in the center to help keep warp valid
 		
@@ -204,7 +205,7 @@ public abstract class Warp extends Model {
 		poly.next = warpface.polys;
 		warpface.polys = poly;
 		
-		float[] total = Vec3Cache.get();
+		float[] total = Vec3Pool.main.get();
 		Math3D.VectorClear(total);
 		float total_s = 0;
 		float total_t = 0;
@@ -239,7 +240,7 @@ public abstract class Warp extends Model {
         poly.s2(i + 1, poly.s2(1));
         poly.t2(i + 1, poly.t2(1));
         
-        Vec3Cache.release(); // total
+        Vec3Pool.main.release(mark); // total
 	}
 
 	private final float[][] tmpVerts = new float[64][3];
@@ -0,0 +1,33 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+/**
+ * Runs tasks one after the other, off the calling thread. A host that has
+ * threads installs one in DemoRecorder.writer; without it (as in the
+ * browser) demo data is written on the game thread at the end of each frame.
+ */
+public interface BackgroundQueue {
+
+	/**
+	 * Queues a task and returns immediately. Tasks run in the order they
+	 * were posted.
+	 */
+	void post(Runnable task);
+}
@@ -0,0 +1,194 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.edict_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Defines;
+
+/**
+ * Inverted index from PVS cluster to the edicts linked into it, maintained
+ * by SV_LinkEdict. SV_BuildClientFrame uses it to visit only the entities
+ * that can pass its visibility tests instead of every edict.
+ *
+ * An edict is listed under the clusters SV_LinkEdict stored in its
+ * clusternums, including clusternums[0] which beams test against the PHS.
+ * Edicts that touch too many leafs are kept in a separate headnode list
+ * that is always visited. Entries are keyed by edict number and only
+ * replaced on the next link, so the candidates are a superset of the
+ * visible entities and the caller still runs the full tests.
+ */
+final class ClusterIndex {
+
+	private static final int BITS_WORDS = Defines.MAX_EDICTS >> 5;
+
+	/** Edict numbers listed under each cluster. */
+	private static int[][] members = new int[0][];
+	private static int[] memberCount = new int[0];
+	private static int numClusters;
+
+	/** Clusters each edict is listed under. */
+	private static final int[][] listed = new int[Defines.MAX_EDICTS][];
+	private static final int[] listedCount = new int[Defines.MAX_EDICTS];
+
+	private static final int[] headnodes = new int[Defines.MAX_EDICTS];
+	private static int headnodeCount;
+	private static final boolean[] isHeadnode = new boolean[Defines.MAX_EDICTS];
+
+	/** Bumped by every clear(), invalidates cached fat PVS rows. */
+	static int generation;
+
+	private ClusterIndex() {
+	}
+
+	/** Resets the index for the map currently loaded into CM. */
+	static void clear() {
+		numClusters = CM.CM_NumClusters();
+		members = new int[numClusters][];
+		memberCount = new int[numClusters];
+		for (int i = 0; i < Defines.MAX_EDICTS; i++) {
+			listedCount[i] = 0;
+			isHeadnode[i] = false;
+		}
+		headnodeCount = 0;
+		generation++;
+	}
+
+	/** Re-lists ent under the clusters SV_LinkEdict just computed. */
+	static void update(edict_t ent) {
+		int e = ent.index;
+		if (e <= 0 || e >= Defines.MAX_EDICTS) {
+			return;
+		}
+		for (int i = 0; i < listedCount[e]; i++) {
+			removeMember(listed[e][i], e);
+		}
+		listedCount[e] = 0;
+
+		boolean headnode = ent.num_clusters == -1;
+		if (headnode != isHeadnode[e]) {
+			if (headnode) {
+				headnodes[headnodeCount++] = e;
+			} else {
+				for (int i = 0; i < headnodeCount; i++) {
+					if (headnodes[i] == e) {
+						headnodes[i] = headnodes[--headnodeCount];
+						break;
+					}
+				}
+			}
+			isHeadnode[e] = headnode;
+		}
+
+		// beams are tested by clusternums[0] even if num_clusters is 0 or -1
+		list(e, ent.clusternums[0]);
+		for (int i = 1; i < ent.num_clusters; i++) {
+			list(e, ent.clusternums[i]);
+		}
+	}
+
+	private static void list(int e, int cluster) {
+		if (cluster < 0 || cluster >= numClusters) {
+			return;
+		}
+		int[] l = listed[e];
+		for (int i = 0; i < listedCount[e]; i++) {
+			if (l[i] == cluster) {
+				return;
+			}
+		}
+		if (l == null) {
+			l = listed[e] = new int[Defines.MAX_ENT_CLUSTERS];
+		}
+		l[listedCount[e]++] = cluster;
+
+		int[] m = members[cluster];
+		int n = memberCount[cluster];
+		if (m == null) {
+			m = members[cluster] = new int[4];
+		} else if (n == m.length) {
+			int[] grown = new int[n * 2];
+			System.arraycopy(m, 0, grown, 0, n);
+			m = members[cluster] = grown;
+		}
+		m[n] = e;
+		memberCount[cluster] = n + 1;
+	}
+
+	private static void removeMember(int cluster, int e) {
+		int[] m = members[cluster];
+		int n = memberCount[cluster];
+		for (int i = 0; i < n; i++) {
+			if (m[i] == e) {
+				m[i] = m[n - 1];
+				memberCount[cluster] = n - 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the numbers of all edicts listed under a cluster set in pvs or
+	 * phs, the headnode edicts and self to out, in ascending order.
+	 *
+	 * @param bits scratch bit set of MAX_EDICTS bits
+	 * @return the number of candidates
+	 */
+	static int collect(byte[] pvs, byte[] phs, int self, int[] bits, int[] out) {
+		for (int i = 0; i < BITS_WORDS; i++) {
+			bits[i] = 0;
+		}
+
+		int bytes = (numClusters + 7) >> 3;
+		for (int b = 0; b < bytes; b++) {
+			int v = (pvs[b] | phs[b]) & 0xff;
+			if (v == 0) {
+				continue;
+			}
+			for (int k = 0; k < 8; k++) {
+				if ((v & (1 << k)) == 0) {
+					continue;
+				}
+				int cluster = (b << 3) + k;
+				if (cluster >= numClusters) {
+					break;
+				}
+				int[] m = members[cluster];
+				for (int i = memberCount[cluster] - 1; i >= 0; i--) {
+					bits[m[i] >> 5] |= 1 << (m[i] & 31);
+				}
+			}
+		}
+		for (int i = 0; i < headnodeCount; i++) {
+			bits[headnodes[i] >> 5] |= 1 << (headnodes[i] & 31);
+		}
+		bits[self >> 5] |= 1 << (self & 31);
+
+		int count = 0;
+		for (int w = 0; w < BITS_WORDS; w++) {
+			int v = bits[w];
+			while (v != 0) {
+				int k = Integer.numberOfTrailingZeros(v);
+				out[count++] = (w << 5) + k;
+				v &= v - 1;
+			}
+		}
+		return count;
+	}
+}
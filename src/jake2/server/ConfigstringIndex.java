@@ -0,0 +1,98 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import java.util.HashMap;
+
+/**
+ * Name to index map of one configstring range (models, sounds or images),
+ * answering SV_FindIndex without scanning sv.configstrings.
+ *
+ * Like the scan it replaces, only the entries before the first empty slot
+ * count and a duplicate name resolves to its lowest index. Writes that do
+ * not go through add() must call invalidate(); the map is then rebuilt
+ * from the configstrings on the next lookup.
+ */
+final class ConfigstringIndex {
+
+	private final int start;
+	private final int max;
+	private final HashMap<String, Integer> names = new HashMap<String, Integer>();
+
+	/** First empty slot, where the next name is added. */
+	private int end;
+	private boolean dirty = true;
+
+	ConfigstringIndex(int start, int max) {
+		this.start = start;
+		this.max = max;
+	}
+
+	boolean contains(int configstring) {
+		return configstring > start && configstring < start + max;
+	}
+
+	void invalidate() {
+		dirty = true;
+	}
+
+	/** @return the index of name, 0 if it is not in the range */
+	int find(String[] configstrings, String name) {
+		if (dirty) {
+			rebuild(configstrings);
+		}
+		Integer i = names.get(name);
+		return i == null ? 0 : i.intValue();
+	}
+
+	/**
+	 * Stores name in the first empty slot.
+	 *
+	 * @return its index, or max if the range is full
+	 */
+	int add(String[] configstrings, String name) {
+		if (dirty) {
+			rebuild(configstrings);
+		}
+		int i = end;
+		if (i == max) {
+			return max;
+		}
+		configstrings[start + i] = name;
+		scan(configstrings, i);
+		return i;
+	}
+
+	private void rebuild(String[] configstrings) {
+		names.clear();
+		scan(configstrings, 1);
+		dirty = false;
+	}
+
+	private void scan(String[] configstrings, int from) {
+		int i;
+		for (i = from; i < max && configstrings[start + i] != null; i++) {
+			String name = configstrings[start + i];
+			if (!names.containsKey(name)) {
+				names.put(name, Integer.valueOf(i));
+			}
+		}
+		end = i;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.entity_state_t;
+import jake2.qcommon.Defines;
+import jake2.qcommon.MSG;
+import jake2.qcommon.SZ;
+import jake2.qcommon.sizebuf_t;
+
+/**
+ * Encoded MSG.WriteDeltaEntity output shared between the clients of one
+ * SV_SendClientMessages call.
+ *
+ * Every copy of an edict's state in svs.client_entities carries the stamp
+ * that was current when it was stored. The stamp changes whenever game code
+ * may have run, so two copies with the same number and stamp only differ in
+ * the solid field SV_StoreClientFrame clears for the client's own missiles.
+ * A delta is therefore identified by the entity number, the stamps and
+ * solid values of both states and the force/newentity flags; baselines use
+ * stamp 0. Clients delta'ing from the same old frame reuse the bytes of the
+ * first one.
+ */
+final class DeltaCache {
+
+	/** Content version of the edicts' entity_state_t, never 0. */
+	static int stamp = 1;
+
+	/** Set while the cache may be used, i.e. only from the game thread. */
+	static boolean enabled = true;
+
+	// statistics since the map was loaded
+	static long hits;
+	static long misses;
+	static long bytesSaved;
+
+	private static final int FLAG_FORCE = 1;
+	private static final int FLAG_NEWENTITY = 2;
+
+	/** Stamp the current entries were encoded for. */
+	private static int entriesStamp;
+
+	// per entity number, a chain of entries
+	private static final int[] head = new int[Defines.MAX_EDICTS];
+	private static int[] next = new int[256];
+	private static int[] entryFromStamp = new int[256];
+	private static int[] entryFromSolid = new int[256];
+	private static int[] entryToSolid = new int[256];
+	private static int[] entryFlags = new int[256];
+	private static int[] entryOffset = new int[256];
+	private static int[] entryLength = new int[256];
+	private static int count;
+
+	private static byte[] bytes = new byte[16384];
+	private static int used;
+
+	private DeltaCache() {
+	}
+
+	/** Called whenever the entity states may have been changed by game code. */
+	static void invalidate() {
+		if (++stamp == 0) {
+			stamp = 1;
+		}
+	}
+
+	static void resetStats() {
+		hits = misses = bytesSaved = 0;
+	}
+
+	/**
+	 * MSG.WriteDeltaEntity through the cache.
+	 *
+	 * @param fromStamp stamp of the from state, 0 for a baseline
+	 * @param toStamp stamp of the to state
+	 */
+	static void writeDeltaEntity(entity_state_t from, int fromStamp,
+			entity_state_t to, int toStamp, sizebuf_t msg, boolean force,
+			boolean newentity) {
+		if (!enabled || toStamp != stamp
+				|| (SV_MAIN.sv_deltacache != null && SV_MAIN.sv_deltacache.value == 0)) {
+			MSG.WriteDeltaEntity(from, to, msg, force, newentity);
+			return;
+		}
+		if (entriesStamp != stamp) {
+			clear();
+		}
+
+		int f = (force ? FLAG_FORCE : 0) | (newentity ? FLAG_NEWENTITY : 0);
+		int number = to.number;
+		for (int i = head[number]; i != -1; i = next[i]) {
+			if (entryFromStamp[i] == fromStamp && entryFromSolid[i] == from.solid
+					&& entryToSolid[i] == to.solid && entryFlags[i] == f) {
+				hits++;
+				bytesSaved += entryLength[i];
+				if (entryLength[i] != 0) {
+					SZ.Write(msg, bytes, entryOffset[i], entryLength[i]);
+				}
+				return;
+			}
+		}
+
+		misses++;
+		int start = msg.cursize;
+		MSG.WriteDeltaEntity(from, to, msg, force, newentity);
+		if (msg.overflowed || msg.cursize < start) {
+			return; // the message was cleared, nothing to keep
+		}
+		add(number, fromStamp, from.solid, to.solid, f, msg.data, start,
+				msg.cursize - start);
+	}
+
+	private static void clear() {
+		for (int i = 0; i < head.length; i++) {
+			head[i] = -1;
+		}
+		count = 0;
+		used = 0;
+		entriesStamp = stamp;
+	}
+
+	private static void add(int number, int fromStamp, int fromSolid,
+			int toSolid, int flags, byte[] data, int start, int len) {
+		if (count == next.length) {
+			int size = count * 2;
+			next = grow(next, size);
+			entryFromStamp = grow(entryFromStamp, size);
+			entryFromSolid = grow(entryFromSolid, size);
+			entryToSolid = grow(entryToSolid, size);
+			entryFlags = grow(entryFlags, size);
+			entryOffset = grow(entryOffset, size);
+			entryLength = grow(entryLength, size);
+		}
+		if (used + len > bytes.length) {
+			byte[] grown = new byte[Math.max(bytes.length * 2, used + len)];
+			System.arraycopy(bytes, 0, grown, 0, used);
+			bytes = grown;
+		}
+		System.arraycopy(data, start, bytes, used, len);
+
+		int i = count++;
+		entryFromStamp[i] = fromStamp;
+		entryFromSolid[i] = fromSolid;
+		entryToSolid[i] = toSolid;
+		entryFlags[i] = flags;
+		entryOffset[i] = used;
+		entryLength[i] = len;
+		next[i] = head[number];
+		head[number] = i;
+		used += len;
+	}
+
+	private static int[] grow(int[] a, int size) {
+		int[] grown = new int[size];
+		System.arraycopy(a, 0, grown, 0, a.length);
+		return grown;
+	}
+
+	static String stats() {
+		long lookups = hits + misses;
+		return "delta cache      : " + (lookups == 0 ? 0 : hits * 100 / lookups)
+				+ "% of " + lookups + " deltas reused, " + bytesSaved
+				+ " bytes not re-encoded\n";
+	}
+}
@@ -0,0 +1,160 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.qcommon.Defines;
+import jake2.qcommon.Globals;
+import jake2.qcommon.MSG;
+import jake2.qcommon.SZ;
+import jake2.qcommon.sizebuf_t;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The keyframe index at the end of a server demo written by DemoRecorder,
+ * used by demoseek to jump to the closest keyframe before a given time.
+ */
+final class DemoIndex {
+
+	/** Server frame number and file offset of every keyframe. */
+	final int[] frames;
+	final int[] offsets;
+
+	// configstrings that differ from the signon at every keyframe
+	private final int[][] changedIndex;
+	private final String[][] changedValue;
+
+	// signon values of every configstring in any of the lists above
+	private final int[] baseIndex;
+	private final String[] baseValue;
+
+	private DemoIndex(int count, sizebuf_t buf) {
+		frames = new int[count];
+		offsets = new int[count];
+		changedIndex = new int[count][];
+		changedValue = new String[count][];
+		for (int k = 0; k < count; k++) {
+			frames[k] = MSG.ReadLong(buf);
+			offsets[k] = MSG.ReadLong(buf);
+			int n = MSG.ReadShort(buf);
+			changedIndex[k] = new int[n];
+			changedValue[k] = new String[n];
+			readConfigstrings(buf, changedIndex[k], changedValue[k]);
+		}
+		int n = MSG.ReadShort(buf);
+		baseIndex = new int[n];
+		baseValue = new String[n];
+		readConfigstrings(buf, baseIndex, baseValue);
+	}
+
+	/**
+	 * Reads the index at the end of a demo, or returns null if it has none.
+	 * Does not move the position of the buffer.
+	 */
+	static DemoIndex read(ByteBuffer demo) {
+		int end = demo.limit();
+		if (end < 12 || getInt(demo, end - 4) != DemoRecorder.MAGIC)
+			return null;
+		int count = getInt(demo, end - 12);
+		int start = getInt(demo, end - 8);
+		if (count <= 0 || start < 0 || start > end - 12)
+			return null;
+
+		byte[] data = new byte[end - 12 - start];
+		for (int i = 0; i < data.length; i++)
+			data[i] = demo.get(start + i);
+		sizebuf_t buf = new sizebuf_t();
+		SZ.Init(buf, data, data.length);
+		buf.cursize = data.length;
+
+		DemoIndex index;
+		try {
+			index = new DemoIndex(count, buf);
+		} catch (RuntimeException e) {
+			// a damaged index, play the demo without it
+			return null;
+		}
+		if (buf.readcount > buf.cursize)
+			return null;
+		return index;
+	}
+
+	/**
+	 * Returns the last keyframe at or before the given server frame, or the
+	 * first keyframe if the frame is before all of them.
+	 */
+	int find(int frame) {
+		int lo = 0;
+		int hi = frames.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (frames[mid] <= frame)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Continues playback at keyframe k and sends the clients the
+	 * configstrings as they were at that point.
+	 */
+	void seek(ByteBuffer demo, int k) {
+		demo.position(offsets[k]);
+
+		// back to the signon values, then the ones set at the keyframe
+		for (int i = 0; i < baseIndex.length; i++) {
+			if (!contains(changedIndex[k], baseIndex[i]))
+				sendConfigstring(baseIndex[i], baseValue[i]);
+		}
+		for (int i = 0; i < changedIndex[k].length; i++)
+			sendConfigstring(changedIndex[k][i], changedValue[k][i]);
+	}
+
+	private static boolean contains(int[] list, int value) {
+		for (int i = 0; i < list.length; i++) {
+			if (list[i] == value)
+				return true;
+		}
+		return false;
+	}
+
+	private static void sendConfigstring(int index, String value) {
+		SZ.Clear(SV_INIT.sv.multicast);
+		MSG.WriteChar(SV_INIT.sv.multicast, Defines.svc_configstring);
+		MSG.WriteShort(SV_INIT.sv.multicast, index);
+		MSG.WriteString(SV_INIT.sv.multicast, value);
+		SV_SEND.SV_Multicast(Globals.vec3_origin, Defines.MULTICAST_ALL_R);
+	}
+
+	private static void readConfigstrings(sizebuf_t buf, int[] index, String[] value) {
+		for (int i = 0; i < index.length; i++) {
+			index[i] = MSG.ReadShort(buf);
+			value[i] = MSG.ReadString(buf);
+		}
+	}
+
+	private static int getInt(ByteBuffer demo, int offset) {
+		return (demo.get(offset) & 0xff)
+				| ((demo.get(offset + 1) & 0xff) << 8)
+				| ((demo.get(offset + 2) & 0xff) << 16)
+				| ((demo.get(offset + 3) & 0xff) << 24);
+	}
+}
@@ -0,0 +1,326 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.qcommon.Com;
+import jake2.qcommon.Defines;
+import jake2.qcommon.MSG;
+import jake2.qcommon.SZ;
+import jake2.qcommon.sizebuf_t;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * An open serverrecord demo. Messages are built in a reusable buffer and
+ * copied into a ring, which is written to the file after every frame, on
+ * the host's writer queue if there is one. The game thread only blocks on
+ * the file when the writer falls a whole ring behind.
+ * 
+ * Every KEYFRAME_FRAMES frames the file offset of the frame is noted
+ * together with the configstrings that differ from the signon message.
+ * On close the list is appended after the -1 end marker, where older
+ * readers never look, and DemoIndex uses it to seek during playback.
+ * 
+ * Trailer layout, little endian like the rest of the file:
+ *   per keyframe: long frame, long offset, short n, n * (short index, string)
+ *   base: short n, n * (short index, string) with the signon values of
+ *         every configstring that was seen to change
+ *   long keyframes, long offset of the first keyframe record, long MAGIC
+ */
+public final class DemoRecorder {
+
+	/** Writer queue installed by the host, null to write on the game thread. */
+	public static BackgroundQueue writer;
+
+	/** Frames between two keyframes, 5 seconds of game time. */
+	static final int KEYFRAME_FRAMES = 50;
+
+	/** "DMIX", marks a demo that ends with a keyframe index. */
+	static final int MAGIC = 'D' | ('M' << 8) | ('I' << 16) | ('X' << 24);
+
+	private static final int RING_SIZE = 1 << 20;
+	private static final int RING_MASK = RING_SIZE - 1;
+
+	private final RandomAccessFile file;
+
+	// bytes appended by the game thread and bytes written to the file, as
+	// running totals; [tail, head) is pending in the ring
+	private final byte[] ring = new byte[RING_SIZE];
+	private int head;
+	private int tail;
+	private boolean posted;
+	private IOException failed;
+
+	// serializes writes to the file
+	private final Object io = new Object();
+	private boolean closed;
+
+	// game thread only
+	private final sizebuf_t message = new sizebuf_t();
+	private final byte[] messageData = new byte[32768];
+	private final byte[] word = new byte[4];
+	private final String[] signon = new String[Defines.MAX_CONFIGSTRINGS];
+	private final boolean[] changed = new boolean[Defines.MAX_CONFIGSTRINGS];
+	private final sizebuf_t record = new sizebuf_t();
+	private byte[] index = new byte[4096];
+	private int indexSize;
+	private int keyframes;
+	private int frames;
+
+	private final Runnable flushTask = new Runnable() {
+		public void run() {
+			flush();
+		}
+	};
+
+	private DemoRecorder(RandomAccessFile file) {
+		this.file = file;
+		SZ.Init(message, messageData, messageData.length);
+		byte[] recordData = new byte[Defines.MAX_CONFIGSTRINGS * (Defines.MAX_QPATH + 3) + 16];
+		SZ.Init(record, recordData, recordData.length);
+		record.allowoverflow = true;
+	}
+
+	/**
+	 * Creates or truncates the demo file.
+	 */
+	public static DemoRecorder open(String name) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(name, "rw");
+		file.setLength(0);
+		return new DemoRecorder(file);
+	}
+
+	/**
+	 * Returns the cleared message buffer. Fill it, then pass it on with
+	 * writeSignon or writeFrame.
+	 */
+	public sizebuf_t message() {
+		SZ.Clear(message);
+		return message;
+	}
+
+	/**
+	 * Writes the startup message, which carries the given configstrings.
+	 */
+	public void writeSignon(String[] configstrings) {
+		System.arraycopy(configstrings, 0, signon, 0, signon.length);
+		writeMessage();
+		schedule();
+	}
+
+	/**
+	 * Writes the message of one server frame, as a keyframe if one is due.
+	 */
+	public void writeFrame(int framenum, String[] configstrings) {
+		if (frames++ % KEYFRAME_FRAMES == 0) {
+			keyframe(framenum, configstrings);
+		}
+		writeMessage();
+
+		IOException e;
+		synchronized (this) {
+			e = failed;
+			failed = null;
+		}
+		if (e != null) {
+			Com.Printf("Error writing demo file: " + e + "\n");
+		}
+		schedule();
+	}
+
+	/**
+	 * Ends the demo with the -1 marker and the keyframe index, then writes
+	 * out everything still pending and closes the file.
+	 */
+	public void close() throws IOException {
+		appendInt(-1);
+
+		int start = head;
+		append(index, 0, indexSize);
+
+		SZ.Clear(record);
+		int n = 0;
+		for (int i = 0; i < changed.length; i++) {
+			if (changed[i]) {
+				n++;
+			}
+		}
+		MSG.WriteShort(record, n);
+		for (int i = 0; i < changed.length; i++) {
+			if (changed[i]) {
+				MSG.WriteShort(record, i);
+				MSG.WriteString(record, signon[i]);
+			}
+		}
+		append(record.data, 0, record.cursize);
+
+		appendInt(keyframes);
+		appendInt(start);
+		appendInt(MAGIC);
+
+		synchronized (io) {
+			flush();
+			closed = true;
+			file.close();
+		}
+		IOException e;
+		synchronized (this) {
+			e = failed;
+			failed = null;
+		}
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/**
+	 * Notes the file offset of the frame about to be written and the
+	 * configstrings that have changed since the signon.
+	 */
+	private void keyframe(int framenum, String[] configstrings) {
+		SZ.Clear(record);
+		MSG.WriteLong(record, framenum);
+		MSG.WriteLong(record, head);
+
+		int n = 0;
+		for (int i = 0; i < configstrings.length; i++) {
+			if (!same(configstrings[i], signon[i])) {
+				n++;
+			}
+		}
+		MSG.WriteShort(record, n);
+		for (int i = 0; i < configstrings.length; i++) {
+			if (!same(configstrings[i], signon[i])) {
+				changed[i] = true;
+				MSG.WriteShort(record, i);
+				MSG.WriteString(record, configstrings[i]);
+			}
+		}
+		if (record.overflowed) {
+			// only with configstrings far longer than their slots in the
+			// original, fixed size table
+			Com.DPrintf("demo keyframe at " + framenum + " dropped\n");
+			return;
+		}
+
+		if (indexSize + record.cursize > index.length) {
+			byte[] grown = new byte[Math.max(index.length * 2, indexSize + record.cursize)];
+			System.arraycopy(index, 0, grown, 0, indexSize);
+			index = grown;
+		}
+		System.arraycopy(record.data, 0, index, indexSize, record.cursize);
+		indexSize += record.cursize;
+		keyframes++;
+	}
+
+	/** Unset configstrings are null or empty. */
+	private static boolean same(String a, String b) {
+		if (a == null || a.length() == 0) {
+			return b == null || b.length() == 0;
+		}
+		return a.equals(b);
+	}
+
+	private void writeMessage() {
+		appendInt(message.cursize);
+		append(message.data, 0, message.cursize);
+	}
+
+	private void appendInt(int v) {
+		word[0] = (byte) v;
+		word[1] = (byte) (v >> 8);
+		word[2] = (byte) (v >> 16);
+		word[3] = (byte) (v >> 24);
+		append(word, 0, 4);
+	}
+
+	/**
+	 * Copies data into the ring, writing it out first if there is not
+	 * enough room.
+	 */
+	private void append(byte[] data, int offset, int length) {
+		while (length > 0) {
+			int room;
+			synchronized (this) {
+				room = RING_SIZE - (head - tail);
+			}
+			if (room == 0) {
+				flush();
+				continue;
+			}
+			int n = Math.min(Math.min(length, room), RING_SIZE - (head & RING_MASK));
+			System.arraycopy(data, offset, ring, head & RING_MASK, n);
+			synchronized (this) {
+				head += n;
+			}
+			offset += n;
+			length -= n;
+		}
+	}
+
+	private void schedule() {
+		if (writer == null) {
+			flush();
+			return;
+		}
+		synchronized (this) {
+			if (posted) {
+				return;
+			}
+			posted = true;
+		}
+		writer.post(flushTask);
+	}
+
+	/**
+	 * Writes everything appended so far to the file. Runs on the writer
+	 * queue, or on the game thread when there is none or the ring is full.
+	 */
+	private void flush() {
+		synchronized (io) {
+			int h;
+			int t;
+			synchronized (this) {
+				posted = false;
+				h = head;
+				t = tail;
+			}
+			if (closed) {
+				return;
+			}
+			try {
+				while (t != h) {
+					int n = Math.min(h - t, RING_SIZE - (t & RING_MASK));
+					file.write(ring, t & RING_MASK, n);
+					t += n;
+				}
+			} catch (IOException e) {
+				// drop the data rather than stall the game, the game
+				// thread reports the error
+				synchronized (this) {
+					failed = e;
+				}
+			}
+			synchronized (this) {
+				tail = h;
+			}
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.GameBase;
+import jake2.game.LiveEdicts;
+import jake2.game.cmodel_t;
+import jake2.game.cvar_t;
+import jake2.game.edict_t;
+import jake2.game.entity_state_t;
+import jake2.game.gclient_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Defines;
+import jake2.tools.Bench;
+
+import java.util.Random;
+
+/**
+ * Measures SV_BuildClientFrame on a real BSP with randomly placed entities,
+ * scanning all edicts versus walking the cluster index, for a growing
+ * number of clients. Both modes must put the same entities into the
+ * frames; mismatches are reported.
+ *
+ * usage: FrameBuildBenchmark [map] [entities] [frames]
+ */
+public class FrameBuildBenchmark {
+
+  private static final int MAX_CLIENTS = 32;
+
+  public static void main(String[] args) {
+    String map = args.length > 0 ? args[0] : "maps/q2dm1.bsp";
+    int entities = args.length > 1 ? Integer.parseInt(args[1]) : 900;
+    int frames = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+    cmodel_t world = Bench.loadMap(map);
+    SV_INIT.sv.models[1] = world;
+    SV_WORLD.SV_ClearWorld();
+    SV_MAIN.sv_pvsindex = new cvar_t();
+
+    Random random = new Random(1234);
+    GameBase.num_edicts = Math.min(1 + MAX_CLIENTS + entities, Defines.MAX_EDICTS);
+    client_t[] clients = new client_t[MAX_CLIENTS];
+    for (int i = 1; i < GameBase.num_edicts; i++) {
+      edict_t ent = GameBase.g_edicts[i] = new edict_t(i);
+      LiveEdicts.setInuse(ent, true);
+      ent.s.modelindex = 1;
+      ent.solid = Defines.SOLID_BBOX;
+      for (int j = 0; j < 3; j++) {
+        ent.mins[j] = -16;
+        ent.maxs[j] = 16;
+      }
+      randomOpenPoint(world, random, ent.s.origin);
+      SV_WORLD.SV_LinkEdict(ent);
+
+      if (i <= MAX_CLIENTS) {
+        client_t client = clients[i - 1] = new client_t();
+        client.edict = ent;
+        ent.client = new gclient_t(i - 1);
+        for (int j = 0; j < 3; j++) {
+          ent.client.ps.pmove.origin[j] = (short) (ent.s.origin[j] * 8);
+        }
+      }
+    }
+
+    SV_INIT.svs.num_client_entities = MAX_CLIENTS * Defines.UPDATE_BACKUP * 64;
+    SV_INIT.svs.client_entities = new entity_state_t[SV_INIT.svs.num_client_entities];
+    SV_INIT.svs.client_entity_stamps = new int[SV_INIT.svs.num_client_entities];
+    for (int i = 0; i < SV_INIT.svs.num_client_entities; i++) {
+      SV_INIT.svs.client_entities[i] = new entity_state_t(null);
+    }
+
+    System.out.println(map + ", " + (GameBase.num_edicts - 1) + " edicts, "
+        + CM.CM_NumClusters() + " clusters");
+
+    // warm up
+    run(clients, MAX_CLIENTS, frames / 4, 0);
+    run(clients, MAX_CLIENTS, frames / 4, 1);
+
+    for (int n = 1; n <= MAX_CLIENTS; n <<= 1) {
+      int[] scan = visibleCounts(clients, n, 0);
+      int[] indexed = visibleCounts(clients, n, 1);
+      int mismatches = 0;
+      int visible = 0;
+      for (int i = 0; i < n; i++) {
+        visible += scan[i];
+        if (scan[i] != indexed[i]) {
+          mismatches++;
+        }
+      }
+      System.out.println(n + " clients, " + (visible / n) + " visible entities/client"
+          + (mismatches == 0 ? "" : ", " + mismatches + " MISMATCHES"));
+      for (int mode = 0; mode <= 1; mode++) {
+        long alloc = Bench.allocatedBytes();
+        long start = System.nanoTime();
+        run(clients, n, frames, mode);
+        Bench.report("  " + (mode == 0 ? "scan " : "index") + " frame build", frames,
+            System.nanoTime() - start, Bench.allocatedBytes() - alloc);
+      }
+    }
+  }
+
+  private static void randomOpenPoint(cmodel_t world, Random random, float[] p) {
+    do {
+      for (int j = 0; j < 3; j++) {
+        p[j] = world.mins[j] + random.nextFloat() * (world.maxs[j] - world.mins[j]);
+      }
+    } while (CM.PointContents(p, 0) != 0);
+  }
+
+  private static void run(client_t[] clients, int n, int frames, int mode) {
+    SV_MAIN.sv_pvsindex.value = mode;
+    for (int f = 0; f < frames; f++) {
+      SV_INIT.sv.framenum++;
+      for (int i = 0; i < n; i++) {
+        SV_ENTS.SV_BuildClientFrame(clients[i]);
+      }
+    }
+  }
+
+  private static int[] visibleCounts(client_t[] clients, int n, int mode) {
+    run(clients, n, 1, mode);
+    int[] counts = new int[n];
+    for (int i = 0; i < n; i++) {
+      counts[i] = clients[i].frames[SV_INIT.sv.framenum & Defines.UPDATE_MASK].num_entities;
+    }
+    return counts;
+  }
+}
@@ -0,0 +1,271 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.EntThinkAdapter;
+import jake2.qcommon.Globals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/**
+ * Per game frame timing of the server subsystems, to find where the time of
+ * a slow frame went. Packet reading, G_RunFrame (and in it every entity
+ * think, by adapter ID), building the client frames, encoding them and
+ * Netchan.Transmit are recorded into histograms, along with the CM traces
+ * of the frame. The slowest frame is kept with its breakdown.
+ *
+ * Profiling is off until a host installs a clock; the browser has no
+ * precise one. Frames are recorded by the server thread, the report may be
+ * read from any thread.
+ */
+public final class FrameProfiler {
+
+	/** A monotonic clock. */
+	public interface Clock {
+		long nanoTime();
+	}
+
+	/** Installed by hosts with a nanosecond clock, null disables profiling. */
+	public static Clock clock;
+
+	static final int READ_PACKETS = 0, GAME_FRAME = 1, BUILD_FRAMES = 2,
+			WRITE_FRAMES = 3, TRANSMIT = 4, FRAME = 5;
+
+	private static final String sectionNames[] = { "read packets",
+			"game frame", "build frames", "write frames", "transmit", "total" };
+
+	private static final int SECTIONS = sectionNames.length;
+
+	private static final int TOP_THINKS = 10;
+
+	/** The time of one think adapter. */
+	private static final class ThinkStats {
+		final String id;
+		final Histogram frames = new Histogram();
+		long calls;
+
+		// the frame being recorded
+		long frameNanos;
+		int frameCalls;
+		boolean touched;
+
+		ThinkStats(String id) {
+			this.id = id;
+		}
+	}
+
+	// the frame being recorded, only touched by the server thread
+	private static final long current[] = new long[SECTIONS];
+	private static int tracesStart = -1;
+	private static ThinkStats touched[] = new ThinkStats[64];
+	private static int touchedCount;
+	private static final HashMap<String, ThinkStats> thinksById = new HashMap<String, ThinkStats>();
+
+	// guarded by the class
+	private static final Histogram sections[] = new Histogram[SECTIONS];
+	private static final Histogram traces = new Histogram();
+	private static final ArrayList<ThinkStats> thinks = new ArrayList<ThinkStats>();
+	private static final long slowest[] = new long[SECTIONS];
+	private static int slowestTraces;
+	private static int slowestFrame = -1;
+	private static String slowestThink;
+	private static long slowestThinkNanos;
+
+	static {
+		for (int i = 0; i < SECTIONS; i++)
+			sections[i] = new Histogram();
+	}
+
+	private FrameProfiler() {
+	}
+
+	/** Returns the clock time, or 0 if profiling is off. */
+	static long start() {
+		Clock c = clock;
+		return c == null ? 0 : c.nanoTime();
+	}
+
+	/** Adds the time since start to a section of the current frame. */
+	static void add(int section, long start) {
+		Clock c = clock;
+		if (c == null || start == 0)
+			return;
+		current[section] += c.nanoTime() - start;
+		if (tracesStart == -1)
+			tracesStart = Globals.c_traces_total;
+	}
+
+	/** Adds the time since start to the think adapter. */
+	static void think(EntThinkAdapter think, long start) {
+		Clock c = clock;
+		if (c == null || start == 0)
+			return;
+		long nanos = c.nanoTime() - start;
+
+		String id = think.getID();
+		ThinkStats stats = thinksById.get(id);
+		if (stats == null) {
+			stats = new ThinkStats(id);
+			thinksById.put(id, stats);
+			synchronized (FrameProfiler.class) {
+				thinks.add(stats);
+			}
+		}
+		stats.frameNanos += nanos;
+		stats.frameCalls++;
+		if (!stats.touched) {
+			stats.touched = true;
+			if (touchedCount == touched.length) {
+				ThinkStats grown[] = new ThinkStats[touchedCount * 2];
+				System.arraycopy(touched, 0, grown, 0, touchedCount);
+				touched = grown;
+			}
+			touched[touchedCount++] = stats;
+		}
+	}
+
+	/**
+	 * Records the current frame. Its total is the time since start plus the
+	 * packets read since the last frame.
+	 */
+	static void endFrame(long start, int framenum) {
+		Clock c = clock;
+		if (c == null || start == 0)
+			return;
+		current[FRAME] += c.nanoTime() - start + current[READ_PACKETS];
+		int frameTraces = tracesStart == -1 ? 0 : Globals.c_traces_total - tracesStart;
+
+		synchronized (FrameProfiler.class) {
+			for (int i = 0; i < SECTIONS; i++)
+				sections[i].record(current[i]);
+			traces.record(frameTraces);
+
+			boolean slow = current[FRAME] > slowest[FRAME];
+			if (slow) {
+				System.arraycopy(current, 0, slowest, 0, SECTIONS);
+				slowestTraces = frameTraces;
+				slowestFrame = framenum;
+				slowestThink = null;
+				slowestThinkNanos = 0;
+			}
+			for (int i = 0; i < touchedCount; i++) {
+				ThinkStats stats = touched[i];
+				stats.frames.record(stats.frameNanos);
+				stats.calls += stats.frameCalls;
+				if (slow && stats.frameNanos > slowestThinkNanos) {
+					slowestThink = stats.id;
+					slowestThinkNanos = stats.frameNanos;
+				}
+				stats.frameNanos = 0;
+				stats.frameCalls = 0;
+				stats.touched = false;
+				touched[i] = null;
+			}
+		}
+		touchedCount = 0;
+		for (int i = 0; i < SECTIONS; i++)
+			current[i] = 0;
+		tracesStart = Globals.c_traces_total;
+	}
+
+	/** Clears the recorded frames. */
+	public static synchronized void reset() {
+		for (int i = 0; i < SECTIONS; i++) {
+			sections[i].reset();
+			slowest[i] = 0;
+		}
+		traces.reset();
+		for (int i = 0; i < thinks.size(); i++) {
+			ThinkStats stats = thinks.get(i);
+			stats.frames.reset();
+			stats.calls = 0;
+		}
+		slowestTraces = 0;
+		slowestFrame = -1;
+		slowestThink = null;
+		slowestThinkNanos = 0;
+	}
+
+	/** Returns the statistics of the frames since the last reset. */
+	public static synchronized String report() {
+		if (clock == null)
+			return "frame profiling is not available\n";
+		if (sections[FRAME].count == 0)
+			return "no game frames recorded\n";
+
+		StringBuffer sb = new StringBuffer();
+		sb.append(sections[FRAME].count).append(" game frames, times in us\n");
+		sb.append(pad("", 14)).append(pad("avg", 8)).append(pad("p50", 8))
+				.append(pad("p99", 8)).append(pad("max", 8)).append('\n');
+		for (int i = 0; i < SECTIONS; i++)
+			line(sb, sectionNames[i], sections[i], 1000);
+		line(sb, "traces", traces, 1);
+
+		ArrayList<ThinkStats> top = new ArrayList<ThinkStats>();
+		for (int i = 0; i < thinks.size(); i++) {
+			ThinkStats stats = thinks.get(i);
+			if (stats.calls != 0)
+				top.add(stats);
+		}
+		if (!top.isEmpty()) {
+			Collections.sort(top, new Comparator<ThinkStats>() {
+				public int compare(ThinkStats a, ThinkStats b) {
+					long d = b.frames.sum - a.frames.sum;
+					return d < 0 ? -1 : d > 0 ? 1 : 0;
+				}
+			});
+			sb.append("thinks by total time, per frame that ran them:\n");
+			for (int i = 0; i < top.size() && i < TOP_THINKS; i++) {
+				ThinkStats stats = top.get(i);
+				line(sb, stats.id, stats.frames, 1000);
+			}
+		}
+
+		sb.append("slowest frame ").append(slowestFrame).append(':');
+		for (int i = 0; i < SECTIONS; i++)
+			sb.append(' ').append(sectionNames[i]).append(' ')
+					.append(slowest[i] / 1000);
+		sb.append(", ").append(slowestTraces).append(" traces");
+		if (slowestThink != null)
+			sb.append(", most in ").append(slowestThink).append(' ')
+					.append(slowestThinkNanos / 1000);
+		sb.append('\n');
+		return sb.toString();
+	}
+
+	private static void line(StringBuffer sb, String name, Histogram h, long unit) {
+		sb.append(pad(name, 14));
+		sb.append(pad(String.valueOf(h.mean() / unit), 8));
+		sb.append(pad(String.valueOf(h.percentile(50) / unit), 8));
+		sb.append(pad(String.valueOf(h.percentile(99) / unit), 8));
+		sb.append(pad(String.valueOf(h.max / unit), 8));
+		sb.append('\n');
+	}
+
+	private static String pad(String s, int width) {
+		StringBuffer sb = new StringBuffer(s);
+		sb.append(' ');
+		while (sb.length() < width)
+			sb.append(' ');
+		return sb.toString();
+	}
+}
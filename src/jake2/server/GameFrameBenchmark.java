@@ -0,0 +1,129 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.EdictIterator;
+import jake2.game.GameBase;
+import jake2.game.GameWeapon;
+import jake2.game.cmodel_t;
+import jake2.game.edict_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Defines;
+import jake2.tools.Bench;
+import jake2.util.Vec3Pool;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Measures the world part of a server frame, G_RunFrame and
+ * SV_PrepWorldFrame, on freshly spawned maps. Shooters placed at the player
+ * spawn points fire blaster bolts in random directions, so that edicts are
+ * allocated and freed every frame like in a fight; use 0 shooters for a
+ * single player map full of monsters and 32 on a deathmatch map.
+ *
+ * usage: GameFrameBenchmark [frames] [shooters] [map...]
+ */
+public class GameFrameBenchmark {
+
+  public static void main(String[] args) {
+    int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    int shooters = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    String[] maps = { "base1", "q2dm1" };
+    if (args.length > 2) {
+      maps = new String[args.length - 2];
+      System.arraycopy(args, 2, maps, 0, maps.length);
+    }
+
+    Bench.init();
+    SV_GAME.SV_InitGameProgs();
+
+    for (int i = 0; i < maps.length; i++) {
+      cmodel_t world;
+      try {
+        world = Bench.loadMap("maps/" + maps[i] + ".bsp");
+      } catch (RuntimeException e) {
+        System.out.println("skipping " + maps[i] + ": " + e.getMessage());
+        continue;
+      }
+      SpawnBenchmark.spawn(maps[i], world, CM.CM_EntityString());
+      edict_t[] guns = placeShooters(shooters);
+      Random random = new Random(1234);
+
+      // warm up
+      run(guns, random, frames / 4);
+
+      long alloc = Bench.allocatedBytes();
+      long start = System.nanoTime();
+      int live = run(guns, random, frames);
+      Bench.report(maps[i] + ", " + guns.length + " shooters, " + live
+          + " edicts in use of " + GameBase.num_edicts + ", frame", frames,
+          System.nanoTime() - start, Bench.allocatedBytes() - alloc);
+      System.out.println("scratch vectors in use at most: "
+          + Vec3Pool.main.peak());
+    }
+  }
+
+  /** Puts up to count shooters at the deathmatch or single player starts. */
+  private static edict_t[] placeShooters(int count) {
+    ArrayList<edict_t> spots = new ArrayList<edict_t>();
+    String[] classnames = { "info_player_deathmatch", "info_player_start" };
+    for (int c = 0; c < classnames.length && spots.isEmpty(); c++) {
+      EdictIterator es = null;
+      while ((es = GameBase.G_Find(es, GameBase.findByClass, classnames[c])) != null) {
+        spots.add(es.o);
+      }
+    }
+
+    edict_t[] guns = new edict_t[spots.isEmpty() ? 0 : count];
+    for (int i = 0; i < guns.length; i++) {
+      guns[i] = spots.get(i % spots.size());
+    }
+    return guns;
+  }
+
+  /** @return the number of edicts in use after the last frame */
+  private static int run(edict_t[] guns, Random random, int frames) {
+    float[] dir = { 0, 0, 0 };
+    for (int f = 0; f < frames; f++) {
+      for (int i = 0; i < guns.length; i++) {
+        // about one bolt per second and shooter
+        if (random.nextInt(10) != 0) {
+          continue;
+        }
+        for (int j = 0; j < 3; j++) {
+          dir[j] = random.nextFloat() - 0.5f;
+        }
+        GameWeapon.fire_blaster(guns[i], guns[i].s.origin, dir, 15, 1000,
+            Defines.EF_BLASTER, false);
+      }
+      GameBase.G_RunFrame();
+      SV_MAIN.SV_PrepWorldFrame();
+      Vec3Pool.main.endFrame();
+    }
+
+    int live = 0;
+    for (int i = 0; i < GameBase.num_edicts; i++) {
+      if (GameBase.g_edicts[i].inuse) {
+        live++;
+      }
+    }
+    return live;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+/**
+ * A fixed size histogram of non-negative values with four buckets per power
+ * of two, so percentiles are within 25% of the recorded values. Recording
+ * does not allocate.
+ */
+final class Histogram {
+
+	private static final int SUB_BUCKETS = 4;
+
+	// values below SUB_BUCKETS get a bucket each, then 4 per power of two
+	private static final int BUCKETS = 62 * SUB_BUCKETS;
+
+	private final long counts[] = new long[BUCKETS];
+
+	long count;
+	long sum;
+	long max;
+
+	void record(long value) {
+		if (value < 0)
+			value = 0;
+		counts[bucket(value)]++;
+		count++;
+		sum += value;
+		if (value > max)
+			max = value;
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts[i] = 0;
+		count = sum = max = 0;
+	}
+
+	long mean() {
+		return count == 0 ? 0 : sum / count;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given percentile,
+	 * at most the largest recorded value.
+	 */
+	long percentile(double p) {
+		if (count == 0)
+			return 0;
+		long rank = (long) Math.ceil(count * p / 100);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(upperBound(i), max);
+		}
+		return max;
+	}
+
+	private static int bucket(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exp = log2(value);
+		int sub = (int) (value >>> (exp - 2)) & (SUB_BUCKETS - 1);
+		return (exp - 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exp = bucket / SUB_BUCKETS + 1;
+		int sub = bucket % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + sub + 1) << (exp - 2)) - 1;
+	}
+
+	// Long.numberOfLeadingZeros is not available in the browser
+	private static int log2(long value) {
+		int high = (int) (value >>> 32);
+		if (high != 0)
+			return 63 - Integer.numberOfLeadingZeros(high);
+		return 31 - Integer.numberOfLeadingZeros((int) value);
+	}
+}
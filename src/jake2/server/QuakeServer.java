@@ -33,7 +33,6 @@ import jake2.qcommon.Qcommon;
 import jake2.qcommon.ResourceLoader;
 import jake2.sound.DummyDriver;
 import jake2.sound.S;
-import jake2.sys.Timer;
 
 public class QuakeServer {
 
@@ -41,7 +40,11 @@ public class QuakeServer {
 //      + System.getProperty("java.version");
 //  public static final String CPUSTRING = System.getProperty("os.arch");
 
-  public static void run(String[] args) {
+  /**
+   * Initializes a dedicated server. The caller drives it by calling frame()
+   * from its own loop.
+   */
+  public static void init(String[] args) {
     Globals.dedicated = Cvar.Get("dedicated", "1", CVAR_NOSET);
 
     // in C the first arg is the filename
@@ -64,25 +67,27 @@ public class QuakeServer {
     // Start off on map demo1.
 //    Cbuf.AddText("begin\n");
 //    Cbuf.Execute();
+  }
 
-    long oldtime = Timer.Milliseconds();
-    long newtime;
-    long time;
-    while (true) {
-      // find time spending rendering last frame
-      newtime = Timer.Milliseconds();
-      time = newtime - oldtime;
-
-      ResourceLoader.Pump();
-      if (time > 0) {
-        try {
-          Qcommon.Frame((int)time);
-        } catch (Throwable e) {
-          Compatibility.printStackTrace(e);
-        }
-      }
-      oldtime = newtime;
+  /**
+   * Runs one host frame of msec milliseconds. SV_Frame waits in NET.Sleep
+   * until a packet arrives or the next game frame is due.
+   *
+   * @return true if a game frame (sv.framenum) was run
+   */
+  public static boolean frame(int msec) {
+    int framenum = SV_INIT.sv.framenum;
+    ResourceLoader.Pump();
+    try {
+      Qcommon.Frame(msec);
+    } catch (Throwable e) {
+      Compatibility.printStackTrace(e);
     }
+    return SV_INIT.sv.framenum != framenum;
+  }
+
+  /** Returns true while a map is loaded and game frames are being run. */
+  public static boolean isRunning() {
+    return SV_INIT.svs.initialized;
   }
-  
 }
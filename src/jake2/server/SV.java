@@ -24,7 +24,10 @@
 package jake2.server;
 
 import jake2.client.M;
+import jake2.game.EntThinkAdapter;
 import jake2.game.GameBase;
+import jake2.game.LiveEdicts;
+import jake2.game.ThinkWheel;
 import jake2.game.edict_t;
 import jake2.game.pushed_t;
 import jake2.game.trace_t;
@@ -33,6 +36,7 @@ import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
 import jake2.util.Lib;
 import jake2.util.Math3D;
+import jake2.util.Vec3Pool;
 
 /**
  * SV
@@ -85,12 +89,19 @@ public final class SV {
         if (thinktime > GameBase.level.time + 0.001)
             return true;
 
-        ent.nextthink = 0;
+        ThinkWheel.setNextthink(ent, 0);
 
         if (ent.think == null)
             Com.Error(Defines.ERR_FATAL, "NULL ent.think");
 
-        ent.think.think(ent);
+        if (FrameProfiler.clock != null) {
+            EntThinkAdapter think = ent.think;
+            long start = FrameProfiler.start();
+            think.think(ent);
+            FrameProfiler.think(think, start);
+        } else {
+            ent.think.think(ent);
+        }
 
         return false;
     }
@@ -119,19 +130,24 @@ public final class SV {
      */
     public final static int MAX_CLIP_PLANES = 5;
 
+    // SV_FlyMove's clip planes; the touch functions SV_Impact calls never
+    // move entities, so it does not nest
+    private static final float[][] flyPlanes = new float[MAX_CLIP_PLANES][3];
+
     public static int SV_FlyMove(edict_t ent, float time, int mask) {
         edict_t hit;
         int bumpcount, numbumps;
-        float[] dir = { 0.0f, 0.0f, 0.0f };
+        int mark = Vec3Pool.main.mark();
+        float[] dir = Vec3Pool.main.get();
         float d;
         int numplanes;
-        float[][] planes = new float[MAX_CLIP_PLANES][3];
-        float[] primal_velocity = { 0.0f, 0.0f, 0.0f };
-        float[] original_velocity = { 0.0f, 0.0f, 0.0f };
-        float[] new_velocity = { 0.0f, 0.0f, 0.0f };
+        float[][] planes = flyPlanes;
+        float[] primal_velocity = Vec3Pool.main.get();
+        float[] original_velocity = Vec3Pool.main.get();
+        float[] new_velocity = Vec3Pool.main.get();
         int i, j;
         trace_t trace;
-        float[] end = { 0.0f, 0.0f, 0.0f };
+        float[] end = Vec3Pool.main.get();
         float time_left;
         int blocked;
 
@@ -154,6 +170,7 @@ public final class SV {
 
             if (trace.allsolid) { // entity is trapped in another solid
                 Math3D.VectorCopy(Globals.vec3_origin, ent.velocity);
+                Vec3Pool.main.release(mark);
                 return 3;
             }
 
@@ -192,6 +209,7 @@ public final class SV {
             if (numplanes >= MAX_CLIP_PLANES) { // this shouldn't
                                                          // really happen
                 Math3D.VectorCopy(Globals.vec3_origin, ent.velocity);
+                Vec3Pool.main.release(mark);
                 return 3;
             }
 
@@ -222,6 +240,7 @@ public final class SV {
                     //					gi.dprintf ("clip velocity, numplanes ==
                     // %i\n",numplanes);
                     Math3D.VectorCopy(Globals.vec3_origin, ent.velocity);
+                    Vec3Pool.main.release(mark);
                     return 7;
                 }
                 Math3D.CrossProduct(planes[0], planes[1], dir);
@@ -235,10 +254,12 @@ public final class SV {
             //
             if (Math3D.DotProduct(ent.velocity, primal_velocity) <= 0) {
                 Math3D.VectorCopy(Globals.vec3_origin, ent.velocity);
+                Vec3Pool.main.release(mark);
                 return blocked;
             }
         }
 
+        Vec3Pool.main.release(mark);
         return blocked;
     }
 
@@ -255,8 +276,9 @@ public final class SV {
      */
     public static trace_t SV_PushEntity(edict_t ent, float[] push) {
         trace_t trace;
-        float[] start = { 0, 0, 0 };
-        float[] end = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] start = Vec3Pool.main.get();
+        float[] end = Vec3Pool.main.get();
         int mask;
 
         Math3D.VectorCopy(ent.s.origin, start);
@@ -296,6 +318,7 @@ public final class SV {
         if (ent.inuse)
             GameBase.G_TouchTriggers(ent);
 
+        Vec3Pool.main.release(mark);
         return trace;
     }
 
@@ -306,15 +329,16 @@ public final class SV {
     public static boolean SV_Push(edict_t pusher, float[] move, float[] amove) {
         int i, e;
         edict_t check, block[];
-        float[] mins = { 0, 0, 0 };
-        float[] maxs = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] mins = Vec3Pool.main.get();
+        float[] maxs = Vec3Pool.main.get();
         pushed_t p;
-        float[] org = { 0, 0, 0 };
-        float[] org2 = { 0, 0, 0 };
-        float[] move2 = { 0, 0, 0 };
-        float[] forward = { 0, 0, 0 };
-        float[] right = { 0, 0, 0 };
-        float[] up = { 0, 0, 0 };
+        float[] org = Vec3Pool.main.get();
+        float[] org2 = Vec3Pool.main.get();
+        float[] move2 = Vec3Pool.main.get();
+        float[] forward = Vec3Pool.main.get();
+        float[] right = Vec3Pool.main.get();
+        float[] up = Vec3Pool.main.get();
 
         // clamp the move to 1/8 units, so the position will
         // be accurate for client side prediction
@@ -358,7 +382,8 @@ public final class SV {
         //	   see if any solid entities are inside the final position
 
         //check= g_edicts + 1;
-        for (e = 1; e < GameBase.num_edicts; e++) {
+        for (e = LiveEdicts.next(1); e < GameBase.num_edicts;
+                e = LiveEdicts.next(e + 1)) {
             check = GameBase.g_edicts[e];
             if (!check.inuse)
                 continue;
@@ -449,6 +474,7 @@ public final class SV {
                 }
                 GameBase.gi.linkentity(p.ent);
             }
+            Vec3Pool.main.release(mark);
             return false;
         }
 
@@ -457,6 +483,7 @@ public final class SV {
         for (int ip = GameBase.pushed_p - 1; ip >= 0; ip--)
             GameBase.G_TouchTriggers(GameBase.pushed[ip].ent);
 
+        Vec3Pool.main.release(mark);
         return true;
     }
 
@@ -465,13 +492,16 @@ public final class SV {
      * Bmodel objects don't interact with each other, but push all box objects.
      */
     public static void SV_Physics_Pusher(edict_t ent) {
-        float[] move = { 0, 0, 0 };
-        float[] amove = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] move = Vec3Pool.main.get();
+        float[] amove = Vec3Pool.main.get();
         edict_t part, mv;
 
         // if not a team captain, so movement will be handled elsewhere
-        if ((ent.flags & Defines.FL_TEAMSLAVE) != 0)
+        if ((ent.flags & Defines.FL_TEAMSLAVE) != 0) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         // make sure all team slaves can move before commiting
         // any moves or calling any think functions
@@ -499,7 +529,7 @@ public final class SV {
             // the move failed, bump all nextthink times and back out moves
             for (mv = ent; mv != null; mv = mv.teamchain) {
                 if (mv.nextthink > 0)
-                    mv.nextthink += Defines.FRAMETIME;
+                    ThinkWheel.setNextthink(mv, mv.nextthink + Defines.FRAMETIME);
             }
 
             // if the pusher has a "blocked" function, call it
@@ -511,6 +541,7 @@ public final class SV {
                 SV_RunThink(part);
             }
         }
+        Vec3Pool.main.release(mark);
     }
 
 
@@ -544,19 +575,22 @@ public final class SV {
     public static void SV_Physics_Toss(edict_t ent) {
 
         trace_t trace;
-        float[] move = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] move = Vec3Pool.main.get();
         float backoff;
         edict_t slave;
         boolean wasinwater;
         boolean isinwater;
-        float[] old_origin = { 0, 0, 0 };
+        float[] old_origin = Vec3Pool.main.get();
 
         //	   regular thinking
         SV_RunThink(ent);
 
         // if not a team captain, so movement will be handled elsewhere
-        if ((ent.flags & Defines.FL_TEAMSLAVE) != 0)
+        if ((ent.flags & Defines.FL_TEAMSLAVE) != 0) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         if (ent.velocity[2] > 0)
             ent.groundentity = null;
@@ -567,8 +601,10 @@ public final class SV {
                 ent.groundentity = null;
 
         //	   if onground, return without moving
-        if (ent.groundentity != null)
+        if (ent.groundentity != null) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         Math3D.VectorCopy(ent.s.origin, old_origin);
 
@@ -586,8 +622,10 @@ public final class SV {
         //	   move origin
         Math3D.VectorScale(ent.velocity, Defines.FRAMETIME, move);
         trace = SV_PushEntity(ent, move);
-        if (!ent.inuse)
+        if (!ent.inuse) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         if (trace.fraction < 1) {
             if (ent.movetype == Defines.MOVETYPE_BOUNCE)
@@ -635,6 +673,7 @@ public final class SV {
             Math3D.VectorCopy(ent.s.origin, slave.s.origin);
             GameBase.gi.linkentity(slave);
         }
+        Vec3Pool.main.release(mark);
     }
 
 
@@ -794,14 +833,15 @@ public final class SV {
     // doing it again later in catagorize position?
     public static boolean SV_movestep(edict_t ent, float[] move, boolean relink) {
         float dz;
-        float[] oldorg = { 0, 0, 0 };
-        float[] neworg = { 0, 0, 0 };
-        float[] end = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] oldorg = Vec3Pool.main.get();
+        float[] neworg = Vec3Pool.main.get();
+        float[] end = Vec3Pool.main.get();
 
         trace_t trace = null; // = new trace_t();
         int i;
         float stepsize;
-        float[] test = { 0, 0, 0 };
+        float[] test = Vec3Pool.main.get();
         int contents;
 
         //	   try the move
@@ -844,8 +884,10 @@ public final class SV {
                         test[1] = trace.endpos[1];
                         test[2] = trace.endpos[2] + ent.mins[2] + 1;
                         contents = GameBase.gi.pointcontents.pointcontents(test);
-                        if ((contents & Defines.MASK_WATER) != 0)
+                        if ((contents & Defines.MASK_WATER) != 0) {
+                            Vec3Pool.main.release(mark);
                             return false;
+                        }
                     }
                 }
 
@@ -856,8 +898,10 @@ public final class SV {
                         test[1] = trace.endpos[1];
                         test[2] = trace.endpos[2] + ent.mins[2] + 1;
                         contents = GameBase.gi.pointcontents.pointcontents(test);
-                        if ((contents & Defines.MASK_WATER) == 0)
+                        if ((contents & Defines.MASK_WATER) == 0) {
+                            Vec3Pool.main.release(mark);
                             return false;
+                        }
                     }
                 }
 
@@ -867,6 +911,7 @@ public final class SV {
                         GameBase.gi.linkentity(ent);
                         GameBase.G_TouchTriggers(ent);
                     }
+                    Vec3Pool.main.release(mark);
                     return true;
                 }
 
@@ -874,6 +919,7 @@ public final class SV {
                     break;
             }
 
+            Vec3Pool.main.release(mark);
             return false;
         }
 
@@ -890,15 +936,19 @@ public final class SV {
         trace = GameBase.gi.trace(neworg, ent.mins, ent.maxs, end, ent,
                 Defines.MASK_MONSTERSOLID);
 
-        if (trace.allsolid)
+        if (trace.allsolid) {
+            Vec3Pool.main.release(mark);
             return false;
+        }
 
         if (trace.startsolid) {
             neworg[2] -= stepsize;
             trace = GameBase.gi.trace(neworg, ent.mins, ent.maxs, end, ent,
                     Defines.MASK_MONSTERSOLID);
-            if (trace.allsolid || trace.startsolid)
+            if (trace.allsolid || trace.startsolid) {
+                Vec3Pool.main.release(mark);
                 return false;
+            }
         }
 
         // don't go in to water
@@ -908,8 +958,10 @@ public final class SV {
             test[2] = trace.endpos[2] + ent.mins[2] + 1;
             contents = GameBase.gi.pointcontents.pointcontents(test);
 
-            if ((contents & Defines.MASK_WATER) != 0)
+            if ((contents & Defines.MASK_WATER) != 0) {
+                Vec3Pool.main.release(mark);
                 return false;
+            }
         }
 
         if (trace.fraction == 1) {
@@ -921,9 +973,11 @@ public final class SV {
                     GameBase.G_TouchTriggers(ent);
                 }
                 ent.groundentity = null;
+                Vec3Pool.main.release(mark);
                 return true;
             }
 
+            Vec3Pool.main.release(mark);
             return false; // walked off an edge
         }
 
@@ -938,9 +992,11 @@ public final class SV {
                     GameBase.gi.linkentity(ent);
                     GameBase.G_TouchTriggers(ent);
                 }
+                Vec3Pool.main.release(mark);
                 return true;
             }
             Math3D.VectorCopy(oldorg, ent.s.origin);
+            Vec3Pool.main.release(mark);
             return false;
         }
 
@@ -955,6 +1011,7 @@ public final class SV {
             GameBase.gi.linkentity(ent);
             GameBase.G_TouchTriggers(ent);
         }
+        Vec3Pool.main.release(mark);
         return true;
     }
 
@@ -963,8 +1020,9 @@ public final class SV {
      * it.
      */
     public static boolean SV_StepDirection(edict_t ent, float yaw, float dist) {
-        float[] move = { 0, 0, 0 };
-        float[] oldorigin = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float[] move = Vec3Pool.main.get();
+        float[] oldorigin = Vec3Pool.main.get();
         float delta;
 
         ent.ideal_yaw = yaw;
@@ -984,10 +1042,12 @@ public final class SV {
             }
             GameBase.gi.linkentity(ent);
             GameBase.G_TouchTriggers(ent);
+            Vec3Pool.main.release(mark);
             return true;
         }
         GameBase.gi.linkentity(ent);
         GameBase.G_TouchTriggers(ent);
+        Vec3Pool.main.release(mark);
         return false;
     }
 
@@ -1001,12 +1061,14 @@ public final class SV {
 
     public static void SV_NewChaseDir(edict_t actor, edict_t enemy, float dist) {
         float deltax, deltay;
-        float d[] = { 0, 0, 0 };
+        int mark = Vec3Pool.main.mark();
+        float d[] = Vec3Pool.main.get();
         float tdir, olddir, turnaround;
 
         //FIXME: how did we get here with no enemy
         if (enemy == null) {
             Com.DPrintf("SV_NewChaseDir without enemy!\n");
+            Vec3Pool.main.release(mark);
             return;
         }
         olddir = Math3D.anglemod((int) (actor.ideal_yaw / 45) * 45);
@@ -1034,8 +1096,10 @@ public final class SV {
             else
                 tdir = d[2] == 90 ? 135 : 215;
 
-            if (tdir != turnaround && SV_StepDirection(actor, tdir, dist))
+            if (tdir != turnaround && SV_StepDirection(actor, tdir, dist)) {
+                Vec3Pool.main.release(mark);
                 return;
+            }
         }
 
         //	   try other directions
@@ -1046,32 +1110,44 @@ public final class SV {
         }
 
         if (d[1] != DI_NODIR && d[1] != turnaround
-                && SV_StepDirection(actor, d[1], dist))
+                && SV_StepDirection(actor, d[1], dist)) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         if (d[2] != DI_NODIR && d[2] != turnaround
-                && SV_StepDirection(actor, d[2], dist))
+                && SV_StepDirection(actor, d[2], dist)) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         /* there is no direct path to the player, so pick another direction */
 
         if (olddir != DI_NODIR
-                && SV_StepDirection(actor, olddir, dist))
+                && SV_StepDirection(actor, olddir, dist)) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         if ((Lib.rand() & 1) != 0) /* randomly determine direction of search */{
             for (tdir = 0; tdir <= 315; tdir += 45)
-                if (tdir != turnaround && SV_StepDirection(actor, tdir, dist))
+                if (tdir != turnaround && SV_StepDirection(actor, tdir, dist)) {
+                    Vec3Pool.main.release(mark);
                     return;
+                }
         } else {
             for (tdir = 315; tdir >= 0; tdir -= 45)
-                if (tdir != turnaround && SV_StepDirection(actor, tdir, dist))
+                if (tdir != turnaround && SV_StepDirection(actor, tdir, dist)) {
+                    Vec3Pool.main.release(mark);
                     return;
+                }
         }
 
         if (turnaround != DI_NODIR
-                && SV_StepDirection(actor, turnaround, dist))
+                && SV_StepDirection(actor, turnaround, dist)) {
+            Vec3Pool.main.release(mark);
             return;
+        }
 
         actor.ideal_yaw = olddir; // can't move
 
@@ -1080,6 +1156,7 @@ public final class SV {
 
         if (!M.M_CheckBottom(actor))
             SV_FixCheckBottom(actor);
+        Vec3Pool.main.release(mark);
     }
 
     /**
@@ -25,10 +25,10 @@ package jake2.server;
 
 
 import jake2.game.Cmd;
-import jake2.game.EndianHandler;
 import jake2.game.GameSVCmds;
 import jake2.game.GameSave;
 import jake2.game.Info;
+import jake2.game.LiveEdicts;
 import jake2.game.cvar_t;
 import jake2.qcommon.CM;
 import jake2.qcommon.Com;
@@ -56,6 +56,8 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.google.gwt.user.client.Command;
 
@@ -186,6 +188,26 @@ public class SV_CCMDS {
 		}
 	}
 	
+	/**
+	 * The level files of save/current kept in memory instead of on disk, by
+	 * file name. Coop changelevels write their levels here, they are only
+	 * written out when the game is saved.
+	 */
+	static final HashMap<String, byte[]> levelSnapshots = new HashMap<String, byte[]>();
+
+	/** Returns true if the levels of save/current are kept in memory. */
+	static boolean SV_SnapshotLevels() {
+		return Cvar.VariableValue("coop") != 0;
+	}
+
+	/** Returns true if save/current contains a saved level of the given name. */
+	static boolean SV_LevelSaved(String level) {
+		if (levelSnapshots.containsKey(level + ".sav"))
+			return true;
+
+		return new File(FS.Gamedir() + "/save/current/" + level + ".sav").exists();
+	}
+
 	/** Delete save files save/(number)/.  */
 	public static void SV_WipeSavegame(String savename) {
 
@@ -193,6 +215,9 @@ public class SV_CCMDS {
 
 		Com.DPrintf("SV_WipeSaveGame(" + savename + ")\n");
 
+		if (savename.equals("current"))
+			levelSnapshots.clear();
+
 		name = FS.Gamedir() + "/save/" + savename + "/server.ssv";
 		remove(name);
 
@@ -319,6 +344,11 @@ public class SV_CCMDS {
 		found = Sys.FindFirst(name, 0, 0);
 
 		while (found != null) {
+			if (src.equals("current") && levelSnapshots.containsKey(found.getName())) {
+				// outdated, the level is written from its snapshot below
+				found = Sys.FindNext();
+				continue;
+			}
 			name = name1 + found.getName();
 			name2 = FS.Gamedir() + "/save/" + dst + "/" + found.getName();
 
@@ -333,6 +363,19 @@ public class SV_CCMDS {
 			found = Sys.FindNext();
 		}
 		Sys.FindClose();
+
+		if (src.equals("current")) {
+			for (Map.Entry<String, byte[]> e : levelSnapshots.entrySet()) {
+				name2 = FS.Gamedir() + "/save/" + dst + "/" + e.getKey();
+				try {
+					QuakeFile.write(name2, e.getValue(), e.getValue().length);
+				}
+				catch (IOException ex) {
+					Com.Printf("Couldn't write " + name2 + "\n");
+					Compatibility.printStackTrace(ex);
+				}
+			}
+		}
 	}
 	/*
 	==============
@@ -347,22 +390,32 @@ public class SV_CCMDS {
 
 		Com.DPrintf("SV_WriteLevelFile()\n");
 
+		boolean snapshot = SV_SnapshotLevels();
 		name = FS.Gamedir() + "/save/current/" + SV_INIT.sv.name + ".sv2";
 
 		try {
-			f = new QuakeFile(name, "rw");
+			f = snapshot ? new QuakeFile() : new QuakeFile(name, "rw");
 
 			for (int i = 0; i < Defines.MAX_CONFIGSTRINGS; i++)
 				f.writeString(SV_INIT.sv.configstrings[i]);
 
 			CM.CM_WritePortalState(f);
 			f.close();
+			if (snapshot)
+				levelSnapshots.put(SV_INIT.sv.name + ".sv2", f.toByteArray());
 		}
 		catch (Exception e) {
 			Com.Printf("Failed to open " + name + "\n");
 			Compatibility.printStackTrace(e);
 		}
 
+		if (snapshot) {
+			f = new QuakeFile();
+			GameSave.WriteLevel(f);
+			levelSnapshots.put(SV_INIT.sv.name + ".sav", f.toByteArray());
+			return;
+		}
+
 		name = FS.Gamedir() + "/save/current/" + SV_INIT.sv.name + ".sav";
 		GameSave.WriteLevel(name);
 	}
@@ -378,12 +431,16 @@ public class SV_CCMDS {
 
 		Com.DPrintf("SV_ReadLevelFile()\n");
 
+		byte sv2[] = levelSnapshots.get(SV_INIT.sv.name + ".sv2");
+		byte sav[] = levelSnapshots.get(SV_INIT.sv.name + ".sav");
+
 		name = FS.Gamedir() + "/save/current/" + SV_INIT.sv.name + ".sv2";
 		try {
-			f = new QuakeFile(name, "r");
+			f = sv2 != null ? new QuakeFile(sv2) : new QuakeFile(name, "r");
 
 			for (int n = 0; n < Defines.MAX_CONFIGSTRINGS; n++)
 				SV_INIT.sv.configstrings[n] = f.readString();
+			SV_INIT.SV_ConfigstringChanged(-1);
 
 			CM.CM_ReadPortalState(f);
 
@@ -394,6 +451,11 @@ public class SV_CCMDS {
 			Compatibility.printStackTrace(e1);
 		}
 
+		if (sav != null) {
+			GameSave.ReadLevel(new QuakeFile(sav));
+			return;
+		}
+
 		name = FS.Gamedir() + "/save/current/" + SV_INIT.sv.name + ".sav";
 		GameSave.ReadLevel(name);
 	}
@@ -581,7 +643,7 @@ public class SV_CCMDS {
 				for (i = 0; i < SV_MAIN.maxclients.value; i++) {
 					cl = SV_INIT.svs.clients[i];
 					savedInuse[i] = cl.edict.inuse;
-					cl.edict.inuse = false;
+					LiveEdicts.setInuse(cl.edict, false);
 				}
 
 				SV_WriteLevelFile();
@@ -589,7 +651,7 @@ public class SV_CCMDS {
 				// we must restore these for clients to transfer over correctly
 				for (i = 0; i < SV_MAIN.maxclients.value; i++) {
 					cl = SV_INIT.svs.clients[i];
-					cl.edict.inuse = savedInuse[i];
+					LiveEdicts.setInuse(cl.edict, savedInuse[i]);
 
 				}
 				savedInuse = null;
@@ -844,6 +906,7 @@ public class SV_CCMDS {
 			Com.Printf("\n");
 		}
 		Com.Printf("\n");
+		Com.Printf(DeltaCache.stats());
 	}
 	/*
 	==================
@@ -926,9 +989,7 @@ public class SV_CCMDS {
 	public static void SV_ServerRecord_f() {
 		//char	name[MAX_OSPATH];
 		String name;
-		byte buf_data[] = new byte[32768];
-		sizebuf_t buf = new sizebuf_t();
-		int len;
+		sizebuf_t buf;
 		int i;
 
 		if (Cmd.Argc() != 2) {
@@ -954,7 +1015,7 @@ public class SV_CCMDS {
 		Com.Printf("recording to " + name + ".\n");
 		FS.CreatePath(name);
 		try {
-			SV_INIT.svs.demofile = new RandomAccessFile(name, "rw");
+			SV_INIT.svs.demofile = DemoRecorder.open(name);
 		}
 		catch (Exception e) {
 			Com.Printf("ERROR: couldn't open.\n");
@@ -968,7 +1029,7 @@ public class SV_CCMDS {
 		//
 		// write a single giant fake message with all the startup info
 		//
-		SZ.Init(buf, buf_data, buf_data.length);
+		buf = SV_INIT.svs.demofile.message();
 
 		//
 		// serverdata needs to go over for all types of servers
@@ -986,7 +1047,7 @@ public class SV_CCMDS {
 		MSG.WriteString(buf, SV_INIT.sv.configstrings[Defines.CS_NAME]);
 
 		for (i = 0; i < Defines.MAX_CONFIGSTRINGS; i++)
-			if (SV_INIT.sv.configstrings[i].length() == 0) {
+			if (SV_INIT.sv.configstrings[i] != null && SV_INIT.sv.configstrings[i].length() != 0) {
 				MSG.WriteByte(buf, Defines.svc_configstring);
 				MSG.WriteShort(buf, i);
 				MSG.WriteString(buf, SV_INIT.sv.configstrings[i]);
@@ -994,17 +1055,7 @@ public class SV_CCMDS {
 
 		// write it to the demo file
 		Com.DPrintf("signon message length: " + buf.cursize + "\n");
-		len = EndianHandler.swapInt(buf.cursize);
-		//fwrite(len, 4, 1, svs.demofile);
-		//fwrite(buf.data, buf.cursize, 1, svs.demofile);
-		try {
-			SV_INIT.svs.demofile.writeInt(len);
-			SV_INIT.svs.demofile.write(buf.data, 0, buf.cursize);
-		}
-		catch (IOException e1) {
-			// TODO: do quake2 error handling!
-			Compatibility.printStackTrace(e1);
-		}
+		SV_INIT.svs.demofile.writeSignon(SV_INIT.sv.configstrings);
 
 		// the rest of the demo file will be individual frames
 	}
@@ -1030,6 +1081,36 @@ public class SV_CCMDS {
 		Com.Printf("Recording completed.\n");
 	}
 	/*
+	==============
+	SV_DemoSeek_f
+	
+	Continues server demo playback at the last keyframe before the given
+	number of seconds into the demo
+	==============
+	*/
+	public static void SV_DemoSeek_f() {
+		if (Cmd.Argc() != 2) {
+			Com.Printf("demoseek <seconds>\n");
+			return;
+		}
+
+		if (SV_INIT.sv.state != Defines.ss_demo || SV_INIT.sv.demofile == null) {
+			Com.Printf("Not playing a server demo.\n");
+			return;
+		}
+
+		DemoIndex index = SV_INIT.sv.demoindex;
+		if (index == null) {
+			Com.Printf("This demo has no keyframe index.\n");
+			return;
+		}
+
+		int frame = index.frames[0] + (int) (Lib.atof(Cmd.Argv(1)) / Defines.FRAMETIME);
+		int k = index.find(frame);
+		index.seek(SV_INIT.sv.demofile, k);
+		Com.Printf("demo at " + (index.frames[k] - index.frames[0]) * Defines.FRAMETIME + " seconds.\n");
+	}
+	/*
 	===============
 	SV_KillServer_f
 	
@@ -1054,6 +1135,18 @@ public class SV_CCMDS {
 
 		GameSVCmds.ServerCommand();
 	}
+	/*
+	===============
+	SV_Stats_f
+	
+	Prints the frame profile, "sv_stats reset" clears it
+	===============
+	*/
+	public static void SV_Stats_f() {
+		Com.Printf(FrameProfiler.report());
+		if (Cmd.Argc() > 1 && Cmd.Argv(1).equalsIgnoreCase("reset"))
+			FrameProfiler.reset();
+	}
 	//===========================================================
 
 	/*
@@ -1126,6 +1219,11 @@ public class SV_CCMDS {
 				SV_ServerStop_f();
 			}
 		});
+		Cmd.AddCommand("demoseek", new xcommand_t() {
+			public void execute() {
+				SV_DemoSeek_f();
+			}
+		});
 
 		Cmd.AddCommand("save", new xcommand_t() {
 			public void execute() {
@@ -1149,5 +1247,11 @@ public class SV_CCMDS {
 				SV_ServerCommand_f();
 			}
 		});
+
+		Cmd.AddCommand("sv_stats", new xcommand_t() {
+			public void execute() {
+				SV_Stats_f();
+			}
+		});
 	}
 }
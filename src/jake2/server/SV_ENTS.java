@@ -26,8 +26,7 @@ package jake2.server;
 import jake2.game.*;
 import jake2.qcommon.*;
 import jake2.util.Math3D;
-
-import java.io.IOException;
+import jake2.util.Vec3Pool;
 
 public class SV_ENTS {
 
@@ -39,7 +38,6 @@ public class SV_ENTS {
      * =============================================================================
      */
 
-    public static byte fatpvs[] = new byte[65536 / 8]; // 32767 is MAX_MAP_LEAFS
 
     /*
      * =============================================================================
@@ -59,6 +57,7 @@ public class SV_ENTS {
         int oldnum, newnum;
         int from_num_entities;
         int bits;
+        int ix, oldstamp = 0, newstamp = 0;
 
         MSG.WriteByte(msg, Defines.svc_packetentities);
 
@@ -73,16 +72,18 @@ public class SV_ENTS {
             if (newindex >= to.num_entities)
                 newnum = 9999;
             else {
-                newent = SV_INIT.svs.client_entities[(to.first_entity + newindex)
-                        % SV_INIT.svs.num_client_entities];
+                ix = (to.first_entity + newindex) % SV_INIT.svs.num_client_entities;
+                newent = SV_INIT.svs.client_entities[ix];
+                newstamp = SV_INIT.svs.client_entity_stamps[ix];
                 newnum = newent.number;
             }
 
             if (oldindex >= from_num_entities)
                 oldnum = 9999;
             else {
-                oldent = SV_INIT.svs.client_entities[(from.first_entity + oldindex)
-                        % SV_INIT.svs.num_client_entities];
+                ix = (from.first_entity + oldindex) % SV_INIT.svs.num_client_entities;
+                oldent = SV_INIT.svs.client_entities[ix];
+                oldstamp = SV_INIT.svs.client_entity_stamps[ix];
                 oldnum = oldent.number;
             }
 
@@ -93,8 +94,8 @@ public class SV_ENTS {
                 // all note that players are always 'newentities', this updates
                 // their oldorigin always
                 // and prevents warping
-                MSG.WriteDeltaEntity(oldent, newent, msg, false,
-                        newent.number <= SV_MAIN.maxclients.value);
+                DeltaCache.writeDeltaEntity(oldent, oldstamp, newent, newstamp,
+                        msg, false, newent.number <= SV_MAIN.maxclients.value);
                 oldindex++;
                 newindex++;
                 continue;
@@ -102,8 +103,8 @@ public class SV_ENTS {
 
             if (newnum < oldnum) { 
             	// this is a new entity, send it from the baseline
-                MSG.WriteDeltaEntity(SV_INIT.sv.baselines[newnum], newent, msg,
-                        true, true);
+                DeltaCache.writeDeltaEntity(SV_INIT.sv.baselines[newnum], 0,
+                        newent, newstamp, msg, true, true);
                 newindex++;
                 continue;
             }
@@ -349,32 +350,51 @@ public class SV_ENTS {
     /** 
      * The client will interpolate the view position, so we can't use a single
      * PVS point. 
+     * 
+     * The result is kept in the client and only recomputed when the set of
+     * clusters around org changes.
      */
-    public static void SV_FatPVS(float[] org) {
-        int leafs[] = new int[64];
+    static byte[] SV_FatPVS(client_t client, float[] org) {
+        int leafs[] = client.leafs;
         int i, j, count;
         int longs;
         byte src[];
-        float[] mins = { 0, 0, 0 }, maxs = { 0, 0, 0 };
+        byte fatpvs[] = client.fatpvs;
+        float[] mins = client.fatMins, maxs = client.fatMaxs;
 
         for (i = 0; i < 3; i++) {
             mins[i] = org[i] - 8;
             maxs[i] = org[i] + 8;
         }
 
-        count = CM.CM_BoxLeafnums(mins, maxs, leafs, 64, null);
+        if (client.leafContext == null)
+            client.leafContext = new TraceContext();
+        count = CM.CM_BoxLeafnums(client.leafContext, mins, maxs, leafs, 64,
+                null);
 
         if (count < 1)
             Com.Error(Defines.ERR_FATAL, "SV_FatPVS: count < 1");
 
-        longs = (CM.CM_NumClusters() + 31) >> 5;
-
         // convert leafs to clusters
         for (i = 0; i < count; i++)
             leafs[i] = CM.CM_LeafCluster(leafs[i]);
 
-        System.arraycopy(CM.CM_ClusterPVS(leafs[0]), 0, SV_ENTS.fatpvs, 0,
-                longs << 2);
+        if (client.fatpvsGeneration == ClusterIndex.generation
+                && client.fatpvsClusterCount == count) {
+            for (i = 0; i < count; i++)
+                if (client.fatpvsClusters[i] != leafs[i])
+                    break;
+            if (i == count)
+                return fatpvs;
+        }
+        System.arraycopy(leafs, 0, client.fatpvsClusters, 0, count);
+        client.fatpvsClusterCount = count;
+        client.fatpvsGeneration = ClusterIndex.generation;
+
+        longs = (CM.CM_NumClusters() + 31) >> 5;
+
+        System.arraycopy(CM.CM_ClusterPVS(leafs[0], client.pvsrow), 0,
+                fatpvs, 0, longs << 2);
         // or in all the other leaf bits
         for (i = 1; i < count; i++) {
             for (j = 0; j < i; j++)
@@ -383,18 +403,19 @@ public class SV_ENTS {
             if (j != i)
                 continue; // already have the cluster we want
 
-            src = CM.CM_ClusterPVS(leafs[i]);
+            src = CM.CM_ClusterPVS(leafs[i], client.pvsrow);
 
             //for (j=0 ; j<longs ; j++)
             //	((long *)fatpvs)[j] |= ((long *)src)[j];
             int k = 0;
             for (j = 0; j < longs; j++) {
-                SV_ENTS.fatpvs[k] |= src[k++];
-                SV_ENTS.fatpvs[k] |= src[k++];
-                SV_ENTS.fatpvs[k] |= src[k++];
-                SV_ENTS.fatpvs[k] |= src[k++];
+                fatpvs[k] |= src[k++];
+                fatpvs[k] |= src[k++];
+                fatpvs[k] |= src[k++];
+                fatpvs[k] |= src[k++];
             }
         }
+        return fatpvs;
     }
 
     /**
@@ -402,23 +423,44 @@ public class SV_ENTS {
      * off the playerstat and areabits.
      */
     public static void SV_BuildClientFrame(client_t client) {
+        SV_CollectClientFrame(client);
+        SV_StoreClientFrame(client);
+    }
+
+    /**
+     * First half of SV_BuildClientFrame: copies off the playerstate and
+     * areabits and leaves the numbers of the visible edicts in
+     * client.candidates. It only reads the world and the client's own
+     * state, so it can run for several clients at once.
+     */
+    static void SV_CollectClientFrame(client_t client) {
         int e, i;
-        float[] org = { 0, 0, 0 };
+        float[] org;
+        float[] delta;
         edict_t ent;
         edict_t clent;
         client_frame_t frame;
-        entity_state_t state;
         int l;
         int clientarea, clientcluster;
         int leafnum;
         int c_fullsend;
+        byte fatpvs[];
         byte clientphs[];
         byte bitvector[];
+        int candidates[] = client.candidates;
+        int n, count, visible;
 
+        client.visibleCount = -1;
         clent = client.edict;
         if (clent.client == null)
             return; // not in game yet
 
+        // the client's own pool, this may run on a worker thread
+        Vec3Pool vectors = client.vectors;
+        int mark = vectors.mark();
+        org = vectors.get();
+        delta = vectors.get();
+
         // this is the frame we are creating
         frame = client.frames[SV_INIT.sv.framenum & Defines.UPDATE_MASK];
 
@@ -439,16 +481,30 @@ public class SV_ENTS {
         // grab the current player_state_t
         frame.ps.set(clent.client.ps);
 
-        SV_FatPVS(org);
-        clientphs = CM.CM_ClusterPHS(clientcluster);
+        fatpvs = SV_FatPVS(client, org);
+        clientphs = CM.CM_ClusterPHS(clientcluster, client.phsrow);
+
+        // only visit the entities linked into a visible cluster, in edict
+        // order; SV_EmitPacketEntities relies on ascending numbers
+        if (SV_MAIN.sv_pvsindex == null || SV_MAIN.sv_pvsindex.value != 0) {
+            count = ClusterIndex.collect(fatpvs, clientphs, clent.index,
+                    client.visibleBits, candidates);
+        } else {
+            count = 0;
+            for (e = 1; e < GameBase.num_edicts; e++)
+                candidates[count++] = e;
+        }
 
         // build up the list of visible entities
-        frame.num_entities = 0;
-        frame.first_entity = SV_INIT.svs.next_client_entities;
-
+        visible = 0;
         c_fullsend = 0;
 
-        for (e = 1; e < GameBase.num_edicts; e++) {
+        for (n = 0; n < count; n++) {
+            e = candidates[n];
+            if (e == 0)
+                continue;
+            if (e >= GameBase.num_edicts)
+                break;
             ent = GameBase.g_edicts[e];
 
             // ignore ents without visible models
@@ -478,9 +534,9 @@ public class SV_ENTS {
                     // FIXME: if an ent has a model and a sound, but isn't
                     // in the PVS, only the PHS, clear the model
                     if (ent.s.sound == 0) {
-                        bitvector = SV_ENTS.fatpvs; //clientphs;
+                        bitvector = fatpvs; //clientphs;
                     } else
-                        bitvector = SV_ENTS.fatpvs;
+                        bitvector = fatpvs;
 
                     if (ent.num_clusters == -1) { // too many leafs for
                                                   // individual check, go by
@@ -500,7 +556,6 @@ public class SV_ENTS {
 
                     if (ent.s.modelindex == 0) { // don't send sounds if they
                                                  // will be attenuated away
-                        float[] delta = { 0, 0, 0 };
                         float len;
 
                         Math3D.VectorSubtract(org, ent.s.origin, delta);
@@ -511,6 +566,34 @@ public class SV_ENTS {
                 }
             }
 
+            // compact the visible ones to the front, visible <= n
+            candidates[visible++] = e;
+        }
+        client.visibleCount = visible;
+        vectors.release(mark);
+    }
+
+    /**
+     * Second half of SV_BuildClientFrame: appends the entities found by
+     * SV_CollectClientFrame to the circular client_entities array.
+     */
+    static void SV_StoreClientFrame(client_t client) {
+        int n, e;
+        edict_t ent;
+        client_frame_t frame;
+        entity_state_t state;
+
+        if (client.visibleCount < 0)
+            return; // not in game yet
+
+        frame = client.frames[SV_INIT.sv.framenum & Defines.UPDATE_MASK];
+        frame.num_entities = 0;
+        frame.first_entity = SV_INIT.svs.next_client_entities;
+
+        for (n = 0; n < client.visibleCount; n++) {
+            e = client.candidates[n];
+            ent = GameBase.g_edicts[e];
+
             // add it to the circular client_entities array
             int ix = SV_INIT.svs.next_client_entities
                     % SV_INIT.svs.num_client_entities;
@@ -522,6 +605,7 @@ public class SV_ENTS {
 
             //*state = ent.s;
             SV_INIT.svs.client_entities[ix].set(ent.s);
+            SV_INIT.svs.client_entity_stamps[ix] = DeltaCache.stamp;
 
             // don't mark players missiles as solid
             if (ent.owner == client.edict)
@@ -532,6 +616,8 @@ public class SV_ENTS {
         }
     }
 
+    private static final entity_state_t nostate = new entity_state_t(null);
+
     /**
      * Save everything in the world out without deltas. Used for recording
      * footage for merged or assembled demos.
@@ -539,16 +625,12 @@ public class SV_ENTS {
     public static void SV_RecordDemoMessage() {
         int e;
         edict_t ent;
-        entity_state_t nostate = new entity_state_t(null);
-        sizebuf_t buf = new sizebuf_t();
-        byte buf_data[] = new byte[32768];
-        int len;
+        sizebuf_t buf;
 
         if (SV_INIT.svs.demofile == null)
             return;
 
-        //memset (nostate, 0, sizeof(nostate));
-        SZ.Init(buf, buf_data, buf_data.length);
+        buf = SV_INIT.svs.demofile.message();
 
         // write a frame message that doesn't contain a player_state_t
         MSG.WriteByte(buf, Defines.svc_frame);
@@ -580,16 +662,6 @@ public class SV_ENTS {
         SZ.Clear(SV_INIT.svs.demo_multicast);
 
         // now write the entire message to the file, prefixed by the length
-        len = EndianHandler.swapInt(buf.cursize);
-
-        try {
-            //fwrite (len, 4, 1, svs.demofile);
-            SV_INIT.svs.demofile.writeInt(len);
-            //fwrite (buf.data, buf.cursize, 1, svs.demofile);
-            SV_INIT.svs.demofile.write(buf.data, 0, buf.cursize);
-        } catch (IOException e1) {
-            Com.Printf("Error writing demo file:" + e);
-        	Compatibility.printStackTrace(e1);
-        }
+        SV_INIT.svs.demofile.writeFrame(SV_INIT.sv.framenum, SV_INIT.sv.configstrings);
     }
 }
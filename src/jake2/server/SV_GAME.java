@@ -163,6 +163,7 @@ public class SV_GAME {
 
         // change the string in sv
         SV_INIT.sv.configstrings[index] = val;
+        SV_INIT.SV_ConfigstringChanged(index);
 
         if (SV_INIT.sv.state != Defines.ss_loading) { // send the update to
                                                       // everyone
@@ -32,8 +32,6 @@ import jake2.sys.NET;
 import jake2.util.Lib;
 import jake2.util.Math3D;
 
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 
 import com.google.gwt.user.client.Command;
@@ -50,17 +48,29 @@ public class SV_INIT {
         if (name == null || name.length() == 0)
             return 0;
 
-        for (i = 1; i < max && sv.configstrings[start + i] != null; i++)
-            if (0 == Lib.strcmp(sv.configstrings[start + i], name))
+        ConfigstringIndex index = SV_ConfigstringIndex(start);
+        if (index == null) {
+            for (i = 1; i < max && sv.configstrings[start + i] != null; i++)
+                if (0 == Lib.strcmp(sv.configstrings[start + i], name))
+                    return i;
+        } else {
+            i = index.find(sv.configstrings, name);
+            if (i != 0)
                 return i;
+        }
 
         if (!create)
             return 0;
 
-        if (i == max)
-            Com.Error(Defines.ERR_DROP, "*Index: overflow");
-
-        sv.configstrings[start + i] = name;
+        if (index == null) {
+            if (i == max)
+                Com.Error(Defines.ERR_DROP, "*Index: overflow");
+            sv.configstrings[start + i] = name;
+        } else {
+            i = index.add(sv.configstrings, name);
+            if (i == max)
+                Com.Error(Defines.ERR_DROP, "*Index: overflow");
+        }
 
         if (sv.state != Defines.ss_loading) { 
             // send the update to everyone
@@ -74,6 +84,36 @@ public class SV_INIT {
         return i;
     }
 
+    /**
+     * Returns the lookup index of the configstring range starting at start,
+     * or null if it has none.
+     */
+    static ConfigstringIndex SV_ConfigstringIndex(int start) {
+        switch (start) {
+        case Defines.CS_MODELS:
+            return sv.modelIndex;
+        case Defines.CS_SOUNDS:
+            return sv.soundIndex;
+        case Defines.CS_IMAGES:
+            return sv.imageIndex;
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Must be called after sv.configstrings[index] was written without
+     * SV_FindIndex; index -1 stands for all of them.
+     */
+    static void SV_ConfigstringChanged(int index) {
+        if (index == -1 || sv.modelIndex.contains(index))
+            sv.modelIndex.invalidate();
+        if (index == -1 || sv.soundIndex.contains(index))
+            sv.soundIndex.invalidate();
+        if (index == -1 || sv.imageIndex.contains(index))
+            sv.imageIndex.invalidate();
+    }
+
     public static int SV_ModelIndex(String name) {
         return SV_FindIndex(name, Defines.CS_MODELS, Defines.MAX_MODELS, true);
     }
@@ -118,9 +158,6 @@ public class SV_INIT {
      */
     public static void SV_CheckForSavegame() {
 
-        String name;
-        RandomAccessFile f;
-
         int i;
 
         if (SV_MAIN.sv_noreload.value != 0)
@@ -129,21 +166,8 @@ public class SV_INIT {
         if (Cvar.VariableValue("deathmatch") != 0)
             return;
 
-        name = FS.Gamedir() + "/save/current/" + sv.name + ".sav";
-        try {
-            f = new RandomAccessFile(name, "r");
-        }
-
-        catch (Exception e) {
-        	Compatibility.printStackTrace(e);
+        if (!SV_CCMDS.SV_LevelSaved(sv.name))
             return;
-        }
-
-        try {
-            f.close();
-        } catch (IOException e1) {
-            Compatibility.printStackTrace(e1);
-        }
 
         SV_WORLD.SV_ClearWorld();
 
@@ -196,6 +220,7 @@ public class SV_INIT {
 
         // wipe the entire per-level structure
         sv = new server_t();
+        DeltaCache.resetStats();
 
         svs.realtime = 0;
         sv.loadgame = loadgame;
@@ -248,6 +273,7 @@ public class SV_INIT {
 					// copy references
 					sv.models[i + 1] = CM.InlineModel(sv.configstrings[Defines.CS_MODELS + 1 + i]);
 				}
+				sv.modelIndex.invalidate();
 
 
 				// spawn the rest of the entities on the map
@@ -365,6 +391,7 @@ public class SV_INIT {
                 * Defines.UPDATE_BACKUP * 64; //ok.
 
         svs.client_entities = new entity_state_t[svs.num_client_entities];
+        svs.client_entity_stamps = new int[svs.num_client_entities];
         for (int n = 0; n < svs.client_entities.length; n++)
             svs.client_entities[n] = new entity_state_t(null);
 
@@ -85,6 +85,12 @@ public class SV_MAIN {
     public static cvar_t sv_reconnect_limit; // minimum seconds between connect
                                              // messages
 
+    public static cvar_t sv_pvsindex; // build client frames from the cluster index
+
+    public static cvar_t sv_sendthreads; // > 1 builds client frames on a worker pool
+
+    public static cvar_t sv_deltacache; // share encoded entity deltas between clients
+
     /**
      * Send a message to the master every few minutes to let it know we are
      * alive, and log information.
@@ -104,6 +110,7 @@ public class SV_MAIN {
             // call the prog function for removing a client
             // this will remove the body, among other things
             PlayerClient.ClientDisconnect(drop.edict);
+            DeltaCache.invalidate();
         }
 
         if (drop.download != null) {
@@ -472,7 +479,7 @@ public class SV_MAIN {
 
         s = MSG.ReadStringLine(Globals.net_message);
 
-        Cmd.TokenizeString(s.toCharArray(), false);
+        Cmd.TokenizeString(s, false);
 
         c = Cmd.Argv(0);
         
@@ -561,6 +568,7 @@ public class SV_MAIN {
         client_t cl;
         int qport = 0;
 
+        NET.BeginPacketBatch(Defines.NS_SERVER);
         while (NET.GetPacket(Defines.NS_SERVER, Globals.net_from,
                 Globals.net_message)) {
 
@@ -608,6 +616,9 @@ public class SV_MAIN {
             if (i != SV_MAIN.maxclients.value)
                 continue;
         }
+
+        // move the players once all packets are read
+        SV_USER.SV_RunQueuedUsercmds();
     }
 
     /**
@@ -658,9 +669,15 @@ public class SV_MAIN {
         edict_t ent;
         int i;
 
-        for (i = 0; i < GameBase.num_edicts; i++) {
+        // events only last for a single message; besides the live edicts,
+        // disconnected clients keep their edict and may still carry one
+        int clients = Math.min((int) maxclients.value + 1, GameBase.num_edicts);
+        for (i = 0; i < clients; i++) {
+            GameBase.g_edicts[i].s.event = 0;
+        }
+        for (i = LiveEdicts.next(clients); i < GameBase.num_edicts;
+                i = LiveEdicts.next(i + 1)) {
             ent = GameBase.g_edicts[i];
-            // events only last for a single message
             ent.s.event = 0;
         }
 
@@ -708,6 +725,7 @@ public class SV_MAIN {
             return;
 
         SV_INIT.svs.realtime += msec;
+        long start;
 
         // keep the random time dependent
         Lib.rand();
@@ -716,7 +734,9 @@ public class SV_MAIN {
         SV_CheckTimeouts();
 
         // get packets from clients
+        start = FrameProfiler.start();
         SV_ReadPackets();
+        FrameProfiler.add(FrameProfiler.READ_PACKETS, start);
 
         //if (Game.g_edicts[1] !=null)
         //	Com.p("player at:" + Lib.vtofsbeaty(Game.g_edicts[1].s.origin ));
@@ -734,6 +754,9 @@ public class SV_MAIN {
             return;
         }
 
+        // the packets read while waiting are added to the frame
+        long frameStart = FrameProfiler.start();
+
         // update ping based on the last known frame from all clients
         SV_CalcPings();
 
@@ -741,7 +764,9 @@ public class SV_MAIN {
         SV_GiveMsec();
 
         // let everything in the world think and move
+        start = FrameProfiler.start();
         SV_RunGameFrame();
+        FrameProfiler.add(FrameProfiler.GAME_FRAME, start);
 
         // send messages back to the clients that had packets read this frame
         SV_SEND.SV_SendClientMessages();
@@ -755,6 +780,7 @@ public class SV_MAIN {
         // clear teleport flags, etc for next frame
         SV_PrepWorldFrame();
 
+        FrameProfiler.endFrame(frameStart, SV_INIT.sv.framenum);
     }
 
     public static void Master_Heartbeat() {
@@ -901,6 +927,9 @@ public class SV_MAIN {
         SV_MAIN.sv_airaccelerate = Cvar.Get("sv_airaccelerate", "0",
                 Defines.CVAR_LATCH);
         SV_MAIN.public_server = Cvar.Get("public", "0", 0);
+        SV_MAIN.sv_pvsindex = Cvar.Get("sv_pvsindex", "1", 0);
+        SV_MAIN.sv_sendthreads = Cvar.Get("sv_sendthreads", "0", Defines.CVAR_NOSET);
+        SV_MAIN.sv_deltacache = Cvar.Get("sv_deltacache", "1", 0);
         SV_MAIN.sv_reconnect_limit = Cvar.Get("sv_reconnect_limit", "3",
                 Defines.CVAR_ARCHIVE);
 
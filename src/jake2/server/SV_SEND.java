@@ -145,8 +145,6 @@ public class SV_SEND {
 		boolean reliable;
 		int area1, area2;
 
-		reliable = false;
-
 		if (to != Defines.MULTICAST_ALL_R && to != Defines.MULTICAST_ALL) {
 			leafnum = CM.CM_PointLeafnum(origin);
 			area1 = CM.CM_LeafArea(leafnum);
@@ -160,16 +158,18 @@ public class SV_SEND {
 		if (SV_INIT.svs.demofile != null)
 			SZ.Write(SV_INIT.svs.demo_multicast, SV_INIT.sv.multicast.data, SV_INIT.sv.multicast.cursize);
 
+		reliable = to == Defines.MULTICAST_ALL_R
+				|| to == Defines.MULTICAST_PHS_R
+				|| to == Defines.MULTICAST_PVS_R;
+
 		switch (to) {
 			case Defines.MULTICAST_ALL_R :
-				reliable = true; // intentional fallthrough, no break here
 			case Defines.MULTICAST_ALL :
 				leafnum = 0;
 				mask = null;
 				break;
 
 			case Defines.MULTICAST_PHS_R :
-				reliable = true; // intentional fallthrough
 			case Defines.MULTICAST_PHS :
 				leafnum = CM.CM_PointLeafnum(origin);
 				cluster = CM.CM_LeafCluster(leafnum);
@@ -177,7 +177,6 @@ public class SV_SEND {
 				break;
 
 			case Defines.MULTICAST_PVS_R :
-				reliable = true; // intentional fallthrough
 			case Defines.MULTICAST_PVS :
 				leafnum = CM.CM_PointLeafnum(origin);
 				cluster = CM.CM_LeafCluster(leafnum);
@@ -367,9 +366,26 @@ public class SV_SEND {
 	public static boolean SV_SendClientDatagram(client_t client) {
 		//byte msg_buf[] = new byte[Defines.MAX_MSGLEN];
 
+		long start = FrameProfiler.start();
 		SV_ENTS.SV_BuildClientFrame(client);
+		FrameProfiler.add(FrameProfiler.BUILD_FRAMES, start);
+
+		start = FrameProfiler.start();
+		SV_WriteClientDatagram(client, msg, msgbuf);
+		FrameProfiler.add(FrameProfiler.WRITE_FRAMES, start);
+
+		start = FrameProfiler.start();
+		SV_TransmitClientDatagram(client, msg);
+		FrameProfiler.add(FrameProfiler.TRANSMIT, start);
+		return true;
+	}
 
-		SZ.Init(msg, msgbuf, msgbuf.length);
+	/**
+	 * Encodes the frame built for the client and its multicast datagram into
+	 * msg. Only touches the client's own state.
+	 */
+	static void SV_WriteClientDatagram(client_t client, sizebuf_t msg, byte buf[]) {
+		SZ.Init(msg, buf, buf.length);
 		msg.allowoverflow = true;
 
 		// send over all the relevant entity_state_t
@@ -380,24 +396,28 @@ public class SV_SEND {
 		// for this client out to the message
 		// it is necessary for this to be after the WriteEntities
 		// so that entity references will be current
-		if (client.datagram.overflowed)
-			Com.Printf("WARNING: datagram overflowed for " + client.name + "\n");
-		else
+		client.datagramOverflowed = client.datagram.overflowed;
+		if (!client.datagram.overflowed)
 			SZ.Write(msg, client.datagram.data, client.datagram.cursize);
 		SZ.Clear(client.datagram);
 
-		if (msg.overflowed) { // must have room left for the packet header
-			Com.Printf("WARNING: msg overflowed for " + client.name + "\n");
+		client.msgOverflowed = msg.overflowed;
+		if (msg.overflowed) // must have room left for the packet header
 			SZ.Clear(msg);
-		}
+	}
+
+	/** Sends a datagram written by SV_WriteClientDatagram. */
+	static void SV_TransmitClientDatagram(client_t client, sizebuf_t msg) {
+		if (client.datagramOverflowed)
+			Com.Printf("WARNING: datagram overflowed for " + client.name + "\n");
+		if (client.msgOverflowed)
+			Com.Printf("WARNING: msg overflowed for " + client.name + "\n");
 
 		// send the datagram
 		Netchan.Transmit(client.netchan, msg.cursize, msg.data);
 
 		// record the size for rate estimation
 		client.message_size[SV_INIT.sv.framenum % Defines.RATE_MESSAGES] = msg.cursize;
-
-		return true;
 	}
 	/*
 	==================
@@ -454,6 +474,9 @@ public class SV_SEND {
 
 		msglen = 0;
 
+		// the game has run since the last call
+		DeltaCache.invalidate();
+
 		// read the next demo message if needed
 		if (SV_INIT.sv.state == Defines.ss_demo && SV_INIT.sv.demofile != null) {
 			if (SV_MAIN.sv_paused.value != 0)
@@ -491,6 +514,12 @@ public class SV_SEND {
 			}
 		}
 
+		if (workers != null && SV_INIT.sv.state != Defines.ss_cinematic
+				&& SV_INIT.sv.state != Defines.ss_demo
+				&& SV_INIT.sv.state != Defines.ss_pic
+				&& SV_SendClientMessagesParallel())
+			return;
+
 		// send a message to each connected client
 		for (i = 0; i < SV_MAIN.maxclients.value; i++) {
 			c = SV_INIT.svs.clients[i];
@@ -525,4 +554,97 @@ public class SV_SEND {
 			}
 		}
 	}
+
+	/** Installed by hosts with threads, see SV_SendClientMessagesParallel. */
+	public static TaskPool workers;
+
+	private static client_t sending[];
+	private static Runnable collectTasks[];
+	private static Runnable writeTasks[];
+
+	/**
+	 * The game state part of SV_SendClientMessages on the workers. Frames
+	 * only read the world once G_RunFrame is done, so the visible entities
+	 * of all spawned clients are collected and their datagrams encoded in
+	 * parallel, each into the client's own buffer. Storing the entities in
+	 * client_entities and transmitting stay serial and in client order, so
+	 * the output is the same as the serial loop's.
+	 *
+	 * @return false if a client has to be dropped this frame; the serial loop
+	 *         handles that, because the drop changes the world.
+	 */
+	private static boolean SV_SendClientMessagesParallel() {
+		int i, count;
+		client_t c;
+		client_t clients[] = SV_INIT.svs.clients;
+		int maxclients = (int) SV_MAIN.maxclients.value;
+
+		for (i = 0; i < maxclients; i++) {
+			c = clients[i];
+			if (c.state != 0 && c.netchan.message.overflowed)
+				return false;
+		}
+
+		if (sending == null || sending.length < maxclients) {
+			sending = new client_t[maxclients];
+			collectTasks = new Runnable[maxclients];
+			writeTasks = new Runnable[maxclients];
+			for (i = 0; i < maxclients; i++) {
+				final int n = i;
+				collectTasks[i] = new Runnable() {
+					public void run() {
+						SV_ENTS.SV_CollectClientFrame(sending[n]);
+					}
+				};
+				writeTasks[i] = new Runnable() {
+					public void run() {
+						client_t client = sending[n];
+						SV_WriteClientDatagram(client, client.sendmsg, client.sendmsg_buf);
+					}
+				};
+			}
+		}
+
+		count = 0;
+		for (i = 0; i < maxclients; i++) {
+			c = clients[i];
+			c.sendPending = c.state == Defines.cs_spawned && !SV_RateDrop(c);
+			if (c.sendPending)
+				sending[count++] = c;
+		}
+
+		// the phases are timed as a whole, the tasks run on several threads
+		long start = FrameProfiler.start();
+		workers.runAll(collectTasks, count);
+		for (i = 0; i < count; i++)
+			SV_ENTS.SV_StoreClientFrame(sending[i]);
+		FrameProfiler.add(FrameProfiler.BUILD_FRAMES, start);
+
+		start = FrameProfiler.start();
+		DeltaCache.enabled = false; // it is not thread safe
+		try {
+			workers.runAll(writeTasks, count);
+		} finally {
+			DeltaCache.enabled = true;
+		}
+		FrameProfiler.add(FrameProfiler.WRITE_FRAMES, start);
+
+		start = FrameProfiler.start();
+		for (i = 0; i < maxclients; i++) {
+			c = clients[i];
+			if (c.state == 0)
+				continue;
+			if (c.sendPending)
+				SV_TransmitClientDatagram(c, c.sendmsg);
+			else if (c.state != Defines.cs_spawned) {
+				// just update reliable	if needed
+				if (c.netchan.message.cursize != 0 || Globals.curtime - c.netchan.last_sent > 1000)
+					Netchan.Transmit(c.netchan, 0, NULLBYTE);
+			}
+		}
+		FrameProfiler.add(FrameProfiler.TRANSMIT, start);
+		for (i = 0; i < count; i++)
+			sending[i] = null;
+		return true;
+	}
 }
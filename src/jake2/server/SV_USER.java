@@ -44,6 +44,7 @@ import jake2.util.Lib;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
 
 public class SV_USER {
 
@@ -109,6 +110,13 @@ public class SV_USER {
                 }
             }) };
 
+    static final HashMap<String, ucmd_t> ucmdsByName = new HashMap<String, ucmd_t>();
+
+    static {
+        for (int i = ucmds.length - 1; i >= 0; i--)
+            ucmdsByName.put(ucmds[i].name, ucmds[i]);
+    }
+
     public static final int MAX_STRINGCMDS = 8;
 
     /*
@@ -132,6 +140,7 @@ public class SV_USER {
 			
 			public void onSuccess(ByteBuffer result) {
 				SV_INIT.sv.demofile = result;	
+				SV_INIT.sv.demoindex = DemoIndex.read(result);
 			}
 		});
         
@@ -527,21 +536,15 @@ public class SV_USER {
         Com.dprintln("SV_ExecuteUserCommand:" + s );
         SV_USER.ucmd_t u = null;
 
-        Cmd.TokenizeString(s.toCharArray(), true);
+        Cmd.TokenizeString(s, true);
         SV_USER.sv_player = SV_MAIN.sv_client.edict;
 
         //	SV_BeginRedirect (RD_CLIENT);
 
-        int i = 0;
-        for (; i < SV_USER.ucmds.length; i++) {
-            u = SV_USER.ucmds[i];
-            if (Cmd.Argv(0).equals(u.name)) {
-                u.r.run();
-                break;
-            }
-        }
-
-        if (i == SV_USER.ucmds.length && SV_INIT.sv.state == Defines.ss_game)
+        u = SV_USER.ucmdsByName.get(Cmd.Argv(0));
+        if (u != null)
+            u.r.run();
+        else if (SV_INIT.sv.state == Defines.ss_game)
             Cmd.ClientCommand(SV_USER.sv_player);
 
         //	SV_EndRedirect ();
@@ -566,6 +569,57 @@ public class SV_USER {
         PlayerClient.ClientThink(cl.edict, cmd);
     }
 
+    /** Queued usercmds of a client beyond this many are run right away. */
+    static final int MAX_QUEUED_USERCMDS = 128;
+
+    /**
+     * Queues a usercmd read by SV_ExecuteClientMessage. The moves of all
+     * clients are run together after SV_ReadPackets has read every packet,
+     * instead of between reading them.
+     */
+    static void SV_QueueUsercmd(client_t cl, usercmd_t cmd) {
+        if (cl.queuedCount == MAX_QUEUED_USERCMDS)
+            SV_RunUsercmds(cl);
+
+        if (cl.queuedCount == cl.queuedCmds.length) {
+            usercmd_t grown[] = new usercmd_t[Math.max(16, cl.queuedCount * 2)];
+            System.arraycopy(cl.queuedCmds, 0, grown, 0, cl.queuedCount);
+            for (int i = cl.queuedCount; i < grown.length; i++)
+                grown[i] = new usercmd_t();
+            cl.queuedCmds = grown;
+        }
+        cl.queuedCmds[cl.queuedCount++].set(cmd);
+    }
+
+    /**
+     * Runs the usercmds queued for the client in the order they were read.
+     * They are dropped if the client is no longer in the game.
+     */
+    static void SV_RunUsercmds(client_t cl) {
+        int count = cl.queuedCount;
+        cl.queuedCount = 0;
+        if (cl.state != Defines.cs_spawned)
+            return;
+
+        SV_MAIN.sv_client = cl;
+        SV_USER.sv_player = cl.edict;
+        for (int i = 0; i < count; i++)
+            SV_ClientThink(cl, cl.queuedCmds[i]);
+    }
+
+    /**
+     * Runs the usercmds queued by SV_ReadPackets, one client after another.
+     */
+    public static void SV_RunQueuedUsercmds() {
+        client_t clients[] = SV_INIT.svs.clients;
+        int maxclients = (int) SV_MAIN.maxclients.value;
+
+        for (int i = 0; i < maxclients; i++) {
+            if (clients[i].queuedCount != 0)
+                SV_RunUsercmds(clients[i]);
+        }
+    }
+
     /*
      * =================== SV_ExecuteClientMessage
      * 
@@ -614,6 +668,9 @@ public class SV_USER {
                 break;
 
             case Defines.clc_userinfo:
+                // keep the order of moves and commands of the client
+                if (cl.queuedCount != 0)
+                    SV_RunUsercmds(cl);
                 cl.userinfo = MSG.ReadString(Globals.net_message);
                 SV_MAIN.SV_UserinfoChanged(cl);
                 break;
@@ -669,18 +726,18 @@ public class SV_USER {
 
                         //	Com.Printf ("drop %i\n", net_drop);
                         while (net_drop > 2) {
-                            SV_ClientThink(cl, cl.lastcmd);
+                            SV_QueueUsercmd(cl, cl.lastcmd);
 
                             net_drop--;
                         }
                         if (net_drop > 1)
-                            SV_ClientThink(cl, oldest);
+                            SV_QueueUsercmd(cl, oldest);
 
                         if (net_drop > 0)
-                            SV_ClientThink(cl, oldcmd);
+                            SV_QueueUsercmd(cl, oldcmd);
 
                     }
-                    SV_ClientThink(cl, newcmd);
+                    SV_QueueUsercmd(cl, newcmd);
                 }
 
                 // copy.
@@ -690,6 +747,9 @@ public class SV_USER {
             case Defines.clc_stringcmd:
                 s = MSG.ReadString(Globals.net_message);
 
+                if (cl.queuedCount != 0)
+                    SV_RunUsercmds(cl);
+
                 // malicious users may try using too many string commands
                 if (++stringCmdCount < SV_USER.MAX_STRINGCMDS)
                     SV_ExecuteUserCommand(s);
@@ -24,6 +24,7 @@
 package jake2.server;
 
 import jake2.game.GameBase;
+import jake2.game.LiveEdicts;
 import jake2.game.cmodel_t;
 import jake2.game.edict_t;
 import jake2.game.link_t;
@@ -32,6 +33,7 @@ import jake2.qcommon.CM;
 import jake2.qcommon.Com;
 import jake2.qcommon.Defines;
 import jake2.qcommon.Globals;
+import jake2.qcommon.TraceContext;
 import jake2.util.Math3D;
 
 public class SV_WORLD {
@@ -143,6 +145,7 @@ public class SV_WORLD {
         SV_WORLD.sv_numareanodes = 0;
         SV_CreateAreaNode(0, SV_INIT.sv.models[1].mins,
                 SV_INIT.sv.models[1].maxs);
+        ClusterIndex.clear();
         /*
          * Com.p("areanodes:" + sv_numareanodes + " (sollten 32 sein)."); for
          * (int n = 0; n < sv_numareanodes; n++) { Com.Printf( "|%3i|%2i|%8.2f
@@ -158,16 +161,20 @@ public class SV_WORLD {
      * =============== SV_UnlinkEdict ===============
      */
     public static void SV_UnlinkEdict(edict_t ent) {
+        LiveEdicts.wake(ent);
         if (null == ent.area.prev)
             return; // not linked in anywhere
         RemoveLink(ent.area);
         ent.area.prev = ent.area.next = null;
+        LiveEdicts.setLinked(ent, false);
     }
 
     public static void SV_LinkEdict(edict_t ent) {
         areanode_t node;
         int num_leafs;
         int j, k;
+
+        LiveEdicts.wake(ent);
         int area;
         int topnode = 0;
         if (ent.area.prev != null)
@@ -285,6 +292,7 @@ public class SV_WORLD {
                 }
             }
         }
+        ClusterIndex.update(ent);
         // if first time, make sure old_origin is valid
         if (0 == ent.linkcount) {
             Math3D.VectorCopy(ent.s.origin, ent.s.old_origin);
@@ -309,6 +317,7 @@ public class SV_WORLD {
             InsertLinkBefore(ent.area, node.trigger_edicts);
         else
             InsertLinkBefore(ent.area, node.solid_edicts);
+        LiveEdicts.setLinked(ent, true);
     }
 
     /*
@@ -390,7 +399,7 @@ public class SV_WORLD {
             angles = hit.s.angles;
             if (hit.solid != Defines.SOLID_BSP)
                 angles = Globals.vec3_origin; // boxes don't rotate
-            c2 = CM.TransformedPointContents(p, headnode, hit.s.origin,
+            c2 = CM.TransformedPointContents(traceContext, p, headnode, hit.s.origin,
                     hit.s.angles);
             contents |= c2;
         }
@@ -420,6 +429,9 @@ public class SV_WORLD {
         return CM.HeadnodeForBox(ent.mins, ent.maxs);
     }
 
+    /** Scratch state for the traces of SV_Trace; only the result is copied. */
+    private static final TraceContext traceContext = new TraceContext();
+
     public static void SV_ClipMoveToEntities(moveclip_t clip) {
         int i, num;
         edict_t touch;
@@ -453,18 +465,18 @@ public class SV_WORLD {
             if (touch.solid != Defines.SOLID_BSP)
                 angles = Globals.vec3_origin; // boxes don't rotate
             if ((touch.svflags & Defines.SVF_MONSTER) != 0)
-                trace = CM.TransformedBoxTrace(clip.start, clip.end,
-                        clip.mins2, clip.maxs2, headnode, clip.contentmask,
-                        touch.s.origin, angles);
+                trace = CM.TransformedBoxTrace(traceContext, clip.start,
+                        clip.end, clip.mins2, clip.maxs2, headnode,
+                        clip.contentmask, touch.s.origin, angles);
             else
-                trace = CM.TransformedBoxTrace(clip.start, clip.end, clip.mins,
-                        clip.maxs, headnode, clip.contentmask, touch.s.origin,
-                        angles);
+                trace = CM.TransformedBoxTrace(traceContext, clip.start,
+                        clip.end, clip.mins, clip.maxs, headnode,
+                        clip.contentmask, touch.s.origin, angles);
             if (trace.allsolid || trace.startsolid
                     || trace.fraction < clip.trace.fraction) {
                 trace.ent = touch;
                 if (clip.trace.startsolid) {
-                    clip.trace = trace;
+                    clip.trace.set(trace);
                     clip.trace.startsolid = true;
                 } else
                     clip.trace.set(trace);
@@ -501,14 +513,25 @@ public class SV_WORLD {
      */
     public static trace_t SV_Trace(float[] start, float[] mins, float[] maxs,
             float[] end, edict_t passedict, int contentmask) {
-        moveclip_t clip = new moveclip_t();
+        return SV_Trace(new moveclip_t(), start, mins, maxs, end, passedict,
+                contentmask);
+    }
+
+    /**
+     * SV_Trace into a reused moveclip_t, returns clip.trace which is
+     * overwritten by the next trace on the clip.
+     */
+    public static trace_t SV_Trace(moveclip_t clip, float[] start,
+            float[] mins, float[] maxs, float[] end, edict_t passedict,
+            int contentmask) {
         if (mins == null)
             mins = Globals.vec3_origin;
         if (maxs == null)
             maxs = Globals.vec3_origin;
 
         // clip to world
-        clip.trace = CM.BoxTrace(start, end, mins, maxs, 0, contentmask);
+        clip.trace.set(CM.BoxTrace(traceContext, start, end, mins, maxs, 0,
+                contentmask));
         clip.trace.ent = GameBase.g_edicts[0];
         if (clip.trace.fraction == 0)
             return clip.trace; // blocked by the world
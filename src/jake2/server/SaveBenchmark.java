@@ -0,0 +1,131 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.GameSave;
+import jake2.game.cmodel_t;
+import jake2.qcommon.CM;
+import jake2.tools.Bench;
+import jake2.util.QuakeFile;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Measures the save and load latency of a level, GameSave.WriteLevel and
+ * ReadLevel, through a file and through the in-memory snapshots used for
+ * coop changelevels. The levels are freshly spawned stock maps, maps that
+ * are not installed are skipped.
+ *
+ * usage: SaveBenchmark [rounds] [map...]
+ */
+public class SaveBenchmark {
+
+  private static final String[] MAPS = { "base1", "base2", "city1", "fact1",
+      "jail1", "q2dm1", "q2dm8" };
+
+  public static void main(String[] args) throws IOException {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+    String[] maps = MAPS;
+    if (args.length > 1) {
+      maps = new String[args.length - 1];
+      System.arraycopy(args, 1, maps, 0, maps.length);
+    }
+
+    Bench.init();
+    SV_GAME.SV_InitGameProgs();
+
+    File file = File.createTempFile("jake2", ".sav");
+    file.deleteOnExit();
+    String filename = file.getPath();
+
+    // write file, read file, write snapshot, read snapshot
+    long[] nanos = new long[4];
+    long[] allocated = new long[4];
+    int levels = 0;
+    long size = 0;
+    for (int i = 0; i < maps.length; i++) {
+      cmodel_t world;
+      try {
+        world = Bench.loadMap("maps/" + maps[i] + ".bsp");
+      } catch (RuntimeException e) {
+        System.out.println("skipping " + maps[i] + ": " + e.getMessage());
+        continue;
+      }
+      SpawnBenchmark.spawn(maps[i], world, CM.CM_EntityString());
+
+      // warm up
+      run(filename, new long[4], new long[4]);
+
+      for (int r = 0; r < rounds; r++) {
+        size += run(filename, nanos, allocated);
+      }
+      levels++;
+    }
+    if (levels == 0) {
+      System.out.println("no maps found");
+      return;
+    }
+
+    long ops = (long) levels * rounds;
+    System.out.println("level size: " + size / ops + " bytes");
+    Bench.report("WriteLevel (file)", ops, nanos[0], allocated[0]);
+    Bench.report("ReadLevel (file)", ops, nanos[1], allocated[1]);
+    Bench.report("WriteLevel (snapshot)", ops, nanos[2], allocated[2]);
+    Bench.report("ReadLevel (snapshot)", ops, nanos[3], allocated[3]);
+  }
+
+  /**
+   * Saves and reloads the level once through the file and once through a
+   * snapshot, adding the nanoseconds and bytes allocated of each step.
+   *
+   * @return the size of the snapshot
+   */
+  private static int run(String filename, long[] nanos, long[] allocated) {
+    long alloc = Bench.allocatedBytes();
+    long start = System.nanoTime();
+    GameSave.WriteLevel(filename);
+    nanos[0] += System.nanoTime() - start;
+    allocated[0] += Bench.allocatedBytes() - alloc;
+
+    SV_WORLD.SV_ClearWorld();
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    GameSave.ReadLevel(filename);
+    nanos[1] += System.nanoTime() - start;
+    allocated[1] += Bench.allocatedBytes() - alloc;
+
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    QuakeFile f = new QuakeFile();
+    GameSave.WriteLevel(f);
+    byte[] snapshot = f.toByteArray();
+    nanos[2] += System.nanoTime() - start;
+    allocated[2] += Bench.allocatedBytes() - alloc;
+
+    SV_WORLD.SV_ClearWorld();
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    GameSave.ReadLevel(new QuakeFile(snapshot));
+    nanos[3] += System.nanoTime() - start;
+    allocated[3] += Bench.allocatedBytes() - alloc;
+
+    return snapshot.length;
+  }
+}
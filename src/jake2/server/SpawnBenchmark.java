@@ -0,0 +1,126 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+import jake2.game.GameSpawn;
+import jake2.game.cmodel_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Cvar;
+import jake2.qcommon.Defines;
+import jake2.qcommon.SZ;
+import jake2.tools.Bench;
+
+/**
+ * Measures GameSpawn.SpawnEntities, the entity part of SV_SpawnServer, on
+ * the entity lumps of the stock maps. Maps that are not installed (e.g.
+ * with the demo data) are skipped.
+ *
+ * usage: SpawnBenchmark [rounds] [map...]
+ */
+public class SpawnBenchmark {
+
+  private static final String[] STOCK_MAPS = {
+      "base1", "base2", "base3", "biggun", "boss1", "boss2", "bunk1", "city1",
+      "city2", "city3", "command", "cool1", "fact1", "fact2", "fact3",
+      "hangar1", "hangar2", "jail1", "jail2", "jail3", "jail4", "jail5", "lab",
+      "mine1", "mine2", "mine3", "mine4", "mintro", "power1", "power2",
+      "security", "space", "strike", "train", "ware1", "ware2", "waste1",
+      "waste2", "waste3", "q2dm1", "q2dm2", "q2dm3", "q2dm4", "q2dm5",
+      "q2dm6", "q2dm7", "q2dm8" };
+
+  public static void main(String[] args) {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    String[] maps = STOCK_MAPS;
+    if (args.length > 1) {
+      maps = new String[args.length - 1];
+      System.arraycopy(args, 1, maps, 0, maps.length);
+    }
+
+    Bench.init();
+    SV_GAME.SV_InitGameProgs();
+
+    int spawned = 0;
+    long nanos = 0;
+    long allocated = 0;
+    for (int i = 0; i < maps.length; i++) {
+      cmodel_t world;
+      try {
+        world = Bench.loadMap("maps/" + maps[i] + ".bsp");
+      } catch (RuntimeException e) {
+        System.out.println("skipping " + maps[i] + ": " + e.getMessage());
+        continue;
+      }
+      String entities = CM.CM_EntityString();
+
+      // warm up
+      spawn(maps[i], world, entities);
+
+      for (int r = 0; r < rounds; r++) {
+        long[] result = spawn(maps[i], world, entities);
+        nanos += result[0];
+        allocated += result[1];
+      }
+      spawned++;
+    }
+    if (spawned == 0) {
+      System.out.println("no maps found");
+      return;
+    }
+
+    Bench.report("SpawnEntities (" + spawned + " maps)", (long) spawned * rounds,
+        nanos, allocated);
+  }
+
+  /**
+   * Spawns the entities into a fresh server like SV_SpawnServer does.
+   *
+   * @return the nanoseconds and bytes allocated in SpawnEntities
+   */
+  static long[] spawn(String map, cmodel_t world, String entities) {
+    if (SV_MAIN.maxclients == null) {
+      // free client slots, as SV_InitGame leaves them
+      SV_MAIN.maxclients = Cvar.Get("maxclients", "1", Defines.CVAR_SERVERINFO
+          | Defines.CVAR_LATCH);
+      SV_INIT.svs.clients = new client_t[(int) SV_MAIN.maxclients.value];
+      for (int i = 0; i < SV_INIT.svs.clients.length; i++) {
+        SV_INIT.svs.clients[i] = new client_t();
+        SV_INIT.svs.clients[i].serverindex = i;
+      }
+    }
+    SV_INIT.sv = new server_t();
+    SZ.Init(SV_INIT.sv.multicast, SV_INIT.sv.multicast_buf,
+        SV_INIT.sv.multicast_buf.length);
+    SV_INIT.sv.state = Defines.ss_loading;
+    SV_INIT.sv.name = map;
+    SV_INIT.sv.models[1] = world;
+    SV_INIT.sv.configstrings[Defines.CS_MODELS + 1] = "maps/" + map + ".bsp";
+    for (int i = 1; i < CM.CM_NumInlineModels(); i++) {
+      SV_INIT.sv.configstrings[Defines.CS_MODELS + 1 + i] = "*" + i;
+      SV_INIT.sv.models[i + 1] = CM.InlineModel("*" + i);
+    }
+    // written without SV_FindIndex, as in SV_SpawnServer
+    SV_INIT.sv.modelIndex.invalidate();
+    SV_WORLD.SV_ClearWorld();
+
+    long alloc = Bench.allocatedBytes();
+    long start = System.nanoTime();
+    GameSpawn.SpawnEntities(map, entities, "");
+    return new long[] { System.nanoTime() - start, Bench.allocatedBytes() - alloc };
+  }
+}
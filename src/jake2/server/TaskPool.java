@@ -0,0 +1,33 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.server;
+
+/**
+ * Runs batches of independent tasks, possibly on several threads. A host
+ * that has threads installs one in SV_SEND.workers; without it (as in the
+ * browser) client frames are sent serially.
+ */
+public interface TaskPool {
+
+	/**
+	 * Runs tasks[0..count) and returns when all of them have completed,
+	 * rethrowing the first exception thrown by a task.
+	 */
+	void runAll(Runnable[] tasks, int count);
+}
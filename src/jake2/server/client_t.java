@@ -29,6 +29,7 @@ import jake2.game.*;
 import jake2.qcommon.*;
 import jake2.render.*;
 import jake2.server.*;
+import jake2.util.Vec3Pool;
 
 public class client_t {
 
@@ -51,6 +52,10 @@ public class client_t {
 	int commandMsec; // every seconds this is reset, if user
 	// commands exhaust it, assume time cheating
 
+	// usercmds read from this frame's packets, see SV_USER.SV_QueueUsercmd
+	usercmd_t queuedCmds[] = new usercmd_t[0];
+	int queuedCount;
+
 	int frame_latency[] = new int[LATENCY_COUNTS];
 	int ping;
 
@@ -86,4 +91,30 @@ public class client_t {
 
 	//this was introduced by rst, since java can't calculate the index out of the address.
 	int serverindex;
+
+	// SV_BuildClientFrame scratch, owned by the client so that frames of
+	// different clients can be built on different threads. The fat PVS
+	// is reused while the clusters around the view origin stay the same.
+	byte fatpvs[] = new byte[65536 / 8]; // 32767 is MAX_MAP_LEAFS
+	byte pvsrow[] = new byte[Defines.MAX_MAP_LEAFS / 8];
+	byte phsrow[] = new byte[Defines.MAX_MAP_LEAFS / 8];
+	int fatpvsClusters[] = new int[64];
+	int fatpvsClusterCount = -1;
+	int fatpvsGeneration;
+	TraceContext leafContext; // created on first use
+	int leafs[] = new int[64];
+	float fatMins[] = { 0, 0, 0 };
+	float fatMaxs[] = { 0, 0, 0 };
+	Vec3Pool vectors = new Vec3Pool();
+	int visibleBits[] = new int[Defines.MAX_EDICTS >> 5];
+	int candidates[] = new int[Defines.MAX_EDICTS]; // compacted to the visible ones
+	int visibleCount; // -1 if the client is not in game yet
+
+	// SV_SendClientMessages with workers: the datagram is encoded here
+	// and transmitted later in client order
+	sizebuf_t sendmsg = new sizebuf_t();
+	byte sendmsg_buf[] = new byte[Defines.MAX_MSGLEN];
+	boolean sendPending;
+	boolean datagramOverflowed;
+	boolean msgOverflowed;
 }
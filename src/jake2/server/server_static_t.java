@@ -27,8 +27,6 @@ import jake2.game.entity_state_t;
 import jake2.qcommon.Defines;
 import jake2.qcommon.sizebuf_t;
 
-import java.io.RandomAccessFile;
-
 public class server_static_t {
     public server_static_t() {
         for (int n = 0; n < Defines.MAX_CHALLENGES; n++) {
@@ -54,6 +52,8 @@ public class server_static_t {
 
     entity_state_t client_entities[]; // [num_client_entities]
 
+    int client_entity_stamps[]; // DeltaCache.stamp of each client_entities copy
+
     int last_heartbeat;
 
     challenge_t challenges[] = new challenge_t[Defines.MAX_CHALLENGES]; // to
@@ -64,7 +64,7 @@ public class server_static_t {
                                                                         // connecting
 
     // serverrecord values
-    RandomAccessFile demofile;
+    DemoRecorder demofile;
 
     sizebuf_t demo_multicast = new sizebuf_t();
 
@@ -61,6 +61,13 @@ public class server_t {
 
     entity_state_t baselines[] = new entity_state_t[Defines.MAX_EDICTS];
 
+    // name lookups for SV_FindIndex, rebuilt from configstrings when stale
+    ConfigstringIndex modelIndex = new ConfigstringIndex(Defines.CS_MODELS, Defines.MAX_MODELS);
+
+    ConfigstringIndex soundIndex = new ConfigstringIndex(Defines.CS_SOUNDS, Defines.MAX_SOUNDS);
+
+    ConfigstringIndex imageIndex = new ConfigstringIndex(Defines.CS_IMAGES, Defines.MAX_IMAGES);
+
     // the multicast buffer is used to send a message to a set of clients
     // it is only used to marshall data until SV_Multicast is called
     sizebuf_t multicast = new sizebuf_t();
@@ -70,5 +77,7 @@ public class server_t {
     // demo server information
     ByteBuffer demofile;
 
+    DemoIndex demoindex; // null if the demo has no keyframe index
+
     boolean timedemo; // don't time sync
 }
@@ -128,13 +128,19 @@ public final class NET {
     }
 
     /**
-     * Creates an netadr_t from an string.
+     * Creates an netadr_t from an string like "host:port/route"; port and
+     * route are optional.
      */
     public static boolean StringToAdr(String s, netadr_t a) {
         if (s.equalsIgnoreCase("localhost") || s.equalsIgnoreCase("loopback")) {
             a.set(net_local_adr);
             return true;
         }
+        int slash = s.indexOf('/');
+        a.route = slash == -1 ? null : s.substring(slash);
+        if (slash != -1) {
+            s = s.substring(0, slash);
+        }
         try {
             String[] address = s.split(":");
             InetAddress ia = InetAddress.getByName(address[0]);
@@ -207,6 +213,17 @@ public final class NET {
         loop.msgs[i].datalen = length;
     }
 
+    /**
+     * Starts a batch of GetPacket calls on sockets that queue packets from
+     * other threads. Packets arriving during the batch are left for the next
+     * one.
+     */
+    public static void BeginPacketBatch(int sock) {
+        if (ip_sockets[sock] instanceof QBatchSocket) {
+            ((QBatchSocket) ip_sockets[sock]).beginBatch();
+        }
+    }
+
     /**
      * Gets a packet from a network channel
      */
@@ -372,32 +389,12 @@ public final class NET {
                 || (Globals.dedicated != null && Globals.dedicated.value == 0))
             return; // we're not a server, just run full speed
 
-      
-            //TODO: check for timeout
+        // sockets that queue packets from I/O threads can wake us up as
+        // soon as one arrives, like the select() of the original code
+        if (ip_sockets[Defines.NS_SERVER] instanceof QBatchSocket) {
+            ((QBatchSocket) ip_sockets[Defines.NS_SERVER]).await(msec);
+        } else {
             Compatibility.sleep(msec);
-        //ip_sockets[NS_SERVER].
-
-        // this should wait up to 100ms until a packet
-        /*
-         * struct timeval timeout; 
-         * fd_set fdset; 
-         * extern cvar_t *dedicated;
-         * extern qboolean stdin_active;
-         * 
-         * if (!ip_sockets[NS_SERVER] || (dedicated && !dedicated.value))
-         * 		return; // we're not a server, just run full speed
-         * 
-         * FD_ZERO(&fdset);
-         *  
-         * if (stdin_active) 
-         * 		FD_SET(0, &fdset); // stdin is processed too 
-         * 
-         * FD_SET(ip_sockets[NS_SERVER], &fdset); // network socket 
-         * 
-         * timeout.tv_sec = msec/1000; 
-         * timeout.tv_usec = (msec%1000)*1000; 
-         * 
-         * select(ip_sockets[NS_SERVER]+1, &fdset, NULL, NULL, &timeout);
-         */
+        }
     }
 }
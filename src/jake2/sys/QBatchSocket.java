@@ -0,0 +1,35 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+
+*/
+package jake2.sys;
+
+/**
+ * A socket that queues packets received on other threads. beginBatch()
+ * fixes the packets the following receive() calls return, so a frame drains
+ * what was queued when it started instead of racing the I/O threads.
+ */
+public interface QBatchSocket extends QSocket {
+
+	/** Returns the number of packets in the new batch. */
+	int beginBatch();
+
+	/** Waits up to msec milliseconds or until a packet is queued. */
+	void await(int msec);
+
+}
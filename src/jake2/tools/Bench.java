@@ -0,0 +1,80 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import jake2.desktop.CompatibilityImpl;
+import jake2.desktop.FileMapper;
+import jake2.desktop.ResourceLoaderImpl;
+import jake2.game.cmodel_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Compatibility;
+import jake2.qcommon.FS;
+import jake2.qcommon.ResourceLoader;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Helpers shared by the benchmark tools. They run against the installed
+ * game data below Defines.BASEDIRNAME, like the dedicated server.
+ */
+public class Bench {
+
+  static {
+    Compatibility.impl = new CompatibilityImpl();
+    ResourceLoader.impl = new ResourceLoaderImpl();
+    FS.mapper = new FileMapper();
+  }
+
+  /** Installs the desktop implementations, as any other helper does. */
+  public static void init() {
+  }
+
+  /** Loads a map into CM, e.g. "maps/q2dm1.bsp". */
+  public static cmodel_t loadMap(String name) {
+    final cmodel_t[] world = new cmodel_t[1];
+    CM.CM_LoadMap(name, false, new int[1], new CM.ModelCallback() {
+      public void onSuccess(cmodel_t model) {
+        world[0] = model;
+      }
+    });
+    while (world[0] == null && ResourceLoader.Pump()) {
+    }
+    if (world[0] == null) {
+      throw new RuntimeException("unable to load " + name);
+    }
+    return world[0];
+  }
+
+  /** Bytes allocated by the calling thread so far, 0 if the VM can't tell. */
+  public static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  public static void report(String name, long ops, long nanos, long allocated) {
+    System.out.println(name + ": " + (long) (ops * 1e9 / nanos) + " ops/s, "
+        + (nanos / Math.max(1, ops)) + " ns/op, "
+        + (allocated / Math.max(1, ops)) + " bytes allocated/op");
+  }
+}
@@ -0,0 +1,118 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import jake2.game.Cmd;
+import jake2.qcommon.Cbuf;
+import jake2.qcommon.Cvar;
+import jake2.qcommon.xcommand_t;
+
+/**
+ * Measures console command throughput through Cbuf.Execute with registries
+ * the size of a running client and server: commands, aliases and cvar
+ * assignments, plus Cvar.VariableValue lookups by name.
+ *
+ * usage: CommandBenchmark [commands] [registered]
+ */
+public class CommandBenchmark {
+
+  private static int executed;
+
+  public static void main(String[] args) {
+    int commands = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+    int registered = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+    Bench.init();
+    Cbuf.Init();
+    Cmd.Init();
+
+    xcommand_t count = new xcommand_t() {
+      public void execute() {
+        executed += Cmd.Argc();
+      }
+    };
+    for (int i = 0; i < registered; i++) {
+      Cmd.AddCommand("bench_cmd" + i, count);
+      Cvar.Get("bench_var" + i, "0", 0);
+    }
+    // aliases expand into a registered command
+    for (int i = 0; i < 16; i++) {
+      Cbuf.AddText("alias bench_alias" + i + " bench_cmd" + (i * registered / 16) + "\n");
+    }
+    Cbuf.Execute();
+
+    // the most recently registered names are found first by a list walk
+    String[] lines = {
+        "bench_cmd0 1 2 3\n",
+        "BENCH_CMD" + (registered / 2) + " \"quoted argument\"\n",
+        "bench_var" + (registered - 1) + " 1\n",
+        "bench_alias7\n",
+        "bench_cmd" + (registered - 1) + "; bench_var0 2\n",
+    };
+
+    // warm up
+    run(lines, commands / 10);
+    lookups(registered, commands / 10);
+
+    long alloc = Bench.allocatedBytes();
+    long start = System.nanoTime();
+    int n = run(lines, commands);
+    Bench.report("Cbuf.Execute", n, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    lookups(registered, commands);
+    Bench.report("Cvar.VariableValue", commands, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    if (executed == 0) {
+      System.out.println("no commands executed");
+    }
+  }
+
+  /** @return the number of commands executed */
+  private static int run(String[] lines, int commands) {
+    int n = 0;
+    while (n < commands) {
+      // stay below ALIAS_LOOP_COUNT aliases per Cbuf.Execute
+      for (int j = 0; j < Cmd.ALIAS_LOOP_COUNT / 2; j++) {
+        for (int i = 0; i < lines.length; i++) {
+          Cbuf.AddText(lines[i]);
+          // an alias runs a second command, the last line contains two
+          n += i >= 3 ? 2 : 1;
+        }
+      }
+      Cbuf.Execute();
+    }
+    return n;
+  }
+
+  private static float lookups(int registered, int count) {
+    float sum = 0;
+    String[] names = new String[registered];
+    for (int i = 0; i < registered; i++) {
+      names[i] = "bench_var" + i;
+    }
+    for (int i = 0; i < count; i++) {
+      sum += Cvar.VariableValue(names[i % registered]);
+    }
+    return sum;
+  }
+}
@@ -57,6 +57,22 @@ public abstract class Converter {
     return outExt;
   }
 
+  /**
+   * Returns the files convert() writes for outFile. Unpak converts an entry
+   * again if any of them is missing.
+   */
+  public File[] getOutputs(File outFile) throws IOException {
+    return new File[] { outFile };
+  }
+
+  /**
+   * Identifies this converter and the external tools it found. Unpak keeps
+   * it in its manifest and reconverts entries when it changes.
+   */
+  public String getSignature() {
+    return getClass().getSimpleName();
+  }
+
   protected RenderedImage makeImage(image_t image) {
     BufferedImage bi = new BufferedImage(image.width, image.height,
         BufferedImage.TYPE_4BYTE_ABGR);
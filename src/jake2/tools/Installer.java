@@ -30,5 +30,8 @@ public class Installer {
         "raw" + File.separator + "baseq2",
         "war" + File.separator + "baseq2"
     });
+    Precompressor.main(new String[] {
+        "war" + File.separator + "baseq2"
+    });
   }
 }
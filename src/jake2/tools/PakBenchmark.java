@@ -0,0 +1,121 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import jake2.desktop.ResourceLoaderImpl;
+import jake2.qcommon.Cvar;
+import jake2.qcommon.ResourceLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compares loading a map from a loose file with loading it from a mapped
+ * pak, both the bare file access and a full CM_LoadMap. The map has to be
+ * below Defines.BASEDIRNAME and in one of the pak files there.
+ *
+ * usage: PakBenchmark [map] [loads]
+ */
+public class PakBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    String map = args.length > 0 ? args[0] : "maps/q2dm1.bsp";
+    int loads = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+    Bench.init();
+    Cvar.Set("flushmap", "1");
+
+    ResourceLoaderImpl loose = new ResourceLoaderImpl();
+    ResourceLoaderImpl pak = new ResourceLoaderImpl() {
+      @Override
+      public byte[] loadResource(String path) {
+        // skip the loose file, fall back to the pak
+        return null;
+      }
+    };
+
+    if (loose.loadResource(map) == null) {
+      System.out.println(map + " is not a loose file");
+      return;
+    }
+    long start = System.nanoTime();
+    if (pak.loadPackedResource(map) == null) {
+      System.out.println(map + " is not in a pak file");
+      return;
+    }
+    System.out.println("paks mounted in " + (System.nanoTime() - start) / 1000 + " us");
+
+    // warm up
+    fetchLoose(loose, map, loads);
+    fetchPak(pak, map, loads);
+
+    long alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    fetchLoose(loose, map, loads);
+    Bench.report("loose fetch", loads, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    fetchPak(pak, map, loads);
+    Bench.report("pak fetch", loads, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    ResourceLoader.impl = loose;
+    loadMap(map, loads);
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    loadMap(map, loads);
+    Bench.report("loose CM_LoadMap", loads, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    ResourceLoader.impl = pak;
+    loadMap(map, loads);
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    loadMap(map, loads);
+    Bench.report("pak CM_LoadMap", loads, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+  }
+
+  private static int fetchLoose(ResourceLoaderImpl loader, String map, int loads)
+      throws IOException {
+    int sum = 0;
+    for (int i = 0; i < loads; i++) {
+      byte[] data = loader.loadResource(map);
+      sum += data[data.length - 1];
+    }
+    return sum;
+  }
+
+  private static int fetchPak(ResourceLoaderImpl loader, String map, int loads) {
+    int sum = 0;
+    for (int i = 0; i < loads; i++) {
+      ByteBuffer data = loader.loadPackedResource(map);
+      sum += data.get(data.limit() - 1);
+    }
+    return sum;
+  }
+
+  private static void loadMap(String map, int loads) {
+    for (int i = 0; i < loads; i++) {
+      Bench.loadMap(map);
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import jake2.game.pmove_t;
+import jake2.game.trace_t;
+import jake2.game.usercmd_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Com;
+import jake2.qcommon.Defines;
+import jake2.qcommon.PMove;
+import jake2.qcommon.PmoveContext;
+import jake2.qcommon.TraceContext;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Measures PMove.Pmove on a real BSP by replaying a recorded stream of
+ * usercmds (running, strafing, turning and jumping, generated once from a
+ * fixed seed) for a player at each spawn point of the map. Compares a
+ * fresh pmove_t and allocating traces per move, as the game did before,
+ * with a reused PmoveContext, and runs the context variant on several
+ * threads with one context per thread.
+ *
+ * usage: PmoveBenchmark [map] [moves] [threads]
+ */
+public class PmoveBenchmark {
+
+  private static final int COMMANDS = 4096;
+
+  /** A trace and pointcontents callback against the world only. */
+  private static class World {
+    final pmove_t.TraceAdapter trace;
+    final pmove_t.PointContentsAdapter pointcontents = new pmove_t.PointContentsAdapter() {
+      public int pointcontents(float[] point) {
+        return CM.PointContents(point, 0);
+      }
+    };
+
+    /** @param tc the trace context, null for the allocating static API */
+    World(final TraceContext tc) {
+      trace = new pmove_t.TraceAdapter() {
+        public trace_t trace(float[] start, float[] mins, float[] maxs,
+            float[] end) {
+          if (tc == null) {
+            return CM.BoxTrace(start, end, mins, maxs, 0, Defines.MASK_PLAYERSOLID);
+          }
+          return CM.BoxTrace(tc, start, end, mins, maxs, 0, Defines.MASK_PLAYERSOLID);
+        }
+      };
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    String map = args.length > 0 ? args[0] : "maps/q2dm1.bsp";
+    final int moves = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+        : Runtime.getRuntime().availableProcessors();
+
+    Bench.loadMap(map);
+    final short[][] spawns = spawnPoints(CM.CM_EntityString());
+    if (spawns.length == 0) {
+      System.out.println("no spawn points in " + map);
+      return;
+    }
+    final usercmd_t[] cmds = record(new Random(1234));
+
+    // warm up
+    runAllocating(spawns, cmds, moves / 10);
+    runContext(new PmoveContext(), new World(new TraceContext()), spawns, cmds, moves / 10);
+
+    long alloc = Bench.allocatedBytes();
+    long start = System.nanoTime();
+    runAllocating(spawns, cmds, moves);
+    Bench.report("Pmove, new pmove_t and traces", moves, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    PmoveContext context = new PmoveContext();
+    World world = new World(new TraceContext());
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    runContext(context, world, spawns, cmds, moves);
+    Bench.report("Pmove, PmoveContext", moves, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread() {
+        @Override
+        public void run() {
+          runContext(new PmoveContext(), new World(new TraceContext()), spawns,
+              cmds, moves);
+        }
+      };
+    }
+    start = System.nanoTime();
+    for (Thread t : workers) {
+      t.start();
+    }
+    for (Thread t : workers) {
+      t.join();
+    }
+    Bench.report("Pmove, PmoveContext, " + threads + " threads", (long) moves * threads,
+        System.nanoTime() - start, 0);
+  }
+
+  /** Returns the origins of the player spawn points, in pmove units. */
+  private static short[][] spawnPoints(String entities) {
+    ArrayList<short[]> spawns = new ArrayList<short[]>();
+    Com.ParseHelp ph = new Com.ParseHelp(entities);
+    String classname = null;
+    float[] origin = null;
+    while (!ph.isEof()) {
+      String token = Com.Parse(ph);
+      if (token.equals("{")) {
+        classname = null;
+        origin = null;
+      } else if (token.equals("}")) {
+        if (origin != null && classname != null
+            && classname.startsWith("info_player_")) {
+          spawns.add(new short[] { (short) (origin[0] * 8),
+              (short) (origin[1] * 8), (short) (origin[2] * 8) });
+        }
+      } else {
+        String value = Com.Parse(ph);
+        if (token.equals("classname")) {
+          classname = value;
+        } else if (token.equals("origin")) {
+          String[] xyz = value.trim().split("\\s+");
+          origin = new float[] { Float.parseFloat(xyz[0]),
+              Float.parseFloat(xyz[1]), Float.parseFloat(xyz[2]) };
+        }
+      }
+    }
+    return spawns.toArray(new short[spawns.size()][]);
+  }
+
+  /** Records a player running around: a few seconds per heading. */
+  private static usercmd_t[] record(Random random) {
+    usercmd_t[] cmds = new usercmd_t[COMMANDS];
+    short forward = 0, side = 0, yaw = 0, turn = 0;
+    for (int i = 0; i < COMMANDS; i++) {
+      if (i % 64 == 0) {
+        forward = (short) ((random.nextInt(3) - 1) * 400);
+        side = (short) ((random.nextInt(3) - 1) * 200);
+        turn = (short) (random.nextInt(401) - 200);
+      }
+      yaw += turn;
+      usercmd_t cmd = new usercmd_t();
+      cmd.msec = (byte) (10 + random.nextInt(20));
+      cmd.forwardmove = forward;
+      cmd.sidemove = side;
+      cmd.upmove = (short) (random.nextInt(32) == 0 ? 200 : 0);
+      cmd.angles[Defines.YAW] = yaw;
+      cmds[i] = cmd;
+    }
+    return cmds;
+  }
+
+  private static void spawn(pmove_t pm, short[] origin) {
+    pm.s.clear();
+    pm.s.pm_type = Defines.PM_NORMAL;
+    pm.s.gravity = 800;
+    pm.s.origin[0] = origin[0];
+    pm.s.origin[1] = origin[1];
+    pm.s.origin[2] = origin[2];
+  }
+
+  /** Like the game before PmoveContext: a new pmove_t and traces per move. */
+  private static int runAllocating(short[][] spawns, usercmd_t[] cmds, int moves) {
+    World world = new World(null);
+    pmove_t[] players = new pmove_t[spawns.length];
+    for (int i = 0; i < spawns.length; i++) {
+      players[i] = new pmove_t();
+      spawn(players[i], spawns[i]);
+    }
+
+    int touched = 0;
+    for (int n = 0; n < moves; n++) {
+      int p = n % players.length;
+      pmove_t pm = new pmove_t();
+      pm.s.set(players[p].s);
+      pm.cmd.set(cmds[(n / players.length) % cmds.length]);
+      pm.trace = world.trace;
+      pm.pointcontents = world.pointcontents;
+      PMove.Pmove(pm);
+      players[p] = pm;
+      touched += pm.numtouch;
+    }
+    return touched;
+  }
+
+  private static int runContext(PmoveContext context, World world,
+      short[][] spawns, usercmd_t[] cmds, int moves) {
+    pmove_t[] players = new pmove_t[spawns.length];
+    for (int i = 0; i < spawns.length; i++) {
+      players[i] = new pmove_t();
+      spawn(players[i], spawns[i]);
+      players[i].trace = world.trace;
+      players[i].pointcontents = world.pointcontents;
+    }
+
+    int touched = 0;
+    for (int n = 0; n < moves; n++) {
+      pmove_t pm = players[n % players.length];
+      pm.cmd.set(cmds[(n / players.length) % cmds.length]);
+      PMove.Pmove(context, pm);
+      touched += pm.numtouch;
+    }
+    return touched;
+  }
+}
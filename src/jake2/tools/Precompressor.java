@@ -0,0 +1,189 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes file.gz (and file.br, if a brotli executable is on the path) next to
+ * each compressible asset in a directory tree, for AssetServlet to serve.
+ * Variants that are up to date are left alone, and ones that would not save
+ * at least a tenth of the size are not kept. Those are listed with the mtime
+ * of their source in .precompress-skip, so later runs don't retry them until
+ * the source changes.
+ */
+public class Precompressor {
+
+  private static final String[] COMPRESSIBLE = {
+    ".bsp", ".md2", ".sp2", ".wav", ".cfg", ".txt", ".lst", ".dat", ".html",
+    ".js", ".css"
+  };
+
+  private static final String SKIPPED = ".precompress-skip";
+
+  private int written, skipped;
+  private long inBytes, outBytes;
+  private boolean brotli;
+  private String root;
+  private final Properties incompressible = new Properties();
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("Usage: Precompressor [dir]");
+      System.exit(-1);
+    }
+
+    File dir = new File(args[0]);
+    File skipFile = new File(dir, SKIPPED);
+    Precompressor p = new Precompressor();
+    p.brotli = hasBrotli();
+    p.root = dir.getPath() + File.separator;
+    if (skipFile.exists()) {
+      InputStream in = new FileInputStream(skipFile);
+      try {
+        p.incompressible.load(in);
+      } finally {
+        in.close();
+      }
+    }
+    p.compressDir(dir);
+    OutputStream out = new FileOutputStream(skipFile);
+    try {
+      p.incompressible.store(out, "variants not worth keeping, by source mtime");
+    } finally {
+      out.close();
+    }
+    System.out.println("precompressed " + p.written + " files ("
+        + p.skipped + " up to date), " + p.inBytes / 1024 + "k -> "
+        + p.outBytes / 1024 + "k" + (p.brotli ? "" : "; no brotli on the path"));
+  }
+
+  private void compressDir(File dir) throws IOException {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File f : children) {
+      if (f.isDirectory()) {
+        compressDir(f);
+      } else if (isCompressible(f.getName())) {
+        compressFile(f);
+      }
+    }
+  }
+
+  private void compressFile(File f) throws IOException {
+    File gz = new File(f.getPath() + ".gz");
+    File br = new File(f.getPath() + ".br");
+    boolean gzCurrent = isCurrent(f, gz);
+    boolean brCurrent = !brotli || isCurrent(f, br);
+    if (gzCurrent && brCurrent) {
+      skipped++;
+      return;
+    }
+
+    boolean kept = false;
+    if (!gzCurrent) {
+      OutputStream out = new GZIPOutputStream(new FileOutputStream(gz));
+      InputStream in = new FileInputStream(f);
+      try {
+        byte[] buf = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buf)) > 0) {
+          out.write(buf, 0, n);
+        }
+      } finally {
+        in.close();
+        out.close();
+      }
+      kept |= keepIfSmaller(f, gz);
+    }
+    if (!brCurrent) {
+      run("brotli", "-f", "-q", "11", "-o", br.getPath(), f.getPath());
+      kept |= keepIfSmaller(f, br);
+    }
+    if (kept) {
+      written++;
+    }
+  }
+
+  private boolean isCurrent(File f, File compressed) {
+    return compressed.lastModified() >= f.lastModified()
+        || String.valueOf(f.lastModified()).equals(
+            incompressible.getProperty(relative(compressed)));
+  }
+
+  private boolean keepIfSmaller(File f, File compressed) {
+    if (!compressed.exists()) {
+      return false;
+    }
+    if (compressed.length() > f.length() * 9 / 10) {
+      compressed.delete();
+      incompressible.setProperty(relative(compressed),
+          String.valueOf(f.lastModified()));
+      return false;
+    }
+    incompressible.remove(relative(compressed));
+    inBytes += f.length();
+    outBytes += compressed.length();
+    return true;
+  }
+
+  private String relative(File f) {
+    String path = f.getPath();
+    return path.startsWith(root) ? path.substring(root.length()) : path;
+  }
+
+  private static boolean isCompressible(String name) {
+    name = name.toLowerCase();
+    for (String ext : COMPRESSIBLE) {
+      if (name.endsWith(ext)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasBrotli() {
+    try {
+      return run("brotli", "--version");
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static boolean run(String... command) throws IOException {
+    Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+    InputStream in = p.getInputStream();
+    while (in.read() != -1) {
+    }
+    try {
+      return p.waitFor() == 0;
+    } catch (InterruptedException e) {
+      throw new IOException("interrupted: " + command[0]);
+    }
+  }
+}
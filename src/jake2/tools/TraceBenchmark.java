@@ -0,0 +1,121 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.tools;
+
+import jake2.game.cmodel_t;
+import jake2.qcommon.CM;
+import jake2.qcommon.Defines;
+import jake2.qcommon.TraceContext;
+
+import java.util.Random;
+
+/**
+ * Measures CM.BoxTrace throughput on a real BSP: the allocating static API,
+ * the TraceContext API and the TraceContext API on several threads.
+ *
+ * usage: TraceBenchmark [map] [traces] [threads]
+ */
+public class TraceBenchmark {
+
+  private static final float[] PLAYER_MINS = { -16, -16, -24 };
+  private static final float[] PLAYER_MAXS = { 16, 16, 32 };
+
+  public static void main(String[] args) throws Exception {
+    String map = args.length > 0 ? args[0] : "maps/q2dm1.bsp";
+    final int traces = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+    int threads = args.length > 2 ? Integer.parseInt(args[2])
+        : Runtime.getRuntime().availableProcessors();
+
+    final cmodel_t world = Bench.loadMap(map);
+    final float[][] points = randomPoints(world, 4096);
+
+    // warm up
+    runStatic(points, traces / 10);
+    runContext(new TraceContext(), points, traces / 10);
+
+    long alloc = Bench.allocatedBytes();
+    long start = System.nanoTime();
+    runStatic(points, traces);
+    Bench.report("static BoxTrace", traces, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    TraceContext tc = new TraceContext();
+    alloc = Bench.allocatedBytes();
+    start = System.nanoTime();
+    runContext(tc, points, traces);
+    Bench.report("context BoxTrace", traces, System.nanoTime() - start,
+        Bench.allocatedBytes() - alloc);
+
+    Thread[] workers = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new Thread() {
+        @Override
+        public void run() {
+          runContext(new TraceContext(), points, traces);
+        }
+      };
+    }
+    start = System.nanoTime();
+    for (Thread t : workers) {
+      t.start();
+    }
+    for (Thread t : workers) {
+      t.join();
+    }
+    Bench.report("context BoxTrace, " + threads + " threads", (long) traces * threads,
+        System.nanoTime() - start, 0);
+  }
+
+  private static float[][] randomPoints(cmodel_t world, int count) {
+    Random random = new Random(1234);
+    float[][] points = new float[count][3];
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < 3; j++) {
+        points[i][j] = world.mins[j] + random.nextFloat() * (world.maxs[j] - world.mins[j]);
+      }
+    }
+    return points;
+  }
+
+  private static int runStatic(float[][] points, int traces) {
+    int hits = 0;
+    for (int i = 0; i < traces; i++) {
+      float[] start = points[i % points.length];
+      float[] end = points[(i * 7 + 1) % points.length];
+      if (CM.BoxTrace(start, end, PLAYER_MINS, PLAYER_MAXS, 0,
+          Defines.MASK_PLAYERSOLID).fraction < 1) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+
+  private static int runContext(TraceContext tc, float[][] points, int traces) {
+    int hits = 0;
+    for (int i = 0; i < traces; i++) {
+      float[] start = points[i % points.length];
+      float[] end = points[(i * 7 + 1) % points.length];
+      if (CM.BoxTrace(tc, start, end, PLAYER_MINS, PLAYER_MAXS, 0,
+          Defines.MASK_PLAYERSOLID).fraction < 1) {
+        hits++;
+      }
+    }
+    return hits;
+  }
+}
@@ -22,14 +22,43 @@ import jake2.desktop.CompatibilityImpl;
 import jake2.qcommon.Compatibility;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
-
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unpacks and converts a game data directory into the web server's. Entries
+ * are converted in parallel. A manifest in the output directory records
+ * each entry's content hash and converter signature, so later runs only
+ * convert entries whose content or converter changed or whose output is
+ * missing. Entries that convert to the same output file are not run
+ * concurrently; the last one in search order wins, as it did when entries
+ * were converted one after another.
+ */
 public class Unpak {
 
   public static class pack_t {
@@ -65,6 +94,8 @@ public class Unpak {
   private static final int IDPAKHEADER = (('K' << 24) + ('C' << 16)
       + ('A' << 8) + 'P');
   private static final int MAX_FILES_IN_PACK = 4096;
+  private static final String MANIFEST = ".unpak-manifest";
+  private static final long PROGRESS_INTERVAL = 1000;
   private static byte[] tmpText = new byte[packfile_t.NAME_SIZE];
   private static File indir, outdir;
 
@@ -79,72 +110,272 @@ public class Unpak {
     indir = new File(args[0]);
     outdir = new File(args[1]);
 
-    if (outdir.exists()) {
-      System.out.println(outdir + " already exists; no need to unpak");
-      return;
-    }
-
     if (!indir.exists() || !indir.isDirectory()) {
       System.err.println("Couldn't find directory " + indir);
       System.exit(-1);
     }
 
-    convertDir(indir, "");
+    // Later paks override earlier ones and paks override loose files, as
+    // they do in the game's search path.
+    LinkedHashMap<String, ByteBuffer> entries = new LinkedHashMap<String, ByteBuffer>();
+    ArrayList<String> paks = new ArrayList<String>();
+    collectDir(indir, "", entries, paks);
+    Collections.sort(paks, PAK_ORDER);
+    for (String pak : paks) {
+      collectPak(pak, entries);
+    }
+
+    convertAll(entries);
   }
 
-  private static void convertDir(File file, String prefix) throws IOException {
+  /**
+   * Orders paks the way FS adds them to the search path: by directory, then
+   * by the number in pakN.pak, so pak10.pak comes after pak2.pak.
+   */
+  private static final Comparator<String> PAK_ORDER = new Comparator<String>() {
+    public int compare(String a, String b) {
+      File fa = new File(a), fb = new File(b);
+      int c = fa.getParent().compareTo(fb.getParent());
+      if (c != 0) {
+        return c;
+      }
+      int na = pakNumber(fa.getName()), nb = pakNumber(fb.getName());
+      if (na != nb) {
+        return na < nb ? -1 : 1;
+      }
+      return fa.getName().compareTo(fb.getName());
+    }
+  };
+
+  /** Returns N for pakN.pak, or -1 for paks named otherwise. */
+  static int pakNumber(String name) {
+    String lower = name.toLowerCase();
+    if (!lower.startsWith("pak") || !lower.endsWith(".pak")
+        || lower.length() == "pak.pak".length()) {
+      return -1;
+    }
+    String digits = lower.substring(3, lower.length() - 4);
+    for (int i = 0; i < digits.length(); i++) {
+      if (!Character.isDigit(digits.charAt(i))) {
+        return -1;
+      }
+    }
+    try {
+      return Integer.parseInt(digits);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void collectDir(File file, String prefix,
+      Map<String, ByteBuffer> entries, ArrayList<String> paks) throws IOException {
     for (String child : file.list()) {
       File childFile = new File(file, child);
       if (childFile.isDirectory()) {
-        convertDir(childFile, prefix + child + File.separator);
+        collectDir(childFile, prefix + child + File.separator, entries, paks);
+      } else if (childFile.getName().endsWith(".pak")) {
+        paks.add(childFile.getAbsolutePath());
       } else {
-        // See if it's a .pak file.
-        if (childFile.getName().endsWith(".pak")) {
-          // Unpak it.
-          unpak(childFile.getAbsolutePath());
-        } else {
-          // Convert the file.
-          RandomAccessFile rafile = new RandomAccessFile(childFile, "r");
-          FileChannel fc = rafile.getChannel();
-          convertFile(prefix + childFile.getName(), fc, (int) fc.size());
-          fc.close();
+        entries.put(prefix + childFile.getName(), map(childFile));
+      }
+    }
+  }
+
+  private static void collectPak(String pakname, Map<String, ByteBuffer> entries) {
+    pack_t pak = loadPackFile(pakname);
+    if (pak == null) {
+      return;
+    }
+    // The directory is hashed; sort it so that entries sharing an output
+    // resolve the same way on every run.
+    ArrayList<String> names = new ArrayList<String>(pak.files.keySet());
+    Collections.sort(names);
+    for (String name : names) {
+      packfile_t entry = pak.files.get(name);
+      ByteBuffer data = pak.backbuffer.duplicate();
+      data.limit(entry.filepos + entry.filelen);
+      data.position(entry.filepos);
+      entries.remove(entry.name);
+      entries.put(entry.name, data.slice());
+    }
+  }
+
+  /**
+   * Converts the entries whose content hash differs from the manifest's on
+   * a thread per core, reporting progress as they complete, then rewrites
+   * the manifest with the entries that succeeded. Only the last entry
+   * writing a given output is converted and recorded.
+   */
+  private static void convertAll(Map<String, ByteBuffer> entries)
+      throws IOException, InterruptedException {
+    File manifestFile = new File(outdir, MANIFEST);
+    final Properties manifest = new Properties();
+    if (manifestFile.exists()) {
+      FileInputStream in = new FileInputStream(manifestFile);
+      try {
+        manifest.load(in);
+      } finally {
+        in.close();
+      }
+    }
+
+    Set<String> winners = winners(entries);
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CompletionService<String> done = new ExecutorCompletionService<String>(executor);
+    final Properties updated = new Properties();
+    final long[] converted = new long[2];
+
+    Map<Future<String>, String> names = new LinkedHashMap<Future<String>, String>();
+    for (final Map.Entry<String, ByteBuffer> e : entries.entrySet()) {
+      if (!winners.contains(e.getKey())) {
+        continue;
+      }
+      names.put(done.submit(new Callable<String>() {
+        public String call() throws IOException {
+          String name = e.getKey();
+          byte[] raw = new byte[e.getValue().remaining()];
+          e.getValue().duplicate().get(raw);
+          Converter converter = Converter.get(name);
+          File outFile = outFile(name, converter);
+          // The converter's signature is part of the key, so installing an
+          // encoder later reconverts the entries that need it.
+          String key = hash(raw) + " "
+              + (converter != null ? converter.getSignature() : "copy");
+          if (!key.equals(manifest.getProperty(name))
+              || !outputsExist(converter, outFile)) {
+            convertFile(outFile, converter, raw);
+            synchronized (converted) {
+              converted[0]++;
+              converted[1] += raw.length;
+            }
+          }
+          updated.setProperty(name, key);
+          return name;
+        }
+      }), e.getKey());
+    }
+    executor.shutdown();
+
+    long start = System.currentTimeMillis();
+    long lastReport = start;
+    int finished = 0, failed = 0;
+    while (finished < names.size()) {
+      Future<String> f = done.poll(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+      if (f != null) {
+        finished++;
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          failed++;
+          System.err.println(names.get(f) + ": " + e.getCause());
+        }
+      }
+      long now = System.currentTimeMillis();
+      if (now - lastReport >= PROGRESS_INTERVAL || finished == names.size()) {
+        lastReport = now;
+        synchronized (converted) {
+          System.out.println(progress(finished, names.size(), converted, now - start));
+        }
+      }
+    }
+
+    outdir.mkdirs();
+    File tmp = new File(outdir, MANIFEST + ".tmp");
+    FileOutputStream out = new FileOutputStream(tmp);
+    try {
+      updated.store(out, "content hash and converter of converted entries");
+    } finally {
+      out.close();
+    }
+    if (!tmp.renameTo(manifestFile)) {
+      manifestFile.delete();
+      if (!tmp.renameTo(manifestFile)) {
+        throw new IOException("can't write " + manifestFile);
+      }
+    }
+
+    System.out.println((names.size() - converted[0] - failed)
+        + " entries unchanged, " + converted[0] + " converted, "
+        + (entries.size() - names.size()) + " shadowed on " + threads
+        + " threads in " + (System.currentTimeMillis() - start) / 1000.0 + "s");
+    if (failed > 0) {
+      throw new IOException(failed + " entries failed to convert");
+    }
+  }
+
+  /**
+   * Returns the entries that own all their outputs. Entries are visited in
+   * search order, so an entry writing any file a previous one writes (a
+   * .pcx and a .tga that both become .png) takes it over and the previous
+   * one is dropped.
+   */
+  private static Set<String> winners(Map<String, ByteBuffer> entries)
+      throws IOException {
+    Map<String, String> owners = new HashMap<String, String>();
+    Set<String> winners = new HashSet<String>();
+    for (String name : entries.keySet()) {
+      Converter converter = Converter.get(name);
+      File outFile = outFile(name, converter);
+      File[] outputs = converter != null ? converter.getOutputs(outFile)
+          : new File[] { outFile };
+      for (File output : outputs) {
+        String previous = owners.put(output.getCanonicalPath(), name);
+        if (previous != null && !previous.equals(name)) {
+          winners.remove(previous);
+          System.out.println(name + " replaces " + previous);
         }
       }
+      winners.add(name);
     }
+    return winners;
   }
 
-  private static void convertFile(String filename, FileChannel inChannel,
-      int len) throws IOException {
-    System.out.println(filename);
+  private static String progress(int finished, int total, long[] converted,
+      long millis) {
+    double seconds = Math.max(millis, 1) / 1000.0;
+    return finished + "/" + total + " entries, " + converted[0]
+        + " converted (" + (int) (converted[0] / seconds) + " files/s, "
+        + (int) (converted[1] / seconds / 1024) + " KB/s)";
+  }
 
-    Converter converter = Converter.get(filename);
+  private static File outFile(String filename, Converter converter)
+      throws IOException {
     if (converter != null) {
       filename = replaceExtension(filename, converter.getOutExt());
     }
+    return new File(new File(outdir, filename).getCanonicalPath());
+  }
 
-    String canonicalPath = new File(outdir, filename).getCanonicalPath();
-    File outFile = new File(canonicalPath);
+  private static boolean outputsExist(Converter converter, File outFile)
+      throws IOException {
+    if (converter == null) {
+      return outFile.exists();
+    }
+    for (File f : converter.getOutputs(outFile)) {
+      if (!f.exists()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void convertFile(File outFile, Converter converter,
+      byte[] raw) throws IOException {
     createPath(outFile.getAbsolutePath());
- //   outFile.createNewFile();
 
-    ByteBuffer buf = ByteBuffer.allocateDirect(len);
     if (converter != null) {
       // Convert the file.
-      inChannel.read(buf);
-      buf.flip();
-      byte[] raw = new byte[len];
-      buf.get(raw);
       converter.convert(raw, outFile);
     } else {
       // Just copy it directly.
       FileOutputStream outStream = new FileOutputStream(outFile);
-      FileChannel outChannel = outStream.getChannel();
-
-      inChannel.read(buf);
-      buf.flip();
-      outChannel.write(buf);
-
-      outStream.close();
+      try {
+        outStream.write(raw);
+      } finally {
+        outStream.close();
+      }
     }
   }
 
@@ -160,17 +391,44 @@ public class Unpak {
     }
   }
 
+  private static ByteBuffer map(File f) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(f, "r");
+    try {
+      FileChannel fc = file.getChannel();
+      return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+    } finally {
+      file.close();
+    }
+  }
+
+  private static String hash(byte[] raw) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    byte[] digest = md.digest(raw);
+    StringBuilder sb = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
   private static pack_t loadPackFile(String packfile) {
     dpackheader_t header;
     Hashtable<String, packfile_t> newfiles;
     RandomAccessFile file;
+    ByteBuffer packhandle;
     int numpackfiles = 0;
     pack_t pack = null;
 
     try {
       file = new RandomAccessFile(packfile, "r");
       FileChannel fc = file.getChannel();
-      ByteBuffer packhandle = fc.map(FileChannel.MapMode.READ_ONLY, 0, file
+      packhandle = fc.map(FileChannel.MapMode.READ_ONLY, 0, file
           .length());
       packhandle.order(ByteOrder.LITTLE_ENDIAN);
 
@@ -217,6 +475,7 @@ public class Unpak {
     pack = new pack_t();
     pack.filename = new String(packfile);
     pack.handle = file;
+    pack.backbuffer = packhandle;
     pack.numfiles = numpackfiles;
     pack.files = newfiles;
 
@@ -230,17 +489,4 @@ public class Unpak {
     assert idx != -1;
     return filename.substring(0, idx) + "." + outExt;
   }
-
-  private static void unpak(String pakname) throws IOException {
-    pack_t pak = loadPackFile(pakname);
-    pak.handle = new RandomAccessFile(pak.filename, "r");
-    FileChannel inChannel = pak.handle.getChannel();
-
-    for (packfile_t entry : pak.files.values()) {
-      pak.handle.seek(entry.filepos);
-      convertFile(entry.name, inChannel, entry.filelen);
-    }
-
-    pak.handle.close();
-  }
 }
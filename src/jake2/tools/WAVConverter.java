@@ -109,6 +109,25 @@ public class WAVConverter extends Converter {
 		}
 	}
 
+	@Override
+	public File[] getOutputs(File outFile) throws IOException {
+		String outPath = lowerFile(outFile);
+		if (lameLocation != null && oggLocation != null) {
+			return new File[] { new File(outPath + ".mp3"), new File(outPath + ".ogg") };
+		} else if (lameLocation != null) {
+			return new File[] { new File(outPath + ".mp3") };
+		} else if (oggLocation != null) {
+			return new File[] { new File(outPath + ".ogg") };
+		}
+		return new File[0];
+	}
+
+	@Override
+	public String getSignature() {
+		return super.getSignature() + (lameLocation != null ? "+lame" : "")
+				+ (oggLocation != null ? "+oggenc" : "");
+	}
+
   private String lowerFile(File outFile) throws IOException {
     String lowerFileName = outFile.getCanonicalFile().getName().toLowerCase();
     String pathName = outFile.getCanonicalFile().getParent();
@@ -25,27 +25,168 @@ package jake2.util;
 
 import jake2.game.*;
 import jake2.qcommon.Com;
+import jake2.qcommon.Compatibility;
 
 import java.io.*;
+import java.util.ArrayList;
 
 /**
- * RandomAccessFile, but handles readString/WriteString specially and offers
- * other helper functions
+ * A savegame file, read into memory on open and written out on close, with
+ * helper functions for the game structures. A QuakeFile without a file name
+ * is an in-memory snapshot.
  */
-public class QuakeFile extends RandomAccessFile {
+public class QuakeFile {
 
-    /** Standard Constructor. */
-    public QuakeFile(String filename, String mode) throws FileNotFoundException {
-        super(filename, mode);
+    /** The file written on close, null for snapshots and when reading. */
+    private String filename;
+
+    private byte buf[];
+
+    private int pos;
+
+    /** The end of the data when reading, the size of buf when writing. */
+    private int limit;
+
+    /** file ids of the adapters written, by SuperAdapter.getIndex() + 1 */
+    private int adapterIds[];
+
+    private int adapterCount;
+
+    /** the adapters read, by file id */
+    private ArrayList<SuperAdapter> adapters;
+
+    /**
+     * Standard Constructor, mode "r" reads the whole file at once, any other
+     * mode buffers the writes until close.
+     */
+    public QuakeFile(String filename, String mode) throws IOException {
+        if (mode.equals("r")) {
+            RandomAccessFile f = new RandomAccessFile(filename, "r");
+            try {
+                buf = new byte[(int) f.length()];
+                f.readFully(buf);
+            } finally {
+                f.close();
+            }
+            limit = buf.length;
+        } else {
+            this.filename = filename;
+            buf = new byte[16384];
+            limit = buf.length;
+        }
+    }
+
+    /** Creates an empty snapshot for writing. */
+    public QuakeFile() {
+        buf = new byte[16384];
+        limit = buf.length;
+    }
+
+    /** Opens a snapshot returned by toByteArray for reading. */
+    public QuakeFile(byte snapshot[]) {
+        buf = snapshot;
+        limit = snapshot.length;
+    }
+
+    /** Returns the bytes written so far. */
+    public byte[] toByteArray() {
+        byte res[] = new byte[pos];
+        System.arraycopy(buf, 0, res, 0, pos);
+        return res;
+    }
+
+    /** Writes the buffered data to the file, if this is not a snapshot. */
+    public void close() throws IOException {
+        if (filename != null) {
+            write(filename, buf, pos);
+            filename = null;
+        }
+    }
+
+    /** Writes data[0..len) as the new content of a file. */
+    public static void write(String filename, byte data[], int len)
+            throws IOException {
+        RandomAccessFile f = new RandomAccessFile(filename, "rw");
+        try {
+            f.write(data, 0, len);
+            f.setLength(len);
+        } finally {
+            f.close();
+        }
+    }
+
+    private void ensure(int n) {
+        if (pos + n > limit) {
+            byte b[] = new byte[Math.max(limit * 2, pos + n)];
+            System.arraycopy(buf, 0, b, 0, pos);
+            buf = b;
+            limit = b.length;
+        }
+    }
+
+    private void check(int n) throws EOFException {
+        if (pos + n > limit)
+            throw new EOFException();
+    }
+
+    public void writeInt(int v) throws IOException {
+        ensure(4);
+        buf[pos++] = (byte) (v >>> 24);
+        buf[pos++] = (byte) (v >>> 16);
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) v;
+    }
+
+    public int readInt() throws IOException {
+        check(4);
+        return (buf[pos++] << 24) | ((buf[pos++] & 0xff) << 16)
+                | ((buf[pos++] & 0xff) << 8) | (buf[pos++] & 0xff);
+    }
+
+    public void writeShort(int v) throws IOException {
+        ensure(2);
+        buf[pos++] = (byte) (v >>> 8);
+        buf[pos++] = (byte) v;
+    }
+
+    public short readShort() throws IOException {
+        check(2);
+        return (short) ((buf[pos++] << 8) | (buf[pos++] & 0xff));
+    }
+
+    public void writeByte(int v) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) v;
+    }
+
+    public byte readByte() throws IOException {
+        check(1);
+        return buf[pos++];
+    }
+
+    public void writeBoolean(boolean v) throws IOException {
+        writeByte(v ? 1 : 0);
     }
 
-    /** Writes a Vector to a RandomAccessFile. */
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public void writeFloat(float v) throws IOException {
+        writeInt(Compatibility.floatToIntBits(v));
+    }
+
+    public float readFloat() throws IOException {
+        return Compatibility.intBitsToFloat(readInt());
+    }
+
+    /** Writes a Vector to the file. */
     public void writeVector(float v[]) throws IOException {
         for (int n = 0; n < 3; n++)
             writeFloat(v[n]);
     }
 
-    /** Writes a Vector to a RandomAccessFile. */
+    /** Reads a Vector from the file. */
     public float[] readVector() throws IOException {
         float res[] = { 0, 0, 0 };
         for (int n = 0; n < 3; n++)
@@ -64,12 +205,11 @@ public class QuakeFile extends RandomAccessFile {
         if (len == 0)
             return "";
 
-        StringBuilder sb = new StringBuilder(len);
-
-        for (int i = 0; i < len; i++) {
-        	sb.append((char) read());
-        }
-        return sb.toString();
+        check(len);
+        char chars[] = new char[len];
+        for (int i = 0; i < len; i++)
+            chars[i] = (char) (buf[pos++] & 0xff);
+        return new String(chars);
     }
 
     /** Writes a length specified string to a file. */
@@ -79,9 +219,11 @@ public class QuakeFile extends RandomAccessFile {
             return;
         }
 
-        writeInt(s.length());
-        if (s.length() != 0)
-            writeBytes(s);
+        int len = s.length();
+        writeInt(len);
+        ensure(len);
+        for (int i = 0; i < len; i++)
+            buf[pos++] = (byte) s.charAt(i);
     }
 
     /** Writes the edict reference. */
@@ -113,33 +255,58 @@ public class QuakeFile extends RandomAccessFile {
         return GameBase.g_edicts[i];
     }
 
-    /** Writes the Adapter-ID to the file. */
+    /**
+     * Writes the Adapter-ID to the file. The first reference to an adapter
+     * writes the next file id followed by its name, later references only
+     * the id.
+     */
     public void writeAdapter(SuperAdapter a) throws IOException {
-        writeInt(3988);
-        if (a == null)
-            writeString(null);
-        else {
-            String str = a.getID();
-            if (a == null) {
-                Com.DPrintf("writeAdapter: invalid Adapter id for " + a + "\n");
-            }
-            writeString(str);
+        if (a == null) {
+            writeInt(-1);
+            return;
+        }
+
+        int index = a.getIndex();
+        if (adapterIds == null || index >= adapterIds.length) {
+            int ids[] = new int[Math.max(SuperAdapter.count(), index + 1)];
+            if (adapterIds != null)
+                System.arraycopy(adapterIds, 0, ids, 0, adapterIds.length);
+            adapterIds = ids;
         }
+
+        int id = adapterIds[index] - 1;
+        if (id >= 0) {
+            writeInt(id);
+            return;
+        }
+
+        id = adapterCount++;
+        adapterIds[index] = id + 1;
+        writeInt(id);
+        writeString(a.getID());
     }
 
     /** Reads the adapter id and returns the adapter. */
     public SuperAdapter readAdapter() throws IOException {
-        if (readInt() != 3988)
-            Com.DPrintf("wrong read position: readadapter 3988 \n");
-
-        String id = readString();
+        int id = readInt();
 
-        if (id == null) {
+        if (id == -1) {
             // null adapter. :-)
             return null;
         }
 
-        return SuperAdapter.getFromID(id);
+        if (adapters == null)
+            adapters = new ArrayList<SuperAdapter>();
+
+        if (id < adapters.size())
+            return adapters.get(id);
+
+        if (id != adapters.size())
+            throw new IOException("wrong read position: adapter id " + id);
+
+        SuperAdapter a = SuperAdapter.getFromID(readString());
+        adapters.add(a);
+        return a;
     }
 
     /** Writes an item reference. */
@@ -158,7 +325,4 @@ public class QuakeFile extends RandomAccessFile {
         else
             return GameItemList.itemlist[ndx];
     }
-
-    
-  
 }
@@ -0,0 +1,120 @@
+/*
+Copyright (C) 2010 Copyright 2010 Google Inc.
+
+This program is free software; you can redistribute it and/or
+modify it under the terms of the GNU General Public License
+as published by the Free Software Foundation; either version 2
+of the License, or (at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+See the GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+*/
+package jake2.util;
+
+import jake2.qcommon.Com;
+import jake2.qcommon.Defines;
+import jake2.qcommon.Globals;
+
+/**
+ * A stack of float[3] scratch vectors, to be used instead of allocating
+ * temporary vectors in code that runs every frame. A scope takes a mark,
+ * gets as many zeroed vectors as it needs and releases back to the mark
+ * before it returns:
+ *
+ * <pre>
+ * int mark = Vec3Pool.main.mark();
+ * float[] dir = Vec3Pool.main.get();
+ * ...
+ * Vec3Pool.main.release(mark);
+ * </pre>
+ *
+ * The vectors must not be kept beyond the scope. Nested scopes and
+ * recursion are fine, the pool grows when it runs out. With developer set,
+ * a pool that grows beyond MAX_DEBUG vectors or a release to a mark above
+ * the top is an error, and so is a pool that is not empty at the end of
+ * the frame; these are missing releases.
+ *
+ * A pool belongs to one thread. main is the pool of the thread that runs
+ * Qcommon.Frame; code that may run on other threads uses a pool of its own,
+ * e.g. SV_CollectClientFrame uses the one of its client_t.
+ */
+public final class Vec3Pool {
+
+    /** The pool of the engine thread. */
+    public static final Vec3Pool main = new Vec3Pool();
+
+    /** Depth beyond which a developer build reports a leak. */
+    static final int MAX_DEBUG = 1024;
+
+    private float[][] vectors = new float[64][3];
+
+    private int top;
+
+    private int peak;
+
+    /** Returns the mark to release the vectors of the current scope to. */
+    public int mark() {
+        return top;
+    }
+
+    /** Returns a zeroed vector that is valid until its scope is released. */
+    public float[] get() {
+        if (top == vectors.length)
+            grow();
+        float[] v = vectors[top++];
+        v[0] = v[1] = v[2] = 0;
+        if (top > peak)
+            peak = top;
+        return v;
+    }
+
+    /** Releases all vectors taken since mark. */
+    public void release(int mark) {
+        if (mark > top && debug())
+            Com.Error(Defines.ERR_FATAL, "Vec3Pool: released to " + mark
+                    + " above " + top + "\n");
+        top = mark;
+    }
+
+    /**
+     * Called at the end of the frame, all scopes must have been released.
+     */
+    public void endFrame() {
+        if (top != 0 && debug())
+            Com.Error(Defines.ERR_FATAL, "Vec3Pool: " + top
+                    + " vectors not released at the end of the frame\n");
+        top = 0;
+    }
+
+    /** Drops all scopes, after an error unwound the frame. */
+    public void reset() {
+        top = 0;
+    }
+
+    /** The most vectors that were in use at the same time. */
+    public int peak() {
+        return peak;
+    }
+
+    private void grow() {
+        if (vectors.length >= MAX_DEBUG && debug())
+            Com.Error(Defines.ERR_FATAL, "Vec3Pool: overflow, more than "
+                    + vectors.length + " vectors in use\n");
+        float[][] grown = new float[vectors.length * 2][];
+        System.arraycopy(vectors, 0, grown, 0, vectors.length);
+        for (int i = vectors.length; i < grown.length; i++)
+            grown[i] = new float[3];
+        vectors = grown;
+    }
+
+    private static boolean debug() {
+        return Globals.developer != null && Globals.developer.value != 0;
+    }
+}